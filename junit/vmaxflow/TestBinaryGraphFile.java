@@ -0,0 +1,140 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import model.tool.maxflow.BinaryGraphFile;
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.FlowNetwork;
+import model.tool.maxflow.GraphReader;
+import model.tool.maxflow.GridGraph;
+import model.tool.maxflow.MappedCsrGraph;
+import model.tool.maxflow.PushRelabelArrayAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestBinaryGraphFile {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testWriteAndLoad() throws IOException {
+		Random random = new Random(23);
+		CsrGraph.Builder builder = new CsrGraph.Builder("random \u00e4");
+		for (int v = 0; v < 150; v++) {
+			builder.addVertex("v" + v);
+		}
+		for (int i = 0; i < 1000; i++) {
+			double cap = (0 == random.nextInt(4)) ? random.nextInt(1000) / 8.0 : random.nextInt(100);
+			String name = (0 == random.nextInt(10)) ? "arc " + i : null;
+			builder.addArc(random.nextInt(150), random.nextInt(150), cap, name);
+		}
+		CsrGraph g = builder.build();
+		File file = File.createTempFile("vmaxflow", ".bin");
+		assertTrue(BinaryGraphFile.write(file.getPath(), g, 2, 9));
+		MappedCsrGraph mapped = BinaryGraphFile.load(file.getPath());
+		file.delete();
+		
+		assertNotNull(mapped);
+		assertEquals(g.getName(), mapped.getName());
+		assertEquals(2, mapped.getSource());
+		assertEquals(9, mapped.getSink());
+		assertFalse(mapped.hasIntegralCapacities());
+		assertSameNetwork(g, mapped);
+		assertEquals(17, mapped.getVertexIndex("v17"));
+		assertEquals(-1, mapped.getVertexIndex("w17"));
+		assertEquals(new PushRelabelArrayAlgo(g, 2, 9).computeMinCut(), new PushRelabelArrayAlgo(mapped, 2, 9).computeMinCut(), 0.0);
+		assertSameNetwork(g, mapped.toCsrGraph());
+	}
+	
+	@Test
+	public void testIntegralCapacities() throws IOException {
+		GridGraph grid = new GridGraph("grid", 6, 5);
+		Random random = new Random(7);
+		for (int v = 0; v < 30; v++) {
+			grid.setSourceCapacity(v, random.nextInt(20));
+			grid.setSinkCapacity(v, random.nextInt(20));
+		}
+		File file = File.createTempFile("vmaxflow", ".bin");
+		BinaryGraphFile.write(file.getPath(), grid, grid.getSource(), grid.getSink());
+		MappedCsrGraph mapped = BinaryGraphFile.load(file.getPath());
+		file.delete();
+		assertTrue(mapped.hasIntegralCapacities());
+		assertSameNetwork(grid, mapped);
+		
+		CsrGraph.Builder builder = new CsrGraph.Builder("long");
+		builder.addVertex();
+		builder.addVertex();
+		builder.addArc(0, 1, 1L << 40);
+		CsrGraph g = builder.build();
+		BinaryGraphFile.write(file.getPath(), g, 0, 1);
+		mapped = BinaryGraphFile.load(file.getPath());
+		file.delete();
+		assertEquals(1L << 40, mapped.getLongCapacity(mapped.getResidualArc(0)));
+	}
+	
+	@Test
+	public void testConvert() throws IOException {
+		File input = File.createTempFile("vmaxflow", ".txt");
+		FileOutputStream out = new FileOutputStream(input);
+		out.write("# u, v, cap\ns, a, 3\na, b, 2, ab\ns, b, 1\nb, t, 4\n".getBytes());
+		out.close();
+		File file = File.createTempFile("vmaxflow", ".bin");
+		assertTrue(BinaryGraphFile.convert(input.getPath(), file.getPath()));
+		GraphReader reader = new GraphReader();
+		reader.readFile(input.getPath());
+		MappedCsrGraph mapped = BinaryGraphFile.load(file.getPath());
+		input.delete();
+		file.delete();
+		
+		assertSameNetwork(reader.getCsrGraph(), mapped);
+		assertEquals("s", mapped.getVertexName(mapped.getSource()));
+		assertEquals("t", mapped.getVertexName(mapped.getSink()));
+		assertEquals(3.0, new PushRelabelArrayAlgo(mapped, mapped.getSource(), mapped.getSink()).computeMinCut(), 0.0);
+	}
+	
+	@Test
+	public void testNoGraphFile() throws IOException {
+		File file = File.createTempFile("vmaxflow", ".bin");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("# u, v, cap\ns, a, 3\na, b, 2, ab\ns, b, 1\nb, t, 4\n".getBytes());
+		out.close();
+		assertNull(BinaryGraphFile.load(file.getPath()));
+		file.delete();
+	}
+	
+	private void assertSameNetwork(FlowNetwork expected, FlowNetwork network) {
+		assertEquals(expected.getNumberOfVertices(), network.getNumberOfVertices());
+		assertEquals(expected.getNumberOfArcs(), network.getNumberOfArcs());
+		assertEquals(expected.getNumberOfResidualArcs(), network.getNumberOfResidualArcs());
+		for (int v = 0; v < expected.getNumberOfVertices(); v++) {
+			assertEquals(expected.getVertexName(v), network.getVertexName(v));
+			assertEquals(expected.getFirstResidualArc(v), network.getFirstResidualArc(v));
+			assertEquals(expected.getEndResidualArc(v), network.getEndResidualArc(v));
+		}
+		for (int a = 0; a < expected.getNumberOfResidualArcs(); a++) {
+			assertEquals(expected.getHead(a), network.getHead(a));
+			assertEquals(expected.getReverse(a), network.getReverse(a));
+			assertEquals(expected.getCapacity(a), network.getCapacity(a), 0.0);
+		}
+		for (int e = 0; e < expected.getNumberOfArcs(); e++) {
+			assertEquals(expected.getResidualArc(e), network.getResidualArc(e));
+			assertEquals(expected.getArcName(e), network.getArcName(e));
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import model.tool.maxflow.BoykovKolmogorovAlgo;
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.DinicAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestBoykovKolmogorovAlgo {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testSegmentationGrid() {
+		int size = 40;
+		Random random = new Random(5);
+		CsrGraph.Builder builder = new CsrGraph.Builder("Grid");
+		int s = builder.addVertex("s");
+		int t = builder.addVertex("t");
+		int[][] pixels = new int[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				pixels[i][j] = builder.addVertex(i + "_" + j);
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				// heavy terminal arcs, a bright disc belongs to the source
+				boolean inside = (i - 20) * (i - 20) + (j - 20) * (j - 20) < 100;
+				builder.addArc(s, pixels[i][j], (inside ? 80 : 10) + random.nextInt(20));
+				builder.addArc(pixels[i][j], t, (inside ? 10 : 80) + random.nextInt(20));
+				if (i + 1 < size) {
+					builder.addArc(pixels[i][j], pixels[i + 1][j], 15);
+					builder.addArc(pixels[i + 1][j], pixels[i][j], 15);
+				}
+				if (j + 1 < size) {
+					builder.addArc(pixels[i][j], pixels[i][j + 1], 15);
+					builder.addArc(pixels[i][j + 1], pixels[i][j], 15);
+				}
+			}
+		}
+		CsrGraph network = builder.build();
+		
+		DinicAlgo reference = new DinicAlgo(network, s, t);
+		reference.computeArcFlows(-1);
+		BoykovKolmogorovAlgo algo = new BoykovKolmogorovAlgo(network, s, t);
+		algo.computeArcFlows(-1);
+		
+		assertEquals(reference.getMaxFlowValue(), algo.getMaxFlowValue(), 0.001);
+		// the reused search trees find augmenting paths of at least one unit
+		assertTrue(algo.getNumberOfAugmentations() > 0);
+		assertTrue(algo.getNumberOfAugmentations() <= algo.getMaxFlowValue());
+		boolean[] referenceSide = reference.getSourceSide();
+		boolean[] sourceSide = algo.getSourceSide();
+		for (int v = 0; v < sourceSide.length; v++) {
+			assertEquals(referenceSide[v], sourceSide[v]);
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.PushRelabelAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+import util.TestGraph;
+
+public class TestCsrGraph {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testResidualArcsArePaired() {
+		CsrGraph.Builder builder = new CsrGraph.Builder("Test");
+		int s = builder.addVertex("s");
+		int a = builder.addVertex("a");
+		int t = builder.addVertex("t");
+		builder.addArc(s, a, 3);
+		builder.addArc(a, t, 2);
+		builder.addArc(s, t, 1);
+		CsrGraph g = builder.build();
+		
+		assertEquals(3, g.getNumberOfVertices());
+		assertEquals(3, g.getNumberOfArcs());
+		assertEquals(6, g.getNumberOfResidualArcs());
+		for (int v = 0; v < g.getNumberOfVertices(); v++) {
+			for (int uv = g.getFirstResidualArc(v); uv < g.getEndResidualArc(v); uv++) {
+				int vu = g.getReverse(uv);
+				assertEquals(uv, g.getReverse(vu));
+				assertEquals(v, g.getTail(uv));
+				assertEquals(v, g.getHead(vu));
+			}
+		}
+		int e = g.getResidualArc(1);
+		assertEquals(a, g.getTail(e));
+		assertEquals(t, g.getHead(e));
+		assertEquals(2.0, g.getCapacity(e), 0.0);
+		assertEquals(0.0, g.getCapacity(g.getReverse(e)), 0.0);
+	}
+	
+	@Test
+	public void testIntegralCapacities() {
+		CsrGraph.Builder builder = new CsrGraph.Builder("Test");
+		int s = builder.addVertex("s");
+		int t = builder.addVertex("t");
+		builder.addArc(s, t, 3);
+		assertTrue(builder.build().hasIntegralCapacities());
+		builder.addArc(t, s, 5000000000.0);
+		CsrGraph g = builder.build();
+		assertTrue(g.hasIntegralCapacities());
+		assertEquals(5000000000L, g.getLongCapacity(g.getResidualArc(1)));
+		builder.addArc(s, t, 0.5);
+		assertFalse(builder.build().hasIntegralCapacities());
+	}
+	
+	@Test
+	public void testConversionFromGraph() {
+		Graph g = TestGraph.createComplexNetwork2("s", "t", 3);
+		CsrGraph csr = CsrGraph.fromGraph(g);
+		assertEquals(g.getNumberOfVertices(), csr.getNumberOfVertices());
+		assertEquals(g.getNumberOfArcs(), csr.getNumberOfArcs());
+		for (int e = 0; e < csr.getNumberOfArcs(); e++) {
+			assertNotNull(g.getArc(csr.getArcName(e)));
+		}
+		
+		PushRelabelAlgo algo = new PushRelabelAlgo(csr, csr.getVertexIndex("s"), csr.getVertexIndex("t"));
+		algo.computeMaxFlow();
+		assertEquals(4.0, algo.getMaxFlowValue(), 0.001);
+	}
+	
+	@Test
+	public void testParallelArcs() {
+		CsrGraph.Builder builder = new CsrGraph.Builder("Parallel");
+		int s = builder.addVertex("s");
+		int a = builder.addVertex("a");
+		int t = builder.addVertex("t");
+		builder.addArc(s, a, 2);
+		builder.addArc(s, a, 3);
+		builder.addArc(s, a, 1);
+		builder.addArc(a, t, 10);
+		builder.addArc(s, t, 1, "st");
+		builder.addArc(s, t, 1, "st");
+		CsrGraph g = builder.build();
+		
+		Graph graph = g.toGraph();
+		assertEquals(6, graph.getNumberOfArcs());
+		assertTrue(graph.arcExists("(s,a)#2"));
+		assertTrue(graph.arcExists("(s,a)#3"));
+		assertTrue(graph.arcExists("st#2"));
+		assertEquals(6, CsrGraph.fromGraph(graph).getNumberOfArcs());
+		
+		PushRelabelAlgo algo = new PushRelabelAlgo(g, s, t);
+		algo.computeMaxFlow();
+		assertEquals(8.0, algo.getMaxFlowValue(), 0.001);
+	}
+
+}
@@ -0,0 +1,174 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.DimacsReader;
+import model.tool.maxflow.FlowNetwork;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.GraphUtil;
+import model.tool.maxflow.PushRelabelAlgo;
+import model.tool.maxflow.PushRelabelArrayAlgo;
+import model.tool.maxflow.PushRelabelLongAlgo;
+import model.tool.maxflow.Vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestDimacsReader {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testReadFile() throws IOException {
+		String content = "c the example of the README\n"
+			+ "c\n"
+			+ "p max 6 10\n"
+			+ "n 1 s\n"
+			+ "n 6 t\n"
+			+ "a 1 2 15\n"
+			+ "a 1 4 4\n"
+			+ "\n"
+			+ "a 2 3 12\n"
+			+ "a\t3 4 3\n"
+			+ "a 3 6 7\n"
+			+ "a 4 5 10\n"
+			+ "a 5 2 5\n"
+			+ "a 5 6 10\n"
+			+ "a 5 6 2\n"
+			+ "a 3 3 8\n";
+		File file = writeTempFile(content);
+		DimacsReader reader = new DimacsReader();
+		reader.readFile(file.getPath());
+		file.delete();
+		
+		CsrGraph g = reader.getCsrGraph();
+		assertEquals(6, g.getNumberOfVertices());
+		assertEquals(9, g.getNumberOfArcs()); // the parallel arc is kept, the self-loop dropped
+		assertEquals(0, reader.getSourceIndex());
+		assertEquals(5, reader.getSinkIndex());
+		assertTrue(reader.hasIntegralCapacities());
+		PushRelabelArrayAlgo algo = new PushRelabelArrayAlgo(g, reader.getSourceIndex(), reader.getSinkIndex());
+		assertEquals(14.0, algo.computeMinCut(), 0.0);
+		
+		Graph graph = reader.getGraph();
+		PushRelabelAlgo reference = new PushRelabelAlgo(graph, reader.getSource(), reader.getSink());
+		reference.computeMaxFlow();
+		assertEquals(14.0, reference.getMaxFlowValue(), 0.0);
+	}
+	
+	@Test
+	public void testCapacitiesBeyondDoublePrecision() throws IOException {
+		long big = (1L << 53) + 1;
+		File file = writeTempFile("p max 3 2\nn 1 s\nn 3 t\na 1 2 " + big + "\na 2 3 " + (big + 2) + "\n");
+		DimacsReader reader = new DimacsReader();
+		reader.readFile(file.getPath());
+		file.delete();
+		
+		CsrGraph g = reader.getCsrGraph();
+		assertTrue(reader.hasIntegralCapacities());
+		assertEquals(big, g.getLongCapacity(g.getResidualArc(0)));
+		assertEquals(big + 2, g.getLongCapacity(g.getResidualArc(1)));
+		PushRelabelLongAlgo algo = new PushRelabelLongAlgo(g, reader.getSourceIndex(), reader.getSinkIndex());
+		algo.computeArcFlows(-1);
+		assertEquals(big, algo.getLongMaxFlowValue());
+	}
+	
+	@Test
+	public void testMalformedFile() throws IOException {
+		File file = writeTempFile("a 1 2 3\np max 2 1\n");
+		DimacsReader reader = new DimacsReader();
+		reader.readFile(file.getPath());
+		assertNull(reader.getCsrGraph());
+		file.delete();
+		
+		file = writeTempFile("p max 3 3\nn 1 s\nn 3 t\na 1 2 -1\na 1 4 2\na 1 3 2.5\n");
+		reader.readFile(file.getPath());
+		file.delete();
+		assertEquals(1, reader.getCsrGraph().getNumberOfArcs());
+		assertFalse(reader.hasIntegralCapacities());
+	}
+	
+	@Test
+	public void testWriteAndRead() throws IOException {
+		Random random = new Random(22);
+		CsrGraph.Builder builder = new CsrGraph.Builder("random");
+		for (int v = 0; v < 200; v++) {
+			builder.addVertex();
+		}
+		for (int i = 0; i < 1500; i++) {
+			double cap = (0 == random.nextInt(4)) ? random.nextInt(1000) / 8.0 : random.nextInt(100);
+			builder.addArc(random.nextInt(200), random.nextInt(200), cap);
+		}
+		CsrGraph g = builder.build();
+		File file = File.createTempFile("vmaxflow", ".max");
+		GraphUtil.writeDimacsFile(file.getPath(), g, 3, 7);
+		DimacsReader reader = new DimacsReader();
+		reader.readFile(file.getPath());
+		file.delete();
+		
+		CsrGraph read = reader.getCsrGraph();
+		assertEquals(3, reader.getSourceIndex());
+		assertEquals(7, reader.getSinkIndex());
+		assertSameArcs(g, read);
+		assertEquals(new PushRelabelArrayAlgo(g, 3, 7).computeMinCut(), new PushRelabelArrayAlgo(read, 3, 7).computeMinCut(), 0.0);
+	}
+	
+	@Test
+	public void testWriteGraph() throws IOException {
+		Graph g = new Graph("named");
+		Vertex s = new Vertex("s");
+		Vertex a = new Vertex("a");
+		Vertex t = new Vertex("t");
+		g.addVertex(s);
+		g.addVertex(a);
+		g.addVertex(t);
+		g.addArc(s, a, 3);
+		g.addArc(a, t, 2);
+		g.addArc(s, t, 1.5);
+		File file = File.createTempFile("vmaxflow", ".max");
+		GraphUtil.writeDimacsFile(file.getPath(), g, s, t);
+		DimacsReader reader = new DimacsReader();
+		reader.readFile(file.getPath());
+		file.delete();
+		
+		CsrGraph csr = CsrGraph.fromGraph(g);
+		assertEquals(csr.getVertexIndex("s"), reader.getSourceIndex());
+		assertEquals(csr.getVertexIndex("t"), reader.getSinkIndex());
+		assertSameArcs(csr, reader.getCsrGraph());
+	}
+	
+	private void assertSameArcs(FlowNetwork expected, FlowNetwork network) {
+		assertEquals(expected.getNumberOfVertices(), network.getNumberOfVertices());
+		assertEquals(expected.getNumberOfArcs(), network.getNumberOfArcs());
+		for (int e = 0; e < expected.getNumberOfArcs(); e++) {
+			int uv = expected.getResidualArc(e);
+			int read = network.getResidualArc(e);
+			assertEquals(expected.getTail(uv), network.getTail(read));
+			assertEquals(expected.getHead(uv), network.getHead(read));
+			assertEquals(expected.getCapacity(uv), network.getCapacity(read), 0.0);
+		}
+	}
+	
+	private File writeTempFile(String content) throws IOException {
+		File file = File.createTempFile("vmaxflow", ".max");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(content.getBytes());
+		out.close();
+		return file;
+	}
+
+}
@@ -0,0 +1,56 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.DinicAlgo;
+import model.tool.maxflow.PushRelabelArrayAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestDinicAlgo {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testPhasesOfUnitCapacities() {
+		Random random = new Random(11);
+		CsrGraph.Builder builder = new CsrGraph.Builder("Matching");
+		int s = builder.addVertex("s");
+		int t = builder.addVertex("t");
+		int n = 300;
+		int[] left = new int[n];
+		int[] right = new int[n];
+		for (int i = 0; i < n; i++) {
+			left[i] = builder.addVertex();
+			right[i] = builder.addVertex();
+			builder.addArc(s, left[i], 1);
+			builder.addArc(right[i], t, 1);
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < 3; j++) {
+				builder.addArc(left[i], right[random.nextInt(n)], 1);
+			}
+		}
+		CsrGraph network = builder.build();
+		
+		PushRelabelArrayAlgo reference = new PushRelabelArrayAlgo(network, s, t);
+		DinicAlgo algo = new DinicAlgo(network, s, t);
+		algo.computeArcFlows(-1);
+		
+		assertEquals(reference.computeMinCut(), algo.getMaxFlowValue(), 0.001);
+		// every phase lengthens the shortest augmenting path, with unit
+		// capacities at most 2 sqrt(n) phases are needed
+		assertTrue(algo.getNumberOfPhases() <= 2 * Math.sqrt(network.getNumberOfVertices()));
+	}
+
+}
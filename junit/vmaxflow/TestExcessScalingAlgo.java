@@ -0,0 +1,51 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.ExcessScalingAlgo;
+import model.tool.maxflow.PushRelabelLongAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestExcessScalingAlgo {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testWideCapacityRange() {
+		long big = 1000000000L;
+		CsrGraph.Builder builder = new CsrGraph.Builder("Test");
+		int s = builder.addVertex("s");
+		int a = builder.addVertex("a");
+		int b = builder.addVertex("b");
+		int c = builder.addVertex("c");
+		int t = builder.addVertex("t");
+		builder.addArc(s, a, big);
+		builder.addArc(s, b, 1);
+		builder.addArc(a, b, big);
+		builder.addArc(a, c, 3);
+		builder.addArc(b, c, big);
+		builder.addArc(b, t, 7);
+		builder.addArc(c, t, big);
+		CsrGraph g = builder.build();
+		
+		PushRelabelLongAlgo reference = new PushRelabelLongAlgo(g, s, t);
+		reference.computeArcFlows(-1);
+		ExcessScalingAlgo algo = new ExcessScalingAlgo(g, s, t);
+		long[] flow = algo.computeArcFlows(-1);
+		assertEquals(reference.getLongMaxFlowValue(), algo.getLongMaxFlowValue());
+		assertEquals(big + 1, algo.getLongMaxFlowValue());
+		assertEquals(big, flow[0]);
+		// one phase for every power of two from 2^30, the next above the
+		// largest excess, down to 1
+		assertEquals(31, algo.getNumberOfPhases());
+	}
+
+}
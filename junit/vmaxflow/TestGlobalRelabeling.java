@@ -0,0 +1,117 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.GlobalRelabeling;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestGlobalRelabeling {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testDistancesToSink() {
+		int n = 1000;
+		CsrGraph.Builder builder = new CsrGraph.Builder("Test");
+		for (int i = 0; i < n; i++) {
+			builder.addVertex(i + "");
+		}
+		// two paths from 0 to the sink 1, one of length 500 over even vertices
+		for (int i = 2; i + 2 < n; i += 2) {
+			builder.addArc(i, i + 2, 1);
+		}
+		builder.addArc(0, 2, 1);
+		builder.addArc(n - 2, 1, 1);
+		// the odd vertices only have arcs away from the sink
+		for (int i = 3; i + 2 < n; i += 2) {
+			builder.addArc(1, i, 1);
+		}
+		CsrGraph network = builder.build();
+		double[] residual = new double[network.getNumberOfResidualArcs()];
+		for (int a = 0; a < residual.length; a++) {
+			residual[a] = network.getCapacity(a);
+		}
+		
+		int[] expected = new int[n];
+		for (int v = 0; v < n; v++) {
+			expected[v] = (0 == v % 2 && v > 0) ? (n - v) / 2 : n;
+		}
+		expected[1] = 0;
+		
+		GlobalRelabeling relabeling = new GlobalRelabeling(network, residual);
+		int[] distances = new int[n];
+		assertEquals(n / 2, relabeling.computeDistances(distances, 0, 1));
+		assertArrayEquals(expected, distances);
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		relabeling.setPool(pool);
+		int[] parallelDistances = new int[n];
+		assertEquals(n / 2, relabeling.computeDistances(parallelDistances, 0, 1));
+		pool.shutdown();
+		assertArrayEquals(expected, parallelDistances);
+	}
+	
+	@Test
+	public void testWideFrontiers() {
+		// layers of 2000 vertices with random arcs into the layer below, so
+		// the frontiers are much wider than the grain of a level task
+		Random random = new Random(10);
+		int width = 2000;
+		int layers = 5;
+		CsrGraph.Builder builder = new CsrGraph.Builder("Layers");
+		int s = builder.addVertex("s");
+		int t = builder.addVertex("t");
+		for (int v = 0; v < layers * width; v++) {
+			builder.addVertex();
+		}
+		for (int i = 0; i < width; i++) {
+			builder.addArc(s, 2 + i, 1);
+			builder.addArc(2 + (layers - 1) * width + i, t, 1);
+		}
+		for (int layer = 0; layer + 1 < layers; layer++) {
+			for (int i = 0; i < width; i++) {
+				int u = 2 + layer * width + i;
+				// some vertices cannot reach the sink
+				int arcs = (0 == random.nextInt(20)) ? 0 : 1 + random.nextInt(3);
+				for (int k = 0; k < arcs; k++) {
+					builder.addArc(u, 2 + (layer + 1) * width + random.nextInt(width), 1 + random.nextInt(5));
+				}
+			}
+		}
+		CsrGraph network = builder.build();
+		int n = network.getNumberOfVertices();
+		double[] residual = new double[network.getNumberOfResidualArcs()];
+		for (int a = 0; a < residual.length; a++) {
+			residual[a] = network.getCapacity(a);
+		}
+		
+		GlobalRelabeling relabeling = new GlobalRelabeling(network, residual);
+		int[] expected = new int[n];
+		int reached = relabeling.computeDistances(expected, s, t);
+		assertTrue(reached > width * layers / 2);
+		assertEquals(1, expected[2 + (layers - 1) * width]);
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		relabeling.setPool(pool);
+		for (int round = 0; round < 3; round++) {
+			int[] distances = new int[n];
+			assertEquals(reached, relabeling.computeDistances(distances, s, t));
+			assertArrayEquals(expected, distances);
+		}
+		pool.shutdown();
+	}
+
+}
@@ -0,0 +1,129 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.GomoryHuTree;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.PushRelabelArrayAlgo;
+import model.tool.maxflow.Vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestGomoryHuTree {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testAllPairsMinCuts() {
+		Random random = new Random(11);
+		for (int round = 0; round < 4; round++) {
+			int n = 15;
+			Graph g = new Graph("Test");
+			for (int i = 0; i < n; i++) {
+				g.addVertex(new Vertex(i + ""));
+			}
+			for (int i = 0; i < 3 * n; i++) {
+				int u = random.nextInt(n);
+				int v = random.nextInt(n);
+				if (u != v && !g.arcExists("(" + u + "," + v + ")") && !g.arcExists("(" + v + "," + u + ")")) {
+					g.addDoubleArcs(g.getVertex(u + ""), g.getVertex(v + ""), 1 + random.nextInt(9));
+				}
+			}
+			
+			GomoryHuTree tree = new GomoryHuTree(g);
+			tree.setNumberOfWorkers(1 + round);
+			tree.computeTree();
+			assertTrue(tree.getNumberOfCutComputations() >= n - 1);
+			for (int u = 0; u < n; u++) {
+				for (int v = u + 1; v < n; v++) {
+					Vertex s = g.getVertex(u + "");
+					Vertex t = g.getVertex(v + "");
+					PushRelabelArrayAlgo algo = new PushRelabelArrayAlgo(g, s, t);
+					assertEquals(algo.computeMinCut(), tree.getMinCutValue(s, t), 0.001);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testSubtreesAreMinCuts() {
+		Random random = new Random(17);
+		for (int round = 0; round < 4; round++) {
+			int n = 20;
+			CsrGraph.Builder builder = new CsrGraph.Builder("Test");
+			for (int i = 0; i < n; i++) {
+				builder.addVertex();
+			}
+			for (int i = 0; i < 3 * n; i++) {
+				int u = random.nextInt(n);
+				int v = random.nextInt(n);
+				if (u != v) {
+					double capacity = 1 + random.nextInt(9);
+					builder.addArc(u, v, capacity);
+					builder.addArc(v, u, capacity);
+				}
+			}
+			CsrGraph network = builder.build();
+			
+			GomoryHuTree tree = new GomoryHuTree(network);
+			tree.setNumberOfWorkers(1 + round);
+			tree.computeTree();
+			for (int v = 1; v < n; v++) {
+				boolean[] subtree = new boolean[n];
+				for (int u = 0; u < n; u++) {
+					int w = u;
+					while (w >= 0 && w != v) {
+						w = tree.getParent(w);
+					}
+					subtree[u] = (w == v);
+				}
+				double cut = 0.0;
+				for (int a = 0; a < network.getNumberOfArcs(); a++) {
+					int arc = network.getResidualArc(a);
+					if (subtree[network.getTail(arc)] && !subtree[network.getHead(arc)]) {
+						cut += network.getCapacity(arc);
+					}
+				}
+				PushRelabelArrayAlgo algo = new PushRelabelArrayAlgo(network, v, tree.getParent(v));
+				assertEquals(algo.computeMinCut(), tree.getParentCutValue(v), 0.001);
+				assertEquals(tree.getParentCutValue(v), cut, 0.001);
+			}
+		}
+	}
+	
+	@Test
+	public void testSameTreeForAnyNumberOfWorkers() {
+		Random random = new Random(5);
+		int n = 40;
+		Graph g = new Graph("Test");
+		for (int i = 0; i < n; i++) {
+			g.addVertex(new Vertex(i + ""));
+		}
+		for (int i = 1; i < n; i++) {
+			g.addDoubleArcs(g.getVertex(i + ""), g.getVertex(random.nextInt(i) + ""), 1 + random.nextInt(20));
+		}
+		
+		GomoryHuTree sequential = new GomoryHuTree(g);
+		sequential.setNumberOfWorkers(1);
+		sequential.computeTree();
+		assertEquals(n - 1, sequential.getNumberOfCutComputations());
+		GomoryHuTree parallel = new GomoryHuTree(g);
+		parallel.setNumberOfWorkers(4);
+		parallel.computeTree();
+		for (int v = 0; v < n; v++) {
+			assertEquals(sequential.getParent(v), parallel.getParent(v));
+			assertEquals(sequential.getParentCutValue(v), parallel.getParentCutValue(v), 0.0);
+		}
+	}
+
+}
@@ -0,0 +1,197 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import model.tool.maxflow.Arc;
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.GraphReader;
+import model.tool.maxflow.PushRelabelArrayAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestGraphReader {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testMappedSameAsLineByLine() throws IOException {
+		String content = "# Node u, Node v, Capacity of arc uv\n"
+			+ "  s , a, 15\r\n"
+			+ "s, b, 4.25\r"
+			+ "a, c, 12\n"
+			+ "\n"
+			+ "a, a, 3\n"
+			+ "c, b, 3\n"
+			+ "b, d, 1e1\n"
+			+ "a, c, 7\n"
+			+ "d, a, -5\n"
+			+ "d, e, 0\n"
+			+ "c, e, 7,,\n"
+			+ "x y, a, 2, named arc\n"
+			+ "d, b, 2, (c,b)\n"
+			+ "d, c, 2, (d,c)\n"
+			+ "d, c, 3\n"
+			+ "c, d\n"
+			+ "d, t, 10";
+		for (int k = 0; k < 2; k++) {
+			File file = writeTempFile(content);
+			assertSameGraph(file, true);
+			assertSameGraph(file, false);
+			file.delete();
+			content += "\n";
+		}
+	}
+	
+	@Test
+	public void testMappedRandomNetwork() throws IOException {
+		Random random = new Random(21);
+		StringBuilder content = new StringBuilder("# Node u, Node v, Capacity of arc uv\n");
+		for (int i = 0; i < 2000; i++) {
+			int u = random.nextInt(300);
+			int v = random.nextInt(300);
+			String cap = (0 == random.nextInt(3)) ? String.valueOf(random.nextInt(1000) / 8.0) : String.valueOf(random.nextInt(100));
+			content.append("v" + u + ", v" + v + ", " + cap + "\n");
+		}
+		File file = writeTempFile(content.toString());
+		assertSameGraph(file, true);
+		
+		GraphReader reader = new GraphReader();
+		reader.readFileMapped(file.getPath());
+		CsrGraph g = reader.getCsrGraph();
+		GraphReader lineReader = new GraphReader();
+		lineReader.readFile(file.getPath());
+		PushRelabelArrayAlgo reference = new PushRelabelArrayAlgo(lineReader.getGraph(), lineReader.getSource(), lineReader.getSink());
+		PushRelabelArrayAlgo algo = new PushRelabelArrayAlgo(g, reader.getSourceIndex(), reader.getSinkIndex());
+		assertEquals(reference.computeMinCut(), algo.computeMinCut(), 0.001);
+		file.delete();
+	}
+	
+	@Test
+	public void testMappedCapacitiesBeyondDoublePrecision() throws IOException {
+		long big = (1L << 53) + 1;
+		File file = writeTempFile("s, a, " + big + "\na, t, " + (big + 2) + "\ns, t, 1.5\n");
+		GraphReader reader = new GraphReader();
+		reader.readFileMapped(file.getPath());
+		file.delete();
+		
+		CsrGraph g = reader.getCsrGraph();
+		assertFalse(reader.hasIntegralCapacities());
+		assertEquals(big, g.getCapacity(g.getResidualArc(0)), 0.0);
+		
+		file = writeTempFile("s, a, " + big + "\na, t, " + (big + 2) + "\n");
+		reader.readFileMapped(file.getPath());
+		file.delete();
+		g = reader.getCsrGraph();
+		assertTrue(reader.hasIntegralCapacities());
+		assertEquals(big, g.getLongCapacity(g.getResidualArc(0)));
+		assertEquals(big + 2, g.getLongCapacity(g.getResidualArc(1)));
+	}
+	
+	@Test
+	public void testParallelSameAsSequential() throws IOException {
+		Random random = new Random(24);
+		String[] endings = { "\n", "\r\n", "\r" };
+		StringBuilder content = new StringBuilder("# Node u, Node v, Capacity of arc uv\n");
+		for (int i = 0; i < 60000; i++) {
+			int u = random.nextInt(5000);
+			int v = random.nextInt(5000);
+			int kind = random.nextInt(100);
+			if (0 == kind) {
+				content.append("v" + u + ", v" + v);
+			} else if (1 == kind) {
+				content.append("v" + u + ", v" + v + ", -1");
+			} else if (2 == kind) {
+				content.append("# v" + u + ", v" + v + ", 1");
+			} else if (3 == kind) {
+				content.append("v" + u + ", v" + u + ", 1");
+			} else if (4 == kind) {
+				content.append("v" + u + ", v" + v + ", 0");
+			} else {
+				content.append(" v" + u + " , v" + v + ", " + random.nextInt(100));
+			}
+			content.append(endings[random.nextInt(endings.length)]);
+		}
+		content.append("v1, t, 5");
+		File file = writeTempFile(content.toString());
+		assertSameAsSequential(file, true);
+		assertSameAsSequential(file, false);
+		file.delete();
+		
+		// named arcs and a malformed number stop all readers at the same line
+		content.insert(content.length() / 3, "a, b, 2, (v1,v2)\nv1, v2, 3\nv2, v3, 1x\n");
+		file = writeTempFile(content.toString());
+		assertSameAsSequential(file, true);
+		file.delete();
+	}
+	
+	private void assertSameAsSequential(File file, boolean allowArcsWithZeroCapacity) {
+		GraphReader sequential = new GraphReader();
+		sequential.readFileMapped(file.getPath(), allowArcsWithZeroCapacity, 1);
+		GraphReader parallel = new GraphReader();
+		parallel.readFileMapped(file.getPath(), allowArcsWithZeroCapacity, 4);
+		CsrGraph expected = sequential.getCsrGraph();
+		CsrGraph g = parallel.getCsrGraph();
+		assertEquals(sequential.hasIntegralCapacities(), parallel.hasIntegralCapacities());
+		assertEquals(sequential.getSourceIndex(), parallel.getSourceIndex());
+		assertEquals(sequential.getSinkIndex(), parallel.getSinkIndex());
+		assertEquals(expected.getNumberOfVertices(), g.getNumberOfVertices());
+		assertEquals(expected.getNumberOfArcs(), g.getNumberOfArcs());
+		for (int v = 0; v < g.getNumberOfVertices(); v++) {
+			assertEquals(expected.getVertexName(v), g.getVertexName(v));
+		}
+		for (int e = 0; e < g.getNumberOfArcs(); e++) {
+			assertEquals(expected.getArcName(e), g.getArcName(e));
+			assertEquals(expected.getCapacity(expected.getResidualArc(e)), g.getCapacity(g.getResidualArc(e)), 0.0);
+		}
+		assertSameGraph(file, allowArcsWithZeroCapacity);
+	}
+	
+	private void assertSameGraph(File file, boolean allowArcsWithZeroCapacity) {
+		GraphReader expected = new GraphReader();
+		expected.readFile(file.getPath(), allowArcsWithZeroCapacity);
+		GraphReader reader = new GraphReader();
+		reader.readFileMapped(file.getPath(), allowArcsWithZeroCapacity);
+		assertNotNull(reader.getCsrGraph());
+		assertEquals(expected.hasIntegralCapacities(), reader.hasIntegralCapacities());
+		assertEquals(expected.getSource().getName(), reader.getSource().getName());
+		assertEquals(expected.getSink().getName(), reader.getSink().getName());
+		
+		Graph g = expected.getGraph();
+		Graph mapped = reader.getGraph();
+		assertEquals(g.getAllVertices().size(), mapped.getAllVertices().size());
+		assertEquals(g.getAllArcs().size(), mapped.getAllArcs().size());
+		for (Arc a : g.getAllArcs()) {
+			assertTrue(mapped.arcExists(a.getName()));
+			Arc b = mapped.getArc(a.getName());
+			assertEquals(a.getStartVertex().getName(), b.getStartVertex().getName());
+			assertEquals(a.getEndVertex().getName(), b.getEndVertex().getName());
+			assertEquals(a.getCapacity(), b.getCapacity(), 0.0);
+			assertEquals(a.getId(), b.getId());
+		}
+		assertFalse(mapped.arcExists("(a,a)"));
+	}
+	
+	private File writeTempFile(String content) throws IOException {
+		File file = File.createTempFile("vmaxflow", ".txt");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(content.getBytes());
+		out.close();
+		return file;
+	}
+
+}
@@ -0,0 +1,138 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.GraphStatistics;
+import model.tool.maxflow.MaxFlowSolvers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestGraphStatistics {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testGrid() {
+		int size = 10;
+		CsrGraph.Builder builder = new CsrGraph.Builder("Grid");
+		int s = builder.addVertex("s");
+		int t = builder.addVertex("t");
+		int[][] p = new int[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				p[i][j] = builder.addVertex(i + "_" + j);
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				builder.addArc(s, p[i][j], 1 + (i * j) % 7);
+				builder.addArc(p[i][j], t, 1 + (i + j) % 5);
+				if (i + 1 < size) {
+					builder.addArc(p[i][j], p[i + 1][j], 3);
+					builder.addArc(p[i + 1][j], p[i][j], 3);
+				}
+				if (j + 1 < size) {
+					builder.addArc(p[i][j], p[i][j + 1], 3);
+					builder.addArc(p[i][j + 1], p[i][j], 3);
+				}
+			}
+		}
+		GraphStatistics statistics = new GraphStatistics(builder.build(), s, t);
+		
+		assertEquals(4, statistics.getMaxDegree());
+		assertEquals(1.0, statistics.getTerminalFraction(), 0.0);
+		assertTrue(statistics.isGridLike());
+		assertFalse(statistics.isBipartite());
+		assertFalse(statistics.hasUnitCapacities());
+		assertEquals(MaxFlowSolvers.BOYKOV_KOLMOGOROV, MaxFlowSolvers.choose(statistics));
+	}
+	
+	@Test
+	public void testMatching() {
+		CsrGraph.Builder builder = new CsrGraph.Builder("Matching");
+		int s = builder.addVertex("s");
+		int t = builder.addVertex("t");
+		int n = 20;
+		int[] left = new int[n];
+		int[] right = new int[n];
+		for (int i = 0; i < n; i++) {
+			left[i] = builder.addVertex();
+			right[i] = builder.addVertex();
+			builder.addArc(s, left[i], 1);
+			builder.addArc(right[i], t, 1);
+		}
+		for (int i = 0; i < n; i++) {
+			builder.addArc(left[i], right[i], 1);
+			builder.addArc(left[i], right[(i * 7 + 3) % n], 1);
+			builder.addArc(left[i], right[(i * 11 + 5) % n], 1);
+		}
+		GraphStatistics statistics = new GraphStatistics(builder.build(), s, t);
+		
+		assertTrue(statistics.hasUnitCapacities());
+		assertTrue(statistics.isBipartite());
+		assertEquals(MaxFlowSolvers.DINIC, MaxFlowSolvers.choose(statistics));
+	}
+	
+	@Test
+	public void testWideIntegralCapacities() {
+		CsrGraph.Builder builder = new CsrGraph.Builder("Wide");
+		int s = builder.addVertex("s");
+		int a = builder.addVertex("a");
+		int b = builder.addVertex("b");
+		int t = builder.addVertex("t");
+		builder.addArc(s, a, 1L << 50);
+		builder.addArc(a, b, 1);
+		builder.addArc(b, a, 1);
+		builder.addArc(a, t, 5);
+		builder.addArc(b, t, 1L << 45);
+		GraphStatistics statistics = new GraphStatistics(builder.build(), s, t);
+		
+		assertTrue(statistics.hasIntegralCapacities());
+		assertEquals(1L << 50, statistics.getCapacityRange(), 0.0);
+		assertEquals(MaxFlowSolvers.EXCESS_SCALING, MaxFlowSolvers.choose(statistics));
+	}
+	
+	@Test
+	public void testIntegralCapacities() {
+		Random random = new Random(15);
+		CsrGraph.Builder integral = new CsrGraph.Builder("Integral");
+		CsrGraph.Builder fractional = new CsrGraph.Builder("Fractional");
+		CsrGraph.Builder large = new CsrGraph.Builder("Large");
+		int n = 60;
+		for (int v = 0; v < n; v++) {
+			integral.addVertex();
+			fractional.addVertex();
+			large.addVertex();
+		}
+		for (int i = 0; i < 6 * n; i++) {
+			int u = random.nextInt(n);
+			int v = random.nextInt(n);
+			int cap = 1 + random.nextInt(100);
+			integral.addArc(u, v, cap);
+			fractional.addArc(u, v, cap + 0.5);
+			large.addArc(u, v, cap * (1L << 46));
+		}
+		
+		// ordinary integral capacities take the exact long engine
+		GraphStatistics statistics = new GraphStatistics(integral.build(), 0, n - 1);
+		assertFalse(statistics.isGridLike());
+		assertEquals(MaxFlowSolvers.LONG, MaxFlowSolvers.choose(statistics));
+		statistics = new GraphStatistics(fractional.build(), 0, n - 1);
+		assertEquals(MaxFlowSolvers.ARRAY, MaxFlowSolvers.choose(statistics));
+		statistics = new GraphStatistics(large.build(), 0, n - 1);
+		assertTrue(statistics.getTotalCapacity() >= Math.pow(2, 53));
+		assertEquals(MaxFlowSolvers.LONG, MaxFlowSolvers.choose(statistics));
+	}
+
+}
@@ -0,0 +1,105 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import model.tool.maxflow.Arc;
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.GraphUtil;
+import model.tool.maxflow.MaxFlowSolvers;
+import model.tool.maxflow.PushRelabelAlgo;
+import model.tool.maxflow.Vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+import util.TestGraph;
+
+public class TestGraphUtil {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testArcFlowsOfAllAlgorithms() {
+		for (int k = 1; k <= 4; k++) {
+			Graph g = TestGraph.createComplexNetwork2("s", "t", k);
+			PushRelabelAlgo reference = new PushRelabelAlgo(g, g.getVertex("s"), g.getVertex("t"));
+			reference.computeMaxFlow();
+			CsrGraph csr = CsrGraph.fromGraph(g);
+			int s = csr.getVertexIndex("s");
+			int t = csr.getVertexIndex("t");
+			for (String name : MaxFlowSolvers.getNames()) {
+				if (MaxFlowSolvers.needsGraph(name)) {
+					assertNull(MaxFlowSolvers.computeArcFlows(name, csr, s, t, -1));
+					continue;
+				}
+				double[] flow = MaxFlowSolvers.computeArcFlows(name, csr, s, t, -1);
+				assertEquals(name, reference.getMaxFlowValue(), GraphUtil.getFlowValue(csr, flow, s), 0.001);
+				double cut = 0.0;
+				for (int e : GraphUtil.getOutgoingArcs(csr, GraphUtil.findSourceSide(csr, flow, s))) {
+					cut += csr.getCapacity(csr.getResidualArc(e));
+				}
+				assertEquals(name, reference.getMaxFlowValue(), cut, 0.001);
+			}
+		}
+	}
+	
+	@Test
+	public void testSourceSideSameAsGraph() {
+		Graph g = TestGraph.createComplexNetwork2("s", "t", 5);
+		Vertex s = g.getVertex("s");
+		CsrGraph csr = CsrGraph.fromGraph(g);
+		double[] flow = MaxFlowSolvers.computeArcFlows(MaxFlowSolvers.ARRAY, csr, csr.getVertexIndex("s"), csr.getVertexIndex("t"), -1);
+		HashMap<Arc, Double> flowMap = GraphUtil.createFlowMap(g, csr, flow);
+		
+		HashSet<String> expected = GraphUtil.findCutVerticesSetClosestToSource(g, flowMap, s);
+		boolean[] sourceSide = GraphUtil.findSourceSide(csr, flow, csr.getVertexIndex("s"));
+		assertEquals(expected, GraphUtil.getVertexNames(csr, sourceSide));
+		assertEquals(GraphUtil.getOutgoingArcs(g, expected).size(), GraphUtil.getOutgoingArcs(csr, sourceSide).length);
+	}
+	
+	@Test
+	public void testWriteOutputFile() throws IOException {
+		Graph g = new Graph("small");
+		Vertex s = new Vertex("s");
+		Vertex a = new Vertex("a");
+		Vertex t = new Vertex("t");
+		g.addVertex(s);
+		g.addVertex(a);
+		g.addVertex(t);
+		g.addArc(s, a, 3);
+		g.addArc(a, t, 2);
+		g.addArc(s, t, 1.5);
+		CsrGraph csr = CsrGraph.fromGraph(g);
+		double[] flow = MaxFlowSolvers.computeArcFlows(MaxFlowSolvers.DINIC, csr, csr.getVertexIndex("s"), csr.getVertexIndex("t"), -1);
+		File file = File.createTempFile("vmaxflow", ".txt");
+		GraphUtil.writeOutputFile(file.getPath(), csr, flow);
+		
+		HashSet<String> lines = new HashSet<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		assertEquals("# Node u, Node v, Flow on arc uv, Capacity of arc uv", reader.readLine());
+		for (String line = reader.readLine(); null != line; line = reader.readLine()) {
+			lines.add(line);
+		}
+		reader.close();
+		file.delete();
+		HashSet<String> expected = new HashSet<String>();
+		expected.add(String.format("%s, %s, %.3f, %.3f", "s", "a", 2.0, 3.0));
+		expected.add(String.format("%s, %s, %.3f, %.3f", "a", "t", 2.0, 2.0));
+		expected.add(String.format("%s, %s, %.3f, %.3f", "s", "t", 1.5, 1.5));
+		assertEquals(expected, lines);
+	}
+
+}
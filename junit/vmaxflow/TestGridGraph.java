@@ -0,0 +1,147 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import model.tool.maxflow.BoykovKolmogorovAlgo;
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.DinicAlgo;
+import model.tool.maxflow.ExcessScalingAlgo;
+import model.tool.maxflow.GridGraph;
+import model.tool.maxflow.MaxFlowSolvers;
+import model.tool.maxflow.PseudoflowAlgo;
+import model.tool.maxflow.PushRelabelArrayAlgo;
+import model.tool.maxflow.PushRelabelLongAlgo;
+import model.tool.maxflow.PushRelabelParallelAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestGridGraph {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testStructure() {
+		GridGraph g = new GridGraph("Grid", 4, 3, 2);
+		int n = g.getNumberOfVertices();
+		assertEquals(4 * 3 * 2 + 2, n);
+		assertEquals(g.getVertex(1, 2, 1), 1 + 2 * 4 + 12);
+		assertEquals(2, g.getCoordinate(g.getVertex(1, 2, 1), 1));
+		for (int v = 0; v < n; v++) {
+			for (int a = g.getFirstResidualArc(v); a < g.getEndResidualArc(v); a++) {
+				assertEquals(v, g.getTail(a));
+				assertEquals(a, g.getReverse(g.getReverse(a)));
+				assertEquals(g.getHead(a), g.getTail(g.getReverse(a)));
+			}
+		}
+		assertEquals(g.getNumberOfResidualArcs(), g.getEndResidualArc(n - 1));
+	}
+	
+	@Test
+	public void testSameResultAsCsrGraph() {
+		int width = 12;
+		int height = 9;
+		int depth = 5;
+		Random random = new Random(3);
+		GridGraph grid = new GridGraph("Grid", width, height, depth);
+		CsrGraph.Builder builder = new CsrGraph.Builder("Csr");
+		int[] vertices = new int[grid.getNumberOfGridVertices()];
+		for (int v = 0; v < vertices.length; v++) {
+			vertices[v] = builder.addVertex();
+		}
+		int s = builder.addVertex();
+		int t = builder.addVertex();
+		for (int v = 0; v < vertices.length; v++) {
+			int sourceCapacity = random.nextInt(30);
+			int sinkCapacity = random.nextInt(30);
+			grid.setSourceCapacity(v, sourceCapacity);
+			grid.setSinkCapacity(v, sinkCapacity);
+			builder.addArc(s, vertices[v], sourceCapacity);
+			builder.addArc(vertices[v], t, sinkCapacity);
+			for (int direction = 0; direction < 6; direction++) {
+				int w = grid.getNeighbour(v, direction);
+				if (w != v) {
+					int capacity = random.nextInt(10);
+					grid.setCapacity(v, direction, capacity);
+					builder.addArc(vertices[v], vertices[w], capacity);
+				}
+			}
+		}
+		CsrGraph csr = builder.build();
+		
+		DinicAlgo reference = new DinicAlgo(csr, s, t);
+		reference.computeArcFlows(-1);
+		double value = reference.getMaxFlowValue();
+		
+		PushRelabelArrayAlgo array = new PushRelabelArrayAlgo(grid, grid.getSource(), grid.getSink());
+		array.computeArcFlows(-1);
+		assertEquals(value, array.getMaxFlowValue(), 0.0);
+		PushRelabelLongAlgo longAlgo = new PushRelabelLongAlgo(grid, grid.getSource(), grid.getSink());
+		longAlgo.computeArcFlows(-1);
+		assertEquals(value, longAlgo.getMaxFlowValue(), 0.0);
+		DinicAlgo dinic = new DinicAlgo(grid, grid.getSource(), grid.getSink());
+		dinic.computeArcFlows(-1);
+		assertEquals(value, dinic.getMaxFlowValue(), 0.0);
+		BoykovKolmogorovAlgo bk = new BoykovKolmogorovAlgo(grid, grid.getSource(), grid.getSink());
+		bk.computeArcFlows(-1);
+		assertEquals(value, bk.getMaxFlowValue(), 0.0);
+		PushRelabelParallelAlgo parallel = new PushRelabelParallelAlgo(grid, grid.getSource(), grid.getSink());
+		parallel.setNumberOfWorkers(2);
+		assertEquals(value, parallel.computeMinCut(-1), 0.0);
+		ExcessScalingAlgo scaling = new ExcessScalingAlgo(grid, grid.getSource(), grid.getSink());
+		scaling.computeArcFlows(-1);
+		assertEquals(value, scaling.getMaxFlowValue(), 0.0);
+		PseudoflowAlgo hpf = new PseudoflowAlgo(grid, grid.getSource(), grid.getSink());
+		assertEquals(value, hpf.computeMinCut(-1), 0.0);
+		
+		// the flow leaving the source side is the flow value
+		long[] flow = longAlgo.getArcFlows();
+		long total = 0;
+		for (int v = 0; v < vertices.length; v++) {
+			total += flow[grid.getFirstResidualArc(v) + 6];
+		}
+		assertEquals((long) value, total);
+	}
+	
+	@Test
+	public void testArcFlowsAreConserved() {
+		Random random = new Random(16);
+		GridGraph grid = new GridGraph("Grid", 7, 6, 3);
+		for (int v = 0; v < grid.getNumberOfGridVertices(); v++) {
+			grid.setSourceCapacity(v, random.nextInt(20));
+			grid.setSinkCapacity(v, random.nextInt(20));
+			for (int direction = 0; direction < 6; direction++) {
+				grid.setCapacity(v, direction, random.nextInt(10));
+			}
+		}
+		int s = grid.getSource();
+		int t = grid.getSink();
+		for (String name : MaxFlowSolvers.getNames()) {
+			if (MaxFlowSolvers.needsGraph(name)) {
+				continue;
+			}
+			double[] f = MaxFlowSolvers.computeArcFlows(name, grid, s, t, -1);
+			double[] balance = new double[grid.getNumberOfVertices()];
+			for (int e = 0; e < grid.getNumberOfArcs(); e++) {
+				int uv = grid.getResidualArc(e);
+				assertTrue(name, f[e] >= 0.0 && f[e] <= grid.getCapacity(uv));
+				balance[grid.getTail(uv)] -= f[e];
+				balance[grid.getHead(uv)] += f[e];
+			}
+			for (int v = 0; v < grid.getNumberOfGridVertices(); v++) {
+				assertEquals(name, 0.0, balance[v], 0.001);
+			}
+			assertEquals(name, -balance[s], balance[t], 0.001);
+			assertEquals(name, new DinicAlgo(grid, s, t).computeArcFlows(-1).length, f.length);
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Random;
+
+import model.tool.maxflow.Arc;
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.HaoOrlinAlgo;
+import model.tool.maxflow.Vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestHaoOrlinAlgo {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testSameResultAsAllVertexSets() {
+		Random random = new Random(20);
+		for (int round = 0; round < 200; round++) {
+			int n = 2 + random.nextInt(10);
+			CsrGraph.Builder builder = new CsrGraph.Builder("Test");
+			for (int v = 0; v < n; v++) {
+				builder.addVertex();
+			}
+			int m = random.nextInt(3 * n);
+			for (int e = 0; e < m; e++) {
+				int u = random.nextInt(n);
+				int v = random.nextInt(n);
+				if (u != v) {
+					builder.addArc(u, v, 1 + random.nextInt(9));
+				}
+			}
+			CsrGraph g = builder.build();
+			
+			HaoOrlinAlgo algo = new HaoOrlinAlgo(g);
+			double value = algo.computeMinCut();
+			assertEquals(getMinCutByEnumeration(g), value, 0.001);
+			
+			boolean[] sourceSide = algo.getSourceSide();
+			int size = 0;
+			for (int v = 0; v < n; v++) {
+				size += sourceSide[v] ? 1 : 0;
+			}
+			assertTrue(size > 0 && size < n);
+			assertEquals(value, getCutValue(g, sourceSide), 0.001);
+		}
+	}
+	
+	@Test
+	public void testCutArcsOfGraph() {
+		// two triangles, joined by a single arc in each direction
+		Graph g = new Graph("Test");
+		for (int i = 0; i < 6; i++) {
+			g.addVertex(new Vertex(i + ""));
+		}
+		for (int i = 0; i < 3; i++) {
+			g.addDoubleArcs(g.getVertex(i + ""), g.getVertex((i + 1) % 3 + ""), 5);
+			g.addDoubleArcs(g.getVertex(3 + i + ""), g.getVertex(3 + (i + 1) % 3 + ""), 5);
+		}
+		g.addArc(g.getVertex("2"), g.getVertex("3"), 3);
+		g.addArc(g.getVertex("4"), g.getVertex("0"), 2);
+		
+		HaoOrlinAlgo algo = new HaoOrlinAlgo(g);
+		assertEquals(2.0, algo.computeMinCut(), 0.001);
+		HashSet<String> sourceSet = algo.getCutSetCloseToSource();
+		assertEquals(3, sourceSet.size());
+		assertTrue(sourceSet.contains("3") && sourceSet.contains("4") && sourceSet.contains("5"));
+		Collection<Arc> cut = algo.getCut();
+		assertEquals(1, cut.size());
+		Arc a = cut.iterator().next();
+		assertEquals("4", a.getStartVertex().getName());
+		assertEquals("0", a.getEndVertex().getName());
+		
+		// the network is not symmetric, so the first run alone misses the cut with 0 on the sink side
+		algo = new HaoOrlinAlgo(g);
+		algo.setSymmetric(true);
+		assertEquals(3.0, algo.computeMinCut(), 0.001);
+		assertTrue(algo.getCutSetCloseToSource().contains("0"));
+	}
+	
+	@Test
+	public void testRoundingLeftoversAreDropped() {
+		Random random = new Random(8);
+		for (int round = 0; round < 50; round++) {
+			int n = 20;
+			CsrGraph.Builder integral = new CsrGraph.Builder("Integral");
+			CsrGraph.Builder scaled = new CsrGraph.Builder("Scaled");
+			for (int v = 0; v < n; v++) {
+				integral.addVertex();
+				scaled.addVertex();
+			}
+			for (int e = 0; e < 4 * n; e++) {
+				int u = random.nextInt(n);
+				int v = random.nextInt(n);
+				if (u != v) {
+					int capacity = 1 + random.nextInt(9);
+					integral.addArc(u, v, capacity);
+					// tenths are not exact in binary, so sums of them leave rounding leftovers
+					scaled.addArc(u, v, capacity / 10.0);
+				}
+			}
+			HaoOrlinAlgo exact = new HaoOrlinAlgo(integral.build());
+			HaoOrlinAlgo rounded = new HaoOrlinAlgo(scaled.build());
+			assertEquals(exact.computeMinCut() / 10.0, rounded.computeMinCut(), 1e-9);
+			assertEquals(exact.getNumberOfRelabels(), rounded.getNumberOfRelabels());
+		}
+	}
+	
+	private double getMinCutByEnumeration(CsrGraph g) {
+		int n = g.getNumberOfVertices();
+		double min = Double.POSITIVE_INFINITY;
+		boolean[] set = new boolean[n];
+		for (int bits = 1; bits < (1 << n) - 1; bits++) {
+			for (int v = 0; v < n; v++) {
+				set[v] = 0 != (bits & (1 << v));
+			}
+			min = Math.min(min, getCutValue(g, set));
+		}
+		return min;
+	}
+	
+	private double getCutValue(CsrGraph g, boolean[] set) {
+		double value = 0.0;
+		for (int e = 0; e < g.getNumberOfArcs(); e++) {
+			int uv = g.getResidualArc(e);
+			if (set[g.getTail(uv)] && !set[g.getHead(uv)]) {
+				value += g.getCapacity(uv);
+			}
+		}
+		return value;
+	}
+
+}
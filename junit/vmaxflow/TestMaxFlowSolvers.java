@@ -0,0 +1,50 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashMap;
+
+import model.tool.maxflow.Arc;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.GraphUtil;
+import model.tool.maxflow.MaxFlowSolver;
+import model.tool.maxflow.MaxFlowSolvers;
+import model.tool.maxflow.PushRelabelAlgo;
+import model.tool.maxflow.Vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+import util.TestGraph;
+
+public class TestMaxFlowSolvers {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testSameResultAsPushRelabelAlgo() {
+		for (int k = 1; k <= 5; k++) {
+			Graph g = TestGraph.createComplexNetwork2("s", "t", k);
+			Vertex s = g.getVertex("s");
+			Vertex t = g.getVertex("t");
+			
+			PushRelabelAlgo reference = new PushRelabelAlgo(g, s, t);
+			reference.computeMaxFlow();
+			for (String name : MaxFlowSolvers.getNames()) {
+				MaxFlowSolver algo = MaxFlowSolvers.create(name, g, s, t);
+				assertNotNull(name, algo);
+				HashMap<Arc, Double> f = algo.computeMaxFlow();
+				
+				assertEquals(name, reference.getMaxFlowValue(), algo.getMaxFlowValue(), 0.001);
+				assertEquals(name, reference.getCutSetCloseToSource(), algo.getCutSetCloseToSource());
+				assertEquals(name, algo.getMaxFlowValue(), GraphUtil.totalFlow(algo.getCut(), f), 0.001);
+			}
+		}
+	}
+
+}
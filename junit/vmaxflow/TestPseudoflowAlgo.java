@@ -0,0 +1,51 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+
+import model.tool.maxflow.Arc;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.GraphUtil;
+import model.tool.maxflow.PseudoflowAlgo;
+import model.tool.maxflow.PushRelabelAlgo;
+import model.tool.maxflow.Vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+import util.TestGraph;
+
+public class TestPseudoflowAlgo {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testMinCutBeforeFlow() {
+		for (int k = 1; k <= 5; k++) {
+			Graph g = TestGraph.createComplexNetwork2("s", "t", k);
+			Vertex s = g.getVertex("s");
+			Vertex t = g.getVertex("t");
+			
+			PushRelabelAlgo reference = new PushRelabelAlgo(g, s, t);
+			reference.computeMaxFlow();
+			PseudoflowAlgo algo = new PseudoflowAlgo(g, s, t);
+			double value = algo.computeMinCut();
+			
+			assertEquals(reference.getMaxFlowValue(), value, 0.001);
+			double cutCapacity = 0.0;
+			for (Arc a : algo.getCut()) {
+				cutCapacity += a.getCapacity();
+			}
+			assertEquals(value, cutCapacity, 0.001);
+			HashMap<Arc, Double> f = algo.getFlow();
+			assertEquals(value, GraphUtil.totalFlow(algo.getCut(), f), 0.001);
+			assertEquals(value, algo.getMaxFlowValue(), 0.001);
+		}
+	}
+
+}
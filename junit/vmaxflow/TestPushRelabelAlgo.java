@@ -3,13 +3,17 @@ package vmaxflow;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Random;
 
 import model.tool.maxflow.Arc;
 import model.tool.maxflow.Graph;
 import model.tool.maxflow.GraphUtil;
 import model.tool.maxflow.PushRelabelAlgo;
+import model.tool.maxflow.PushRelabelFifoAlgo;
 import model.tool.maxflow.Vertex;
 
 import org.junit.Before;
@@ -73,5 +77,121 @@ public class TestPushRelabelAlgo {
 		
 		assertEquals(algo.getMaxFlowValue(), GraphUtil.totalFlow(algo.getCut(), f), 0.001);
 	}
+	
+	@Test
+	public void testTimeLimit() {
+		Graph g = TestGraph.createComplexNetwork2("s", "t", 300);
+		Vertex s = g.getVertex("s");
+		Vertex t = g.getVertex("t");
+		
+		// the flow is zero if the time limit is reached, like in the array engines
+		PushRelabelAlgo algo = new PushRelabelAlgo(g, s, t);
+		assertEquals(0.0, algo.computeMinCut(0), 0.0);
+		assertTrue(algo.timeLimitReached());
+		for (double f : algo.getFlow().values()) {
+			assertEquals(0.0, f, 0.0);
+		}
+		PushRelabelFifoAlgo fifo = new PushRelabelFifoAlgo(g, s, t);
+		assertEquals(0.0, fifo.computeMinCut(0), 0.0);
+		assertTrue(fifo.timeLimitReached());
+		fifo = new PushRelabelFifoAlgo(g, s, t);
+		HashMap<Arc, Double> f = fifo.computeMaxFlow(0);
+		assertTrue(fifo.timeLimitReached());
+		assertEquals(0.0, fifo.getMaxFlowValue(), 0.0);
+		assertEquals(0.0, GraphUtil.totalFlow(g.getAllArcs(), f), 0.0);
+	}
+	
+	@Test
+	public void testResolveAfterCapacityUpdates() {
+		Random random = new Random(7);
+		for (int round = 0; round < 20; round++) {
+			boolean minCutOnly = (round % 2 == 1);
+			Graph g = new Graph("Test");
+			int n = 12;
+			for (int i = 0; i < n; i++) {
+				g.addVertex(new Vertex(i + ""));
+			}
+			for (int i = 0; i < 4 * n; i++) {
+				int u = random.nextInt(n);
+				int v = random.nextInt(n);
+				if (u != v && !g.arcExists("(" + u + "," + v + ")")) {
+					g.addArc(g.getVertex(u + ""), g.getVertex(v + ""), random.nextInt(10));
+				}
+			}
+			Vertex s = g.getVertex("0");
+			Vertex t = g.getVertex((n - 1) + "");
+			ArrayList<Arc> arcs = new ArrayList<Arc>(g.getAllArcs());
+			
+			PushRelabelAlgo algo = new PushRelabelAlgo(g, s, t);
+			if (minCutOnly) {
+				algo.computeMinCut();
+			} else {
+				algo.computeMaxFlow();
+			}
+			for (int update = 0; update < 5; update++) {
+				for (int i = 0; i < 3; i++) {
+					Arc a = arcs.get(random.nextInt(arcs.size()));
+					algo.updateCapacity(a.getId(), random.nextInt(10));
+				}
+				double value = algo.resolve();
+				
+				PushRelabelAlgo reference = new PushRelabelAlgo(g, s, t);
+				reference.computeMaxFlow();
+				assertEquals(reference.getMaxFlowValue(), value, 0.001);
+				HashMap<Arc, Double> f = algo.getFlow();
+				for (Arc a : arcs) {
+					assertFalse(f.get(a) > a.getCapacity() + 0.001);
+				}
+				assertEquals(value, GraphUtil.totalFlow(algo.getCut(), f), 0.001);
+				assertEquals(value, algo.getMaxFlowValue(), 0.001);
+			}
+		}
+	}
+	
+	@Test
+	public void testResolveIsLocal() {
+		Graph g = new Graph("Path");
+		Vertex s = new Vertex("s");
+		Vertex a = new Vertex("a");
+		Vertex t = new Vertex("t");
+		g.addVertex(s);
+		g.addVertex(a);
+		g.addVertex(t);
+		g.addArc(s, a, 1);
+		g.addArc(a, t, 5);
+		PushRelabelAlgo algo = new PushRelabelAlgo(g, s, t);
+		algo.computeMaxFlow();
+		int globalRelabels = algo.getNumberOfGlobalRelabels();
+		
+		// the opened arc of the source is saturated, the labels stay valid
+		algo.updateCapacity(g.getArc("(s,a)").getId(), 3);
+		assertEquals(3.0, algo.resolve(), 0.001);
+		assertEquals(globalRelabels, algo.getNumberOfGlobalRelabels());
+		assertEquals(3.0, GraphUtil.totalFlow(algo.getCut(), algo.getFlow()), 0.001);
+		
+		// an arc opened against the labels needs a global relabel
+		algo.updateCapacity(g.getArc("(a,t)").getId(), 2);
+		assertEquals(2.0, algo.resolve(), 0.001);
+		algo.updateCapacity(g.getArc("(a,t)").getId(), 4);
+		assertEquals(3.0, algo.resolve(), 0.001);
+	}
+	
+	@Test
+	public void testResolveTimeLimit() {
+		Graph g = TestGraph.createComplexNetwork2("s", "t", 300);
+		Vertex s = g.getVertex("s");
+		Vertex t = g.getVertex("t");
+		PushRelabelAlgo reference = new PushRelabelAlgo(g, s, t);
+		reference.computeMaxFlow();
+		
+		// after the time limit the zero flow is resolved from scratch
+		PushRelabelAlgo algo = new PushRelabelAlgo(g, s, t);
+		algo.computeMaxFlow(0);
+		assertTrue(algo.timeLimitReached());
+		assertEquals(0.0, algo.resolve(0), 0.0);
+		assertTrue(algo.timeLimitReached());
+		assertEquals(reference.getMaxFlowValue(), algo.resolve(), 0.001);
+		assertFalse(algo.timeLimitReached());
+	}
 
 }
@@ -0,0 +1,190 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import model.tool.maxflow.Arc;
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.Graph;
+import model.tool.maxflow.GraphUtil;
+import model.tool.maxflow.PushRelabelArrayAlgo;
+import model.tool.maxflow.Vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+import util.TestGraph;
+
+public class TestPushRelabelArrayAlgo {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testComputedMaxFlowOfValueOne() {
+		int n = 10;
+		Graph g = new Graph("Test");
+		for (int i=1; i <= n; i++) {
+			g.addVertex(new Vertex(i+""));
+			if (i > 1) {
+				g.addArc(g.getVertex((i-1)+""), g.getVertex(i+""), n+1-i);
+			}
+		}
+		Vertex s = g.getVertex("1");
+		Vertex t = g.getVertex(n+"");
+		
+		PushRelabelArrayAlgo algo = new PushRelabelArrayAlgo(g, s, t);
+		HashMap<Arc, Double> f = algo.computeMaxFlow();
+		assertNotNull(f);
+		assertFalse(f.isEmpty());
+		for (Arc a : g.getAllArcs()) {
+			assertNotNull(f.get(a));
+			assertEquals(1.0, (double) f.get(a), 0.001);
+		}
+		assertEquals(1.0, algo.getMaxFlowValue(), 0.001);
+		assertEquals(algo.getMaxFlowValue(), GraphUtil.totalFlow(algo.getCut(), f), 0.001);
+	}
+	
+	@Test
+	public void testMinCutBeforeFlow() {
+		for (int k = 1; k <= 5; k++) {
+			Graph g = TestGraph.createComplexNetwork2("s", "t", k);
+			Vertex s = g.getVertex("s");
+			Vertex t = g.getVertex("t");
+			
+			PushRelabelArrayAlgo reference = new PushRelabelArrayAlgo(g, s, t);
+			reference.computeMaxFlow();
+			PushRelabelArrayAlgo algo = new PushRelabelArrayAlgo(g, s, t);
+			double value = algo.computeMinCut();
+			
+			assertEquals(reference.getMaxFlowValue(), value, 0.001);
+			assertEquals(reference.getCutSetCloseToSource(), algo.getCutSetCloseToSource());
+			HashMap<Arc, Double> f = algo.getFlow();
+			assertEquals(value, GraphUtil.totalFlow(algo.getCut(), f), 0.001);
+			assertEquals(value, algo.getMaxFlowValue(), 0.001);
+		}
+	}
+	
+	@Test
+	public void testGlobalRelabelFrequency() {
+		Graph g = TestGraph.createComplexNetwork2("s", "t", 4);
+		Vertex s = g.getVertex("s");
+		Vertex t = g.getVertex("t");
+		
+		PushRelabelArrayAlgo rare = new PushRelabelArrayAlgo(g, s, t);
+		rare.setGlobalRelabelFrequency(1000.0);
+		rare.computeMaxFlow();
+		PushRelabelArrayAlgo often = new PushRelabelArrayAlgo(g, s, t);
+		often.setGlobalRelabelFrequency(0.0);
+		often.computeMaxFlow();
+		
+		assertEquals(rare.getMaxFlowValue(), often.getMaxFlowValue(), 0.001);
+		assertEquals(1, rare.getNumberOfGlobalRelabels());
+		assertTrue(often.getNumberOfGlobalRelabels() >= rare.getNumberOfGlobalRelabels());
+	}
+	
+	@Test
+	public void testSeveralSourcesAndSinks() {
+		double inf = Double.POSITIVE_INFINITY;
+		Random random = new Random(19);
+		for (int k = 0; k < 200; k++) {
+			int n = 20 + random.nextInt(30);
+			int m = 4 * n;
+			int[] sources = {0, 1, 2, 3};
+			double[] supplies = {inf, 5 + random.nextInt(20), inf, random.nextInt(10)};
+			int[] sinks = {n - 1, n - 2, n - 3};
+			double[] demands = {random.nextInt(30), inf, 1 + random.nextInt(10)};
+			
+			CsrGraph.Builder builder = new CsrGraph.Builder("Test");
+			CsrGraph.Builder superBuilder = new CsrGraph.Builder("Super");
+			for (int v = 0; v < n; v++) {
+				builder.addVertex();
+				superBuilder.addVertex();
+			}
+			int superSource = superBuilder.addVertex();
+			int superSink = superBuilder.addVertex();
+			double total = 0.0;
+			for (int e = 0; e < m; e++) {
+				int u = random.nextInt(n);
+				int v = random.nextInt(n);
+				double cap = random.nextInt(10);
+				builder.addArc(u, v, cap);
+				superBuilder.addArc(u, v, cap);
+				total += cap;
+			}
+			for (int i = 0; i < sources.length; i++) {
+				superBuilder.addArc(superSource, sources[i], Math.min(supplies[i], total + 1));
+			}
+			for (int i = 0; i < sinks.length; i++) {
+				superBuilder.addArc(sinks[i], superSink, Math.min(demands[i], total + 1));
+			}
+			CsrGraph g = builder.build();
+			
+			PushRelabelArrayAlgo reference = new PushRelabelArrayAlgo(superBuilder.build(), superSource, superSink);
+			double expected = reference.computeMinCut();
+			PushRelabelArrayAlgo algo = new PushRelabelArrayAlgo(g, sources, supplies, sinks, demands);
+			double value = algo.computeMinCut();
+			assertEquals(expected, value, 0.001);
+			
+			// the flow respects the supplies and demands and is conserved elsewhere
+			double[] f = algo.computeArcFlows(-1);
+			double[] balance = new double[n];
+			for (int e = 0; e < g.getNumberOfArcs(); e++) {
+				int uv = g.getResidualArc(e);
+				assertTrue(f[e] >= -0.001 && f[e] <= g.getCapacity(uv) + 0.001);
+				balance[g.getTail(uv)] -= f[e];
+				balance[g.getHead(uv)] += f[e];
+			}
+			double supplied = 0.0;
+			for (int i = 0; i < sources.length; i++) {
+				assertTrue(-balance[sources[i]] <= supplies[i] + 0.001);
+				assertTrue(balance[sources[i]] <= 0.001);
+				supplied -= balance[sources[i]];
+				balance[sources[i]] = 0.0;
+			}
+			double[] sinkFlows = algo.getSinkFlows();
+			for (int i = 0; i < sinks.length; i++) {
+				assertTrue(balance[sinks[i]] <= demands[i] + 0.001);
+				assertEquals(balance[sinks[i]], sinkFlows[sinks[i]], 0.001);
+				balance[sinks[i]] = 0.0;
+			}
+			for (int v = 0; v < n; v++) {
+				assertEquals(0.0, balance[v], 0.001);
+			}
+			assertEquals(value, supplied, 0.001);
+			assertEquals(value, algo.getMaxFlowValue(), 0.001);
+			
+			// the cut, including the capped supplies and demands it separates, has the same value
+			boolean[] sourceSide = algo.getSourceSide();
+			double cut = 0.0;
+			for (int e = 0; e < g.getNumberOfArcs(); e++) {
+				int uv = g.getResidualArc(e);
+				if (sourceSide[g.getTail(uv)] && !sourceSide[g.getHead(uv)]) {
+					cut += g.getCapacity(uv);
+				}
+			}
+			for (int i = 0; i < sources.length; i++) {
+				if (!sourceSide[sources[i]]) {
+					assertTrue(supplies[i] < inf);
+					cut += supplies[i];
+				}
+			}
+			for (int i = 0; i < sinks.length; i++) {
+				if (sourceSide[sinks[i]]) {
+					assertTrue(demands[i] < inf);
+					cut += demands[i];
+				}
+			}
+			assertEquals(value, cut, 0.001);
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.PushRelabelLongAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestPushRelabelLongAlgo {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testCapacitiesBeyondInt() {
+		long big = 1L << 40;
+		CsrGraph.Builder builder = new CsrGraph.Builder("Test");
+		int s = builder.addVertex("s");
+		int a = builder.addVertex("a");
+		int b = builder.addVertex("b");
+		int t = builder.addVertex("t");
+		builder.addArc(s, a, big + 1);
+		builder.addArc(s, b, big);
+		builder.addArc(a, b, 1);
+		builder.addArc(a, t, big);
+		builder.addArc(b, t, big + 3);
+		CsrGraph g = builder.build();
+		
+		PushRelabelLongAlgo algo = new PushRelabelLongAlgo(g, s, t);
+		long[] flow = algo.computeArcFlows(-1);
+		assertEquals(2 * big + 1, algo.getLongMaxFlowValue());
+		assertEquals(big + 1, flow[0]);
+		assertEquals(1, flow[2]);
+		assertEquals(big + 1, flow[4]);
+	}
+
+}
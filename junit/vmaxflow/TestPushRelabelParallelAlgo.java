@@ -0,0 +1,75 @@
+package vmaxflow;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import model.tool.maxflow.CsrGraph;
+import model.tool.maxflow.PushRelabelArrayAlgo;
+import model.tool.maxflow.PushRelabelParallelAlgo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Log;
+
+public class TestPushRelabelParallelAlgo {
+	
+	@Before
+	public void before() {
+		Log.turnOffPrintLog();
+	}
+	
+	@Test
+	public void testWorkerCounts() {
+		int size = 60;
+		Random random = new Random(17);
+		CsrGraph.Builder builder = new CsrGraph.Builder("Grid");
+		int s = builder.addVertex("s");
+		int t = builder.addVertex("t");
+		int[][] grid = new int[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				grid[i][j] = builder.addVertex(i + "_" + j);
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			builder.addArc(s, grid[i][0], 1 + random.nextInt(100));
+			builder.addArc(grid[i][size - 1], t, 1 + random.nextInt(100));
+			for (int j = 0; j < size; j++) {
+				if (i + 1 < size) {
+					builder.addArc(grid[i][j], grid[i + 1][j], 1 + random.nextInt(20));
+					builder.addArc(grid[i + 1][j], grid[i][j], 1 + random.nextInt(20));
+				}
+				if (j + 1 < size) {
+					builder.addArc(grid[i][j], grid[i][j + 1], 1 + random.nextInt(20));
+				}
+			}
+		}
+		CsrGraph network = builder.build();
+		
+		PushRelabelArrayAlgo reference = new PushRelabelArrayAlgo(network, s, t);
+		reference.computeArcFlows(-1);
+		for (int workers = 1; workers <= 4; workers++) {
+			PushRelabelParallelAlgo algo = new PushRelabelParallelAlgo(network, s, t);
+			algo.setNumberOfWorkers(workers);
+			double[] flow = algo.computeArcFlows(-1);
+			
+			assertEquals(reference.getMaxFlowValue(), algo.getMaxFlowValue(), 0.001);
+			double[] balance = new double[network.getNumberOfVertices()];
+			for (int e = 0; e < network.getNumberOfArcs(); e++) {
+				int uv = network.getResidualArc(e);
+				int u = network.getHead(network.getReverse(uv));
+				balance[u] -= flow[e];
+				balance[network.getHead(uv)] += flow[e];
+			}
+			for (int v = 0; v < balance.length; v++) {
+				if (v != s && v != t) {
+					assertEquals(0.0, balance[v], 0.001);
+				}
+			}
+			assertEquals(algo.getMaxFlowValue(), balance[t], 0.001);
+		}
+	}
+
+}
@@ -1,13 +1,15 @@
 package main;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 import model.tool.maxflow.Arc;
+import model.tool.maxflow.CsrGraph;
 import model.tool.maxflow.Graph;
 import model.tool.maxflow.GraphReader;
 import model.tool.maxflow.GraphUtil;
-import model.tool.maxflow.PushRelabelAlgo;
-import model.tool.maxflow.PushRelabelFifoAlgo;
+import model.tool.maxflow.MaxFlowSolver;
+import model.tool.maxflow.MaxFlowSolvers;
 import model.tool.maxflow.Vertex;
 import util.Log;
 import util.Timer;
@@ -25,57 +27,89 @@ public class Main {
 	public static void main(String[] args) {
 		
 		int n = args.length;
-		if (0 == n || n > 2) {
-			Log.p("Usage: java -jar vmaxflow.jar <filename> <outputfilename>");
+		if (0 == n || n > 3) {
+			Log.p("Usage: java -jar vmaxflow.jar <filename> <outputfilename> <algorithm>");
+			Log.p("Algorithms: " + Arrays.toString(MaxFlowSolvers.getNames()));
 			return;
 		}
 		
 		String fileName = args[0];
 		String output = "maxflow.txt";
-		if (2 == n) {
+		if (n >= 2) {
 			output = args[1];
 		}
 		
+		String algo = MaxFlowSolvers.AUTO;
+		if (3 == n) {
+			algo = args[2];
+		}
+		
 		GraphReader gr = new GraphReader();
-		gr.readFile(fileName);
-		Graph g = gr.getGraph();
-		Vertex s = gr.getSource();
-		Vertex t = gr.getSink();
+		if (MaxFlowSolvers.needsGraph(algo)) {
+			gr.readFile(fileName);
+			Graph g = gr.getGraph();
+			Vertex s = gr.getSource();
+			Vertex t = gr.getSink();
+			Log.p(g.toString());
+			
+			String timer = Timer.startNewTimer();
+			HashMap<Arc, Double> flow = runAlgo(g, s, t, algo, -1);
+			Timer.stopTimerAndPrintLog(timer, "Algo " + algo);
+			if (null != flow) {
+				GraphUtil.writeOutputFile(output, g, flow);
+			}
+			return;
+		}
+		
+		// vertices and arcs are indices from here on, names are only looked up for the output
+		gr.readFileMapped(fileName);
+		CsrGraph g = gr.getCsrGraph();
+		if (null == g) {
+			return;
+		}
+		int s = gr.getSourceIndex();
+		int t = gr.getSinkIndex();
 		Log.p(g.toString());
 		
 		String timer = Timer.startNewTimer();
-		HashMap<Arc, Double> flow = runAlgo(g, s, t, PushRelabelAlgo.class.toString(), fileName);
-		Timer.stopTimerAndPrintLog(timer, "Algo HL");
-		GraphUtil.writeOutputFile(output+".hl.txt", g, flow);
-		
-		String timer2 = Timer.startNewTimer();
-		HashMap<Arc, Double> flow2 = runAlgo(g, s, t, PushRelabelFifoAlgo.class.toString(), fileName);
-		Timer.stopTimerAndPrintLog(timer2, "Algo FIFO");
-		
-		GraphUtil.writeOutputFile(output, g, flow2);
+		double[] flow = runAlgo(g, s, t, algo, -1);
+		Timer.stopTimerAndPrintLog(timer, "Algo " + algo);
+		if (null != flow) {
+			GraphUtil.writeOutputFile(output, g, flow);
+		}
 	}
 	
-	private static HashMap<Arc, Double> runAlgo(Graph g, Vertex s, Vertex t, String algoClass, String fileName) {
-		HashMap<Arc, Double> flow = null;
+	private static double[] runAlgo(CsrGraph g, int s, int t, String algoName, int timeLimit) {
 		Log.turnOffPrintLog();
-		if (algoClass.equals(PushRelabelAlgo.class.toString())) {
-			PushRelabelAlgo algo = new PushRelabelAlgo(g, s, t);
-			flow = algo.computeMaxFlow();
-			Log.turnOnPrintLog();
+		double[] flow = MaxFlowSolvers.computeArcFlows(algoName, g, s, t, timeLimit);
+		Log.turnOnPrintLog();
+		if (null != flow) {
+			Log.ps("\nMax flow = " + GraphUtil.getFlowValue(g, flow, s));
+			boolean[] sourceSide = GraphUtil.findSourceSide(g, flow, s);
+			int k = 0;
+			for (boolean v : sourceSide) {
+				k += v ? 1 : 0;
+			}
+			Log.p(k+"");
+			Log.p(GraphUtil.getOutgoingArcs(g, sourceSide).length+"");
+		}
+		return flow;
+	}
+	
+	private static HashMap<Arc, Double> runAlgo(Graph g, Vertex s, Vertex t, String algoName, int timeLimit) {
+		MaxFlowSolver algo = MaxFlowSolvers.create(algoName, g, s, t);
+		if (null == algo) {
+			return null;
+		}
+		Log.turnOffPrintLog();
+		HashMap<Arc, Double> flow = algo.computeMaxFlow(timeLimit);
+		Log.turnOnPrintLog();
+		if (!algo.timeLimitReached()) {
 			Log.ps("\nMax flow = " + algo.getMaxFlowValue());
 			Log.p(algo.getCutSetCloseToSource().size()+"");
 			Log.p(algo.getCut().size()+"");
-		} else if (algoClass.equals(PushRelabelFifoAlgo.class.toString())) {
-			PushRelabelFifoAlgo algo = new PushRelabelFifoAlgo(g, s, t);
-			flow = algo.computeMaxFlow(125);
-			Log.turnOnPrintLog();
-			if (!algo.timeLimitReached()) {
-				Log.ps("\nMax flow = " + algo.getMaxFlowValue());
-				Log.p(algo.getCutSetCloseToSource().size()+"");
-				Log.p(algo.getCut().size()+"");
-			} else {
-				Log.p("\nTime limit reached..");
-			}
+		} else {
+			Log.p("\nTime limit reached..");
 		}
 		return flow;
 	}
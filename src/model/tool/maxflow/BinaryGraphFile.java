@@ -0,0 +1,403 @@
+package model.tool.maxflow;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import util.Log;
+
+/**
+ * The Class BinaryGraphFile.
+ *
+ * Writes and loads a flow network in a binary form which is used as is, so
+ * a network is parsed once and every later run maps the file instead of
+ * reading it. All numbers are little endian. The file starts with a header
+ * of ten ints
+ * <pre>
+ * magic "VMFG", version, flags, n, m, number of residual arcs mm,
+ * source, sink, length of the name, 0
+ * </pre>
+ * followed by the UTF-8 name of the network and these sections, each of them
+ * starting at a multiple of eight bytes:
+ * <pre>
+ * first residual arc of each vertex   int[n+1]
+ * head of each residual arc           int[mm]
+ * reverse of each residual arc        int[mm]
+ * forward residual arc of each arc    int[m]
+ * capacity of each residual arc       int[mm], long[mm] or double[mm]
+ * vertex names (optional)             int[n+1] offsets, UTF-8 bytes
+ * arc names (optional)                int[m+1] offsets, UTF-8 bytes
+ * </pre>
+ * which is the layout of {@link CsrGraph}, where mm is 2m. {@link #load(String)} maps the
+ * file read-only and wraps the sections by a {@link MappedCsrGraph} without
+ * copying them, so several processes share the pages of the file.
+ */
+public class BinaryGraphFile {
+	
+	/** The magic number, "VMFG" in little endian. */
+	public static final int MAGIC = 0x47464d56;
+	
+	/** The version of the format written. */
+	public static final int VERSION = 1;
+	
+	/** The flag of integral capacities. */
+	public static final int INTEGRAL_CAPACITIES = 1;
+	
+	/** The flag of integral capacities stored as ints, not as longs. */
+	public static final int INT_CAPACITIES = 2;
+	
+	/** The flag of the vertex names section. */
+	public static final int VERTEX_NAMES = 4;
+	
+	/** The flag of the arc names section. */
+	public static final int ARC_NAMES = 8;
+	
+	/** The number of bytes of the header without the name. */
+	private static final int HEADER_SIZE_ = 40;
+	
+	/** The size of the write buffer. */
+	private static final int BUFFER_SIZE_ = 1 << 20;
+	
+	/** The charset of the names. */
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private FileChannel channel_;
+	
+	private ByteBuffer buffer_;
+	
+	private long position_;
+	
+	/**
+	 * Instantiates a new binary graph file writer.
+	 *
+	 * @param channel the channel
+	 */
+	private BinaryGraphFile(FileChannel channel) {
+		channel_ = channel;
+		buffer_ = ByteBuffer.allocateDirect(BUFFER_SIZE_).order(ByteOrder.LITTLE_ENDIAN);
+		position_ = 0;
+	}
+	
+	/**
+	 * Converts a file of the comma separated input format of
+	 * {@link GraphReader} into a binary graph file.
+	 *
+	 * @param inputFileName the input file name
+	 * @param fileName the binary file name
+	 * @return true, if the file is written
+	 */
+	public static boolean convert(String inputFileName, String fileName) {
+		GraphReader reader = new GraphReader();
+		reader.readFileMapped(inputFileName);
+		CsrGraph network = reader.getCsrGraph();
+		if (null == network) {
+			return false;
+		}
+		return write(fileName, network, reader.getSourceIndex(), reader.getSinkIndex());
+	}
+	
+	/**
+	 * Writes the flow network with its source and sink. The names are only
+	 * written if they differ from the default names, the vertex index and
+	 * "(u,v)".
+	 *
+	 * @param fileName the file name
+	 * @param network the flow network
+	 * @param source the source, -1 if none
+	 * @param sink the sink, -1 if none
+	 * @return true, if the file is written
+	 */
+	public static boolean write(String fileName, FlowNetwork network, int source, int sink) {
+		int n = network.getNumberOfVertices();
+		int m = network.getNumberOfArcs();
+		int mm = network.getNumberOfResidualArcs();
+		if ((long) mm * 8 > Integer.MAX_VALUE) {
+			Log.e("Cannot write " + network.getName() + ", the sections of " + m + " arcs do not fit in 2GB.");
+			return false;
+		}
+		
+		// a csr graph knows if it has names, other networks are compared to the default names
+		String[] vertexNames = new String[n];
+		boolean namedVertices = false;
+		boolean namedArcs = false;
+		if (network instanceof CsrGraph) {
+			namedVertices = ((CsrGraph) network).hasVertexNames();
+			namedArcs = ((CsrGraph) network).hasArcNames();
+		} else {
+			for (int v = 0; v < n; v++) {
+				vertexNames[v] = network.getVertexName(v);
+				namedVertices = namedVertices || !vertexNames[v].equals(String.valueOf(v));
+			}
+			for (int e = 0; e < m && !namedArcs; e++) {
+				int uv = network.getResidualArc(e);
+				String name = "(" + vertexNames[network.getTail(uv)] + "," + vertexNames[network.getHead(uv)] + ")";
+				namedArcs = !network.getArcName(e).equals(name);
+			}
+		}
+		for (int v = 0; v < n && namedVertices; v++) {
+			vertexNames[v] = network.getVertexName(v);
+		}
+		String[] arcNames = new String[m];
+		for (int e = 0; e < m && namedArcs; e++) {
+			arcNames[e] = network.getArcName(e);
+		}
+		
+		int flags = 0;
+		if (network.hasIntegralCapacities()) {
+			flags |= INTEGRAL_CAPACITIES | INT_CAPACITIES;
+			for (int a = 0; a < mm; a++) {
+				if (network.getLongCapacity(a) > Integer.MAX_VALUE) {
+					flags &= ~INT_CAPACITIES;
+					break;
+				}
+			}
+		}
+		if (namedVertices) {
+			flags |= VERTEX_NAMES;
+		}
+		if (namedArcs) {
+			flags |= ARC_NAMES;
+		}
+		
+		Log.p("Write binary graph file " + fileName);
+		FileOutputStream out = null;
+		try {
+			out = new FileOutputStream(fileName);
+			BinaryGraphFile file = new BinaryGraphFile(out.getChannel());
+			byte[] name = network.getName().getBytes(UTF8);
+			file.putInt(MAGIC);
+			file.putInt(VERSION);
+			file.putInt(flags);
+			file.putInt(n);
+			file.putInt(m);
+			file.putInt(mm);
+			file.putInt(source);
+			file.putInt(sink);
+			file.putInt(name.length);
+			file.putInt(0);
+			file.putBytes(name);
+			file.align();
+			for (int v = 0; v < n; v++) {
+				file.putInt(network.getFirstResidualArc(v));
+			}
+			file.putInt(mm);
+			file.align();
+			for (int a = 0; a < mm; a++) {
+				file.putInt(network.getHead(a));
+			}
+			file.align();
+			for (int a = 0; a < mm; a++) {
+				file.putInt(network.getReverse(a));
+			}
+			file.align();
+			for (int e = 0; e < m; e++) {
+				file.putInt(network.getResidualArc(e));
+			}
+			file.align();
+			for (int a = 0; a < mm; a++) {
+				if (0 != (flags & INT_CAPACITIES)) {
+					file.putInt((int) network.getLongCapacity(a));
+				} else if (0 != (flags & INTEGRAL_CAPACITIES)) {
+					file.putLong(network.getLongCapacity(a));
+				} else {
+					file.putDouble(network.getCapacity(a));
+				}
+			}
+			if (namedVertices) {
+				file.putNames(vertexNames);
+			}
+			if (namedArcs) {
+				file.putNames(arcNames);
+			}
+			file.flush();
+		} catch (IOException e) {
+			Log.e("Cannot write file " + fileName, e);
+			return false;
+		} finally {
+			if (null != out) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					Log.e("Cannot close file " + fileName, e);
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Loads a binary graph file. The file is mapped read-only and its
+	 * sections are used in place.
+	 *
+	 * @param fileName the file name
+	 * @return the mapped csr graph, or null if the file cannot be loaded
+	 */
+	public static MappedCsrGraph load(String fileName) {
+		Log.p("Load binary graph file " + fileName);
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(fileName, "r");
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			if (size < HEADER_SIZE_) {
+				Log.e("Unexpected end of file " + fileName);
+				return null;
+			}
+			ByteBuffer header = map(channel, 0, HEADER_SIZE_);
+			if (MAGIC != header.getInt(0)) {
+				Log.e("File " + fileName + " is no binary graph file.");
+				return null;
+			}
+			int version = header.getInt(4);
+			if (version > VERSION) {
+				Log.e("Cannot load file " + fileName + " of version " + version + ", version " + VERSION + " is supported.");
+				return null;
+			}
+			int flags = header.getInt(8);
+			int n = header.getInt(12);
+			int m = header.getInt(16);
+			int mm = header.getInt(20);
+			int source = header.getInt(24);
+			int sink = header.getInt(28);
+			int nameLength = header.getInt(32);
+			
+			long position = HEADER_SIZE_;
+			byte[] name = new byte[nameLength];
+			map(channel, position, nameLength).get(name);
+			position = align(position + nameLength);
+			
+			// the csr sections, the capacities take four or eight bytes per residual arc
+			long capacitiesLength = (0 != (flags & INT_CAPACITIES)) ? 4L * mm : 8L * mm;
+			long[] lengths = { 4L * (n + 1), 4L * mm, 4L * mm, 4L * m, capacitiesLength };
+			long[] starts = new long[lengths.length];
+			for (int k = 0; k < lengths.length; k++) {
+				starts[k] = position;
+				position = align(position + lengths[k]);
+			}
+			if (position > size) {
+				Log.e("Unexpected end of file " + fileName);
+				return null;
+			}
+			ByteBuffer[] sections = new ByteBuffer[lengths.length];
+			for (int k = 0; k < lengths.length; k++) {
+				sections[k] = map(channel, starts[k], lengths[k]);
+			}
+			MappedCsrGraph g = new MappedCsrGraph(new String(name, UTF8), flags, n, m, mm, source, sink, sections);
+			if (0 != (flags & VERTEX_NAMES)) {
+				ByteBuffer offsets = map(channel, position, 4L * (n + 1));
+				int length = offsets.getInt(4 * n);
+				g.setVertexNames(offsets, map(channel, position + 4L * (n + 1), length));
+				position = align(position + 4L * (n + 1) + length);
+			}
+			if (0 != (flags & ARC_NAMES)) {
+				ByteBuffer offsets = map(channel, position, 4L * (m + 1));
+				int length = offsets.getInt(4 * m);
+				g.setArcNames(offsets, map(channel, position + 4L * (m + 1), length));
+			}
+			return g;
+		} catch (IOException e) {
+			Log.e("Cannot load file " + fileName, e);
+			return null;
+		} finally {
+			if (null != file) {
+				try {
+					file.close();
+				} catch (IOException e) {
+					Log.e("Cannot close file " + fileName, e);
+				}
+			}
+		}
+	}
+	
+	private static MappedByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Section of " + length + " bytes does not fit in a mapping.");
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+	
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+	
+	private void putInt(int value) throws IOException {
+		ensureRemaining(4);
+		buffer_.putInt(value);
+	}
+	
+	private void putLong(long value) throws IOException {
+		ensureRemaining(8);
+		buffer_.putLong(value);
+	}
+	
+	private void putDouble(double value) throws IOException {
+		ensureRemaining(8);
+		buffer_.putDouble(value);
+	}
+	
+	private void putBytes(byte[] bytes) throws IOException {
+		for (int i = 0; i < bytes.length; i += BUFFER_SIZE_) {
+			int length = Math.min(BUFFER_SIZE_, bytes.length - i);
+			ensureRemaining(length);
+			buffer_.put(bytes, i, length);
+		}
+	}
+	
+	/**
+	 * Puts a names section, the offsets of the names and their bytes.
+	 *
+	 * @param names the names
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void putNames(String[] names) throws IOException {
+		byte[][] bytes = new byte[names.length][];
+		int offset = 0;
+		align();
+		putInt(0);
+		for (int k = 0; k < names.length; k++) {
+			bytes[k] = names[k].getBytes(UTF8);
+			if (offset + bytes[k].length < offset) {
+				throw new IOException("Names do not fit in 2GB.");
+			}
+			offset += bytes[k].length;
+			putInt(offset);
+		}
+		for (int k = 0; k < names.length; k++) {
+			putBytes(bytes[k]);
+		}
+	}
+	
+	/**
+	 * Pads the file with zeros to a multiple of eight bytes.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void align() throws IOException {
+		while (0 != ((position_ + buffer_.position()) & 7)) {
+			ensureRemaining(1);
+			buffer_.put((byte) 0);
+		}
+	}
+	
+	private void ensureRemaining(int bytes) throws IOException {
+		if (buffer_.remaining() < bytes) {
+			flush();
+		}
+	}
+	
+	private void flush() throws IOException {
+		buffer_.flip();
+		while (buffer_.hasRemaining()) {
+			position_ += channel_.write(buffer_);
+		}
+		buffer_.clear();
+	}
+
+}
@@ -0,0 +1,577 @@
+package model.tool.maxflow;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import util.Log;
+
+/**
+ * The Class BoykovKolmogorovAlgo.
+ *
+ * The augmenting path algorithm of Boykov and Kolmogorov on a
+ * {@link FlowNetwork}. Two search trees are grown, one from the source over
+ * arcs with residual capacity and one towards the sink over reverse arcs.
+ * Once they touch, the flow is augmented along the path through both trees.
+ * Vertices which lose their parent arc by the augmentation become orphans
+ * and are adopted by another vertex of their tree if possible, so the trees
+ * are reused instead of being searched again from scratch. Time stamps and
+ * distances to the terminals keep the trees shallow. The algorithm is fast
+ * on grid-like graphs with short paths, e.g. from image segmentation.
+ */
+public class BoykovKolmogorovAlgo implements MaxFlowSolver {
+	
+	/** The tree of a vertex in no tree. */
+	private static final int FREE_ = 0;
+	
+	/** The tree grown from the source. */
+	private static final int SOURCE_TREE_ = 1;
+	
+	/** The tree grown towards the sink. */
+	private static final int SINK_TREE_ = 2;
+	
+	/** The parent arc of a vertex in no tree. */
+	private static final int NONE_ = -1;
+	
+	/** The parent arc of a terminal. */
+	private static final int TERMINAL_ = -2;
+	
+	/** The parent arc of an orphan. */
+	private static final int ORPHAN_ = -3;
+	
+	/** The number of augmentations between two checks of the time limit. */
+	private static final int TIME_CHECK_INTERVAL_ = 256;
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	private int source_;
+	
+	private int sink_;
+	
+	private double[] residual_;
+	
+	private int[] trees_;
+	
+	/**
+	 * The parent arc of each vertex. For the source tree it is the arc from
+	 * the parent to the vertex, for the sink tree the arc from the vertex to
+	 * its parent, so in both cases the arc has residual capacity.
+	 */
+	private int[] parentArcs_;
+	
+	/** The time each distance was computed at. */
+	private int[] timeStamps_;
+	
+	/** The distance to the terminal of the tree, valid at the time stamp. */
+	private int[] distances_;
+	
+	private int time_;
+	
+	/** The arc each active vertex continues growing its tree at. */
+	private int[] growthArcs_;
+	
+	/** The active vertices as a ring buffer. */
+	private int[] activeVertices_;
+	
+	private boolean[] isActive_;
+	
+	private int activeHead_;
+	
+	private int numberOfActiveVertices_;
+	
+	private int[] orphans_;
+	
+	private int numberOfOrphans_;
+	
+	private double maxFlowValue_;
+	
+	private int numberOfAugmentations_;
+	
+	private boolean timeLimitReached_;
+	
+	/**
+	 * Instantiates a new boykov kolmogorov algo.
+	 *
+	 * @param graph the graph
+	 * @param s the s
+	 * @param t the t
+	 */
+	public BoykovKolmogorovAlgo(Graph graph, Vertex s, Vertex t) {
+		graph_ = graph;
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		initialize(network, network.getVertexIndex(s.getName()), network.getVertexIndex(t.getName()));
+	}
+	
+	/**
+	 * Instantiates a new boykov kolmogorov algo.
+	 *
+	 * @param graph the flow network
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public BoykovKolmogorovAlgo(FlowNetwork graph, int s, int t) {
+		graph_ = null;
+		initialize(graph, s, t);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow() {
+		return computeMaxFlow(-1);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
+		computeArcFlows(timeLimit);
+		if (null == graph_) {
+			return null;
+		}
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the max flow on the input arcs.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow on each input arc
+	 */
+	public double[] computeArcFlows(int timeLimit) {
+		long deadline = (timeLimit >= 0) ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		timeLimitReached_ = false;
+		while (true) {
+			int uv = growTrees();
+			if (NONE_ == uv) {
+				break;
+			}
+			time_++;
+			augment(uv);
+			adoptOrphans();
+			numberOfAugmentations_++;
+			if (0 == numberOfAugmentations_ % TIME_CHECK_INTERVAL_ && System.currentTimeMillis() > deadline) {
+				Log.w("Time limit reached.");
+				timeLimitReached_ = true;
+				clearFlow();
+				break;
+			}
+		}
+		Log.ps("%d augmentations", numberOfAugmentations_);
+		return getArcFlows();
+	}
+	
+	/**
+	 * Time limit reached.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean timeLimitReached() {
+		return timeLimitReached_;
+	}
+	
+	/**
+	 * Gets the number of augmentations.
+	 *
+	 * @return the number of augmentations
+	 */
+	public int getNumberOfAugmentations() {
+		return numberOfAugmentations_;
+	}
+	
+	/**
+	 * Gets the flow.
+	 *
+	 * @return the flow
+	 */
+	public HashMap<Arc, Double> getFlow() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getArcFlows() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.createFlowMap(graph_, network_, getArcFlows());
+	}
+	
+	/**
+	 * Gets the flow on each input arc of the csr graph.
+	 *
+	 * @return the arc flows
+	 */
+	public double[] getArcFlows() {
+		int m = network_.getNumberOfArcs();
+		double[] flow = new double[m];
+		for (int e = 0; e < m; e++) {
+			int uv = network_.getResidualArc(e);
+			flow[e] = GraphUtil.getArcFlow(network_.getCapacity(uv), residual_[uv]);
+		}
+		return flow;
+	}
+	
+	/**
+	 * Gets the vertices on the source side of the minimum cut, i.e. all
+	 * vertices which cannot reach the sink in the residual graph.
+	 *
+	 * @return true for each vertex on the source side
+	 */
+	public boolean[] getSourceSide() {
+		int n = network_.getNumberOfVertices();
+		boolean[] reachesSink = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = sink_;
+		reachesSink[sink_] = true;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (!reachesSink[u] && residual_[network_.getReverse(vu)] > 0.0) {
+					reachesSink[u] = true;
+					queue[tail++] = u;
+				}
+			}
+		}
+		boolean[] sourceSide = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			sourceSide[v] = !reachesSink[v];
+		}
+		return sourceSide;
+	}
+	
+	/**
+	 * Gets the cut set close to source.
+	 *
+	 * @return the cut set close to source
+	 */
+	public HashSet<String> getCutSetCloseToSource() {
+		return GraphUtil.getVertexNames(network_, getSourceSide());
+	}
+	
+	/**
+	 * Gets the cut.
+	 *
+	 * @return the cut
+	 */
+	public Collection<Arc> getCut() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getSourceSide() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.getOutgoingArcs(graph_, getCutSetCloseToSource());
+	}
+	
+	/**
+	 * Gets the max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public double getMaxFlowValue() {
+		return maxFlowValue_;
+	}
+	
+	private void initialize(FlowNetwork network, int s, int t) {
+		network_ = network;
+		source_ = s;
+		sink_ = t;
+		int n = network.getNumberOfVertices();
+		int mm = network.getNumberOfResidualArcs();
+		residual_ = new double[mm];
+		for (int a = 0; a < mm; a++) {
+			residual_[a] = network.getCapacity(a);
+		}
+		trees_ = new int[n];
+		parentArcs_ = new int[n];
+		timeStamps_ = new int[n];
+		distances_ = new int[n];
+		growthArcs_ = new int[n];
+		activeVertices_ = new int[n];
+		isActive_ = new boolean[n];
+		orphans_ = new int[n];
+		maxFlowValue_ = 0.0;
+		numberOfAugmentations_ = 0;
+		resetTrees();
+	}
+	
+	/**
+	 * Resets the trees to the two terminals.
+	 */
+	private void resetTrees() {
+		for (int v = 0; v < trees_.length; v++) {
+			trees_[v] = FREE_;
+			parentArcs_[v] = NONE_;
+			isActive_[v] = false;
+		}
+		time_ = 0;
+		activeHead_ = 0;
+		numberOfActiveVertices_ = 0;
+		numberOfOrphans_ = 0;
+		trees_[source_] = SOURCE_TREE_;
+		trees_[sink_] = SINK_TREE_;
+		for (int v : new int[] { source_, sink_ }) {
+			parentArcs_[v] = TERMINAL_;
+			timeStamps_[v] = time_;
+			distances_[v] = 1;
+			growthArcs_[v] = network_.getFirstResidualArc(v);
+			setActive(v);
+		}
+	}
+	
+	/**
+	 * Resets the residual capacities to a zero flow.
+	 */
+	private void clearFlow() {
+		for (int a = 0; a < residual_.length; a++) {
+			residual_[a] = network_.getCapacity(a);
+		}
+		maxFlowValue_ = 0.0;
+		resetTrees();
+	}
+	
+	/**
+	 * Makes the vertex continue growing its tree at the arc at the latest.
+	 * The arc must be one of the residual arcs of the vertex.
+	 *
+	 * @param v the v
+	 * @param va the residual arc va
+	 */
+	private void setActive(int v, int va) {
+		if (growthArcs_[v] > va) {
+			growthArcs_[v] = va;
+		}
+		setActive(v);
+	}
+	
+	/**
+	 * Adds the vertex to the active vertices if it is not active yet.
+	 *
+	 * @param v the v
+	 */
+	private void setActive(int v) {
+		if (isActive_[v]) {
+			return;
+		}
+		isActive_[v] = true;
+		activeVertices_[(activeHead_ + numberOfActiveVertices_) % activeVertices_.length] = v;
+		numberOfActiveVertices_++;
+	}
+	
+	/**
+	 * Removes the first active vertex.
+	 */
+	private void removeFirstActive() {
+		isActive_[activeVertices_[activeHead_]] = false;
+		activeHead_ = (activeHead_ + 1) % activeVertices_.length;
+		numberOfActiveVertices_--;
+	}
+	
+	/**
+	 * Gets the parent vertex in the tree.
+	 *
+	 * @param v the v
+	 * @return the parent
+	 */
+	private int getParent(int v) {
+		int a = parentArcs_[v];
+		if (SOURCE_TREE_ == trees_[v]) {
+			return network_.getHead(network_.getReverse(a));
+		}
+		return network_.getHead(a);
+	}
+	
+	/**
+	 * Grows the trees from the active vertices until they touch. An active
+	 * vertex stays active as long as it may have arcs to free vertices. The
+	 * arcs before its growth arc lead into its own tree, so they are skipped.
+	 *
+	 * @return the residual arc from the source tree to the sink tree, or -1
+	 * if the trees cannot grow anymore
+	 */
+	private int growTrees() {
+		while (numberOfActiveVertices_ > 0) {
+			int p = activeVertices_[activeHead_];
+			int tree = trees_[p];
+			int end = network_.getEndResidualArc(p);
+			if (FREE_ != tree) {
+				for (int pq = growthArcs_[p]; pq < end; pq++) {
+					// the arc in the direction of the tree
+					int a = (SOURCE_TREE_ == tree) ? pq : network_.getReverse(pq);
+					if (residual_[a] <= 0.0) {
+						continue;
+					}
+					int q = network_.getHead(pq);
+					if (FREE_ == trees_[q]) {
+						trees_[q] = tree;
+						parentArcs_[q] = a;
+						timeStamps_[q] = timeStamps_[p];
+						distances_[q] = distances_[p] + 1;
+						growthArcs_[q] = network_.getFirstResidualArc(q);
+						setActive(q);
+					} else if (tree != trees_[q]) {
+						// p stays active, it may have more arcs into the other tree
+						growthArcs_[p] = pq;
+						return a;
+					} else if (timeStamps_[q] <= timeStamps_[p] && distances_[q] > distances_[p]) {
+						// p is closer to the terminal, so it becomes the parent of q
+						parentArcs_[q] = a;
+						timeStamps_[q] = timeStamps_[p];
+						distances_[q] = distances_[p] + 1;
+					}
+				}
+			}
+			growthArcs_[p] = end;
+			removeFirstActive();
+		}
+		return NONE_;
+	}
+	
+	/**
+	 * Augments along the path through the arc uv, which connects the source
+	 * tree with the sink tree, by its bottleneck capacity. Vertices whose
+	 * parent arc is saturated become orphans.
+	 *
+	 * @param uv the arc uv
+	 */
+	private void augment(int uv) {
+		int u = network_.getHead(network_.getReverse(uv));
+		int v = network_.getHead(uv);
+		double delta = residual_[uv];
+		for (int w = u; TERMINAL_ != parentArcs_[w]; w = getParent(w)) {
+			delta = Math.min(delta, residual_[parentArcs_[w]]);
+		}
+		for (int w = v; TERMINAL_ != parentArcs_[w]; w = getParent(w)) {
+			delta = Math.min(delta, residual_[parentArcs_[w]]);
+		}
+		
+		push(uv, delta);
+		for (int w = u; TERMINAL_ != parentArcs_[w];) {
+			int parent = getParent(w);
+			if (push(parentArcs_[w], delta)) {
+				addOrphan(w);
+			}
+			w = parent;
+		}
+		for (int w = v; TERMINAL_ != parentArcs_[w];) {
+			int parent = getParent(w);
+			if (push(parentArcs_[w], delta)) {
+				addOrphan(w);
+			}
+			w = parent;
+		}
+		maxFlowValue_ += delta;
+	}
+	
+	/**
+	 * Pushes flow along the residual arc.
+	 *
+	 * @param uv the residual arc uv
+	 * @param delta the flow
+	 * @return true, if the arc is saturated
+	 */
+	private boolean push(int uv, double delta) {
+		residual_[uv] -= delta;
+		residual_[network_.getReverse(uv)] += delta;
+		return residual_[uv] <= 0.0;
+	}
+	
+	/**
+	 * Adds the vertex to the orphans.
+	 *
+	 * @param v the v
+	 */
+	private void addOrphan(int v) {
+		parentArcs_[v] = ORPHAN_;
+		orphans_[numberOfOrphans_++] = v;
+	}
+	
+	/**
+	 * Finds a new parent for every orphan in its tree. An orphan without a
+	 * valid parent is freed, its children become orphans and its neighbors
+	 * in the tree become active, so the freed region can be grown again.
+	 */
+	private void adoptOrphans() {
+		while (numberOfOrphans_ > 0) {
+			int p = orphans_[--numberOfOrphans_];
+			int tree = trees_[p];
+			int bestArc = NONE_;
+			int bestDistance = Integer.MAX_VALUE;
+			for (int pq = network_.getFirstResidualArc(p); pq < network_.getEndResidualArc(p); pq++) {
+				// the arc from q to p in the direction of the tree
+				int a = (SOURCE_TREE_ == tree) ? network_.getReverse(pq) : pq;
+				int q = network_.getHead(pq);
+				if (tree != trees_[q] || residual_[a] <= 0.0) {
+					continue;
+				}
+				int d = getDistanceToTerminal(q);
+				if (Integer.MAX_VALUE != d) {
+					if (d < bestDistance) {
+						bestArc = a;
+						bestDistance = d;
+					}
+					// remember the distances on the way to the terminal
+					for (int w = q; timeStamps_[w] != time_; w = getParent(w)) {
+						timeStamps_[w] = time_;
+						distances_[w] = d--;
+					}
+				}
+			}
+			if (NONE_ != bestArc) {
+				parentArcs_[p] = bestArc;
+				timeStamps_[p] = time_;
+				distances_[p] = bestDistance + 1;
+				continue;
+			}
+			
+			// no parent found, so p is freed
+			for (int pq = network_.getFirstResidualArc(p); pq < network_.getEndResidualArc(p); pq++) {
+				int q = network_.getHead(pq);
+				if (tree != trees_[q]) {
+					continue;
+				}
+				int a = (SOURCE_TREE_ == tree) ? network_.getReverse(pq) : pq;
+				if (residual_[a] > 0.0) {
+					// q has to look at its arc to p again
+					setActive(q, network_.getReverse(pq));
+				}
+				int qa = parentArcs_[q];
+				if (qa >= 0 && getParent(q) == p) {
+					addOrphan(q);
+				}
+			}
+			trees_[p] = FREE_;
+			parentArcs_[p] = NONE_;
+		}
+	}
+	
+	/**
+	 * Gets the distance of the vertex to the terminal of its tree.
+	 *
+	 * @param v the v
+	 * @return the distance, or Integer.MAX_VALUE if the vertex has an orphan as ancestor
+	 */
+	private int getDistanceToTerminal(int v) {
+		int d = 0;
+		for (int w = v;; w = getParent(w)) {
+			if (timeStamps_[w] == time_) {
+				return d + distances_[w];
+			}
+			int a = parentArcs_[w];
+			d++;
+			if (TERMINAL_ == a) {
+				timeStamps_[w] = time_;
+				distances_[w] = 1;
+				return d;
+			}
+			if (ORPHAN_ == a) {
+				return Integer.MAX_VALUE;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,679 @@
+package model.tool.maxflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import util.Log;
+import util.Util;
+
+/**
+ * The Class CsrGraph.
+ *
+ * An immutable graph in compressed sparse row form. Vertices are the ints
+ * 0..n-1. Every arc uv of the input is stored as a pair of residual arcs:
+ * the forward arc uv with the capacity of the input arc and the reverse arc
+ * vu with capacity zero. The residual arcs leaving a vertex v are the indices
+ * from {@link #getFirstResidualArc(int)} (inclusive) to
+ * {@link #getEndResidualArc(int)} (exclusive), see {@link FlowNetwork}.
+ */
+public class CsrGraph implements FlowNetwork {
+	
+	/** The name. */
+	private String name_;
+	
+	/** The number of vertices. */
+	private int numberOfVertices_;
+	
+	/** The number of input arcs. */
+	private int numberOfArcs_;
+	
+	/** The index of the first residual arc of each vertex, n+1 entries. */
+	private int[] firstResidualArcs_;
+	
+	/** The head vertex of each residual arc. */
+	private int[] heads_;
+	
+	/** The index of the reverse arc of each residual arc. */
+	private int[] reverses_;
+	
+	/** The capacity of each residual arc, null if the capacities are integral. */
+	private double[] capacities_;
+	
+	/** The integral capacities if they do not fit in an int, null otherwise. */
+	private long[] longCapacities_;
+	
+	/** The integral capacities if they fit in an int, null otherwise. */
+	private int[] intCapacities_;
+	
+	/** The forward residual arc of each input arc. */
+	private int[] residualArcs_;
+	
+	/** The vertex names, null if the vertices are unnamed. */
+	private String[] vertexNames_;
+	
+	/** The vertex indices by name, null if the vertices are unnamed. */
+	private HashMap<String, Integer> vertexIndices_;
+	
+	/** The arc names, null if the arcs are unnamed. */
+	private String[] arcNames_;
+	
+	/**
+	 * Instantiates a new csr graph. Use the {@link Builder} to create one.
+	 */
+	private CsrGraph() {
+	}
+	
+	/**
+	 * Creates a csr graph from the given graph.
+	 * The vertices and arcs are numbered in the order of their ids.
+	 *
+	 * @param graph the graph
+	 * @return the csr graph
+	 */
+	public static CsrGraph fromGraph(Graph graph) {
+		Comparator<Vertex> vertexOrder = new Comparator<Vertex>() {
+			public int compare(Vertex u, Vertex v) {
+				return Integer.compare(u.getId(), v.getId());
+			}
+		};
+		Comparator<Arc> arcOrder = new Comparator<Arc>() {
+			public int compare(Arc a, Arc b) {
+				return Integer.compare(a.getId(), b.getId());
+			}
+		};
+		ArrayList<Vertex> vertices = new ArrayList<Vertex>(graph.getAllVertices());
+		Collections.sort(vertices, vertexOrder);
+		ArrayList<Arc> arcs = new ArrayList<Arc>(graph.getAllArcs());
+		Collections.sort(arcs, arcOrder);
+		
+		Builder builder = new Builder(graph.getName(), vertices.size(), arcs.size());
+		for (Vertex v : vertices) {
+			builder.addVertex(v.getName());
+		}
+		for (Arc a : arcs) {
+			int u = builder.getVertexIndex(a.getStartVertex().getName());
+			int v = builder.getVertexIndex(a.getEndVertex().getName());
+			builder.addArc(u, v, a.getCapacity(), a.getName());
+		}
+		return builder.build();
+	}
+	
+	/**
+	 * Creates a graph with vertex and arc objects from this csr graph. A
+	 * graph holds only one arc of each name, so parallel arcs get the names
+	 * "(u,v)#2", "(u,v)#3" and so on, and no arc is lost.
+	 *
+	 * @return the graph
+	 */
+	public Graph toGraph() {
+		Graph g = new Graph(name_);
+		Vertex[] vertices = new Vertex[numberOfVertices_];
+		for (int v = 0; v < numberOfVertices_; v++) {
+			vertices[v] = new Vertex(getVertexName(v));
+			g.addVertex(vertices[v]);
+		}
+		HashMap<String, Integer> copies = new HashMap<String, Integer>();
+		int renamed = 0;
+		for (int e = 0; e < numberOfArcs_; e++) {
+			int uv = residualArcs_[e];
+			Vertex u = vertices[getTail(uv)];
+			Vertex v = vertices[heads_[uv]];
+			String name = getArcName(e);
+			if (g.arcExists(name)) {
+				Integer k = copies.get(name);
+				k = (null == k) ? 2 : k + 1;
+				while (g.arcExists(name + "#" + k)) {
+					k++;
+				}
+				copies.put(name, k);
+				name = name + "#" + k;
+				renamed++;
+			}
+			Arc a = new Arc(name, u, v);
+			a.setCapacity(getCapacity(uv));
+			g.addArc(a);
+		}
+		if (renamed > 0) {
+			Log.w(Util.nText("%d parallel arc", renamed) + " of " + name_ + " renamed to \"(u,v)#k\".");
+		}
+		return g;
+	}
+	
+	/**
+	 * Gets the name.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name_;
+	}
+	
+	/**
+	 * Gets the number of vertices.
+	 *
+	 * @return the number of vertices
+	 */
+	public int getNumberOfVertices() {
+		return numberOfVertices_;
+	}
+	
+	/**
+	 * Gets the number of input arcs.
+	 *
+	 * @return the number of arcs
+	 */
+	public int getNumberOfArcs() {
+		return numberOfArcs_;
+	}
+	
+	/**
+	 * Gets the number of residual arcs, i.e. twice the number of input arcs.
+	 *
+	 * @return the number of residual arcs
+	 */
+	public int getNumberOfResidualArcs() {
+		return heads_.length;
+	}
+	
+	/**
+	 * Gets the first residual arc leaving the vertex v.
+	 *
+	 * @param v the vertex
+	 * @return the first residual arc
+	 */
+	public int getFirstResidualArc(int v) {
+		return firstResidualArcs_[v];
+	}
+	
+	/**
+	 * Gets the end of the residual arcs leaving the vertex v,
+	 * i.e. the first residual arc of the vertex v+1.
+	 *
+	 * @param v the vertex
+	 * @return the end residual arc (exclusive)
+	 */
+	public int getEndResidualArc(int v) {
+		return firstResidualArcs_[v + 1];
+	}
+	
+	/**
+	 * Gets the head of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the head vertex
+	 */
+	public int getHead(int arc) {
+		return heads_[arc];
+	}
+	
+	/**
+	 * Gets the tail of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the tail vertex
+	 */
+	public int getTail(int arc) {
+		return heads_[reverses_[arc]];
+	}
+	
+	/**
+	 * Gets the reverse of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the reverse residual arc
+	 */
+	public int getReverse(int arc) {
+		return reverses_[arc];
+	}
+	
+	/**
+	 * Gets the capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity, zero for reverse arcs
+	 */
+	public double getCapacity(int arc) {
+		if (null != intCapacities_) {
+			return intCapacities_[arc];
+		}
+		if (null != longCapacities_) {
+			return longCapacities_[arc];
+		}
+		return capacities_[arc];
+	}
+	
+	/**
+	 * Gets the integral capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity, zero for reverse arcs
+	 */
+	public long getLongCapacity(int arc) {
+		if (null != intCapacities_) {
+			return intCapacities_[arc];
+		}
+		if (null != longCapacities_) {
+			return longCapacities_[arc];
+		}
+		Log.w("Capacity " + capacities_[arc] + " may not be integral.");
+		return (long) capacities_[arc];
+	}
+	
+	/**
+	 * Checks if all capacities are integral. The capacities are stored as
+	 * ints if they fit, as longs otherwise.
+	 *
+	 * @return true, if all capacities are integral
+	 */
+	public boolean hasIntegralCapacities() {
+		return null == capacities_;
+	}
+	
+	/**
+	 * Gets the forward residual arc of the input arc.
+	 *
+	 * @param arc the input arc
+	 * @return the forward residual arc
+	 */
+	public int getResidualArc(int arc) {
+		return residualArcs_[arc];
+	}
+	
+	/**
+	 * Gets the vertex name.
+	 *
+	 * @param v the vertex
+	 * @return the vertex name, or the index as string if the vertex is unnamed
+	 */
+	public String getVertexName(int v) {
+		if (null == vertexNames_ || null == vertexNames_[v]) {
+			return String.valueOf(v);
+		}
+		return vertexNames_[v];
+	}
+	
+	/**
+	 * Checks if the vertices are named.
+	 *
+	 * @return true, if the vertices are named
+	 */
+	public boolean hasVertexNames() {
+		return null != vertexNames_;
+	}
+	
+	/**
+	 * Checks if any arc is named.
+	 *
+	 * @return true, if any arc is named
+	 */
+	public boolean hasArcNames() {
+		return null != arcNames_;
+	}
+	
+	/**
+	 * Gets the vertex index.
+	 *
+	 * @param name the name
+	 * @return the vertex index, or -1 if no vertex with this name exists
+	 */
+	public int getVertexIndex(String name) {
+		if (null == vertexIndices_) {
+			return -1;
+		}
+		Integer v = vertexIndices_.get(name);
+		return (null == v) ? -1 : v;
+	}
+	
+	/**
+	 * Gets the arc name.
+	 *
+	 * @param arc the input arc
+	 * @return the arc name, or "(u,v)" if the arc is unnamed
+	 */
+	public String getArcName(int arc) {
+		if (null == arcNames_ || null == arcNames_[arc]) {
+			int uv = residualArcs_[arc];
+			return "(" + getVertexName(getTail(uv)) + "," + getVertexName(heads_[uv]) + ")";
+		}
+		return arcNames_[arc];
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		String s = "CsrGraph " + name_ + "\n";
+		s += Util.nText("%d vertex", "%d vertices", numberOfVertices_) + "\n";
+		s += Util.nText("%d arc", numberOfArcs_);
+		return s;
+	}
+	
+	/**
+	 * The Class Builder.
+	 */
+	public static class Builder {
+		
+		/** The name. */
+		private String name_;
+		
+		/** The number of vertices. */
+		private int numberOfVertices_;
+		
+		/** The vertex names. */
+		private String[] vertexNames_;
+		
+		/** The vertex indices by name. */
+		private HashMap<String, Integer> vertexIndices_;
+		
+		/** The number of arcs. */
+		private int numberOfArcs_;
+		
+		/** The tails of the arcs. */
+		private int[] tails_;
+		
+		/** The heads of the arcs. */
+		private int[] heads_;
+		
+		/** The capacities of the arcs while all are integral, null afterwards. */
+		private long[] longCapacities_;
+		
+		/** The capacities of the arcs once one is not integral, null before. */
+		private double[] capacities_;
+		
+		/** The arc names. */
+		private String[] arcNames_;
+		
+		/**
+		 * Instantiates a new builder.
+		 *
+		 * @param name the name
+		 */
+		public Builder(String name) {
+			this(name, 16, 16);
+		}
+		
+		/**
+		 * Instantiates a new builder with pre-sized arrays.
+		 *
+		 * @param name the name
+		 * @param expectedVertices the expected number of vertices
+		 * @param expectedArcs the expected number of arcs
+		 */
+		public Builder(String name, int expectedVertices, int expectedArcs) {
+			name_ = name;
+			numberOfVertices_ = 0;
+			numberOfArcs_ = 0;
+			int arcs = Math.max(expectedArcs, 1);
+			tails_ = new int[arcs];
+			heads_ = new int[arcs];
+			longCapacities_ = new long[arcs];
+			vertexNames_ = new String[Math.max(expectedVertices, 1)];
+		}
+		
+		/**
+		 * Adds an unnamed vertex.
+		 *
+		 * @return the index of the new vertex
+		 */
+		public int addVertex() {
+			if (numberOfVertices_ == vertexNames_.length) {
+				vertexNames_ = Arrays.copyOf(vertexNames_, 2 * vertexNames_.length);
+			}
+			return numberOfVertices_++;
+		}
+		
+		/**
+		 * Adds the vertex.
+		 *
+		 * @param name the name
+		 * @return the index of the new vertex, or -1 if the name is taken
+		 */
+		public int addVertex(String name) {
+			if (null == vertexIndices_) {
+				vertexIndices_ = new HashMap<String, Integer>();
+			}
+			if (vertexIndices_.containsKey(name)) {
+				Log.e("Cannot replace existing vertex: " + name);
+				return -1;
+			}
+			int v = addVertex();
+			vertexNames_[v] = name;
+			vertexIndices_.put(name, v);
+			return v;
+		}
+		
+		/**
+		 * Gets the vertex name.
+		 *
+		 * @param v the vertex
+		 * @return the vertex name, or the index as string if the vertex is unnamed
+		 */
+		public String getVertexName(int v) {
+			if (null == vertexNames_[v]) {
+				return String.valueOf(v);
+			}
+			return vertexNames_[v];
+		}
+		
+		/**
+		 * Gets the vertex index.
+		 *
+		 * @param name the name
+		 * @return the vertex index, or -1 if no vertex with this name exists
+		 */
+		public int getVertexIndex(String name) {
+			if (null == vertexIndices_) {
+				return -1;
+			}
+			Integer v = vertexIndices_.get(name);
+			return (null == v) ? -1 : v;
+		}
+		
+		/**
+		 * Gets the number of vertices.
+		 *
+		 * @return the number of vertices
+		 */
+		public int getNumberOfVertices() {
+			return numberOfVertices_;
+		}
+		
+		/**
+		 * Gets the number of arcs.
+		 *
+		 * @return the number of arcs
+		 */
+		public int getNumberOfArcs() {
+			return numberOfArcs_;
+		}
+		
+		/**
+		 * Adds the arc.
+		 *
+		 * @param u the start vertex
+		 * @param v the end vertex
+		 * @param capacity the capacity
+		 * @return the index of the new arc, or -1 if the arc is invalid
+		 */
+		public int addArc(int u, int v, double capacity) {
+			return addArc(u, v, capacity, null);
+		}
+		
+		/**
+		 * Adds the arc with an integral capacity, which is stored exactly.
+		 *
+		 * @param u the start vertex
+		 * @param v the end vertex
+		 * @param capacity the capacity
+		 * @return the index of the new arc, or -1 if the arc is invalid
+		 */
+		public int addArc(int u, int v, long capacity) {
+			return addArc(u, v, capacity, null);
+		}
+		
+		/**
+		 * Adds the arc with an integral capacity, which is stored exactly.
+		 *
+		 * @param u the start vertex
+		 * @param v the end vertex
+		 * @param capacity the capacity
+		 * @param name the name, or null for an unnamed arc
+		 * @return the index of the new arc, or -1 if the arc is invalid
+		 */
+		public int addArc(int u, int v, long capacity, String name) {
+			if (capacity < 0) {
+				Log.e("Unexpected negative capacity " + capacity + " of arc (" + u + "," + v + ")");
+				return -1;
+			}
+			if (null == longCapacities_) {
+				return addArc(u, v, (double) capacity, name);
+			}
+			int e = addArc(u, v, 0.0, name);
+			if (-1 != e) {
+				longCapacities_[e] = capacity;
+			}
+			return e;
+		}
+		
+		/**
+		 * Adds the arc. An integral capacity below 2^63 is stored as a long,
+		 * the first other one switches all capacities to doubles.
+		 *
+		 * @param u the start vertex
+		 * @param v the end vertex
+		 * @param capacity the capacity
+		 * @param name the name, or null for an unnamed arc
+		 * @return the index of the new arc, or -1 if the arc is invalid
+		 */
+		public int addArc(int u, int v, double capacity, String name) {
+			if (u < 0 || u >= numberOfVertices_ || v < 0 || v >= numberOfVertices_) {
+				Log.w("Cannot add arc (" + u + "," + v + "), since one of the nodes is not in graph!");
+				return -1;
+			}
+			if (u == v) {
+				Log.w("Cannot add a circle arc connecting two same vertices!");
+				return -1;
+			}
+			if (capacity < 0) {
+				Log.e("Unexpected negative capacity " + capacity + " of arc (" + u + "," + v + ")");
+				return -1;
+			}
+			if (numberOfArcs_ == tails_.length) {
+				int size = 2 * tails_.length;
+				tails_ = Arrays.copyOf(tails_, size);
+				heads_ = Arrays.copyOf(heads_, size);
+				if (null != longCapacities_) {
+					longCapacities_ = Arrays.copyOf(longCapacities_, size);
+				} else {
+					capacities_ = Arrays.copyOf(capacities_, size);
+				}
+				if (null != arcNames_) {
+					arcNames_ = Arrays.copyOf(arcNames_, size);
+				}
+			}
+			if (null != name && null == arcNames_) {
+				arcNames_ = new String[tails_.length];
+			}
+			int e = numberOfArcs_++;
+			tails_[e] = u;
+			heads_[e] = v;
+			if (null != longCapacities_ && (capacity != Math.floor(capacity) || capacity >= Long.MAX_VALUE)) {
+				capacities_ = new double[tails_.length];
+				for (int k = 0; k < e; k++) {
+					capacities_[k] = longCapacities_[k];
+				}
+				longCapacities_ = null;
+			}
+			if (null != longCapacities_) {
+				longCapacities_[e] = (long) capacity;
+			} else {
+				capacities_[e] = capacity;
+			}
+			if (null != arcNames_) {
+				arcNames_[e] = name;
+			}
+			return e;
+		}
+		
+		/**
+		 * Builds the csr graph.
+		 *
+		 * @return the csr graph
+		 */
+		public CsrGraph build() {
+			int n = numberOfVertices_;
+			int m = numberOfArcs_;
+			CsrGraph g = new CsrGraph();
+			g.name_ = name_;
+			g.numberOfVertices_ = n;
+			g.numberOfArcs_ = m;
+			
+			// count the residual arcs of each vertex
+			int[] first = new int[n + 1];
+			for (int e = 0; e < m; e++) {
+				first[tails_[e] + 1]++;
+				first[heads_[e] + 1]++;
+			}
+			for (int v = 0; v < n; v++) {
+				first[v + 1] += first[v];
+			}
+			
+			// place every arc and its reverse arc
+			int[] next = Arrays.copyOf(first, n);
+			int[] heads = new int[2 * m];
+			int[] reverses = new int[2 * m];
+			int[] residualArcs = new int[m];
+			for (int e = 0; e < m; e++) {
+				int u = tails_[e];
+				int v = heads_[e];
+				int uv = next[u]++;
+				int vu = next[v]++;
+				heads[uv] = v;
+				heads[vu] = u;
+				reverses[uv] = vu;
+				reverses[vu] = uv;
+				residualArcs[e] = uv;
+			}
+			g.firstResidualArcs_ = first;
+			g.heads_ = heads;
+			g.reverses_ = reverses;
+			g.residualArcs_ = residualArcs;
+			
+			// store the capacities in the smallest type that is exact
+			boolean integral = null != longCapacities_;
+			boolean fitsInInt = true;
+			for (int e = 0; e < m && integral; e++) {
+				fitsInInt = fitsInInt && longCapacities_[e] <= Integer.MAX_VALUE;
+			}
+			if (integral && fitsInInt) {
+				g.intCapacities_ = new int[2 * m];
+				for (int e = 0; e < m; e++) {
+					g.intCapacities_[residualArcs[e]] = (int) longCapacities_[e];
+				}
+			} else if (integral) {
+				g.longCapacities_ = new long[2 * m];
+				for (int e = 0; e < m; e++) {
+					g.longCapacities_[residualArcs[e]] = longCapacities_[e];
+				}
+			} else {
+				g.capacities_ = new double[2 * m];
+				for (int e = 0; e < m; e++) {
+					g.capacities_[residualArcs[e]] = capacities_[e];
+				}
+			}
+			
+			if (null != vertexIndices_) {
+				g.vertexNames_ = Arrays.copyOf(vertexNames_, n);
+				g.vertexIndices_ = new HashMap<String, Integer>(vertexIndices_);
+			}
+			if (null != arcNames_) {
+				g.arcNames_ = Arrays.copyOf(arcNames_, m);
+			}
+			return g;
+		}
+	}
+
+}
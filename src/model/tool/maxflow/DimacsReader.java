@@ -0,0 +1,273 @@
+package model.tool.maxflow;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.StringTokenizer;
+
+import util.Log;
+
+/**
+ * The Class DimacsReader.
+ *
+ * Reads a max flow problem in the DIMACS format of the benchmark families:
+ * <pre>
+ * c comment
+ * p max n m
+ * n 1 s
+ * n n t
+ * a u v capacity
+ * </pre>
+ * The file is read line by line straight into a {@link CsrGraph.Builder},
+ * whose arrays are sized by the n and m of the problem line, so no
+ * {@link Graph} object is created unless {@link #getGraph()} is called.
+ * The nodes 1..n of the file are the unnamed vertices 0..n-1 of the graph.
+ * Parallel arcs are kept, self-loops are dropped.
+ */
+public class DimacsReader {
+	
+	/** The csr graph. */
+	private CsrGraph csrGraph_;
+	
+	/** The graph, created from the csr graph on request. */
+	private Graph graph_;
+	
+	/** The source index. */
+	private int source_;
+	
+	/** The sink index. */
+	private int sink_;
+	
+	/** True if all capacities read are integral. */
+	private boolean integralCapacities_;
+	
+	/**
+	 * Instantiates a new dimacs reader.
+	 */
+	public DimacsReader() {
+		source_ = -1;
+		sink_ = -1;
+	}
+	
+	/**
+	 * Read file.
+	 *
+	 * @param fileName the file name
+	 */
+	public void readFile(String fileName) {
+		Log.p("Read DIMACS file " + fileName);
+		csrGraph_ = null;
+		graph_ = null;
+		source_ = -1;
+		sink_ = -1;
+		integralCapacities_ = true;
+		
+		CsrGraph.Builder builder = null;
+		int expectedArcs = 0;
+		BufferedReader br = null;
+		try {
+			br = new BufferedReader(new InputStreamReader(new FileInputStream(fileName)));
+			String line;
+			while ((line = br.readLine()) != null) {
+				StringTokenizer st = new StringTokenizer(line);
+				if (!st.hasMoreTokens()) {
+					continue;
+				}
+				String type = st.nextToken();
+				if (type.equals("c")) { // comment line
+					continue;
+				}
+				if (type.equals("p")) {
+					if (null != builder) {
+						Log.e("Unexpected second problem line: " + line);
+						continue;
+					}
+					if (st.countTokens() != 3 || !st.nextToken().equals("max")) {
+						Log.e("Unexpected problem line: " + line + "\n\"p max n m\" was expected.");
+						return;
+					}
+					int n = Integer.parseInt(st.nextToken());
+					expectedArcs = Integer.parseInt(st.nextToken());
+					builder = new CsrGraph.Builder(fileName, n, expectedArcs);
+					for (int v = 0; v < n; v++) {
+						builder.addVertex();
+					}
+					continue;
+				}
+				if (null == builder) {
+					Log.e("Unexpected line before the problem line: " + line);
+					return;
+				}
+				if (type.equals("a")) {
+					if (st.countTokens() != 3) {
+						Log.e("Unexpected line: " + line + "\nThree elements were expected after 'a'.");
+						continue;
+					}
+					int u = getVertex(builder, st.nextToken(), line);
+					int v = getVertex(builder, st.nextToken(), line);
+					// integers are kept as longs, so capacities above 2^53 stay exact
+					String token = st.nextToken();
+					long longCap = GraphUtil.parseLongCapacity(token);
+					double cap = (-1 == longCap) ? Double.parseDouble(token) : longCap;
+					if (u < 0 || v < 0) {
+						continue;
+					}
+					if (cap < 0) {
+						Log.e("Unexpected negative capacity found in line: " + line + "\nArc won\'t be added.");
+						continue;
+					}
+					if (-1 != longCap) {
+						builder.addArc(u, v, longCap);
+						continue;
+					}
+					if (cap != Math.floor(cap) || cap >= Long.MAX_VALUE) {
+						integralCapacities_ = false;
+					}
+					builder.addArc(u, v, cap);
+				} else if (type.equals("n")) {
+					if (st.countTokens() != 2) {
+						Log.e("Unexpected line: " + line + "\nTwo elements were expected after 'n'.");
+						continue;
+					}
+					int v = getVertex(builder, st.nextToken(), line);
+					String terminal = st.nextToken();
+					if (v < 0) {
+						continue;
+					}
+					if (terminal.equals("s")) {
+						source_ = v;
+					} else if (terminal.equals("t")) {
+						sink_ = v;
+					} else {
+						Log.e("Unexpected node type in line: " + line + "\n's' or 't' was expected.");
+					}
+				} else {
+					Log.e("Unexpected line: " + line);
+				}
+			}
+		} catch (IOException e) {
+			Log.e("Cannot read file " + fileName, e);
+			return;
+		} catch (NumberFormatException e) {
+			Log.e("Cannot read file " + fileName, e);
+			return;
+		} finally {
+			if (null != br) {
+				try {
+					br.close();
+				} catch (IOException e) {
+					Log.e("Cannot close file " + fileName, e);
+				}
+			}
+		}
+		
+		if (null == builder) {
+			Log.e("No problem line found in file " + fileName);
+			return;
+		}
+		if (builder.getNumberOfArcs() != expectedArcs) {
+			Log.w(expectedArcs + " arcs expected, but " + builder.getNumberOfArcs() + " arcs read from file " + fileName);
+		}
+		if (-1 == source_ || -1 == sink_) {
+			Log.e("Missing source or sink node line in file " + fileName);
+		}
+		csrGraph_ = builder.build();
+	}
+	
+	/**
+	 * Gets the vertex of a node id of the file.
+	 *
+	 * @param builder the builder
+	 * @param id the node id, 1..n
+	 * @param line the line, for the error message
+	 * @return the vertex index, or -1 if the id is out of range
+	 */
+	private static int getVertex(CsrGraph.Builder builder, String id, String line) {
+		int v = Integer.parseInt(id) - 1;
+		if (v < 0 || v >= builder.getNumberOfVertices()) {
+			Log.e("Unexpected node " + id + " in line: " + line + "\nNodes 1.." + builder.getNumberOfVertices() + " were expected.");
+			return -1;
+		}
+		return v;
+	}
+	
+	/**
+	 * Checks if all capacities of the graph read are integral, i.e. if
+	 * {@link PushRelabelLongAlgo} can compute the max flow exactly.
+	 *
+	 * @return true, if all capacities are integral
+	 */
+	public boolean hasIntegralCapacities() {
+		return integralCapacities_;
+	}
+	
+	/**
+	 * Gets the csr graph.
+	 *
+	 * @return the csr graph
+	 */
+	public CsrGraph getCsrGraph() {
+		if (null == csrGraph_) {
+			Log.w("No graph specified.. please call the read file method first.");
+		}
+		return csrGraph_;
+	}
+	
+	/**
+	 * Gets the graph, the vertices are named 0..n-1.
+	 *
+	 * @return the graph
+	 */
+	public Graph getGraph() {
+		if (null == graph_ && null != getCsrGraph()) {
+			graph_ = csrGraph_.toGraph();
+		}
+		return graph_;
+	}
+	
+	/**
+	 * Gets the index of the source in the csr graph.
+	 *
+	 * @return the source index, -1 if no source was read
+	 */
+	public int getSourceIndex() {
+		return source_;
+	}
+	
+	/**
+	 * Gets the index of the sink in the csr graph.
+	 *
+	 * @return the sink index, -1 if no sink was read
+	 */
+	public int getSinkIndex() {
+		return sink_;
+	}
+	
+	/**
+	 * Gets the source.
+	 *
+	 * @return the source
+	 */
+	public Vertex getSource() {
+		if (-1 == source_ || null == getGraph()) {
+			Log.w("No source specified.. please call the read file method first.");
+			return null;
+		}
+		return getGraph().getVertex(csrGraph_.getVertexName(source_));
+	}
+	
+	/**
+	 * Gets the sink.
+	 *
+	 * @return the sink
+	 */
+	public Vertex getSink() {
+		if (-1 == sink_ || null == getGraph()) {
+			Log.w("No sink specified.. please call the read file method first.");
+			return null;
+		}
+		return getGraph().getVertex(csrGraph_.getVertexName(sink_));
+	}
+
+}
@@ -0,0 +1,354 @@
+package model.tool.maxflow;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import util.Log;
+
+/**
+ * The Class DinicAlgo.
+ *
+ * Dinic's blocking flow algorithm on a {@link FlowNetwork}. Every phase
+ * computes the level graph by a breadth first search from the source and
+ * saturates it by depth first searches which resume at a current arc per
+ * vertex, so every arc is skipped at most once per phase. The number of
+ * phases is bounded by the length of the longest augmenting path, which
+ * makes the algorithm fast on graphs of low diameter and unit capacities.
+ */
+public class DinicAlgo implements MaxFlowSolver {
+	
+	/** The level of a vertex not in the level graph. */
+	private static final int UNREACHED_ = -1;
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	private int source_;
+	
+	private int sink_;
+	
+	private double[] residual_;
+	
+	private int[] levels_;
+	
+	private int[] currentArcs_;
+	
+	/** The arcs of the current augmenting path. */
+	private int[] path_;
+	
+	private int[] queue_;
+	
+	private double maxFlowValue_;
+	
+	private int numberOfPhases_;
+	
+	private boolean timeLimitReached_;
+	
+	/**
+	 * Instantiates a new dinic algo.
+	 *
+	 * @param graph the graph
+	 * @param s the s
+	 * @param t the t
+	 */
+	public DinicAlgo(Graph graph, Vertex s, Vertex t) {
+		graph_ = graph;
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		initialize(network, network.getVertexIndex(s.getName()), network.getVertexIndex(t.getName()));
+	}
+	
+	/**
+	 * Instantiates a new dinic algo.
+	 *
+	 * @param graph the flow network
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public DinicAlgo(FlowNetwork graph, int s, int t) {
+		graph_ = null;
+		initialize(graph, s, t);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow() {
+		return computeMaxFlow(-1);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
+		computeArcFlows(timeLimit);
+		if (null == graph_) {
+			return null;
+		}
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the max flow on the input arcs.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow on each input arc
+	 */
+	public double[] computeArcFlows(int timeLimit) {
+		long deadline = (timeLimit >= 0) ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		timeLimitReached_ = false;
+		while (computeLevels()) {
+			numberOfPhases_++;
+			for (int v = 0; v < currentArcs_.length; v++) {
+				currentArcs_[v] = network_.getFirstResidualArc(v);
+			}
+			computeBlockingFlow();
+			if (System.currentTimeMillis() > deadline) {
+				Log.w("Time limit reached.");
+				timeLimitReached_ = true;
+				clearFlow();
+				break;
+			}
+		}
+		Log.ps("%d phases", numberOfPhases_);
+		return getArcFlows();
+	}
+	
+	/**
+	 * Time limit reached.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean timeLimitReached() {
+		return timeLimitReached_;
+	}
+	
+	/**
+	 * Gets the number of phases, i.e. of blocking flows computed.
+	 *
+	 * @return the number of phases
+	 */
+	public int getNumberOfPhases() {
+		return numberOfPhases_;
+	}
+	
+	/**
+	 * Gets the flow.
+	 *
+	 * @return the flow
+	 */
+	public HashMap<Arc, Double> getFlow() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getArcFlows() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.createFlowMap(graph_, network_, getArcFlows());
+	}
+	
+	/**
+	 * Gets the flow on each input arc of the csr graph.
+	 *
+	 * @return the arc flows
+	 */
+	public double[] getArcFlows() {
+		int m = network_.getNumberOfArcs();
+		double[] flow = new double[m];
+		for (int e = 0; e < m; e++) {
+			int uv = network_.getResidualArc(e);
+			flow[e] = GraphUtil.getArcFlow(network_.getCapacity(uv), residual_[uv]);
+		}
+		return flow;
+	}
+	
+	/**
+	 * Gets the vertices on the source side of the minimum cut, i.e. all
+	 * vertices which cannot reach the sink in the residual graph.
+	 *
+	 * @return true for each vertex on the source side
+	 */
+	public boolean[] getSourceSide() {
+		int n = network_.getNumberOfVertices();
+		boolean[] reachesSink = new boolean[n];
+		int head = 0;
+		int tail = 0;
+		queue_[tail++] = sink_;
+		reachesSink[sink_] = true;
+		while (head < tail) {
+			int v = queue_[head++];
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (!reachesSink[u] && residual_[network_.getReverse(vu)] > 0.0) {
+					reachesSink[u] = true;
+					queue_[tail++] = u;
+				}
+			}
+		}
+		boolean[] sourceSide = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			sourceSide[v] = !reachesSink[v];
+		}
+		return sourceSide;
+	}
+	
+	/**
+	 * Gets the cut set close to source.
+	 *
+	 * @return the cut set close to source
+	 */
+	public HashSet<String> getCutSetCloseToSource() {
+		return GraphUtil.getVertexNames(network_, getSourceSide());
+	}
+	
+	/**
+	 * Gets the cut.
+	 *
+	 * @return the cut
+	 */
+	public Collection<Arc> getCut() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getSourceSide() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.getOutgoingArcs(graph_, getCutSetCloseToSource());
+	}
+	
+	/**
+	 * Gets the max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public double getMaxFlowValue() {
+		return maxFlowValue_;
+	}
+	
+	private void initialize(FlowNetwork network, int s, int t) {
+		network_ = network;
+		source_ = s;
+		sink_ = t;
+		int n = network.getNumberOfVertices();
+		int mm = network.getNumberOfResidualArcs();
+		residual_ = new double[mm];
+		for (int a = 0; a < mm; a++) {
+			residual_[a] = network.getCapacity(a);
+		}
+		levels_ = new int[n];
+		currentArcs_ = new int[n];
+		path_ = new int[n];
+		queue_ = new int[n];
+		maxFlowValue_ = 0.0;
+		numberOfPhases_ = 0;
+	}
+	
+	/**
+	 * Resets the residual capacities to a zero flow.
+	 */
+	private void clearFlow() {
+		for (int a = 0; a < residual_.length; a++) {
+			residual_[a] = network_.getCapacity(a);
+		}
+		maxFlowValue_ = 0.0;
+	}
+	
+	/**
+	 * Computes the level graph by a breadth first search from the source.
+	 * The search stops at the level of the sink, since longer paths are not
+	 * in the level graph anyway.
+	 *
+	 * @return true, if the sink is reachable
+	 */
+	private boolean computeLevels() {
+		for (int v = 0; v < levels_.length; v++) {
+			levels_[v] = UNREACHED_;
+		}
+		int head = 0;
+		int tail = 0;
+		queue_[tail++] = source_;
+		levels_[source_] = 0;
+		while (head < tail) {
+			int u = queue_[head++];
+			if (levels_[u] >= levels_[sink_] && UNREACHED_ != levels_[sink_]) {
+				break;
+			}
+			for (int uv = network_.getFirstResidualArc(u); uv < network_.getEndResidualArc(u); uv++) {
+				int v = network_.getHead(uv);
+				if (UNREACHED_ == levels_[v] && residual_[uv] > 0.0) {
+					levels_[v] = levels_[u] + 1;
+					queue_[tail++] = v;
+				}
+			}
+		}
+		return UNREACHED_ != levels_[sink_];
+	}
+	
+	/**
+	 * Computes a blocking flow in the level graph by repeated depth first
+	 * searches for augmenting paths. A vertex without a way forward is
+	 * removed from the level graph, and after an augmentation the search
+	 * continues at the tail of the first saturated arc.
+	 */
+	private void computeBlockingFlow() {
+		int top = 0;
+		int u = source_;
+		while (true) {
+			if (u == sink_) {
+				top = augment(top);
+				u = (0 == top) ? source_ : network_.getHead(path_[top - 1]);
+				continue;
+			}
+			int end = network_.getEndResidualArc(u);
+			int uv = currentArcs_[u];
+			for (; uv < end; uv++) {
+				int v = network_.getHead(uv);
+				if (residual_[uv] > 0.0 && levels_[v] == levels_[u] + 1) {
+					break;
+				}
+			}
+			currentArcs_[u] = uv;
+			if (uv < end) {
+				// advance
+				path_[top++] = uv;
+				u = network_.getHead(uv);
+			} else {
+				// retreat, u cannot reach the sink in the level graph
+				levels_[u] = UNREACHED_;
+				if (0 == top) {
+					return;
+				}
+				top--;
+				u = network_.getHead(network_.getReverse(path_[top]));
+				currentArcs_[u]++;
+			}
+		}
+	}
+	
+	/**
+	 * Augments along the current path by its bottleneck capacity.
+	 *
+	 * @param top the length of the path
+	 * @return the length of the path up to the first saturated arc
+	 */
+	private int augment(int top) {
+		double delta = residual_[path_[0]];
+		for (int i = 1; i < top; i++) {
+			delta = Math.min(delta, residual_[path_[i]]);
+		}
+		int firstSaturated = top;
+		for (int i = 0; i < top; i++) {
+			int uv = path_[i];
+			residual_[uv] -= delta;
+			residual_[network_.getReverse(uv)] += delta;
+			if (residual_[uv] <= 0.0 && firstSaturated == top) {
+				firstSaturated = i;
+			}
+		}
+		maxFlowValue_ += delta;
+		return firstSaturated;
+	}
+
+}
@@ -0,0 +1,233 @@
+package model.tool.maxflow;
+
+/**
+ * The Class DistanceLabels.
+ *
+ * The distance labels of the highest-label push-relabel engines on a
+ * {@link FlowNetwork}: the current arcs, the buckets of active and labeled
+ * vertices, the gap relabeling and the global relabels with their schedule.
+ * {@link PushRelabelArrayAlgo} and {@link PushRelabelLongAlgo} differ only
+ * in the type of their residual capacities and excesses, so they scan and
+ * push on their own arrays and leave the labels to this class. A vertex is
+ * active if the engine says so, the labels only keep it in its bucket.
+ */
+class DistanceLabels {
+	
+	/** The work of a relabel in addition to the scanned arcs. */
+	private static final int RELABEL_WORK_ = 12;
+	
+	private FlowNetwork network_;
+	
+	private int[] distances_;
+	
+	private GlobalRelabeling relabeling_;
+	
+	private int[] currentArcs_;
+	
+	private VertexBuckets activeVertices_;
+	
+	/** The vertices with a distance label below n, in buckets by label. */
+	private VertexBuckets labeledVertices_;
+	
+	/** The arcs scanned plus the relabel work since the last global relabel. */
+	private long workSinceUpdate_;
+	
+	private double globalRelabelFrequency_;
+	
+	private int numberOfGlobalRelabels_;
+	
+	/** The time spent in global relabels in nanoseconds. */
+	private long globalRelabelTime_;
+	
+	private boolean globalRelabelingNeeded_;
+	
+	/**
+	 * Instantiates new distance labels.
+	 *
+	 * @param network the flow network
+	 * @param relabeling the global relabeling on the residual capacities of the engine
+	 */
+	DistanceLabels(FlowNetwork network, GlobalRelabeling relabeling) {
+		network_ = network;
+		relabeling_ = relabeling;
+		int n = network.getNumberOfVertices();
+		distances_ = new int[n];
+		currentArcs_ = new int[n];
+		for (int v = 0; v < n; v++) {
+			currentArcs_[v] = network.getFirstResidualArc(v);
+		}
+		activeVertices_ = new VertexBuckets(n, n);
+		labeledVertices_ = new VertexBuckets(n, n);
+		workSinceUpdate_ = 0;
+		globalRelabelFrequency_ = PushRelabelAlgo.DEFAULT_GLOBAL_RELABEL_FREQUENCY;
+		numberOfGlobalRelabels_ = 0;
+		globalRelabelTime_ = 0;
+		globalRelabelingNeeded_ = false;
+	}
+	
+	/**
+	 * Gets the distance labels, which the engine reads while it scans.
+	 *
+	 * @return the distance label of each vertex
+	 */
+	int[] getDistances() {
+		return distances_;
+	}
+	
+	/**
+	 * Gets the current arcs, which the engine advances while it scans.
+	 *
+	 * @return the current arc of each vertex
+	 */
+	int[] getCurrentArcs() {
+		return currentArcs_;
+	}
+	
+	/**
+	 * Sets the global relabel frequency alpha.
+	 *
+	 * @param frequency the global relabel frequency
+	 */
+	void setGlobalRelabelFrequency(double frequency) {
+		globalRelabelFrequency_ = frequency;
+	}
+	
+	/**
+	 * Gets the global relabel frequency.
+	 *
+	 * @return the global relabel frequency
+	 */
+	double getGlobalRelabelFrequency() {
+		return globalRelabelFrequency_;
+	}
+	
+	/**
+	 * Gets the number of global relabels.
+	 *
+	 * @return the number of global relabels
+	 */
+	int getNumberOfGlobalRelabels() {
+		return numberOfGlobalRelabels_;
+	}
+	
+	/**
+	 * Gets the time spent in global relabels.
+	 *
+	 * @return the global relabel time in milliseconds
+	 */
+	long getGlobalRelabelTime() {
+		return globalRelabelTime_ / 1000000;
+	}
+	
+	/**
+	 * Checks if a global relabel is due.
+	 *
+	 * @return true, if a global relabel is needed
+	 */
+	boolean isGlobalRelabelingNeeded() {
+		return globalRelabelingNeeded_;
+	}
+	
+	/**
+	 * Global relabeling distances. Sets the distance label of every vertex to
+	 * its distance to the sinks in the residual graph, or to n if none of
+	 * them is reachable. All active vertices are dropped, the engine adds
+	 * those which are still active afterwards.
+	 *
+	 * @param sources the indices of the sources
+	 * @param sinks the indices of the sinks
+	 */
+	void globalRelabelingDistances(int[] sources, int[] sinks) {
+		long start = System.nanoTime();
+		int n = network_.getNumberOfVertices();
+		relabeling_.computeDistances(distances_, sources, sinks);
+		
+		// labels changed, so restart all arc scans and rebuild the buckets
+		activeVertices_.clear();
+		labeledVertices_.clear();
+		for (int v = 0; v < n; v++) {
+			currentArcs_[v] = network_.getFirstResidualArc(v);
+			if (distances_[v] < n) {
+				labeledVertices_.add(v, distances_[v]);
+			}
+		}
+		workSinceUpdate_ = 0;
+		globalRelabelingNeeded_ = false;
+		numberOfGlobalRelabels_++;
+		globalRelabelTime_ += System.nanoTime() - start;
+	}
+	
+	/**
+	 * Adds to active vertices list.
+	 *
+	 * @param v the v
+	 */
+	void addToActiveVertices(int v) {
+		activeVertices_.add(v, distances_[v]);
+	}
+	
+	/**
+	 * Retrieve active vertex with the largest distance label.
+	 *
+	 * @return the vertex, or -1 if no active vertex is left
+	 */
+	int retrieveActiveVertex() {
+		return activeVertices_.pollHighest();
+	}
+	
+	/**
+	 * Counts the arcs scanned by a discharge.
+	 *
+	 * @param arcs the number of scanned arcs
+	 */
+	void addScanWork(int arcs) {
+		workSinceUpdate_ += arcs;
+	}
+	
+	/**
+	 * Relabel. Sets the new label, which the engine found by scanning the
+	 * residual arcs of u, and lifts the vertices above a gap left by u.
+	 *
+	 * @param u the vertex u
+	 * @param minDistance the smallest label of a residual neighbour plus one, n if there is none
+	 */
+	void relabel(int u, int minDistance) {
+		int n = network_.getNumberOfVertices();
+		int initialDistance = distances_[u];
+		distances_[u] = minDistance;
+		currentArcs_[u] = network_.getFirstResidualArc(u);
+		workSinceUpdate_ += network_.getEndResidualArc(u) - network_.getFirstResidualArc(u) + RELABEL_WORK_;
+		if (minDistance < n) {
+			labeledVertices_.add(u, minDistance);
+		} else {
+			labeledVertices_.remove(u);
+		}
+		if (labeledVertices_.isEmpty(initialDistance)) {
+			gapRelabelingDistances(initialDistance);
+		}
+		if (workSinceUpdate_ >= globalRelabelFrequency_ * n + network_.getNumberOfArcs()) {
+			globalRelabelingNeeded_ = true;
+		}
+	}
+	
+	/**
+	 * Gap relabeling distances. No vertex has the given label anymore, so
+	 * the vertices with a larger label below n cannot reach the sink and
+	 * are lifted to n, which is linear in the number of lifted vertices.
+	 *
+	 * @param emptyDistance the label without vertices
+	 */
+	private void gapRelabelingDistances(int emptyDistance) {
+		int n = network_.getNumberOfVertices();
+		int largestDistance = labeledVertices_.getHighestLabel();
+		for (int d = emptyDistance + 1; d <= largestDistance; d++) {
+			int v = labeledVertices_.pollFirst(d);
+			while (-1 != v) {
+				distances_[v] = n;
+				activeVertices_.remove(v);
+				v = labeledVertices_.pollFirst(d);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,632 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import util.Log;
+
+/**
+ * The Class ExcessScalingAlgo.
+ *
+ * The excess scaling push-relabel algorithm of Ahuja and Orlin for integral
+ * capacities, in O(nm + n^2 log U) time. The algorithm runs in phases with
+ * a scaling value delta, a power of two which halves from phase to phase.
+ * Every excess stays at most delta, and in a phase only vertices with an
+ * excess above delta / 2 are discharged, the one with the lowest label
+ * first. A push never lets the excess of the receiving vertex exceed delta,
+ * so each non-saturating push moves at least delta / 2. This avoids the
+ * many tiny pushes of the other variants when the capacities span several
+ * orders of magnitude.
+ *
+ * Like in {@link PushRelabelLongAlgo}, residual capacities, excesses and
+ * flows are longs, and the maximum preflow is turned into a flow by a
+ * {@link PreflowConverter} when the flow is requested.
+ */
+public class ExcessScalingAlgo implements MaxFlowSolver {
+	
+	/** The number of discharges between two checks of the time limit. */
+	private static final int TIME_CHECK_INTERVAL_ = 1024;
+	
+	/** The work of a relabel in addition to the scanned arcs. */
+	private static final int RELABEL_WORK_ = 12;
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	private int source_;
+	
+	private int sink_;
+	
+	private long[] residual_;
+	
+	private long[] excess_;
+	
+	private int[] distances_;
+	
+	private GlobalRelabeling relabeling_;
+	
+	private int[] currentArcs_;
+	
+	/** The scaling value of the current phase. */
+	private long delta_;
+	
+	private int numberOfPhases_;
+	
+	/** The active vertices with an excess above delta / 2, in buckets by label. */
+	private VertexBuckets largeVertices_;
+	
+	/** The vertices with a distance label below n, in buckets by label. */
+	private VertexBuckets labeledVertices_;
+	
+	/** The arcs scanned plus the relabel work since the last global relabel. */
+	private long workSinceUpdate_;
+	
+	private double globalRelabelFrequency_;
+	
+	private int numberOfGlobalRelabels_;
+	
+	/** The time spent in global relabels in nanoseconds. */
+	private long globalRelabelTime_;
+	
+	private boolean globalRelabelingNeeded_;
+	
+	private boolean timeLimitReached_;
+	
+	/** True as long as only a preflow for the min cut has been computed. */
+	private boolean preflowOnly_;
+	
+	/**
+	 * Instantiates a new excess scaling algo.
+	 *
+	 * @param graph the graph
+	 * @param s the s
+	 * @param t the t
+	 */
+	public ExcessScalingAlgo(Graph graph, Vertex s, Vertex t) {
+		graph_ = graph;
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		initialize(network, network.getVertexIndex(s.getName()), network.getVertexIndex(t.getName()));
+	}
+	
+	/**
+	 * Instantiates a new excess scaling algo.
+	 *
+	 * @param graph the flow network
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public ExcessScalingAlgo(FlowNetwork graph, int s, int t) {
+		graph_ = null;
+		initialize(graph, s, t);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow() {
+		return computeMaxFlow(-1);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
+		computeArcFlows(timeLimit);
+		if (null == graph_) {
+			return null;
+		}
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the max flow on the input arcs.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow on each input arc
+	 */
+	public long[] computeArcFlows(int timeLimit) {
+		computeMinCut(timeLimit);
+		return getArcFlows();
+	}
+	
+	/**
+	 * Compute the min cut only. The max flow value and the cut are available
+	 * afterwards, the flow is completed when it is requested.
+	 *
+	 * @return the max flow value
+	 */
+	public double computeMinCut() {
+		return computeMinCut(-1);
+	}
+	
+	/**
+	 * Compute the min cut only. The max flow value and the cut are available
+	 * afterwards, the flow is completed when it is requested.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the max flow value
+	 */
+	public double computeMinCut(int timeLimit) {
+		long deadline = (timeLimit >= 0) ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		timeLimitReached_ = false;
+		// move as much excess as possible to the sink
+		preflowOnly_ = processActiveVertices(deadline);
+		Log.ps("%d global relabels in %d ms", numberOfGlobalRelabels_, getGlobalRelabelTime());
+		return getMaxFlowValue();
+	}
+	
+	/**
+	 * Time limit reached.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean timeLimitReached() {
+		return timeLimitReached_;
+	}
+	
+	/**
+	 * Gets the number of scaling phases.
+	 *
+	 * @return the number of phases
+	 */
+	public int getNumberOfPhases() {
+		return numberOfPhases_;
+	}
+	
+	/**
+	 * Sets the global relabel frequency alpha. A global relabel is started
+	 * once the arcs scanned plus a constant per relabel since the last one
+	 * exceed alpha * n + m.
+	 *
+	 * @param frequency the global relabel frequency
+	 */
+	public void setGlobalRelabelFrequency(double frequency) {
+		if (frequency < 0.0) {
+			Log.w("Negative global relabel frequency " + frequency + " is ignored.");
+			return;
+		}
+		globalRelabelFrequency_ = frequency;
+	}
+	
+	/**
+	 * Gets the global relabel frequency.
+	 *
+	 * @return the global relabel frequency
+	 */
+	public double getGlobalRelabelFrequency() {
+		return globalRelabelFrequency_;
+	}
+	
+	/**
+	 * Gets the number of global relabels.
+	 *
+	 * @return the number of global relabels
+	 */
+	public int getNumberOfGlobalRelabels() {
+		return numberOfGlobalRelabels_;
+	}
+	
+	/**
+	 * Gets the time spent in global relabels.
+	 *
+	 * @return the global relabel time in milliseconds
+	 */
+	public long getGlobalRelabelTime() {
+		return globalRelabelTime_ / 1000000;
+	}
+	
+	/**
+	 * Gets the flow.
+	 *
+	 * @return the flow
+	 */
+	public HashMap<Arc, Double> getFlow() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getArcFlows() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.createFlowMap(graph_, network_, getArcFlows());
+	}
+	
+	/**
+	 * Gets the flow on each input arc of the csr graph.
+	 *
+	 * @return the arc flows
+	 */
+	public long[] getArcFlows() {
+		if (preflowOnly_) {
+			// return the remaining excess to the source
+			new PreflowConverter(network_, residual_, excess_, source_, sink_).convert();
+			preflowOnly_ = false;
+		}
+		int m = network_.getNumberOfArcs();
+		long[] flow = new long[m];
+		for (int e = 0; e < m; e++) {
+			int uv = network_.getResidualArc(e);
+			flow[e] = GraphUtil.getArcFlow(getCapacity(uv), residual_[uv]);
+		}
+		return flow;
+	}
+	
+	/**
+	 * Gets the vertices on the source side of the minimum cut, i.e. all
+	 * vertices which cannot reach the sink in the residual graph.
+	 *
+	 * @return true for each vertex on the source side
+	 */
+	public boolean[] getSourceSide() {
+		int n = network_.getNumberOfVertices();
+		boolean[] reachesSink = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = sink_;
+		reachesSink[sink_] = true;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (!reachesSink[u] && residual_[network_.getReverse(vu)] > 0) {
+					reachesSink[u] = true;
+					queue[tail++] = u;
+				}
+			}
+		}
+		boolean[] sourceSide = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			sourceSide[v] = !reachesSink[v];
+		}
+		return sourceSide;
+	}
+	
+	/**
+	 * Gets the cut set close to source.
+	 *
+	 * @return the cut set close to source
+	 */
+	public HashSet<String> getCutSetCloseToSource() {
+		return GraphUtil.getVertexNames(network_, getSourceSide());
+	}
+	
+	/**
+	 * Gets the cut.
+	 *
+	 * @return the cut
+	 */
+	public Collection<Arc> getCut() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getSourceSide() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.getOutgoingArcs(graph_, getCutSetCloseToSource());
+	}
+	
+	/**
+	 * Gets the max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public double getMaxFlowValue() {
+		return excess_[sink_];
+	}
+	
+	/**
+	 * Gets the exact max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public long getLongMaxFlowValue() {
+		return excess_[sink_];
+	}
+	
+	private void initialize(FlowNetwork network, int s, int t) {
+		network_ = network;
+		source_ = s;
+		sink_ = t;
+		int n = network.getNumberOfVertices();
+		int mm = network.getNumberOfResidualArcs();
+		if (!network.hasIntegralCapacities()) {
+			Log.e("Capacities of " + network.getName() + " are not integral and will be rounded down.");
+		}
+		residual_ = new long[mm];
+		for (int a = 0; a < mm; a++) {
+			residual_[a] = getCapacity(a);
+		}
+		excess_ = new long[n];
+		distances_ = new int[n];
+		relabeling_ = new GlobalRelabeling(network, residual_);
+		currentArcs_ = new int[n];
+		for (int v = 0; v < n; v++) {
+			currentArcs_[v] = network.getFirstResidualArc(v);
+		}
+		largeVertices_ = new VertexBuckets(n, n);
+		labeledVertices_ = new VertexBuckets(n, n);
+		preflowOnly_ = false;
+		globalRelabelingNeeded_ = false;
+		globalRelabelFrequency_ = PushRelabelAlgo.DEFAULT_GLOBAL_RELABEL_FREQUENCY;
+		numberOfGlobalRelabels_ = 0;
+		globalRelabelTime_ = 0;
+		numberOfPhases_ = 0;
+		delta_ = 1;
+		
+		// saturate all arcs leaving the source
+		for (int sv = network.getFirstResidualArc(s); sv < network.getEndResidualArc(s); sv++) {
+			long cap = residual_[sv];
+			if (cap > 0) {
+				residual_[sv] = 0;
+				residual_[network.getReverse(sv)] += cap;
+				excess_[network.getHead(sv)] += cap;
+			}
+		}
+		globalRelabelingDistances();
+	}
+	
+	/**
+	 * Runs the scaling phases until no active vertex with a distance label
+	 * below n is left. Each phase discharges the vertices with large excess
+	 * in lowest label order.
+	 *
+	 * @param deadline the deadline in milliseconds
+	 * @return false, if the time limit was reached
+	 */
+	private boolean processActiveVertices(long deadline) {
+		int count = 0;
+		for (delta_ = getInitialDelta(); delta_ >= 1; delta_ /= 2) {
+			numberOfPhases_++;
+			rebuildLargeVertices();
+			while (true) {
+				if (globalRelabelingNeeded_) {
+					globalRelabelingDistances();
+				}
+				int v = retrieveActiveVertex();
+				if (-1 == v) {
+					break;
+				}
+				discharge(v);
+				if (++count % TIME_CHECK_INTERVAL_ == 0 && System.currentTimeMillis() > deadline) {
+					Log.w("Time limit reached.");
+					timeLimitReached_ = true;
+					clearFlow();
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Gets the scaling value of the first phase, the smallest power of two
+	 * which is at least every excess.
+	 *
+	 * @return the initial delta
+	 */
+	private long getInitialDelta() {
+		long maxExcess = 1;
+		for (int v = 0; v < excess_.length; v++) {
+			if (isActive(v) && maxExcess < excess_[v]) {
+				maxExcess = excess_[v];
+			}
+		}
+		long delta = Long.highestOneBit(maxExcess);
+		if (delta < maxExcess) {
+			delta = (delta < Long.MAX_VALUE / 2) ? 2 * delta : Long.MAX_VALUE;
+		}
+		return delta;
+	}
+	
+	/**
+	 * Puts all active vertices with an excess above delta / 2 into buckets.
+	 */
+	private void rebuildLargeVertices() {
+		largeVertices_.clear();
+		for (int v = 0; v < excess_.length; v++) {
+			if (isLarge(v)) {
+				addToActiveVertices(v);
+			}
+		}
+	}
+	
+	/**
+	 * Resets the residual capacities to a zero flow.
+	 */
+	private void clearFlow() {
+		for (int a = 0; a < residual_.length; a++) {
+			residual_[a] = getCapacity(a);
+		}
+		Arrays.fill(excess_, 0);
+	}
+	
+	/**
+	 * Gets the capacity of the residual arc.
+	 *
+	 * @param a the residual arc
+	 * @return the capacity
+	 */
+	private long getCapacity(int a) {
+		if (network_.hasIntegralCapacities()) {
+			return network_.getLongCapacity(a);
+		}
+		return (long) network_.getCapacity(a);
+	}
+	
+	/**
+	 * Global relabeling distances. Sets the distance label of every vertex to
+	 * its distance to the sink in the residual graph, or to n if the sink is
+	 * not reachable.
+	 */
+	private void globalRelabelingDistances() {
+		long start = System.nanoTime();
+		int n = network_.getNumberOfVertices();
+		relabeling_.computeDistances(distances_, source_, sink_);
+		
+		// labels changed, so restart all arc scans and rebuild the buckets
+		largeVertices_.clear();
+		labeledVertices_.clear();
+		for (int v = 0; v < n; v++) {
+			currentArcs_[v] = network_.getFirstResidualArc(v);
+			if (distances_[v] < n) {
+				labeledVertices_.add(v, distances_[v]);
+			}
+			if (isLarge(v)) {
+				addToActiveVertices(v);
+			}
+		}
+		workSinceUpdate_ = 0;
+		globalRelabelingNeeded_ = false;
+		numberOfGlobalRelabels_++;
+		globalRelabelTime_ += System.nanoTime() - start;
+	}
+	
+	/**
+	 * Vertex is active.
+	 *
+	 * @param v the v
+	 * @return true, if successful
+	 */
+	private boolean isActive(int v) {
+		return v != source_ && v != sink_ && excess_[v] > 0 && distances_[v] < network_.getNumberOfVertices();
+	}
+	
+	/**
+	 * Checks if the vertex is active and its excess is above delta / 2.
+	 *
+	 * @param v the v
+	 * @return true, if successful
+	 */
+	private boolean isLarge(int v) {
+		return isActive(v) && excess_[v] > delta_ / 2;
+	}
+	
+	/**
+	 * Adds to active vertices list.
+	 *
+	 * @param v the v
+	 */
+	private void addToActiveVertices(int v) {
+		largeVertices_.add(v, distances_[v]);
+	}
+	
+	/**
+	 * Retrieve the vertex with large excess with the lowest distance label.
+	 *
+	 * @return the vertex, or -1 if no vertex with large excess is left
+	 */
+	private int retrieveActiveVertex() {
+		return largeVertices_.pollLowest();
+	}
+	
+	/**
+	 * Discharges the vertex until its excess is not large anymore, or until
+	 * it is relabeled, since it may not have the lowest label afterwards.
+	 *
+	 * @param u the u
+	 */
+	private void discharge(int u) {
+		int end = network_.getEndResidualArc(u);
+		int du = distances_[u];
+		int uv = currentArcs_[u];
+		for (; uv < end; uv++) {
+			if (residual_[uv] > 0 && du == distances_[network_.getHead(uv)] + 1) {
+				push(u, uv);
+				// stop if u is done or v is full, in both cases the arc may still be admissible
+				if (excess_[u] <= delta_ / 2 || residual_[uv] > 0) {
+					break;
+				}
+			}
+		}
+		workSinceUpdate_ += uv - currentArcs_[u];
+		currentArcs_[u] = uv;
+		if (uv == end) {
+			relabel(u);
+		}
+		if (isLarge(u)) {
+			addToActiveVertices(u);
+		}
+	}
+	
+	/**
+	 * Pushes as much excess as possible without letting the excess of v
+	 * exceed delta, unless v is the sink.
+	 *
+	 * @param u the u
+	 * @param uv the residual arc uv
+	 */
+	private void push(int u, int uv) {
+		int v = network_.getHead(uv);
+		long delta = Math.min(excess_[u], residual_[uv]);
+		if (v != sink_) {
+			delta = Math.min(delta, delta_ - excess_[v]);
+		}
+		residual_[uv] -= delta;
+		residual_[network_.getReverse(uv)] += delta;
+		excess_[u] -= delta;
+		excess_[v] += delta;
+		if (isLarge(v) && !largeVertices_.contains(v)) {
+			addToActiveVertices(v);
+		}
+	}
+	
+	/**
+	 * Relabel.
+	 *
+	 * @param u the vertex u
+	 */
+	private void relabel(int u) {
+		int n = network_.getNumberOfVertices();
+		int initialDistance = distances_[u];
+		// vertices which cannot reach the sink anymore get the label n
+		int minDistance = n;
+		int end = network_.getEndResidualArc(u);
+		for (int uv = network_.getFirstResidualArc(u); uv < end; uv++) {
+			if (residual_[uv] > 0) {
+				int dv = distances_[network_.getHead(uv)] + 1;
+				if (minDistance > dv) {
+					minDistance = dv;
+				}
+			}
+		}
+		distances_[u] = minDistance;
+		currentArcs_[u] = network_.getFirstResidualArc(u);
+		workSinceUpdate_ += end - network_.getFirstResidualArc(u) + RELABEL_WORK_;
+		if (minDistance < n) {
+			labeledVertices_.add(u, minDistance);
+		} else {
+			labeledVertices_.remove(u);
+		}
+		if (labeledVertices_.isEmpty(initialDistance)) {
+			gapRelabelingDistances(initialDistance);
+		}
+		if (workSinceUpdate_ >= globalRelabelFrequency_ * n + network_.getNumberOfArcs()) {
+			globalRelabelingNeeded_ = true;
+		}
+	}
+	
+	/**
+	 * Gap relabeling distances. No vertex has the given label anymore, so
+	 * the vertices with a larger label below n cannot reach the sink and
+	 * are lifted to n, which is linear in the number of lifted vertices.
+	 *
+	 * @param emptyDistance the label without vertices
+	 */
+	private void gapRelabelingDistances(int emptyDistance) {
+		int n = network_.getNumberOfVertices();
+		int largestDistance = labeledVertices_.getHighestLabel();
+		for (int d = emptyDistance + 1; d <= largestDistance; d++) {
+			int v = labeledVertices_.pollFirst(d);
+			while (-1 != v) {
+				distances_[v] = n;
+				largeVertices_.remove(v);
+				v = labeledVertices_.pollFirst(d);
+			}
+		}
+	}
+
+}
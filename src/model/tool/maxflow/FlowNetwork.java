@@ -0,0 +1,136 @@
+package model.tool.maxflow;
+
+/**
+ * The Interface FlowNetwork.
+ *
+ * The residual network the array based engines run on. Vertices are the ints
+ * 0..n-1, input arcs the ints 0..m-1 and residual arcs the ints
+ * 0..{@link #getNumberOfResidualArcs()}-1. The residual arcs leaving a
+ * vertex v are the indices from {@link #getFirstResidualArc(int)} (inclusive)
+ * to {@link #getEndResidualArc(int)} (exclusive), and every residual arc has
+ * a reverse arc. Each input arc has a forward residual arc, see
+ * {@link #getResidualArc(int)}. {@link CsrGraph} stores all of this
+ * explicitly with 2m residual arcs, a forward and a reverse one per input
+ * arc. {@link GridGraph} computes it from grid coordinates, and there two
+ * opposite input arcs share one pair of residual arcs, so the number of
+ * residual arcs is not 2m.
+ */
+public interface FlowNetwork {
+	
+	/**
+	 * Gets the name.
+	 *
+	 * @return the name
+	 */
+	String getName();
+	
+	/**
+	 * Gets the number of vertices.
+	 *
+	 * @return the number of vertices
+	 */
+	int getNumberOfVertices();
+	
+	/**
+	 * Gets the number of input arcs.
+	 *
+	 * @return the number of arcs
+	 */
+	int getNumberOfArcs();
+	
+	/**
+	 * Gets the number of residual arcs.
+	 *
+	 * @return the number of residual arcs
+	 */
+	int getNumberOfResidualArcs();
+	
+	/**
+	 * Gets the first residual arc leaving the vertex v.
+	 *
+	 * @param v the vertex
+	 * @return the first residual arc
+	 */
+	int getFirstResidualArc(int v);
+	
+	/**
+	 * Gets the end of the residual arcs leaving the vertex v,
+	 * i.e. the first residual arc of the vertex v+1.
+	 *
+	 * @param v the vertex
+	 * @return the end residual arc (exclusive)
+	 */
+	int getEndResidualArc(int v);
+	
+	/**
+	 * Gets the head of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the head vertex
+	 */
+	int getHead(int arc);
+	
+	/**
+	 * Gets the tail of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the tail vertex
+	 */
+	int getTail(int arc);
+	
+	/**
+	 * Gets the reverse of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the reverse residual arc
+	 */
+	int getReverse(int arc);
+	
+	/**
+	 * Gets the capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity
+	 */
+	double getCapacity(int arc);
+	
+	/**
+	 * Gets the integral capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity
+	 */
+	long getLongCapacity(int arc);
+	
+	/**
+	 * Checks if all capacities are integral.
+	 *
+	 * @return true, if all capacities are integral
+	 */
+	boolean hasIntegralCapacities();
+	
+	/**
+	 * Gets the forward residual arc of the input arc.
+	 *
+	 * @param arc the input arc
+	 * @return the forward residual arc
+	 */
+	int getResidualArc(int arc);
+	
+	/**
+	 * Gets the vertex name.
+	 *
+	 * @param v the vertex
+	 * @return the vertex name
+	 */
+	String getVertexName(int v);
+	
+	/**
+	 * Gets the arc name.
+	 *
+	 * @param arc the input arc
+	 * @return the arc name
+	 */
+	String getArcName(int arc);
+
+}
@@ -0,0 +1,256 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The Class GlobalRelabeling.
+ *
+ * Computes exact distance labels for the push-relabel engines on a
+ * {@link FlowNetwork} by a breadth first search backwards from the sink over
+ * the residual arcs. The search is level-synchronous: all vertices of the
+ * current frontier are expanded at once, split over the workers of a
+ * {@link ForkJoinPool} if one is set. Visited vertices are marked in an
+ * atomic bitset, and every task collects the vertices it discovers in its
+ * own buffer, which is appended to the next frontier in one step.
+ */
+public class GlobalRelabeling {
+	
+	/** The number of frontier vertices expanded by one task at least. */
+	private static final int GRAIN_SIZE_ = 256;
+	
+	private FlowNetwork network_;
+	
+	private double[] residual_;
+	
+	private long[] longResidual_;
+	
+	/** One bit per vertex, set when the vertex is reached. */
+	private AtomicIntegerArray visited_;
+	
+	private int[] distances_;
+	
+	private int[] frontier_;
+	
+	private int[] nextFrontier_;
+	
+	private AtomicInteger nextFrontierSize_;
+	
+	private ForkJoinPool pool_;
+	
+	/**
+	 * The Class LevelTask.
+	 *
+	 * Expands a range of the frontier, splitting it until it is small enough.
+	 */
+	private class LevelTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private int from_;
+		
+		private int end_;
+		
+		private int level_;
+		
+		/**
+		 * Instantiates a new level task.
+		 *
+		 * @param from the first frontier index
+		 * @param end the end frontier index
+		 * @param level the distance of the vertices discovered
+		 */
+		public LevelTask(int from, int end, int level) {
+			from_ = from;
+			end_ = end;
+			level_ = level;
+		}
+		
+		@Override
+		protected void compute() {
+			if (end_ - from_ <= GRAIN_SIZE_) {
+				expand(from_, end_, level_);
+				return;
+			}
+			int middle = (from_ + end_) >>> 1;
+			invokeAll(new LevelTask(from_, middle, level_), new LevelTask(middle, end_, level_));
+		}
+	}
+	
+	/**
+	 * Instantiates a new global relabeling. The residual capacities are read
+	 * on every search, so the array must be the one the engine updates.
+	 *
+	 * @param network the csr graph
+	 * @param residual the residual capacity of each residual arc
+	 */
+	public GlobalRelabeling(FlowNetwork network, double[] residual) {
+		this(network);
+		residual_ = residual;
+	}
+	
+	/**
+	 * Instantiates a new global relabeling for integral residual capacities.
+	 *
+	 * @param network the csr graph
+	 * @param residual the residual capacity of each residual arc
+	 */
+	public GlobalRelabeling(FlowNetwork network, long[] residual) {
+		this(network);
+		longResidual_ = residual;
+	}
+	
+	private GlobalRelabeling(FlowNetwork network) {
+		network_ = network;
+		int n = network.getNumberOfVertices();
+		visited_ = new AtomicIntegerArray((n + 31) >>> 5);
+		frontier_ = new int[n];
+		nextFrontier_ = new int[n];
+		nextFrontierSize_ = new AtomicInteger();
+		pool_ = null;
+	}
+	
+	/**
+	 * Sets the pool the search runs on, null to search sequentially.
+	 *
+	 * @param pool the pool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		pool_ = pool;
+	}
+	
+	/**
+	 * Sets the distance label of every vertex to its distance to the sink in
+	 * the residual graph, or to n if the sink is not reachable. The search
+	 * does not pass the source, whose label is n.
+	 *
+	 * @param distances the distance labels to set
+	 * @param source the index of the source
+	 * @param sink the index of the sink
+	 * @return the number of vertices which can reach the sink
+	 */
+	public int computeDistances(int[] distances, int source, int sink) {
+		return computeDistances(distances, new int[] {source}, new int[] {sink});
+	}
+	
+	/**
+	 * Sets the distance label of every vertex to its distance to the nearest
+	 * of the sinks in the residual graph, or to n if no sink is reachable. The
+	 * search does not pass the sources, whose label is n.
+	 *
+	 * @param distances the distance labels to set
+	 * @param sources the indices of the sources
+	 * @param sinks the indices of the sinks
+	 * @return the number of vertices which can reach a sink
+	 */
+	public int computeDistances(int[] distances, int[] sources, int[] sinks) {
+		int n = network_.getNumberOfVertices();
+		distances_ = distances;
+		Arrays.fill(distances, n);
+		for (int i = 0; i < visited_.length(); i++) {
+			visited_.set(i, 0);
+		}
+		for (int s : sources) {
+			visit(s);
+		}
+		int frontierSize = 0;
+		for (int t : sinks) {
+			if (visit(t)) {
+				distances[t] = 0;
+				frontier_[frontierSize++] = t;
+			}
+		}
+		int reached = frontierSize;
+		for (int level = 1; frontierSize > 0; level++) {
+			nextFrontierSize_.set(0);
+			if (null == pool_ || frontierSize <= GRAIN_SIZE_) {
+				expand(0, frontierSize, level);
+			} else {
+				pool_.invoke(new LevelTask(0, frontierSize, level));
+			}
+			int[] frontier = frontier_;
+			frontier_ = nextFrontier_;
+			nextFrontier_ = frontier;
+			frontierSize = nextFrontierSize_.get();
+			reached += frontierSize;
+		}
+		distances_ = null;
+		return reached;
+	}
+	
+	/**
+	 * Expands a range of the frontier, i.e. labels all unvisited vertices
+	 * with a residual arc into a frontier vertex and adds them to the next
+	 * frontier.
+	 *
+	 * @param from the first frontier index
+	 * @param end the end frontier index
+	 * @param level the distance of the vertices discovered
+	 */
+	private void expand(int from, int end, int level) {
+		int[] buffer = new int[Math.max(16, 2 * (end - from))];
+		int size = 0;
+		for (int i = from; i < end; i++) {
+			int v = frontier_[i];
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (!isVisited(u) && hasResidual(network_.getReverse(vu)) && visit(u)) {
+					distances_[u] = level;
+					if (size == buffer.length) {
+						buffer = Arrays.copyOf(buffer, 2 * size);
+					}
+					buffer[size++] = u;
+				}
+			}
+		}
+		int offset = nextFrontierSize_.getAndAdd(size);
+		System.arraycopy(buffer, 0, nextFrontier_, offset, size);
+	}
+	
+	/**
+	 * Checks if the residual arc has residual capacity.
+	 *
+	 * @param uv the residual arc uv
+	 * @return true, if the residual capacity is positive
+	 */
+	private boolean hasResidual(int uv) {
+		if (null != longResidual_) {
+			return longResidual_[uv] > 0;
+		}
+		return residual_[uv] > 0.0;
+	}
+	
+	/**
+	 * Checks if the vertex was reached.
+	 *
+	 * @param v the v
+	 * @return true, if the bit of the vertex is set
+	 */
+	private boolean isVisited(int v) {
+		return 0 != (visited_.get(v >>> 5) & (1 << (v & 31)));
+	}
+	
+	/**
+	 * Sets the bit of the vertex.
+	 *
+	 * @param v the v
+	 * @return true, if the bit was not set before, i.e. this call reached v first
+	 */
+	private boolean visit(int v) {
+		int word = v >>> 5;
+		int bit = 1 << (v & 31);
+		while (true) {
+			int bits = visited_.get(word);
+			if (0 != (bits & bit)) {
+				return false;
+			}
+			if (visited_.compareAndSet(word, bits, bits | bit)) {
+				return true;
+			}
+		}
+	}
+
+}
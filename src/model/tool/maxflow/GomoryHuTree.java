@@ -0,0 +1,300 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import util.Log;
+
+/**
+ * The Class GomoryHuTree.
+ *
+ * The Gomory-Hu tree of an undirected network, i.e. a graph with an arc in
+ * both directions for every edge, as built by {@link Graph#addDoubleArcs}.
+ * The tree is computed by Gusfield's algorithm with n-1 min cut
+ * computations and without contracting vertices. Every vertex v but the
+ * root 0 gets a parent in the tree and the value of the min cut between v
+ * and its parent. The min cut value between any two vertices is the
+ * smallest value on the tree path between them, and the subtree of a
+ * vertex is a min cut between the vertex and its parent.
+ *
+ * The cuts are computed by {@link PushRelabelArrayAlgo#computeMinCut()}
+ * on one shared {@link FlowNetwork}, which is only read. The workers of a
+ * {@link ForkJoinPool} compute the cuts of consecutive vertices at once,
+ * each with the parent the vertex has when the batch starts. The cuts are
+ * then applied in the order of the vertices as in the sequential algorithm.
+ * If an earlier cut of the batch changed the parent of a vertex, its cut is
+ * computed again, so the tree is the same as the sequential one.
+ */
+public class GomoryHuTree {
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	/** The parent of each vertex in the tree, -1 for the root. */
+	private int[] parents_;
+	
+	/** The min cut value between each vertex and its parent. */
+	private double[] cutValues_;
+	
+	/** The number of edges from each vertex to the root. */
+	private int[] depths_;
+	
+	private int numberOfWorkers_;
+	
+	private int numberOfCutComputations_;
+	
+	/**
+	 * The Class CutTask.
+	 *
+	 * Computes the min cut between a vertex and its parent.
+	 */
+	private static class CutTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private FlowNetwork network_;
+		
+		private int s_;
+		
+		private int t_;
+		
+		private double value_;
+		
+		private boolean[] sourceSide_;
+		
+		/**
+		 * Instantiates a new cut task.
+		 *
+		 * @param network the network
+		 * @param s the vertex
+		 * @param t its parent
+		 */
+		public CutTask(FlowNetwork network, int s, int t) {
+			network_ = network;
+			s_ = s;
+			t_ = t;
+		}
+		
+		@Override
+		protected void compute() {
+			PushRelabelArrayAlgo algo = new PushRelabelArrayAlgo(network_, s_, t_);
+			value_ = algo.computeMinCut();
+			sourceSide_ = algo.getSourceSide();
+		}
+	}
+	
+	/**
+	 * Instantiates a new gomory hu tree.
+	 *
+	 * @param graph the graph
+	 */
+	public GomoryHuTree(Graph graph) {
+		graph_ = graph;
+		initialize(CsrGraph.fromGraph(graph));
+	}
+	
+	/**
+	 * Instantiates a new gomory hu tree.
+	 *
+	 * @param network the flow network
+	 */
+	public GomoryHuTree(FlowNetwork network) {
+		graph_ = null;
+		initialize(network);
+	}
+	
+	/**
+	 * Sets the number of workers. The default is the number of processors.
+	 *
+	 * @param workers the number of workers
+	 */
+	public void setNumberOfWorkers(int workers) {
+		if (workers < 1) {
+			Log.w("Number of workers " + workers + " is ignored, at least one worker is needed.");
+			return;
+		}
+		numberOfWorkers_ = workers;
+	}
+	
+	/**
+	 * Gets the number of workers.
+	 *
+	 * @return the number of workers
+	 */
+	public int getNumberOfWorkers() {
+		return numberOfWorkers_;
+	}
+	
+	/**
+	 * Compute the tree.
+	 */
+	public void computeTree() {
+		int n = network_.getNumberOfVertices();
+		for (int v = 0; v < n; v++) {
+			parents_[v] = (0 == v) ? -1 : 0;
+			cutValues_[v] = 0.0;
+		}
+		numberOfCutComputations_ = 0;
+		Log.p("Gomory-Hu tree of " + network_.getName() + " with " + numberOfWorkers_ + " workers");
+		ForkJoinPool pool = (numberOfWorkers_ > 1) ? new ForkJoinPool(numberOfWorkers_) : null;
+		try {
+			for (int first = 1; first < n; first += numberOfWorkers_) {
+				int end = Math.min(n, first + numberOfWorkers_);
+				CutTask[] tasks = new CutTask[end - first];
+				for (int s = first; s < end; s++) {
+					tasks[s - first] = new CutTask(network_, s, parents_[s]);
+					if (null != pool) {
+						pool.execute(tasks[s - first]);
+					}
+				}
+				for (int s = first; s < end; s++) {
+					CutTask task = tasks[s - first];
+					if (null == pool) {
+						task.invoke();
+					} else {
+						task.join();
+					}
+					if (task.t_ != parents_[s]) {
+						// the parent was changed by an earlier cut of this batch
+						task = new CutTask(network_, s, parents_[s]);
+						task.invoke();
+						numberOfCutComputations_++;
+					}
+					numberOfCutComputations_++;
+					applyCut(s, task);
+				}
+			}
+		} finally {
+			if (null != pool) {
+				pool.shutdown();
+			}
+		}
+		computeDepths();
+	}
+	
+	/**
+	 * Gets the number of min cut computations of the last tree computation,
+	 * at least n-1 and more if cuts had to be computed again.
+	 *
+	 * @return the number of cut computations
+	 */
+	public int getNumberOfCutComputations() {
+		return numberOfCutComputations_;
+	}
+	
+	/**
+	 * Gets the parent of the vertex in the tree.
+	 *
+	 * @param v the vertex
+	 * @return the parent, -1 for the root
+	 */
+	public int getParent(int v) {
+		return parents_[v];
+	}
+	
+	/**
+	 * Gets the min cut value between the vertex and its parent.
+	 *
+	 * @param v the vertex
+	 * @return the cut value, 0 for the root
+	 */
+	public double getParentCutValue(int v) {
+		return cutValues_[v];
+	}
+	
+	/**
+	 * Gets the min cut value between two vertices, the smallest cut value on
+	 * the tree path between them.
+	 *
+	 * @param u the vertex u
+	 * @param v the vertex v
+	 * @return the min cut value, infinite if u equals v
+	 */
+	public double getMinCutValue(int u, int v) {
+		double value = Double.POSITIVE_INFINITY;
+		while (u != v) {
+			if (depths_[u] < depths_[v]) {
+				int w = u;
+				u = v;
+				v = w;
+			}
+			value = Math.min(value, cutValues_[u]);
+			u = parents_[u];
+		}
+		return value;
+	}
+	
+	/**
+	 * Gets the min cut value between two vertices of the graph.
+	 *
+	 * @param u the vertex u
+	 * @param v the vertex v
+	 * @return the min cut value
+	 */
+	public double getMinCutValue(Vertex u, Vertex v) {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use the vertex indices of the flow network.");
+			return Double.NaN;
+		}
+		CsrGraph network = (CsrGraph) network_;
+		return getMinCutValue(network.getVertexIndex(u.getName()), network.getVertexIndex(v.getName()));
+	}
+	
+	private void initialize(FlowNetwork network) {
+		network_ = network;
+		int n = network.getNumberOfVertices();
+		parents_ = new int[n];
+		cutValues_ = new double[n];
+		depths_ = new int[n];
+		numberOfWorkers_ = Runtime.getRuntime().availableProcessors();
+		numberOfCutComputations_ = 0;
+	}
+	
+	/**
+	 * Applies the cut between s and its parent t. Every other vertex on the
+	 * side of s, which hangs at t, is moved to s. If the parent of t is on
+	 * the side of s as well, s takes the place of t in the tree.
+	 *
+	 * @param s the vertex
+	 * @param task the task which computed the cut
+	 */
+	private void applyCut(int s, CutTask task) {
+		int t = task.t_;
+		cutValues_[s] = task.value_;
+		for (int v = 0; v < parents_.length; v++) {
+			if (v != s && task.sourceSide_[v] && parents_[v] == t) {
+				parents_[v] = s;
+			}
+		}
+		if (parents_[t] >= 0 && task.sourceSide_[parents_[t]]) {
+			parents_[s] = parents_[t];
+			parents_[t] = s;
+			cutValues_[s] = cutValues_[t];
+			cutValues_[t] = task.value_;
+		}
+	}
+	
+	/**
+	 * Computes the depths. The path from each vertex up to the first vertex
+	 * with a known depth is walked once.
+	 */
+	private void computeDepths() {
+		Arrays.fill(depths_, -1);
+		int[] path = new int[parents_.length];
+		for (int v = 0; v < parents_.length; v++) {
+			int length = 0;
+			int u = v;
+			while (u >= 0 && depths_[u] < 0) {
+				path[length++] = u;
+				u = parents_[u];
+			}
+			int depth = (u < 0) ? -1 : depths_[u];
+			while (length > 0) {
+				depths_[path[--length]] = ++depth;
+			}
+		}
+	}
+
+}
@@ -8,18 +8,30 @@ import util.Log;
 
 /**
  * The Class GraphReader.
+ *
+ * Reads the comma separated input format line by line into a {@link Graph}
+ * by {@link #readFile(String)}, or from a memory-mapped file into a
+ * {@link CsrGraph} by {@link #readFileMapped(String)}. Both give the same
+ * network, source and sink, and each graph type is created from the other
+ * when it is requested.
  */
 public class GraphReader {
 	
 	/** The graph. */
 	private Graph graph_;
 	
+	/** The csr graph. */
+	private CsrGraph csrGraph_;
+	
 	/** The source name. */
 	private String sourceName_;
 	
 	/** The sink name. */
 	private String sinkName_;
 	
+	/** True if all capacities read are integral. */
+	private boolean integralCapacities_;
+	
 	/**
 	 * Instantiates a new graph reader.
 	 */
@@ -47,8 +59,10 @@ public class GraphReader {
 	public void readFile(String fileName, boolean allowArcsWithZeroCapacity) {
 		Log.p("Read file " + fileName);
 		Graph g = new Graph(fileName);
+		csrGraph_ = null;
 		sourceName_ = null;
 		sinkName_ = null;
+		integralCapacities_ = true;
 		
 		BufferedReader br;
 		try {
@@ -65,8 +79,13 @@ public class GraphReader {
 					continue;
 				}
 				
-				// retrieve capacity
-				double cap = Double.parseDouble(s[2]);
+				// retrieve capacity, the arcs of a graph object hold doubles, so
+				// integers above 2^53 are only exact in a csr graph
+				long longCap = GraphUtil.parseLongCapacity(s[2].trim());
+				double cap = (-1 == longCap) ? Double.parseDouble(s[2]) : longCap;
+				if ((long) cap != longCap && -1 != longCap) {
+					Log.w("Capacity " + longCap + " is rounded to " + (long) cap + ", read the file mapped to keep it exact.");
+				}
 				if (cap < 0) {
 					Log.e("Unexpected negative capacity found in line: " + line + "\nArc won\'t be added.");
 					continue;
@@ -78,6 +97,10 @@ public class GraphReader {
 					}
 				}
 				
+				if (cap != Math.floor(cap) || cap >= Long.MAX_VALUE) {
+					integralCapacities_ = false;
+				}
+				
 				// add vertices if needed
 				String u = s[0].trim();
 				if (!g.vertexExists(u)) {
@@ -110,13 +133,104 @@ public class GraphReader {
 		graph_ = g;
 	}
 	
+	/**
+	 * Read file through a memory mapping into a csr graph.
+	 *
+	 * @param fileName the file name
+	 */
+	public void readFileMapped(String fileName) {
+		readFileMapped(fileName, true);
+	}
+	
+	/**
+	 * Read file through a memory mapping into a csr graph. The bytes of the
+	 * file are parsed in place by a {@link MappedFileParser}, the graph object
+	 * is only created if {@link #getGraph()} is called.
+	 *
+	 * @param fileName the file name
+	 * @param allowArcsWithZeroCapacity the allow arcs with zero capacity
+	 */
+	public void readFileMapped(String fileName, boolean allowArcsWithZeroCapacity) {
+		readFileMapped(fileName, allowArcsWithZeroCapacity, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Read file through a memory mapping into a csr graph with several
+	 * workers, each of which parses a chunk of lines. The graph, the source
+	 * and the sink are the same as with one worker.
+	 *
+	 * @param fileName the file name
+	 * @param allowArcsWithZeroCapacity the allow arcs with zero capacity
+	 * @param workers the number of workers
+	 */
+	public void readFileMapped(String fileName, boolean allowArcsWithZeroCapacity, int workers) {
+		Log.p("Read file " + fileName + " mapped");
+		MappedFileParser parser = new MappedFileParser(fileName, allowArcsWithZeroCapacity);
+		parser.setNumberOfWorkers(workers);
+		graph_ = null;
+		csrGraph_ = parser.parse();
+		sourceName_ = null;
+		sinkName_ = null;
+		integralCapacities_ = parser.hasIntegralCapacities();
+		if (null != csrGraph_ && -1 != parser.getSource()) {
+			sourceName_ = csrGraph_.getVertexName(parser.getSource());
+			sinkName_ = csrGraph_.getVertexName(parser.getSink());
+		}
+	}
+	
+	/**
+	 * Checks if all capacities of the graph read are integral, i.e. if
+	 * {@link PushRelabelLongAlgo} can compute the max flow exactly.
+	 *
+	 * @return true, if all capacities are integral
+	 */
+	public boolean hasIntegralCapacities() {
+		return integralCapacities_;
+	}
+	
 	public Graph getGraph() {
+		if (null == graph_ && null != csrGraph_) {
+			graph_ = csrGraph_.toGraph();
+		}
 		if (null == graph_) {
 			Log.w("No graph specified.. please call the read file method first.");
 		}
 		return graph_;
 	}
 	
+	/**
+	 * Gets the csr graph.
+	 *
+	 * @return the csr graph
+	 */
+	public CsrGraph getCsrGraph() {
+		if (null == csrGraph_ && null != graph_) {
+			csrGraph_ = CsrGraph.fromGraph(graph_);
+		}
+		if (null == csrGraph_) {
+			Log.w("No graph specified.. please call the read file method first.");
+		}
+		return csrGraph_;
+	}
+	
+	/**
+	 * Gets the index of the source in the csr graph.
+	 *
+	 * @return the source index
+	 */
+	public int getSourceIndex() {
+		return getCsrGraph().getVertexIndex(sourceName_);
+	}
+	
+	/**
+	 * Gets the index of the sink in the csr graph.
+	 *
+	 * @return the sink index
+	 */
+	public int getSinkIndex() {
+		return getCsrGraph().getVertexIndex(sinkName_);
+	}
+	
 	/**
 	 * Gets the source.
 	 *
@@ -126,7 +240,7 @@ public class GraphReader {
 		if (sourceName_.isEmpty()) {
 			Log.w("No source specified.. please call the read file method first.");
 		}
-		return graph_.getVertex(sourceName_);
+		return getGraph().getVertex(sourceName_);
 	}
 	
 	/**
@@ -138,7 +252,7 @@ public class GraphReader {
 		if (sinkName_.isEmpty()) {
 			Log.w("No sink specified.. please call the read file method first.");
 		}
-		return graph_.getVertex(sinkName_);
+		return getGraph().getVertex(sinkName_);
 	}
 
 }
@@ -0,0 +1,365 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+
+/**
+ * The Class GraphStatistics.
+ *
+ * A cheap profile of a max flow instance, used by
+ * {@link MaxFlowSolvers#auto(Graph, Vertex, Vertex)} to choose an engine.
+ * All values are computed in one pass over the vertices and one breadth
+ * first search, so the profile costs O(n + m) time. Degrees count the
+ * distinct neighbours of a vertex in both directions, without the source
+ * and the sink, which gives the same degree for single and double arcs.
+ */
+public class GraphStatistics {
+	
+	/** The largest inner degree of a grid-like graph, an 8-neighbourhood. */
+	private static final int GRID_MAX_DEGREE_ = 8;
+	
+	/** The largest standard deviation of the inner degrees of a grid-like graph. */
+	private static final double GRID_MAX_DEGREE_DEVIATION_ = 1.0;
+	
+	private int numberOfVertices_;
+	
+	private int numberOfArcs_;
+	
+	private double averageDegree_;
+	
+	private double degreeDeviation_;
+	
+	private int maxDegree_;
+	
+	private double minCapacity_;
+	
+	private double maxCapacity_;
+	
+	private double totalCapacity_;
+	
+	private boolean integralCapacities_;
+	
+	private boolean unitCapacities_;
+	
+	/** The share of the inner vertices adjacent to the source or the sink. */
+	private double terminalFraction_;
+	
+	private boolean bipartite_;
+	
+	/**
+	 * Instantiates new graph statistics.
+	 *
+	 * @param graph the flow network
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public GraphStatistics(FlowNetwork graph, int s, int t) {
+		numberOfVertices_ = graph.getNumberOfVertices();
+		numberOfArcs_ = graph.getNumberOfArcs();
+		integralCapacities_ = graph.hasIntegralCapacities();
+		computeCapacities(graph);
+		computeDegrees(graph, s, t);
+		bipartite_ = computeBipartite(graph, s, t);
+	}
+	
+	/**
+	 * Gets the number of vertices.
+	 *
+	 * @return the number of vertices
+	 */
+	public int getNumberOfVertices() {
+		return numberOfVertices_;
+	}
+	
+	/**
+	 * Gets the number of arcs.
+	 *
+	 * @return the number of arcs
+	 */
+	public int getNumberOfArcs() {
+		return numberOfArcs_;
+	}
+	
+	/**
+	 * Gets the average degree of the inner vertices.
+	 *
+	 * @return the average degree
+	 */
+	public double getAverageDegree() {
+		return averageDegree_;
+	}
+	
+	/**
+	 * Gets the standard deviation of the degrees of the inner vertices.
+	 *
+	 * @return the degree deviation
+	 */
+	public double getDegreeDeviation() {
+		return degreeDeviation_;
+	}
+	
+	/**
+	 * Gets the largest degree of the inner vertices.
+	 *
+	 * @return the max degree
+	 */
+	public int getMaxDegree() {
+		return maxDegree_;
+	}
+	
+	/**
+	 * Gets the smallest positive capacity.
+	 *
+	 * @return the min capacity
+	 */
+	public double getMinCapacity() {
+		return minCapacity_;
+	}
+	
+	/**
+	 * Gets the largest capacity.
+	 *
+	 * @return the max capacity
+	 */
+	public double getMaxCapacity() {
+		return maxCapacity_;
+	}
+	
+	/**
+	 * Gets the sum of all capacities.
+	 *
+	 * @return the total capacity
+	 */
+	public double getTotalCapacity() {
+		return totalCapacity_;
+	}
+	
+	/**
+	 * Gets the ratio of the largest to the smallest positive capacity.
+	 *
+	 * @return the capacity range, 1 for graphs without arcs
+	 */
+	public double getCapacityRange() {
+		if (0 == minCapacity_) {
+			return 1.0;
+		}
+		return maxCapacity_ / minCapacity_;
+	}
+	
+	/**
+	 * Checks if all capacities are integral.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean hasIntegralCapacities() {
+		return integralCapacities_;
+	}
+	
+	/**
+	 * Checks if all positive capacities are one.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean hasUnitCapacities() {
+		return unitCapacities_;
+	}
+	
+	/**
+	 * Gets the share of the inner vertices adjacent to the source or the sink.
+	 *
+	 * @return the terminal fraction
+	 */
+	public double getTerminalFraction() {
+		return terminalFraction_;
+	}
+	
+	/**
+	 * Checks if the graph looks like a grid, as in image segmentation: every
+	 * inner vertex has at most eight neighbours and the degrees hardly vary.
+	 *
+	 * @return true, if the graph is grid-like
+	 */
+	public boolean isGridLike() {
+		return numberOfVertices_ > 2 && maxDegree_ <= GRID_MAX_DEGREE_
+				&& degreeDeviation_ <= GRID_MAX_DEGREE_DEVIATION_;
+	}
+	
+	/**
+	 * Checks if the graph is bipartite like a matching network: the inner
+	 * vertices split into two sides without arcs inside a side, and the
+	 * source is only adjacent to one side and the sink only to the other.
+	 *
+	 * @return true, if the graph is bipartite
+	 */
+	public boolean isBipartite() {
+		return bipartite_;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "n = " + numberOfVertices_ + ", m = " + numberOfArcs_
+				+ ", degree avg = " + averageDegree_ + " sd = " + degreeDeviation_ + " max = " + maxDegree_
+				+ ", capacities [" + minCapacity_ + ", " + maxCapacity_ + "]"
+				+ (unitCapacities_ ? " unit" : (integralCapacities_ ? " integral" : ""))
+				+ ", terminal fraction = " + terminalFraction_
+				+ (isGridLike() ? ", grid-like" : "") + (bipartite_ ? ", bipartite" : "");
+	}
+	
+	/**
+	 * Computes the capacity range and the total capacity and checks for unit capacities.
+	 *
+	 * @param graph the graph
+	 */
+	private void computeCapacities(FlowNetwork graph) {
+		minCapacity_ = 0.0;
+		maxCapacity_ = 0.0;
+		totalCapacity_ = 0.0;
+		unitCapacities_ = integralCapacities_;
+		for (int a = 0; a < numberOfArcs_; a++) {
+			double c = graph.getCapacity(graph.getResidualArc(a));
+			if (c <= 0) {
+				continue;
+			}
+			if (0 == minCapacity_ || minCapacity_ > c) {
+				minCapacity_ = c;
+			}
+			if (maxCapacity_ < c) {
+				maxCapacity_ = c;
+			}
+			totalCapacity_ += c;
+			if (1 != c) {
+				unitCapacities_ = false;
+			}
+		}
+	}
+	
+	/**
+	 * Computes the degree statistics of the inner vertices and the share of
+	 * them which is adjacent to a terminal.
+	 *
+	 * @param graph the graph
+	 * @param s the source
+	 * @param t the sink
+	 */
+	private void computeDegrees(FlowNetwork graph, int s, int t) {
+		int n = numberOfVertices_;
+		// marks the neighbours of the current vertex to count each only once
+		int[] seen = new int[n];
+		Arrays.fill(seen, -1);
+		long sum = 0;
+		long sumOfSquares = 0;
+		int innerVertices = 0;
+		int terminalVertices = 0;
+		maxDegree_ = 0;
+		for (int v = 0; v < n; v++) {
+			if (v == s || v == t) {
+				continue;
+			}
+			int degree = 0;
+			boolean terminal = false;
+			int end = graph.getEndResidualArc(v);
+			for (int vw = graph.getFirstResidualArc(v); vw < end; vw++) {
+				int w = graph.getHead(vw);
+				if (w == s || w == t) {
+					terminal = true;
+				} else if (w != v && seen[w] != v) {
+					seen[w] = v;
+					degree++;
+				}
+			}
+			innerVertices++;
+			if (terminal) {
+				terminalVertices++;
+			}
+			sum += degree;
+			sumOfSquares += (long) degree * degree;
+			if (maxDegree_ < degree) {
+				maxDegree_ = degree;
+			}
+		}
+		if (0 == innerVertices) {
+			averageDegree_ = 0.0;
+			degreeDeviation_ = 0.0;
+			terminalFraction_ = 0.0;
+			return;
+		}
+		averageDegree_ = (double) sum / innerVertices;
+		double variance = (double) sumOfSquares / innerVertices - averageDegree_ * averageDegree_;
+		degreeDeviation_ = Math.sqrt(Math.max(0.0, variance));
+		terminalFraction_ = (double) terminalVertices / innerVertices;
+	}
+	
+	/**
+	 * Colours the inner vertices with two colours by a breadth first search,
+	 * ignoring the arc directions. The neighbours of the source get the
+	 * first colour, the neighbours of the sink the second.
+	 *
+	 * @param graph the graph
+	 * @param s the source
+	 * @param t the sink
+	 * @return true, if the colouring succeeds
+	 */
+	private boolean computeBipartite(FlowNetwork graph, int s, int t) {
+		int n = numberOfVertices_;
+		int[] colours = new int[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		int sEnd = graph.getEndResidualArc(s);
+		for (int sv = graph.getFirstResidualArc(s); sv < sEnd; sv++) {
+			int v = graph.getHead(sv);
+			if (v != t && 0 == colours[v]) {
+				colours[v] = 1;
+				queue[tail++] = v;
+			}
+		}
+		int tEnd = graph.getEndResidualArc(t);
+		for (int tv = graph.getFirstResidualArc(t); tv < tEnd; tv++) {
+			int v = graph.getHead(tv);
+			if (v == s) {
+				continue;
+			}
+			if (1 == colours[v]) {
+				return false;
+			}
+			if (0 == colours[v]) {
+				colours[v] = 2;
+				queue[tail++] = v;
+			}
+		}
+		if (0 == tail) {
+			return false;
+		}
+		boolean innerArc = false;
+		for (int start = 0; start < n; start++) {
+			if (start == s || start == t) {
+				continue;
+			}
+			if (0 == colours[start]) {
+				colours[start] = 1;
+				queue[tail++] = start;
+			}
+			while (head < tail) {
+				int v = queue[head++];
+				int end = graph.getEndResidualArc(v);
+				for (int vw = graph.getFirstResidualArc(v); vw < end; vw++) {
+					int w = graph.getHead(vw);
+					if (w == s || w == t) {
+						continue;
+					}
+					innerArc = true;
+					if (colours[w] == colours[v]) {
+						return false;
+					}
+					if (0 == colours[w]) {
+						colours[w] = 3 - colours[v];
+						queue[tail++] = w;
+					}
+				}
+			}
+		}
+		return innerArc;
+	}
+
+}
@@ -1,6 +1,9 @@
 package model.tool.maxflow;
 
+import java.io.FileWriter;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Formatter;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -14,6 +17,35 @@ import util.Log;
  */
 public class GraphUtil {
 	
+	/** The number of characters written to a file at once. */
+	private static final int WRITE_BLOCK_SIZE_ = 1 << 16;
+	
+	/**
+	 * Parses an integral capacity exactly, without passing it through a
+	 * double. Only plain integers with an optional sign are taken.
+	 *
+	 * @param token the trimmed token
+	 * @return the capacity, or -1 if the token is no integer or does not fit in a long
+	 */
+	public static long parseLongCapacity(String token) {
+		int i = (token.startsWith("+") || token.startsWith("-")) ? 1 : 0;
+		if (i == token.length()) {
+			return -1;
+		}
+		for (int k = i; k < token.length(); k++) {
+			char c = token.charAt(k);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+		}
+		try {
+			long value = Long.parseLong(token);
+			return (value < 0) ? -1 : value;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+	
 	/**
 	 * Total flow.
 	 *
@@ -56,6 +88,37 @@ public class GraphUtil {
 		FileOrganizer.writeFile(outputFileName, content);
 	}
 	
+	/**
+	 * Write the output file of a flow network. The vertex names are only
+	 * looked up here, and the lines are written in blocks in the order of
+	 * the input arcs.
+	 *
+	 * @param outputFileName the output file name
+	 * @param network the flow network
+	 * @param arcFlows the flow on each input arc
+	 */
+	public static void writeOutputFile(String outputFileName, FlowNetwork network, double[] arcFlows) {
+		FileWriter fw = FileOrganizer.getNewFileWriter(outputFileName);
+		if (null == fw) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		Formatter formatter = new Formatter(sb);
+		sb.append("# Node u, Node v, Flow on arc uv, Capacity of arc uv\n");
+		for (int e = 0; e < network.getNumberOfArcs(); e++) {
+			int uv = network.getResidualArc(e);
+			formatter.format("%s, %s, %.3f, %.3f\n", network.getVertexName(network.getTail(uv)),
+					network.getVertexName(network.getHead(uv)), arcFlows[e], network.getCapacity(uv));
+			if (sb.length() >= WRITE_BLOCK_SIZE_) {
+				FileOrganizer.appendToFile(fw, sb.toString());
+				sb.setLength(0);
+			}
+		}
+		FileOrganizer.appendToFile(fw, sb.toString());
+		FileOrganizer.closeFileWriter(fw);
+		Log.p("File is written: " + outputFileName);
+	}
+	
 	/**
 	 * Write the input file for push relabel algo.
 	 *
@@ -90,6 +153,218 @@ public class GraphUtil {
 		FileOrganizer.writeFile(fileName, content);
 	}
 	
+	/**
+	 * Write the graph as a max flow problem in the DIMACS format, which
+	 * {@link DimacsReader} and other solvers read. The vertices are numbered
+	 * in the order of {@link CsrGraph#fromGraph(Graph)}.
+	 *
+	 * @param fileName the file name
+	 * @param graph the graph
+	 * @param source the source
+	 * @param sink the sink
+	 */
+	public static void writeDimacsFile(String fileName, Graph graph, Vertex source, Vertex sink) {
+		CsrGraph csr = CsrGraph.fromGraph(graph);
+		writeDimacsFile(fileName, csr, csr.getVertexIndex(source.getName()), csr.getVertexIndex(sink.getName()));
+	}
+	
+	/**
+	 * Write the flow network as a max flow problem in the DIMACS format. The
+	 * vertices 0..n-1 are written as the nodes 1..n and the lines are written
+	 * in blocks, so the file content is never held in memory as a whole.
+	 *
+	 * @param fileName the file name
+	 * @param network the flow network
+	 * @param source the source
+	 * @param sink the sink
+	 */
+	public static void writeDimacsFile(String fileName, FlowNetwork network, int source, int sink) {
+		FileWriter fw = FileOrganizer.getNewFileWriter(fileName);
+		if (null == fw) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("c ").append(network.getName()).append('\n');
+		sb.append("p max ").append(network.getNumberOfVertices()).append(' ').append(network.getNumberOfArcs()).append('\n');
+		sb.append("n ").append(source + 1).append(" s\n");
+		sb.append("n ").append(sink + 1).append(" t\n");
+		for (int e = 0; e < network.getNumberOfArcs(); e++) {
+			int uv = network.getResidualArc(e);
+			double cap = network.getCapacity(uv);
+			sb.append("a ").append(network.getTail(uv) + 1).append(' ').append(network.getHead(uv) + 1).append(' ');
+			if (cap == Math.floor(cap) && Math.abs(cap) < Long.MAX_VALUE) {
+				sb.append((long) cap);
+			} else {
+				sb.append(cap);
+			}
+			sb.append('\n');
+			if (sb.length() >= WRITE_BLOCK_SIZE_) {
+				FileOrganizer.appendToFile(fw, sb.toString());
+				sb.setLength(0);
+			}
+		}
+		FileOrganizer.appendToFile(fw, sb.toString());
+		FileOrganizer.closeFileWriter(fw);
+		Log.p("File is written: " + fileName);
+	}
+	
+	/**
+	 * Gets the flow on an input arc from the residual capacity of its forward
+	 * residual arc. Opposite arcs of a {@link GridGraph} share one pair of
+	 * residual arcs whose flow is the net flow, so only the arc in the
+	 * direction of the net flow carries it and the other arc none.
+	 *
+	 * @param capacity the capacity of the forward residual arc
+	 * @param residual the residual capacity of the forward residual arc
+	 * @return the flow on the input arc
+	 */
+	public static double getArcFlow(double capacity, double residual) {
+		return Math.max(0.0, capacity - residual);
+	}
+	
+	/**
+	 * Gets the integral flow on an input arc, see {@link #getArcFlow(double, double)}.
+	 *
+	 * @param capacity the capacity of the forward residual arc
+	 * @param residual the residual capacity of the forward residual arc
+	 * @return the flow on the input arc
+	 */
+	public static long getArcFlow(long capacity, long residual) {
+		return Math.max(0, capacity - residual);
+	}
+	
+	/**
+	 * Creates the flow map of a graph from the flow on the input arcs of its csr graph.
+	 *
+	 * @param graph the graph
+	 * @param csr the csr graph created from the graph
+	 * @param arcFlows the flow on each input arc of the csr graph
+	 * @return the flow
+	 */
+	public static HashMap<Arc, Double> createFlowMap(Graph graph, FlowNetwork csr, double[] arcFlows) {
+		HashMap<Arc, Double> flow = new HashMap<Arc, Double>();
+		for (int e = 0; e < csr.getNumberOfArcs(); e++) {
+			Arc a = graph.getArc(csr.getArcName(e));
+			if (null == a) {
+				Log.w("Cannot find arc " + csr.getArcName(e) + " in graph " + graph.getName());
+				continue;
+			}
+			flow.put(a, arcFlows[e]);
+		}
+		return flow;
+	}
+	
+	/**
+	 * Creates the flow map of a graph from the integral flow on the input arcs of its csr graph.
+	 *
+	 * @param graph the graph
+	 * @param csr the csr graph created from the graph
+	 * @param arcFlows the flow on each input arc of the csr graph
+	 * @return the flow
+	 */
+	public static HashMap<Arc, Double> createFlowMap(Graph graph, FlowNetwork csr, long[] arcFlows) {
+		double[] flows = new double[arcFlows.length];
+		for (int e = 0; e < arcFlows.length; e++) {
+			flows[e] = arcFlows[e];
+		}
+		return createFlowMap(graph, csr, flows);
+	}
+	
+	/**
+	 * Gets the vertex names of a vertex set of a flow network.
+	 *
+	 * @param csr the flow network
+	 * @param set true for each vertex in the set
+	 * @return the vertex names
+	 */
+	public static HashSet<String> getVertexNames(FlowNetwork csr, boolean[] set) {
+		HashSet<String> names = new HashSet<String>();
+		for (int v = 0; v < set.length; v++) {
+			if (set[v]) {
+				names.add(csr.getVertexName(v));
+			}
+		}
+		return names;
+	}
+	
+	/**
+	 * Gets the value of a flow, i.e. the net flow leaving the source.
+	 *
+	 * @param network the flow network
+	 * @param arcFlows the flow on each input arc
+	 * @param source the source
+	 * @return the flow value
+	 */
+	public static double getFlowValue(FlowNetwork network, double[] arcFlows, int source) {
+		double value = 0.0;
+		for (int e = 0; e < network.getNumberOfArcs(); e++) {
+			int uv = network.getResidualArc(e);
+			if (network.getTail(uv) == source) {
+				value += arcFlows[e];
+			}
+			if (network.getHead(uv) == source) {
+				value -= arcFlows[e];
+			}
+		}
+		return value;
+	}
+	
+	/**
+	 * Find the vertices reachable from the source in the residual network of
+	 * a flow. This is {@link #findCutVerticesSetClosestToSource(Graph, HashMap, Vertex)}
+	 * on vertex indices: no residual graph and no names are created.
+	 *
+	 * @param network the flow network
+	 * @param arcFlows the flow on each input arc
+	 * @param source the source
+	 * @return true for each vertex reachable from the source
+	 */
+	public static boolean[] findSourceSide(FlowNetwork network, double[] arcFlows, int source) {
+		double[] residualFlows = new double[network.getNumberOfResidualArcs()];
+		for (int e = 0; e < network.getNumberOfArcs(); e++) {
+			int uv = network.getResidualArc(e);
+			residualFlows[uv] += arcFlows[e];
+			residualFlows[network.getReverse(uv)] -= arcFlows[e];
+		}
+		int n = network.getNumberOfVertices();
+		boolean[] reached = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = source;
+		reached[source] = true;
+		while (head < tail) {
+			int u = queue[head++];
+			for (int uv = network.getFirstResidualArc(u); uv < network.getEndResidualArc(u); uv++) {
+				int v = network.getHead(uv);
+				if (!reached[v] && network.getCapacity(uv) - residualFlows[uv] > 0) {
+					reached[v] = true;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return reached;
+	}
+	
+	/**
+	 * Gets the input arcs leaving a vertex set.
+	 *
+	 * @param network the flow network
+	 * @param set true for each vertex in the set
+	 * @return the input arcs from the set to the other vertices
+	 */
+	public static int[] getOutgoingArcs(FlowNetwork network, boolean[] set) {
+		int[] arcs = new int[network.getNumberOfArcs()];
+		int k = 0;
+		for (int e = 0; e < network.getNumberOfArcs(); e++) {
+			int uv = network.getResidualArc(e);
+			if (set[network.getTail(uv)] && !set[network.getHead(uv)]) {
+				arcs[k++] = e;
+			}
+		}
+		return Arrays.copyOf(arcs, k);
+	}
+	
 	/**
 	 * Gets the outgoing arcs.
 	 *
@@ -0,0 +1,458 @@
+package model.tool.maxflow;
+
+import util.Log;
+
+/**
+ * The Class GridGraph.
+ *
+ * An implicit N-dimensional grid, as used in image and volume segmentation.
+ * No vertex and arc objects and no names are stored. The grid vertices are
+ * the ints 0..N-1 in row-major order with the first dimension varying
+ * fastest, the source is N and the sink N+1. Neighbours are computed from
+ * the coordinates. Each grid vertex has one arc to each of its 2D
+ * neighbours, whose capacities are kept in one int array per direction,
+ * and one arc from the source and one to the sink, whose capacities are
+ * kept in two more int arrays. So the graph itself takes 4 bytes per arc.
+ *
+ * The residual arcs of a grid vertex v are v*K..v*K+K-1 with K = 2D+2: the
+ * arcs to the neighbours in the directions 0..2D-1, where direction 2i goes
+ * up and 2i+1 goes down in dimension i, followed by the reverse of the
+ * source arc and the arc to the sink. The arcs of the source and the sink
+ * follow the arcs of all grid vertices. Opposite arcs between neighbours
+ * share one pair of residual arcs, which carries the net flow between them,
+ * so the engines report the net flow on the arc in its direction and no
+ * flow on the other arc, see {@link GraphUtil#getArcFlow(double, double)}.
+ * At the border of the grid, the missing neighbour is replaced by a loop of
+ * capacity zero, which keeps K arcs per vertex. These loops count as input
+ * arcs and never carry flow.
+ *
+ * Vertex and arc indices are ints, so the grid can have at most about
+ * 2^31 / (K+2) vertices.
+ */
+public class GridGraph implements FlowNetwork {
+	
+	/** The name. */
+	private String name_;
+	
+	/** The size of each dimension. */
+	private int[] dimensions_;
+	
+	/** The index distance of neighbours in each dimension. */
+	private int[] strides_;
+	
+	/** The number of grid vertices. */
+	private int numberOfGridVertices_;
+	
+	/** The number of residual arcs per grid vertex. */
+	private int arcsPerVertex_;
+	
+	/** The capacities of the arcs in each direction, indexed by the tail. */
+	private int[][] capacities_;
+	
+	/** The capacities of the arcs from the source. */
+	private int[] sourceCapacities_;
+	
+	/** The capacities of the arcs to the sink. */
+	private int[] sinkCapacities_;
+	
+	/**
+	 * Instantiates a new grid graph with all capacities zero.
+	 *
+	 * @param name the name
+	 * @param dimensions the size of each dimension
+	 */
+	public GridGraph(String name, int... dimensions) {
+		name_ = name;
+		dimensions_ = dimensions.clone();
+		strides_ = new int[dimensions.length];
+		arcsPerVertex_ = 2 * dimensions.length + 2;
+		long n = 1;
+		for (int i = 0; i < dimensions.length; i++) {
+			strides_[i] = (int) n;
+			n *= dimensions[i];
+		}
+		if (n * (arcsPerVertex_ + 2) > Integer.MAX_VALUE) {
+			Log.e("Grid " + name + " is too large, its arcs cannot be indexed by ints.");
+			n = 0;
+		}
+		numberOfGridVertices_ = (int) n;
+		capacities_ = new int[2 * dimensions.length][numberOfGridVertices_];
+		sourceCapacities_ = new int[numberOfGridVertices_];
+		sinkCapacities_ = new int[numberOfGridVertices_];
+	}
+	
+	/**
+	 * Gets the number of dimensions.
+	 *
+	 * @return the number of dimensions
+	 */
+	public int getNumberOfDimensions() {
+		return dimensions_.length;
+	}
+	
+	/**
+	 * Gets the size of the dimension.
+	 *
+	 * @param dimension the dimension
+	 * @return the size
+	 */
+	public int getDimension(int dimension) {
+		return dimensions_[dimension];
+	}
+	
+	/**
+	 * Gets the number of grid vertices, i.e. all vertices but the terminals.
+	 *
+	 * @return the number of grid vertices
+	 */
+	public int getNumberOfGridVertices() {
+		return numberOfGridVertices_;
+	}
+	
+	/**
+	 * Gets the source.
+	 *
+	 * @return the source
+	 */
+	public int getSource() {
+		return numberOfGridVertices_;
+	}
+	
+	/**
+	 * Gets the sink.
+	 *
+	 * @return the sink
+	 */
+	public int getSink() {
+		return numberOfGridVertices_ + 1;
+	}
+	
+	/**
+	 * Gets the grid vertex at the coordinates.
+	 *
+	 * @param coordinates the coordinates, one per dimension
+	 * @return the vertex
+	 */
+	public int getVertex(int... coordinates) {
+		int v = 0;
+		for (int i = 0; i < dimensions_.length; i++) {
+			v += coordinates[i] * strides_[i];
+		}
+		return v;
+	}
+	
+	/**
+	 * Gets the coordinate of the grid vertex in the dimension.
+	 *
+	 * @param v the grid vertex
+	 * @param dimension the dimension
+	 * @return the coordinate
+	 */
+	public int getCoordinate(int v, int dimension) {
+		return (v / strides_[dimension]) % dimensions_[dimension];
+	}
+	
+	/**
+	 * Gets the direction to the neighbour with the next higher or lower
+	 * coordinate in the dimension.
+	 *
+	 * @param dimension the dimension
+	 * @param up true for the higher coordinate
+	 * @return the direction
+	 */
+	public static int getDirection(int dimension, boolean up) {
+		return up ? 2 * dimension : 2 * dimension + 1;
+	}
+	
+	/**
+	 * Gets the neighbour of the grid vertex in the direction.
+	 *
+	 * @param v the grid vertex
+	 * @param direction the direction
+	 * @return the neighbour, or v itself at the border of the grid
+	 */
+	public int getNeighbour(int v, int direction) {
+		int dimension = direction >> 1;
+		int coordinate = getCoordinate(v, dimension);
+		if (0 == (direction & 1)) {
+			return (coordinate + 1 < dimensions_[dimension]) ? v + strides_[dimension] : v;
+		}
+		return (coordinate > 0) ? v - strides_[dimension] : v;
+	}
+	
+	/**
+	 * Sets the capacity of the arc from the grid vertex to its neighbour in
+	 * the direction. Arcs leaving the grid are ignored.
+	 *
+	 * @param v the grid vertex
+	 * @param direction the direction
+	 * @param capacity the capacity
+	 */
+	public void setCapacity(int v, int direction, int capacity) {
+		if (capacity < 0) {
+			Log.e("Negative capacity " + capacity + " in " + name_ + ".");
+			return;
+		}
+		if (getNeighbour(v, direction) == v) {
+			return;
+		}
+		capacities_[direction][v] = capacity;
+	}
+	
+	/**
+	 * Sets the capacity of the arc from the source to the grid vertex.
+	 *
+	 * @param v the grid vertex
+	 * @param capacity the capacity
+	 */
+	public void setSourceCapacity(int v, int capacity) {
+		if (capacity < 0) {
+			Log.e("Negative capacity " + capacity + " in " + name_ + ".");
+			return;
+		}
+		sourceCapacities_[v] = capacity;
+	}
+	
+	/**
+	 * Sets the capacity of the arc from the grid vertex to the sink.
+	 *
+	 * @param v the grid vertex
+	 * @param capacity the capacity
+	 */
+	public void setSinkCapacity(int v, int capacity) {
+		if (capacity < 0) {
+			Log.e("Negative capacity " + capacity + " in " + name_ + ".");
+			return;
+		}
+		sinkCapacities_[v] = capacity;
+	}
+	
+	/**
+	 * Gets the name.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name_;
+	}
+	
+	/**
+	 * Gets the number of vertices, including the terminals.
+	 *
+	 * @return the number of vertices
+	 */
+	public int getNumberOfVertices() {
+		return numberOfGridVertices_ + 2;
+	}
+	
+	/**
+	 * Gets the number of input arcs: the arcs in all directions, including
+	 * the loops at the border, and the arcs from the source and to the sink.
+	 *
+	 * @return the number of arcs
+	 */
+	public int getNumberOfArcs() {
+		return numberOfGridVertices_ * arcsPerVertex_;
+	}
+	
+	/**
+	 * Gets the number of residual arcs.
+	 *
+	 * @return the number of residual arcs
+	 */
+	public int getNumberOfResidualArcs() {
+		return numberOfGridVertices_ * (arcsPerVertex_ + 2);
+	}
+	
+	/**
+	 * Gets the first residual arc leaving the vertex v.
+	 *
+	 * @param v the vertex
+	 * @return the first residual arc
+	 */
+	public int getFirstResidualArc(int v) {
+		if (v <= numberOfGridVertices_) {
+			return v * arcsPerVertex_;
+		}
+		return numberOfGridVertices_ * arcsPerVertex_ + (v - numberOfGridVertices_) * numberOfGridVertices_;
+	}
+	
+	/**
+	 * Gets the end of the residual arcs leaving the vertex v,
+	 * i.e. the first residual arc of the vertex v+1.
+	 *
+	 * @param v the vertex
+	 * @return the end residual arc (exclusive)
+	 */
+	public int getEndResidualArc(int v) {
+		return getFirstResidualArc(v + 1);
+	}
+	
+	/**
+	 * Gets the head of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the head vertex
+	 */
+	public int getHead(int arc) {
+		int gridArcs = numberOfGridVertices_ * arcsPerVertex_;
+		if (arc >= gridArcs) {
+			// the arcs of the source and the sink lead to the grid vertices in order
+			return (arc - gridArcs) % numberOfGridVertices_;
+		}
+		int v = arc / arcsPerVertex_;
+		int k = arc - v * arcsPerVertex_;
+		if (k < arcsPerVertex_ - 2) {
+			return getNeighbour(v, k);
+		}
+		return (k == arcsPerVertex_ - 2) ? getSource() : getSink();
+	}
+	
+	/**
+	 * Gets the tail of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the tail vertex
+	 */
+	public int getTail(int arc) {
+		int gridArcs = numberOfGridVertices_ * arcsPerVertex_;
+		if (arc >= gridArcs) {
+			return (arc - gridArcs < numberOfGridVertices_) ? getSource() : getSink();
+		}
+		return arc / arcsPerVertex_;
+	}
+	
+	/**
+	 * Gets the reverse of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the reverse residual arc
+	 */
+	public int getReverse(int arc) {
+		int gridArcs = numberOfGridVertices_ * arcsPerVertex_;
+		if (arc >= gridArcs) {
+			int v = (arc - gridArcs) % numberOfGridVertices_;
+			boolean fromSource = arc - gridArcs < numberOfGridVertices_;
+			return v * arcsPerVertex_ + arcsPerVertex_ - (fromSource ? 2 : 1);
+		}
+		int v = arc / arcsPerVertex_;
+		int k = arc - v * arcsPerVertex_;
+		if (k == arcsPerVertex_ - 2) {
+			return gridArcs + v;
+		}
+		if (k == arcsPerVertex_ - 1) {
+			return gridArcs + numberOfGridVertices_ + v;
+		}
+		int w = getNeighbour(v, k);
+		if (w == v) {
+			return arc;
+		}
+		return w * arcsPerVertex_ + (k ^ 1);
+	}
+	
+	/**
+	 * Gets the capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity, zero for the arcs to the source and from the sink
+	 */
+	public double getCapacity(int arc) {
+		return getIntCapacity(arc);
+	}
+	
+	/**
+	 * Gets the integral capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity, zero for the arcs to the source and from the sink
+	 */
+	public long getLongCapacity(int arc) {
+		return getIntCapacity(arc);
+	}
+	
+	/**
+	 * Checks if all capacities are integral, which they always are.
+	 *
+	 * @return true
+	 */
+	public boolean hasIntegralCapacities() {
+		return true;
+	}
+	
+	/**
+	 * Gets the forward residual arc of the input arc. The input arcs are the
+	 * residual arcs of the grid vertices, with the arc to the source replaced
+	 * by the arc from the source.
+	 *
+	 * @param arc the input arc
+	 * @return the forward residual arc
+	 */
+	public int getResidualArc(int arc) {
+		int v = arc / arcsPerVertex_;
+		if (arc - v * arcsPerVertex_ == arcsPerVertex_ - 2) {
+			return numberOfGridVertices_ * arcsPerVertex_ + v;
+		}
+		return arc;
+	}
+	
+	/**
+	 * Gets the vertex name.
+	 *
+	 * @param v the vertex
+	 * @return "s" for the source, "t" for the sink, the index otherwise
+	 */
+	public String getVertexName(int v) {
+		if (v == getSource()) {
+			return "s";
+		}
+		if (v == getSink()) {
+			return "t";
+		}
+		return String.valueOf(v);
+	}
+	
+	/**
+	 * Gets the arc name.
+	 *
+	 * @param arc the input arc
+	 * @return the arc name "(u,v)"
+	 */
+	public String getArcName(int arc) {
+		int uv = getResidualArc(arc);
+		return "(" + getVertexName(getTail(uv)) + "," + getVertexName(getHead(uv)) + ")";
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder(name_);
+		sb.append(": grid");
+		for (int i = 0; i < dimensions_.length; i++) {
+			sb.append((0 == i) ? " " : "x").append(dimensions_[i]);
+		}
+		sb.append(", vertices = ").append(getNumberOfVertices());
+		sb.append(", arcs = ").append(getNumberOfArcs());
+		return sb.toString();
+	}
+	
+	/**
+	 * Gets the capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity
+	 */
+	private int getIntCapacity(int arc) {
+		int gridArcs = numberOfGridVertices_ * arcsPerVertex_;
+		if (arc >= gridArcs) {
+			return (arc - gridArcs < numberOfGridVertices_) ? sourceCapacities_[arc - gridArcs] : 0;
+		}
+		int v = arc / arcsPerVertex_;
+		int k = arc - v * arcsPerVertex_;
+		if (k < arcsPerVertex_ - 2) {
+			return capacities_[k][v];
+		}
+		return (k == arcsPerVertex_ - 1) ? sinkCapacities_[v] : 0;
+	}
+
+}
@@ -0,0 +1,561 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+import util.Log;
+
+/**
+ * The Class HaoOrlinAlgo.
+ *
+ * Computes a global minimum cut of a directed {@link FlowNetwork}, i.e. a
+ * non-empty proper vertex set S with the smallest total capacity of the arcs
+ * leaving S. The algo of Hao and Orlin computes the minimum cut with the
+ * vertex 0 in S by one run of highest-label push-relabel, in which every
+ * other vertex is the sink once. The vertices outside the source set are
+ * either awake or dormant. Only awake vertices are pushed to and relabeled,
+ * and the sink is the awake vertex with the lowest label. When no awake
+ * vertex but the sink is active, the awake vertices are the sink side of a
+ * minimum cut between the source set and the sink, whose value is the
+ * excess of the sink. Then the sink joins the source set and saturates its
+ * arcs.
+ *
+ * Instead of lifting a vertex to n, the gap heuristic moves all awake
+ * vertices above the gap into a new dormant set, and a vertex without a
+ * residual arc to an awake vertex becomes a dormant set of its own. The
+ * dormant sets form a stack, no residual arc leads from a set to a later
+ * one. The last dormant set wakes up when no awake vertex is left. Global
+ * relabels set the labels of the awake vertices to their distance to the
+ * sink, those which cannot reach it become a dormant set.
+ *
+ * A second run on the reversed network finds the minimum cut with the vertex
+ * 0 outside S, unless the network is declared symmetric.
+ *
+ * The discharge, relabel, gap and global relabel are not those of
+ * {@link DistanceLabels}, which the s-t engines share: only awake vertices
+ * are pushed to, the sink changes during the run and keeps its label, a gap
+ * or a vertex without an awake neighbour opens a dormant set instead of
+ * lifting vertices to n, and a global relabel counts up from the label of
+ * the sink and puts the vertices it misses into a dormant set. Each rule
+ * changes the scans and the buckets, so sharing them would put a level
+ * check into the hot loops of the s-t engines.
+ *
+ * Excesses and residual capacities up to 1e-9 of the total capacity are
+ * rounding leftovers of the double arithmetic and count as 0, so they
+ * neither keep a vertex active nor make an arc admissible.
+ */
+public class HaoOrlinAlgo {
+	
+	/** The level of an awake vertex. */
+	private static final int AWAKE_ = Integer.MAX_VALUE;
+	
+	/** The level of the vertices in the source set. */
+	private static final int SOURCE_SET_ = 0;
+	
+	/** The work of a relabel in addition to the scanned arcs. */
+	private static final int RELABEL_WORK_ = 12;
+	
+	/** The rounding leftover relative to the total capacity that may be dropped. */
+	private static final double EPSILON_ = 1e-9;
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	private boolean symmetric_;
+	
+	private double[] residual_;
+	
+	private double[] excess_;
+	
+	private int[] distances_;
+	
+	private int[] currentArcs_;
+	
+	/** The dormant set of each vertex, AWAKE_ for awake vertices. */
+	private int[] levels_;
+	
+	/** The active awake vertices in buckets by label. */
+	private VertexBuckets activeVertices_;
+	
+	/** The awake vertices in buckets by label. */
+	private VertexBuckets labeledVertices_;
+	
+	/** The vertices of all dormant sets, the last set on top. */
+	private int[] dormantVertices_;
+	
+	private int numberOfDormantVertices_;
+	
+	/** The index in dormantVertices_ where each dormant set starts. */
+	private int[] dormantSetStarts_;
+	
+	private int numberOfDormantSets_;
+	
+	private int sink_;
+	
+	/** The queue of the global relabel search. */
+	private int[] queue_;
+	
+	/** The arcs scanned plus the relabel work since the last global relabel. */
+	private long workSinceUpdate_;
+	
+	private boolean globalRelabelingNeeded_;
+	
+	/** The largest excess or residual capacity that is taken as a rounding leftover. */
+	private double tolerance_;
+	
+	private int numberOfRelabels_;
+	
+	private int numberOfGlobalRelabels_;
+	
+	private double minCutValue_;
+	
+	private boolean[] sourceSide_;
+	
+	/**
+	 * Instantiates a new hao orlin algo.
+	 *
+	 * @param graph the graph
+	 */
+	public HaoOrlinAlgo(Graph graph) {
+		graph_ = graph;
+		initialize(CsrGraph.fromGraph(graph));
+	}
+	
+	/**
+	 * Instantiates a new hao orlin algo.
+	 *
+	 * @param network the flow network
+	 */
+	public HaoOrlinAlgo(FlowNetwork network) {
+		graph_ = null;
+		initialize(network);
+	}
+	
+	/**
+	 * Sets whether the network is symmetric, i.e. every arc has a reverse arc
+	 * of the same capacity, as built by {@link Graph#addDoubleArcs}. The run
+	 * on the reversed network is skipped for symmetric networks.
+	 *
+	 * @param symmetric true, if the network is symmetric
+	 */
+	public void setSymmetric(boolean symmetric) {
+		symmetric_ = symmetric;
+	}
+	
+	/**
+	 * Checks if the network is declared symmetric.
+	 *
+	 * @return true, if the network is declared symmetric
+	 */
+	public boolean isSymmetric() {
+		return symmetric_;
+	}
+	
+	/**
+	 * Compute the global min cut.
+	 *
+	 * @return the min cut value
+	 */
+	public double computeMinCut() {
+		int n = network_.getNumberOfVertices();
+		minCutValue_ = Double.POSITIVE_INFINITY;
+		sourceSide_ = new boolean[n];
+		numberOfRelabels_ = 0;
+		numberOfGlobalRelabels_ = 0;
+		if (n < 2) {
+			Log.w("Network " + network_.getName() + " has less than two vertices and no cut.");
+			return minCutValue_;
+		}
+		Log.p("Hao-Orlin global min cut of " + network_.getName());
+		run(false);
+		if (!symmetric_) {
+			run(true);
+		}
+		Log.ps("Global min cut %f after %d relabels and %d global relabels", minCutValue_, numberOfRelabels_, numberOfGlobalRelabels_);
+		return minCutValue_;
+	}
+	
+	/**
+	 * Gets the min cut value.
+	 *
+	 * @return the min cut value, infinite before the computation
+	 */
+	public double getMinCutValue() {
+		return minCutValue_;
+	}
+	
+	/**
+	 * Gets the number of relabels of the last computation.
+	 *
+	 * @return the number of relabels
+	 */
+	public int getNumberOfRelabels() {
+		return numberOfRelabels_;
+	}
+	
+	/**
+	 * Gets the number of global relabels of the last computation.
+	 *
+	 * @return the number of global relabels
+	 */
+	public int getNumberOfGlobalRelabels() {
+		return numberOfGlobalRelabels_;
+	}
+	
+	/**
+	 * Gets the vertices on the source side of the min cut, i.e. the vertices
+	 * the cut arcs leave.
+	 *
+	 * @return true for each vertex on the source side
+	 */
+	public boolean[] getSourceSide() {
+		return sourceSide_;
+	}
+	
+	/**
+	 * Gets the cut set close to source.
+	 *
+	 * @return the cut set close to source
+	 */
+	public HashSet<String> getCutSetCloseToSource() {
+		return GraphUtil.getVertexNames(network_, sourceSide_);
+	}
+	
+	/**
+	 * Gets the cut.
+	 *
+	 * @return the cut
+	 */
+	public Collection<Arc> getCut() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getSourceSide() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.getOutgoingArcs(graph_, getCutSetCloseToSource());
+	}
+	
+	private void initialize(FlowNetwork network) {
+		network_ = network;
+		int n = network.getNumberOfVertices();
+		symmetric_ = false;
+		residual_ = new double[network.getNumberOfResidualArcs()];
+		excess_ = new double[n];
+		distances_ = new int[n];
+		currentArcs_ = new int[n];
+		levels_ = new int[n];
+		activeVertices_ = new VertexBuckets(n, n);
+		labeledVertices_ = new VertexBuckets(n, n);
+		dormantVertices_ = new int[n];
+		dormantSetStarts_ = new int[n + 1];
+		queue_ = new int[n];
+		minCutValue_ = Double.POSITIVE_INFINITY;
+		sourceSide_ = new boolean[n];
+		double totalCapacity = 0.0;
+		for (int a = 0; a < network.getNumberOfArcs(); a++) {
+			totalCapacity += network.getCapacity(network.getResidualArc(a));
+		}
+		tolerance_ = EPSILON_ * totalCapacity;
+	}
+	
+	/**
+	 * Runs the algo with the vertex 0 as the first source. On the reversed
+	 * network the arcs enter the source set, so the awake vertices are the
+	 * source side of the cut in the network.
+	 *
+	 * @param reversed true, to run on the reversed network
+	 */
+	private void run(boolean reversed) {
+		int n = network_.getNumberOfVertices();
+		for (int a = 0; a < residual_.length; a++) {
+			residual_[a] = network_.getCapacity(reversed ? network_.getReverse(a) : a);
+		}
+		Arrays.fill(excess_, 0.0);
+		Arrays.fill(distances_, 0);
+		activeVertices_.clear();
+		labeledVertices_.clear();
+		numberOfDormantVertices_ = 0;
+		numberOfDormantSets_ = 0;
+		for (int v = 0; v < n; v++) {
+			currentArcs_[v] = network_.getFirstResidualArc(v);
+			levels_[v] = AWAKE_;
+			labeledVertices_.add(v, 0);
+		}
+		sink_ = 1;
+		joinSourceSet(0);
+		globalRelabelingNeeded_ = true;
+		while (true) {
+			processActiveVertices();
+			if (excess_[sink_] < minCutValue_) {
+				minCutValue_ = excess_[sink_];
+				for (int v = 0; v < n; v++) {
+					sourceSide_[v] = reversed == (AWAKE_ == levels_[v]);
+				}
+			}
+			joinSourceSet(sink_);
+			if (labeledVertices_.isEmpty()) {
+				if (0 == numberOfDormantSets_) {
+					return;
+				}
+				wakeLastDormantSet();
+			}
+			// the awake vertex with the lowest label is the next sink
+			sink_ = labeledVertices_.getFirst(labeledVertices_.getLowestLabel());
+			activeVertices_.remove(sink_);
+		}
+	}
+	
+	/**
+	 * Moves the vertex into the source set and saturates all its residual
+	 * arcs leaving the source set.
+	 *
+	 * @param s the s
+	 */
+	private void joinSourceSet(int s) {
+		levels_[s] = SOURCE_SET_;
+		labeledVertices_.remove(s);
+		activeVertices_.remove(s);
+		for (int sv = network_.getFirstResidualArc(s); sv < network_.getEndResidualArc(s); sv++) {
+			int v = network_.getHead(sv);
+			double cap = residual_[sv];
+			if (cap > 0.0 && SOURCE_SET_ != levels_[v]) {
+				residual_[sv] = 0.0;
+				residual_[network_.getReverse(sv)] += cap;
+				excess_[s] -= cap;
+				excess_[v] += cap;
+				if (isActive(v)) {
+					activeVertices_.add(v, distances_[v]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Discharges active awake vertices in highest label order until no
+	 * awake vertex but the sink has excess.
+	 */
+	private void processActiveVertices() {
+		while (true) {
+			if (globalRelabelingNeeded_) {
+				globalRelabelingDistances();
+			}
+			int v = activeVertices_.pollHighest();
+			if (-1 == v) {
+				return;
+			}
+			discharge(v);
+		}
+	}
+	
+	/**
+	 * Vertex is active.
+	 *
+	 * @param v the v
+	 * @return true, if successful
+	 */
+	private boolean isActive(int v) {
+		return AWAKE_ == levels_[v] && v != sink_ && excess_[v] > tolerance_;
+	}
+	
+	/**
+	 * Discharge.
+	 *
+	 * @param u the u
+	 */
+	private void discharge(int u) {
+		int end = network_.getEndResidualArc(u);
+		while (true) {
+			int du = distances_[u];
+			int uv = currentArcs_[u];
+			for (; uv < end; uv++) {
+				int v = network_.getHead(uv);
+				if (residual_[uv] > tolerance_ && du == distances_[v] + 1 && AWAKE_ == levels_[v]) {
+					push(u, uv);
+					if (excess_[u] <= tolerance_) {
+						break;
+					}
+				}
+			}
+			workSinceUpdate_ += uv - currentArcs_[u];
+			currentArcs_[u] = uv;
+			if (uv < end) {
+				return;
+			}
+			relabel(u);
+			if (AWAKE_ != levels_[u]) {
+				return;
+			}
+			if (globalRelabelingNeeded_) {
+				activeVertices_.add(u, distances_[u]);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Push.
+	 *
+	 * @param u the u
+	 * @param uv the residual arc uv
+	 */
+	private void push(int u, int uv) {
+		int v = network_.getHead(uv);
+		double delta = Math.min(excess_[u], residual_[uv]);
+		residual_[uv] -= delta;
+		residual_[network_.getReverse(uv)] += delta;
+		excess_[u] -= delta;
+		boolean wasActive = excess_[v] > tolerance_;
+		excess_[v] += delta;
+		if (!wasActive && isActive(v)) {
+			activeVertices_.add(v, distances_[v]);
+		}
+	}
+	
+	/**
+	 * Relabel. If u is the only awake vertex with its label, u and all awake
+	 * vertices above it cannot reach the sink and become a dormant set. If u
+	 * has no residual arc to an awake vertex, it becomes a dormant set alone.
+	 *
+	 * @param u the vertex u
+	 */
+	private void relabel(int u) {
+		numberOfRelabels_++;
+		workSinceUpdate_ += network_.getEndResidualArc(u) - network_.getFirstResidualArc(u) + RELABEL_WORK_;
+		if (workSinceUpdate_ >= PushRelabelAlgo.DEFAULT_GLOBAL_RELABEL_FREQUENCY * network_.getNumberOfVertices() + network_.getNumberOfArcs()) {
+			globalRelabelingNeeded_ = true;
+		}
+		int initialDistance = distances_[u];
+		labeledVertices_.remove(u);
+		if (labeledVertices_.isEmpty(initialDistance)) {
+			labeledVertices_.add(u, initialDistance);
+			gapRelabelingDistances(initialDistance);
+			return;
+		}
+		int minDistance = AWAKE_;
+		int end = network_.getEndResidualArc(u);
+		for (int uv = network_.getFirstResidualArc(u); uv < end; uv++) {
+			int v = network_.getHead(uv);
+			if (residual_[uv] > tolerance_ && AWAKE_ == levels_[v]) {
+				int dv = distances_[v] + 1;
+				if (minDistance > dv) {
+					minDistance = dv;
+				}
+			}
+		}
+		if (AWAKE_ == minDistance) {
+			openDormantSet();
+			addToDormantSet(u);
+			return;
+		}
+		distances_[u] = minDistance;
+		currentArcs_[u] = network_.getFirstResidualArc(u);
+		labeledVertices_.add(u, minDistance);
+	}
+	
+	/**
+	 * Global relabeling distances. Sets the label of every awake vertex to the
+	 * label of the sink plus its distance to the sink over the residual arcs
+	 * between awake vertices. The labels do not decrease, since valid labels
+	 * are lower bounds of these distances. The awake vertices which cannot
+	 * reach the sink become a new dormant set.
+	 */
+	private void globalRelabelingDistances() {
+		int n = network_.getNumberOfVertices();
+		activeVertices_.clear();
+		labeledVertices_.clear();
+		int head = 0;
+		int tail = 0;
+		queue_[tail++] = sink_;
+		labeledVertices_.add(sink_, distances_[sink_]);
+		while (head < tail) {
+			int v = queue_[head++];
+			int dv = distances_[v] + 1;
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (AWAKE_ == levels_[u] && !labeledVertices_.contains(u) && residual_[network_.getReverse(vu)] > tolerance_) {
+					distances_[u] = dv;
+					currentArcs_[u] = network_.getFirstResidualArc(u);
+					labeledVertices_.add(u, dv);
+					if (excess_[u] > tolerance_) {
+						activeVertices_.add(u, dv);
+					}
+					queue_[tail++] = u;
+				}
+			}
+		}
+		boolean open = false;
+		for (int v = 0; v < n; v++) {
+			if (AWAKE_ == levels_[v] && !labeledVertices_.contains(v)) {
+				if (!open) {
+					openDormantSet();
+					open = true;
+				}
+				addToDormantSet(v);
+			}
+		}
+		workSinceUpdate_ = 0;
+		globalRelabelingNeeded_ = false;
+		numberOfGlobalRelabels_++;
+	}
+	
+	/**
+	 * Gap relabeling distances. No awake vertex but one has the given label,
+	 * so the awake vertices with this or a larger label cannot reach the sink
+	 * and become a new dormant set.
+	 *
+	 * @param gapDistance the label of the gap
+	 */
+	private void gapRelabelingDistances(int gapDistance) {
+		openDormantSet();
+		int largestDistance = labeledVertices_.getHighestLabel();
+		for (int d = gapDistance; d <= largestDistance; d++) {
+			int v = labeledVertices_.pollFirst(d);
+			while (-1 != v) {
+				addToDormantSet(v);
+				v = labeledVertices_.pollFirst(d);
+			}
+		}
+	}
+	
+	/**
+	 * Opens a new dormant set on top of the stack.
+	 */
+	private void openDormantSet() {
+		numberOfDormantSets_++;
+		dormantSetStarts_[numberOfDormantSets_] = numberOfDormantVertices_;
+	}
+	
+	/**
+	 * Adds the awake vertex to the dormant set on top of the stack.
+	 *
+	 * @param v the v
+	 */
+	private void addToDormantSet(int v) {
+		levels_[v] = numberOfDormantSets_;
+		labeledVertices_.remove(v);
+		activeVertices_.remove(v);
+		dormantVertices_[numberOfDormantVertices_++] = v;
+	}
+	
+	/**
+	 * Wakes the vertices of the dormant set on top of the stack up. Their
+	 * labels are still valid, since all other awake vertices have joined
+	 * the source set meanwhile.
+	 */
+	private void wakeLastDormantSet() {
+		int start = dormantSetStarts_[numberOfDormantSets_];
+		for (int i = start; i < numberOfDormantVertices_; i++) {
+			int v = dormantVertices_[i];
+			levels_[v] = AWAKE_;
+			currentArcs_[v] = network_.getFirstResidualArc(v);
+			labeledVertices_.add(v, distances_[v]);
+			if (excess_[v] > tolerance_) {
+				activeVertices_.add(v, distances_[v]);
+			}
+		}
+		numberOfDormantVertices_ = start;
+		numberOfDormantSets_--;
+	}
+
+}
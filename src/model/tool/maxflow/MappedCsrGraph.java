@@ -0,0 +1,384 @@
+package model.tool.maxflow;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.HashMap;
+
+import util.Log;
+import util.Util;
+
+/**
+ * The Class MappedCsrGraph.
+ *
+ * A flow network in the layout of {@link CsrGraph}, whose arrays are the
+ * sections of a memory-mapped {@link BinaryGraphFile}. Nothing is copied
+ * when the file is loaded, the pages are read on first access and shared by
+ * all processes mapping the same file. The graph is read-only and keeps the
+ * source and sink stored with it.
+ */
+public class MappedCsrGraph implements FlowNetwork {
+	
+	/** The name. */
+	private String name_;
+	
+	/** The number of vertices. */
+	private int numberOfVertices_;
+	
+	/** The number of input arcs. */
+	private int numberOfArcs_;
+	
+	/** The number of residual arcs. */
+	private int numberOfResidualArcs_;
+	
+	/** The source, -1 if none. */
+	private int source_;
+	
+	/** The sink, -1 if none. */
+	private int sink_;
+	
+	/** The index of the first residual arc of each vertex, n+1 entries. */
+	private IntBuffer firstResidualArcs_;
+	
+	/** The head vertex of each residual arc. */
+	private IntBuffer heads_;
+	
+	/** The index of the reverse arc of each residual arc. */
+	private IntBuffer reverses_;
+	
+	/** The forward residual arc of each input arc. */
+	private IntBuffer residualArcs_;
+	
+	/** The capacity of each residual arc, null if the capacities are integral. */
+	private DoubleBuffer capacities_;
+	
+	/** The integral capacities if they do not fit in an int, null otherwise. */
+	private LongBuffer longCapacities_;
+	
+	/** The integral capacities if they fit in an int, null otherwise. */
+	private IntBuffer intCapacities_;
+	
+	/** The offsets of the vertex names, null if the vertices are unnamed. */
+	private IntBuffer vertexNameOffsets_;
+	
+	/** The bytes of the vertex names. */
+	private ByteBuffer vertexNames_;
+	
+	/** The vertex indices by name, created on the first lookup. */
+	private HashMap<String, Integer> vertexIndices_;
+	
+	/** The offsets of the arc names, null if the arcs are unnamed. */
+	private IntBuffer arcNameOffsets_;
+	
+	/** The bytes of the arc names. */
+	private ByteBuffer arcNames_;
+	
+	/**
+	 * Instantiates a new mapped csr graph. Use
+	 * {@link BinaryGraphFile#load(String)} to create one.
+	 *
+	 * @param name the name
+	 * @param flags the flags of the file
+	 * @param n the number of vertices
+	 * @param m the number of arcs
+	 * @param mm the number of residual arcs
+	 * @param source the source
+	 * @param sink the sink
+	 * @param sections the first residual arcs, heads, reverses, residual arcs and capacities
+	 */
+	MappedCsrGraph(String name, int flags, int n, int m, int mm, int source, int sink, ByteBuffer[] sections) {
+		name_ = name;
+		numberOfVertices_ = n;
+		numberOfArcs_ = m;
+		numberOfResidualArcs_ = mm;
+		source_ = source;
+		sink_ = sink;
+		firstResidualArcs_ = sections[0].asIntBuffer();
+		heads_ = sections[1].asIntBuffer();
+		reverses_ = sections[2].asIntBuffer();
+		residualArcs_ = sections[3].asIntBuffer();
+		if (0 != (flags & BinaryGraphFile.INT_CAPACITIES)) {
+			intCapacities_ = sections[4].asIntBuffer();
+		} else if (0 != (flags & BinaryGraphFile.INTEGRAL_CAPACITIES)) {
+			longCapacities_ = sections[4].asLongBuffer();
+		} else {
+			capacities_ = sections[4].asDoubleBuffer();
+		}
+	}
+	
+	/**
+	 * Sets the vertex names section.
+	 *
+	 * @param offsets the offsets of the names, n+1 ints
+	 * @param names the bytes of the names
+	 */
+	void setVertexNames(ByteBuffer offsets, ByteBuffer names) {
+		vertexNameOffsets_ = offsets.asIntBuffer();
+		vertexNames_ = names;
+	}
+	
+	/**
+	 * Sets the arc names section.
+	 *
+	 * @param offsets the offsets of the names, m+1 ints
+	 * @param names the bytes of the names
+	 */
+	void setArcNames(ByteBuffer offsets, ByteBuffer names) {
+		arcNameOffsets_ = offsets.asIntBuffer();
+		arcNames_ = names;
+	}
+	
+	/**
+	 * Gets the name.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name_;
+	}
+	
+	/**
+	 * Gets the source stored with the graph.
+	 *
+	 * @return the source, -1 if none
+	 */
+	public int getSource() {
+		return source_;
+	}
+	
+	/**
+	 * Gets the sink stored with the graph.
+	 *
+	 * @return the sink, -1 if none
+	 */
+	public int getSink() {
+		return sink_;
+	}
+	
+	/**
+	 * Gets the number of vertices.
+	 *
+	 * @return the number of vertices
+	 */
+	public int getNumberOfVertices() {
+		return numberOfVertices_;
+	}
+	
+	/**
+	 * Gets the number of input arcs.
+	 *
+	 * @return the number of arcs
+	 */
+	public int getNumberOfArcs() {
+		return numberOfArcs_;
+	}
+	
+	/**
+	 * Gets the number of residual arcs.
+	 *
+	 * @return the number of residual arcs
+	 */
+	public int getNumberOfResidualArcs() {
+		return numberOfResidualArcs_;
+	}
+	
+	/**
+	 * Gets the first residual arc leaving the vertex v.
+	 *
+	 * @param v the vertex
+	 * @return the first residual arc
+	 */
+	public int getFirstResidualArc(int v) {
+		return firstResidualArcs_.get(v);
+	}
+	
+	/**
+	 * Gets the end of the residual arcs leaving the vertex v,
+	 * i.e. the first residual arc of the vertex v+1.
+	 *
+	 * @param v the vertex
+	 * @return the end residual arc (exclusive)
+	 */
+	public int getEndResidualArc(int v) {
+		return firstResidualArcs_.get(v + 1);
+	}
+	
+	/**
+	 * Gets the head of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the head vertex
+	 */
+	public int getHead(int arc) {
+		return heads_.get(arc);
+	}
+	
+	/**
+	 * Gets the tail of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the tail vertex
+	 */
+	public int getTail(int arc) {
+		return heads_.get(reverses_.get(arc));
+	}
+	
+	/**
+	 * Gets the reverse of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the reverse residual arc
+	 */
+	public int getReverse(int arc) {
+		return reverses_.get(arc);
+	}
+	
+	/**
+	 * Gets the capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity, zero for reverse arcs
+	 */
+	public double getCapacity(int arc) {
+		if (null != intCapacities_) {
+			return intCapacities_.get(arc);
+		}
+		if (null != longCapacities_) {
+			return longCapacities_.get(arc);
+		}
+		return capacities_.get(arc);
+	}
+	
+	/**
+	 * Gets the integral capacity of the residual arc.
+	 *
+	 * @param arc the residual arc
+	 * @return the capacity, zero for reverse arcs
+	 */
+	public long getLongCapacity(int arc) {
+		if (null != intCapacities_) {
+			return intCapacities_.get(arc);
+		}
+		if (null != longCapacities_) {
+			return longCapacities_.get(arc);
+		}
+		Log.w("Capacity " + capacities_.get(arc) + " may not be integral.");
+		return (long) capacities_.get(arc);
+	}
+	
+	/**
+	 * Checks if all capacities are integral.
+	 *
+	 * @return true, if all capacities are integral
+	 */
+	public boolean hasIntegralCapacities() {
+		return null == capacities_;
+	}
+	
+	/**
+	 * Gets the forward residual arc of the input arc.
+	 *
+	 * @param arc the input arc
+	 * @return the forward residual arc
+	 */
+	public int getResidualArc(int arc) {
+		return residualArcs_.get(arc);
+	}
+	
+	/**
+	 * Gets the vertex name.
+	 *
+	 * @param v the vertex
+	 * @return the vertex name, or the index as string if the vertex is unnamed
+	 */
+	public String getVertexName(int v) {
+		if (null == vertexNameOffsets_) {
+			return String.valueOf(v);
+		}
+		return getName(vertexNames_, vertexNameOffsets_, v);
+	}
+	
+	/**
+	 * Gets the vertex index. The index of all names is built on the first call.
+	 *
+	 * @param name the name
+	 * @return the vertex index, or -1 if no vertex with this name exists
+	 */
+	public int getVertexIndex(String name) {
+		if (null == vertexNameOffsets_) {
+			return -1;
+		}
+		if (null == vertexIndices_) {
+			vertexIndices_ = new HashMap<String, Integer>(2 * numberOfVertices_);
+			for (int v = 0; v < numberOfVertices_; v++) {
+				vertexIndices_.put(getVertexName(v), v);
+			}
+		}
+		Integer v = vertexIndices_.get(name);
+		return (null == v) ? -1 : v;
+	}
+	
+	/**
+	 * Gets the arc name.
+	 *
+	 * @param arc the input arc
+	 * @return the arc name, or "(u,v)" if the arc is unnamed
+	 */
+	public String getArcName(int arc) {
+		if (null == arcNameOffsets_) {
+			int uv = residualArcs_.get(arc);
+			return "(" + getVertexName(getTail(uv)) + "," + getVertexName(heads_.get(uv)) + ")";
+		}
+		return getName(arcNames_, arcNameOffsets_, arc);
+	}
+	
+	/**
+	 * Copies the graph into a csr graph on the heap.
+	 *
+	 * @return the csr graph
+	 */
+	public CsrGraph toCsrGraph() {
+		CsrGraph.Builder builder = new CsrGraph.Builder(name_, numberOfVertices_, numberOfArcs_);
+		for (int v = 0; v < numberOfVertices_; v++) {
+			if (null == vertexNameOffsets_) {
+				builder.addVertex();
+			} else {
+				builder.addVertex(getVertexName(v));
+			}
+		}
+		for (int e = 0; e < numberOfArcs_; e++) {
+			int uv = residualArcs_.get(e);
+			builder.addArc(getTail(uv), heads_.get(uv), getCapacity(uv), (null == arcNameOffsets_) ? null : getArcName(e));
+		}
+		return builder.build();
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		String s = "MappedCsrGraph " + name_ + "\n";
+		s += Util.nText("%d vertex", "%d vertices", numberOfVertices_) + "\n";
+		s += Util.nText("%d arc", numberOfArcs_);
+		return s;
+	}
+	
+	/**
+	 * Decodes a name of a names section.
+	 *
+	 * @param names the bytes of the names
+	 * @param offsets the offsets of the names
+	 * @param k the index of the name
+	 * @return the name
+	 */
+	private static String getName(ByteBuffer names, IntBuffer offsets, int k) {
+		int from = offsets.get(k);
+		byte[] bytes = new byte[offsets.get(k + 1) - from];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = names.get(from + i);
+		}
+		return new String(bytes, BinaryGraphFile.UTF8);
+	}
+
+}
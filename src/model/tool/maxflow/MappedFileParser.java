@@ -0,0 +1,955 @@
+package model.tool.maxflow;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import util.Log;
+
+/**
+ * The Class MappedFileParser.
+ *
+ * Reads the comma separated input format of {@link GraphReader} from a
+ * memory-mapped file into a {@link CsrGraph}. The bytes are scanned in place:
+ * lines, fields and numbers are found without creating strings, vertex
+ * names are looked up in a {@link VertexDictionary} on their bytes, and only
+ * a new vertex gets a string name. Integral capacities and short decimal fractions are
+ * parsed by hand, all other numbers by {@link Double#parseDouble(String)}.
+ *
+ * The result is the graph {@link GraphReader#readFile(String)} builds: the
+ * same lines are skipped with the same messages, vertices and arcs are
+ * numbered in the order of the file, an arc whose name is taken is dropped
+ * and the source and the sink are chosen the same way. The file is mapped
+ * in windows of at most {@link #WINDOW_SIZE_} bytes, so it can be larger
+ * than 2 GB.
+ *
+ * With several workers the file is split into chunks which end at line ends
+ * and are parsed by a {@link ForkJoinPool}. Every chunk records its arcs with
+ * the ids of its own {@link VertexDictionary} and its errors in the order of
+ * its lines, so the workers share nothing. The chunks are merged in the order
+ * of the file while later chunks are still parsed, which looks the names of
+ * a chunk up in the dictionary of the graph, numbers the vertices, drops
+ * circles and taken arc names and chooses the source and the sink like a
+ * single pass. Only a few chunks per worker are mapped and parsed ahead of
+ * the merge, so the records of the whole file are never held at once.
+ */
+public class MappedFileParser {
+	
+	/** The largest number of bytes mapped at once. */
+	private static final int WINDOW_SIZE_ = 1 << 30;
+	
+	/** The powers of ten which are exact doubles. */
+	private static final double[] POWERS_OF_TEN_ = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	
+	/** The largest integer up to which all integers are exact doubles. */
+	private static final long MAX_EXACT_INTEGER_ = 1L << 53;
+	
+	/** The empty slot of the arc set. */
+	private static final long NO_ARC_ = -1;
+	
+	/** The largest number of arcs the arrays are sized for in advance. */
+	private static final int MAX_EXPECTED_ARCS_ = 1 << 24;
+	
+	/** The smallest chunk parsed by a worker. */
+	private static final int MIN_CHUNK_SIZE_ = 1 << 16;
+	
+	/** The number of chunks per worker, so the workers finish at about the same time. */
+	private static final int CHUNKS_PER_WORKER_ = 4;
+	
+	/** The number of chunks per worker which are parsed ahead of the merge. */
+	private static final int CHUNKS_IN_FLIGHT_PER_WORKER_ = 2;
+	
+	private String fileName_;
+	
+	private boolean allowArcsWithZeroCapacity_;
+	
+	private Charset charset_;
+	
+	private int numberOfWorkers_;
+	
+	private CsrGraph.Builder builder_;
+	
+	private int source_;
+	
+	private int sink_;
+	
+	private boolean integralCapacities_;
+	
+	/** The vertex names, the id of a name is the index of its vertex. */
+	private VertexDictionary vertices_;
+	
+	/** The unnamed arcs as tail * 2^32 + head, in open addressing slots. */
+	private long[] arcTable_;
+	
+	private int numberOfTableArcs_;
+	
+	/** All arc names, null as long as all arcs are unnamed. */
+	private HashSet<String> arcNames_;
+	
+	/**
+	 * Instantiates a new mapped file parser.
+	 *
+	 * @param fileName the file name
+	 * @param allowArcsWithZeroCapacity the allow arcs with zero capacity
+	 */
+	public MappedFileParser(String fileName, boolean allowArcsWithZeroCapacity) {
+		fileName_ = fileName;
+		allowArcsWithZeroCapacity_ = allowArcsWithZeroCapacity;
+		charset_ = Charset.defaultCharset();
+		numberOfWorkers_ = Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Sets the number of workers. The default is the number of processors.
+	 *
+	 * @param workers the number of workers
+	 */
+	public void setNumberOfWorkers(int workers) {
+		if (workers < 1) {
+			Log.w("Number of workers " + workers + " is ignored, at least one worker is needed.");
+			return;
+		}
+		numberOfWorkers_ = workers;
+	}
+	
+	/**
+	 * Gets the number of workers.
+	 *
+	 * @return the number of workers
+	 */
+	public int getNumberOfWorkers() {
+		return numberOfWorkers_;
+	}
+	
+	/**
+	 * Parses the file.
+	 *
+	 * @return the csr graph, or null if the file cannot be read
+	 */
+	public CsrGraph parse() {
+		// a line has at least a few bytes, so the arrays are sized for a
+		// fraction of the file length and grow if the lines are shorter
+		long fileLength = new File(fileName_).length();
+		int expectedArcs = (int) Math.min(fileLength / 32, MAX_EXPECTED_ARCS_);
+		builder_ = new CsrGraph.Builder(fileName_, expectedArcs / 4, expectedArcs);
+		source_ = -1;
+		sink_ = -1;
+		integralCapacities_ = true;
+		vertices_ = new VertexDictionary(expectedArcs / 4);
+		arcTable_ = new long[getTableSize(expectedArcs)];
+		Arrays.fill(arcTable_, NO_ARC_);
+		numberOfTableArcs_ = 0;
+		arcNames_ = null;
+		
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(fileName_, "r");
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			if (numberOfWorkers_ > 1 && size >= 2 * MIN_CHUNK_SIZE_) {
+				parseChunks(channel, size);
+			} else {
+				parseWindows(channel, size);
+			}
+		} catch (IOException e) {
+			Log.e("Cannot read file " + fileName_, e);
+			return null;
+		} catch (NumberFormatException e) {
+			Log.e("Cannot read file " + fileName_, e);
+		} finally {
+			if (null != file) {
+				try {
+					file.close();
+				} catch (IOException e) {
+					Log.e("Cannot close file " + fileName_, e);
+				}
+			}
+		}
+		return builder_.build();
+	}
+	
+	/**
+	 * Gets the source, the start vertex of the first arc read.
+	 *
+	 * @return the index of the source, -1 if no arc was read
+	 */
+	public int getSource() {
+		return source_;
+	}
+	
+	/**
+	 * Gets the sink, the end vertex of the last arc read.
+	 *
+	 * @return the index of the sink, -1 if no arc was read
+	 */
+	public int getSink() {
+		return sink_;
+	}
+	
+	/**
+	 * Checks if all capacities read are integral.
+	 *
+	 * @return true, if all capacities are integral
+	 */
+	public boolean hasIntegralCapacities() {
+		return integralCapacities_;
+	}
+	
+	/**
+	 * Parses the file in windows, one after the other.
+	 *
+	 * @param channel the channel of the file
+	 * @param size the size of the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void parseWindows(FileChannel channel, long size) throws IOException {
+		SequentialParser parser = new SequentialParser();
+		long position = 0;
+		while (position < size) {
+			int length = (int) Math.min(WINDOW_SIZE_, size - position);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			boolean last = position + length == size;
+			int parsed = parser.parseLines(buffer, length, last);
+			if (0 == parsed && !last) {
+				Log.e("Line longer than " + WINDOW_SIZE_ + " bytes in file " + fileName_);
+				break;
+			}
+			position += parsed;
+		}
+	}
+	
+	/**
+	 * Parses the chunks of the file by the workers and merges them in order.
+	 *
+	 * @param channel the channel of the file
+	 * @param size the size of the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void parseChunks(FileChannel channel, long size) throws IOException {
+		long chunkSize = Math.max(MIN_CHUNK_SIZE_, size / (CHUNKS_PER_WORKER_ * numberOfWorkers_));
+		chunkSize = Math.min(chunkSize, WINDOW_SIZE_ / 2);
+		int numberOfChunks = (int) ((size + chunkSize - 1) / chunkSize);
+		Log.p("Parse " + numberOfChunks + " chunks of " + fileName_ + " with " + numberOfWorkers_ + " workers");
+		
+		int inFlight = CHUNKS_IN_FLIGHT_PER_WORKER_ * numberOfWorkers_;
+		Chunk[] chunks = new Chunk[numberOfChunks];
+		ForkJoinPool pool = new ForkJoinPool(numberOfWorkers_);
+		try {
+			long start = 0;
+			int submitted = 0;
+			for (int k = 0; k < numberOfChunks; k++) {
+				// keep the next chunks parsed while chunk k is merged
+				while (submitted < numberOfChunks && submitted < k + inFlight && start < size) {
+					long end = (submitted + 1 == numberOfChunks) ? size : findLineStart(channel, (submitted + 1) * chunkSize, size);
+					if (end - start > WINDOW_SIZE_) {
+						Log.e("Line longer than " + (WINDOW_SIZE_ / 2) + " bytes in file " + fileName_);
+						start = size;
+						break;
+					}
+					if (end > start) {
+						MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+						int expectedNames = (int) ((end - start) / 32);
+						chunks[submitted] = new Chunk(new ChunkParser(expectedNames, charset_, allowArcsWithZeroCapacity_), buffer);
+						pool.execute(chunks[submitted]);
+					}
+					start = Math.max(start, end);
+					submitted++;
+				}
+				if (null == chunks[k]) {
+					continue;
+				}
+				chunks[k].join();
+				boolean failed = !addChunk(chunks[k].parser_);
+				chunks[k] = null;
+				if (failed) {
+					break;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Finds the first line which starts at or after the position, i.e. the
+	 * end of the line the byte before the position belongs to.
+	 *
+	 * @param channel the channel of the file
+	 * @param position the position
+	 * @param size the size of the file
+	 * @return the start of the line, or the size if there is none
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static long findLineStart(FileChannel channel, long position, long size) throws IOException {
+		long from = position - 1;
+		while (from < size) {
+			int length = (int) Math.min(MIN_CHUNK_SIZE_, size - from);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+			for (int i = 0; i < length; i++) {
+				byte c = buffer.get(i);
+				if ('\n' == c) {
+					return from + i + 1;
+				}
+				if ('\r' == c) {
+					// the '\n' of "\r\n" belongs to the line
+					if (i + 1 < length) {
+						return ('\n' == buffer.get(i + 1)) ? from + i + 2 : from + i + 1;
+					}
+					if (from + i + 1 < size && '\n' == channel.map(FileChannel.MapMode.READ_ONLY, from + i + 1, 1).get(0)) {
+						return from + i + 2;
+					}
+					return from + i + 1;
+				}
+			}
+			from += length;
+		}
+		return size;
+	}
+	
+	/**
+	 * Adds the arcs of a chunk in the order of its lines and logs its errors.
+	 *
+	 * @param chunk the parser of the chunk
+	 * @return false, if the chunk stopped at a malformed number
+	 */
+	private boolean addChunk(ChunkParser chunk) {
+		// the vertex of each name of the chunk, -1 until it is looked up
+		int[] chunkVertices = new int[chunk.names_.size()];
+		Arrays.fill(chunkVertices, -1);
+		for (int k = 0; k < chunk.numberOfLines_; k++) {
+			if (null != chunk.messages_ && null != chunk.messages_[k]) {
+				Log.e(chunk.messages_[k]);
+				continue;
+			}
+			int u = getChunkVertex(chunk, chunkVertices, chunk.tails_[k]);
+			int v = getChunkVertex(chunk, chunkVertices, chunk.heads_[k]);
+			addArc(u, v, chunk.capacities_[k], chunk.longCapacities_[k], (null == chunk.arcNames_) ? null : chunk.arcNames_[k]);
+		}
+		if (null != chunk.failure_) {
+			Log.e("Cannot read file " + fileName_, chunk.failure_);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Gets the vertex of a name of a chunk, a new vertex is added when the
+	 * name is read the first time in the order of the file.
+	 *
+	 * @param chunk the parser of the chunk
+	 * @param chunkVertices the vertices of the names of the chunk looked up so far
+	 * @param id the id of the name in the dictionary of the chunk
+	 * @return the index of the vertex
+	 */
+	private int getChunkVertex(ChunkParser chunk, int[] chunkVertices, int id) {
+		if (-1 == chunkVertices[id]) {
+			int v = vertices_.getId(chunk.names_, id);
+			if (-1 == v) {
+				v = builder_.addVertex(chunk.names_.getName(id, charset_));
+				vertices_.add(chunk.names_, id);
+			}
+			chunkVertices[id] = v;
+		}
+		return chunkVertices[id];
+	}
+	
+	/**
+	 * Adds the arc of a line with a valid capacity. The arc is dropped if it
+	 * is a circle or if its name is taken, but the vertices count for the
+	 * source and the sink anyway.
+	 *
+	 * @param u the start vertex
+	 * @param v the end vertex
+	 * @param cap the capacity
+	 * @param longCap the exact capacity of an integer field, -1 for other numbers
+	 * @param arcName the arc name, null for an unnamed arc
+	 */
+	private void addArc(int u, int v, double cap, long longCap, String arcName) {
+		if (-1 == longCap && (cap != Math.floor(cap) || cap >= Long.MAX_VALUE)) {
+			integralCapacities_ = false;
+		}
+		if (-1 == source_) {
+			source_ = u;
+		}
+		sink_ = v;
+		if (u == v) {
+			Log.w("Cannot add a circle arc connecting two same vertices!");
+			return;
+		}
+		if (null != arcName && null == arcNames_) {
+			collectArcNames();
+		}
+		if (null != arcNames_) {
+			String name = (null == arcName) ? "(" + builder_.getVertexName(u) + "," + builder_.getVertexName(v) + ")" : arcName;
+			if (!arcNames_.add(name)) {
+				Log.w("Cannot replace existing arc with the same name: " + name);
+				return;
+			}
+		} else if (!addToArcTable(u, v)) {
+			Log.w("Cannot replace existing arc with the same name: (" + builder_.getVertexName(u) + "," + builder_.getVertexName(v) + ")");
+			return;
+		}
+		if (-1 != longCap) {
+			builder_.addArc(u, v, longCap, arcName);
+		} else {
+			builder_.addArc(u, v, cap, arcName);
+		}
+	}
+	
+	/**
+	 * Gets the vertex with the name, a new vertex is added if the name is new.
+	 *
+	 * @param name the bytes of the name
+	 * @param length the length of the name
+	 * @return the index of the vertex
+	 */
+	private int getVertex(byte[] name, int length) {
+		int hash = VertexDictionary.hash(name, 0, length);
+		int v = vertices_.getId(name, 0, length, hash);
+		if (-1 == v) {
+			v = builder_.addVertex(new String(name, 0, length, charset_));
+			vertices_.add(name, 0, length, hash);
+		}
+		return v;
+	}
+	
+	/**
+	 * Adds the unnamed arc uv to the arc table.
+	 *
+	 * @param u the start vertex
+	 * @param v the end vertex
+	 * @return false, if the arc is in the table already
+	 */
+	private boolean addToArcTable(int u, int v) {
+		long key = ((long) u << 32) | v;
+		int mask = arcTable_.length - 1;
+		int slot = VertexDictionary.mix((int) (key ^ (key >>> 29))) & mask;
+		while (NO_ARC_ != arcTable_[slot]) {
+			if (key == arcTable_[slot]) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		arcTable_[slot] = key;
+		numberOfTableArcs_++;
+		if (2 * numberOfTableArcs_ > arcTable_.length) {
+			long[] table = new long[2 * arcTable_.length];
+			Arrays.fill(table, NO_ARC_);
+			mask = table.length - 1;
+			for (long entry : arcTable_) {
+				if (NO_ARC_ != entry) {
+					slot = VertexDictionary.mix((int) (entry ^ (entry >>> 29))) & mask;
+					while (NO_ARC_ != table[slot]) {
+						slot = (slot + 1) & mask;
+					}
+					table[slot] = entry;
+				}
+			}
+			arcTable_ = table;
+		}
+		return true;
+	}
+	
+	/**
+	 * Switches from the arc table to arc names when the first named arc is
+	 * read, since a name may equal the name "(u,v)" of an unnamed arc.
+	 */
+	private void collectArcNames() {
+		arcNames_ = new HashSet<String>();
+		for (long entry : arcTable_) {
+			if (NO_ARC_ != entry) {
+				int u = (int) (entry >>> 32);
+				int v = (int) entry;
+				arcNames_.add("(" + builder_.getVertexName(u) + "," + builder_.getVertexName(v) + ")");
+			}
+		}
+		arcTable_ = null;
+	}
+	
+	/**
+	 * Gets the size of a hash table, a power of two with at least two slots
+	 * per entry.
+	 *
+	 * @param entries the expected number of entries
+	 * @return the table size
+	 */
+	private static int getTableSize(int entries) {
+		int size = 1 << 10;
+		while (size < 2 * entries) {
+			size <<= 1;
+		}
+		return size;
+	}
+	
+	/**
+	 * Checks if the byte is whitespace as for {@link String#trim()}.
+	 *
+	 * @param c the byte
+	 * @return true, if c is whitespace
+	 */
+	private static boolean isWhitespace(byte c) {
+		return c >= 0 && c <= ' ';
+	}
+	
+	private static int trimStart(MappedByteBuffer buffer, int from, int end) {
+		while (from < end && isWhitespace(buffer.get(from))) {
+			from++;
+		}
+		return from;
+	}
+	
+	private static int trimEnd(MappedByteBuffer buffer, int from, int end) {
+		while (end > from && isWhitespace(buffer.get(end - 1))) {
+			end--;
+		}
+		return end;
+	}
+	
+	private static String toString(MappedByteBuffer buffer, int from, int end, Charset charset) {
+		byte[] bytes = new byte[end - from];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(from + i);
+		}
+		return new String(bytes, charset);
+	}
+	
+	/**
+	 * The Class LineParser.
+	 *
+	 * Splits the lines of a mapped window into fields and checks them. Every
+	 * line with a valid capacity is passed to {@link #addLine}, every malformed
+	 * line to {@link #addError}.
+	 */
+	private abstract static class LineParser {
+		
+		private Charset charset_;
+		
+		private boolean allowArcsWithZeroCapacity_;
+		
+		/** The positions of the commas of the current line. */
+		private int[] commas_;
+		
+		private int numberOfCommas_;
+		
+		private int lineStart_;
+		
+		private int lineEnd_;
+		
+		/** The bytes of the last name read by {@link #readName}. */
+		protected byte[] name_;
+		
+		/** The last number parsed if it is an integer field, -1 otherwise. */
+		private long integer_;
+		
+		/**
+		 * Instantiates a new line parser.
+		 *
+		 * @param charset the charset of the file
+		 * @param allowArcsWithZeroCapacity the allow arcs with zero capacity
+		 */
+		public LineParser(Charset charset, boolean allowArcsWithZeroCapacity) {
+			charset_ = charset;
+			allowArcsWithZeroCapacity_ = allowArcsWithZeroCapacity;
+			commas_ = new int[4];
+			name_ = new byte[64];
+		}
+		
+		/**
+		 * Adds a line with a valid capacity, its fields are given by
+		 * {@link #getFieldStart(int)} and {@link #getFieldEnd(int)}.
+		 *
+		 * @param buffer the window
+		 * @param fields the number of fields, 3 or 4
+		 * @param cap the capacity
+		 * @param longCap the exact capacity of an integer field, -1 for other numbers
+		 */
+		protected abstract void addLine(MappedByteBuffer buffer, int fields, double cap, long longCap);
+		
+		/**
+		 * Adds the error of a malformed line.
+		 *
+		 * @param message the message
+		 */
+		protected abstract void addError(String message);
+		
+		/**
+		 * Parses all complete lines of the window. A line ends at '\n', '\r' or
+		 * "\r\n" like for {@link java.io.BufferedReader#readLine()}, the last line
+		 * of the file also at its end.
+		 *
+		 * @param buffer the window
+		 * @param length the length of the window
+		 * @param last true, if the window ends at the end of the file
+		 * @return the number of bytes parsed
+		 */
+		public int parseLines(MappedByteBuffer buffer, int length, boolean last) {
+			int start = 0;
+			for (int i = 0; i < length; i++) {
+				byte c = buffer.get(i);
+				if ('\n' == c || '\r' == c) {
+					if ('\r' == c && i + 1 == length && !last) {
+						// the '\n' of "\r\n" may start the next window
+						return start;
+					}
+					parseLine(buffer, start, i);
+					if ('\r' == c && i + 1 < length && '\n' == buffer.get(i + 1)) {
+						i++;
+					}
+					start = i + 1;
+				}
+			}
+			if (last && start < length) {
+				parseLine(buffer, start, length);
+				return length;
+			}
+			return start;
+		}
+		
+		/**
+		 * Parses a line.
+		 *
+		 * @param buffer the window
+		 * @param from the first byte of the line
+		 * @param end the end of the line (exclusive)
+		 */
+		private void parseLine(MappedByteBuffer buffer, int from, int end) {
+			from = trimStart(buffer, from, end);
+			end = trimEnd(buffer, from, end);
+			if (from < end && '#' == buffer.get(from)) { // comment line
+				return;
+			}
+			
+			// split at the commas, trailing empty fields are dropped like by String.split
+			lineStart_ = from;
+			lineEnd_ = end;
+			numberOfCommas_ = 0;
+			for (int i = from; i < end; i++) {
+				if (',' == buffer.get(i)) {
+					if (numberOfCommas_ == commas_.length) {
+						commas_ = Arrays.copyOf(commas_, 2 * commas_.length);
+					}
+					commas_[numberOfCommas_++] = i;
+				}
+			}
+			int fields = numberOfCommas_ + 1;
+			if (numberOfCommas_ > 0) {
+				while (fields > 0 && getFieldStart(fields - 1) == getFieldEnd(fields - 1)) {
+					fields--;
+				}
+			}
+			if (fields != 3 && fields != 4) {
+				addError("Unexpected line: " + toString(buffer, from, end) + "\nThree or four elements were expected.");
+				return;
+			}
+			
+			// retrieve capacity
+			double cap = parseNumber(buffer, getFieldStart(2), getFieldEnd(2));
+			if (cap < 0) {
+				addError("Unexpected negative capacity found in line: " + toString(buffer, from, end) + "\nArc won\'t be added.");
+				return;
+			}
+			if (!allowArcsWithZeroCapacity_) {
+				if (cap == 0.0) {
+					addError("Unexpected zero capacity found in line: " + toString(buffer, from, end) + "\nArc won\'t be added.");
+					return;
+				}
+			}
+			addLine(buffer, fields, cap, integer_);
+		}
+		
+		/**
+		 * Gets the first byte of a field of the current line.
+		 *
+		 * @param k the index of the field
+		 * @return the first byte
+		 */
+		protected int getFieldStart(int k) {
+			return (0 == k) ? lineStart_ : commas_[k - 1] + 1;
+		}
+		
+		/**
+		 * Gets the end of a field of the current line.
+		 *
+		 * @param k the index of the field
+		 * @return the end of the field (exclusive)
+		 */
+		protected int getFieldEnd(int k) {
+			return (k < numberOfCommas_) ? commas_[k] : lineEnd_;
+		}
+		
+		/**
+		 * Reads the trimmed vertex name of a field into {@link #name_}.
+		 *
+		 * @param buffer the window
+		 * @param k the index of the field
+		 * @return the length of the name
+		 */
+		protected int readName(MappedByteBuffer buffer, int k) {
+			int from = trimStart(buffer, getFieldStart(k), getFieldEnd(k));
+			int length = trimEnd(buffer, from, getFieldEnd(k)) - from;
+			if (length > name_.length) {
+				name_ = new byte[Math.max(length, 2 * name_.length)];
+			}
+			for (int i = 0; i < length; i++) {
+				name_[i] = buffer.get(from + i);
+			}
+			return length;
+		}
+		
+		/**
+		 * Gets the trimmed arc name of a line with four fields.
+		 *
+		 * @param buffer the window
+		 * @return the arc name
+		 */
+		protected String getArcName(MappedByteBuffer buffer) {
+			int nameStart = trimStart(buffer, getFieldStart(3), getFieldEnd(3));
+			return toString(buffer, nameStart, trimEnd(buffer, nameStart, getFieldEnd(3)));
+		}
+		
+		/**
+		 * Parses a number. Integers below 2^63 and decimal fractions with their
+		 * digits below 2^53 and at most 22 digits after the point are parsed by
+		 * hand, which gives the same double as {@link Double#parseDouble(String)}.
+		 * A nonnegative integer is also kept exactly in {@link #integer_}.
+		 *
+		 * @param buffer the window
+		 * @param from the first byte of the number
+		 * @param end the end of the number (exclusive)
+		 * @return the number
+		 */
+		private double parseNumber(MappedByteBuffer buffer, int from, int end) {
+			int first = trimStart(buffer, from, end);
+			int last = trimEnd(buffer, from, end);
+			int i = first;
+			boolean negative = false;
+			if (i < last && ('-' == buffer.get(i) || '+' == buffer.get(i))) {
+				negative = '-' == buffer.get(i);
+				i++;
+			}
+			integer_ = -1;
+			long mantissa = 0;
+			int digits = 0;
+			int scale = 0;
+			boolean point = false;
+			for (; i < last; i++) {
+				byte c = buffer.get(i);
+				if (c >= '0' && c <= '9') {
+					if (mantissa > (Long.MAX_VALUE - (c - '0')) / 10) {
+						break;
+					}
+					mantissa = 10 * mantissa + (c - '0');
+					digits++;
+					if (point) {
+						scale++;
+					}
+					if (point && mantissa > MAX_EXACT_INTEGER_) {
+						break;
+					}
+				} else if ('.' == c && !point) {
+					point = true;
+				} else {
+					break;
+				}
+			}
+			if (i < last || 0 == digits || scale >= POWERS_OF_TEN_.length) {
+				// exponents, suffixes, long numbers and malformed input
+				return Double.parseDouble(toString(buffer, first, last));
+			}
+			if (!point && !negative) {
+				integer_ = mantissa;
+			}
+			double value = (0 == scale) ? (double) mantissa : mantissa / POWERS_OF_TEN_[scale];
+			return negative ? -value : value;
+		}
+		
+		/**
+		 * Decodes the bytes to a string.
+		 *
+		 * @param buffer the window
+		 * @param from the first byte
+		 * @param end the end (exclusive)
+		 * @return the string
+		 */
+		protected String toString(MappedByteBuffer buffer, int from, int end) {
+			return MappedFileParser.toString(buffer, from, end, charset_);
+		}
+	}
+	
+	/**
+	 * The Class SequentialParser.
+	 *
+	 * Adds the arcs of the lines to the graph at once.
+	 */
+	private class SequentialParser extends LineParser {
+		
+		/**
+		 * Instantiates a new sequential parser.
+		 */
+		public SequentialParser() {
+			super(charset_, allowArcsWithZeroCapacity_);
+		}
+		
+		protected void addLine(MappedByteBuffer buffer, int fields, double cap, long longCap) {
+			int u = getVertex(name_, readName(buffer, 0));
+			int v = getVertex(name_, readName(buffer, 1));
+			addArc(u, v, cap, longCap, (4 == fields) ? getArcName(buffer) : null);
+		}
+		
+		protected void addError(String message) {
+			Log.e(message);
+		}
+	}
+	
+	/**
+	 * The Class ChunkParser.
+	 *
+	 * Records the lines of a chunk: the ids of the vertex names in the
+	 * dictionary of the chunk, the capacity and the arc name of every valid
+	 * line and the message of every malformed line.
+	 */
+	private static class ChunkParser extends LineParser {
+		
+		/** The vertex names of the chunk. */
+		private VertexDictionary names_;
+		
+		private int numberOfLines_;
+		
+		private int[] tails_;
+		
+		private int[] heads_;
+		
+		private double[] capacities_;
+		
+		/** The exact capacities of integer fields, -1 for other numbers. */
+		private long[] longCapacities_;
+		
+		/** The arc names, null as long as all arcs are unnamed. */
+		private String[] arcNames_;
+		
+		/** The error messages, null as long as all lines are valid. */
+		private String[] messages_;
+		
+		/** The malformed number the chunk stopped at, null if it was parsed completely. */
+		private NumberFormatException failure_;
+		
+		/**
+		 * Instantiates a new chunk parser.
+		 *
+		 * @param expectedNames the expected number of vertex names
+		 * @param charset the charset of the file
+		 * @param allowArcsWithZeroCapacity the allow arcs with zero capacity
+		 */
+		public ChunkParser(int expectedNames, Charset charset, boolean allowArcsWithZeroCapacity) {
+			super(charset, allowArcsWithZeroCapacity);
+			names_ = new VertexDictionary(expectedNames);
+			numberOfLines_ = 0;
+			tails_ = new int[16];
+			heads_ = new int[16];
+			capacities_ = new double[16];
+			longCapacities_ = new long[16];
+		}
+		
+		protected void addLine(MappedByteBuffer buffer, int fields, double cap, long longCap) {
+			int k = addRecord();
+			tails_[k] = addName(buffer, 0);
+			heads_[k] = addName(buffer, 1);
+			capacities_[k] = cap;
+			longCapacities_[k] = longCap;
+			if (4 == fields) {
+				if (null == arcNames_) {
+					arcNames_ = new String[tails_.length];
+				}
+				arcNames_[k] = getArcName(buffer);
+			}
+		}
+		
+		protected void addError(String message) {
+			int k = addRecord();
+			if (null == messages_) {
+				messages_ = new String[tails_.length];
+			}
+			messages_[k] = message;
+		}
+		
+		/**
+		 * Adds a record for the next line.
+		 *
+		 * @return the index of the record
+		 */
+		private int addRecord() {
+			if (numberOfLines_ == tails_.length) {
+				int size = 2 * tails_.length;
+				tails_ = Arrays.copyOf(tails_, size);
+				heads_ = Arrays.copyOf(heads_, size);
+				capacities_ = Arrays.copyOf(capacities_, size);
+				longCapacities_ = Arrays.copyOf(longCapacities_, size);
+				if (null != arcNames_) {
+					arcNames_ = Arrays.copyOf(arcNames_, size);
+				}
+				if (null != messages_) {
+					messages_ = Arrays.copyOf(messages_, size);
+				}
+			}
+			return numberOfLines_++;
+		}
+		
+		/**
+		 * Adds the vertex name of a field to the dictionary of the chunk.
+		 *
+		 * @param buffer the window
+		 * @param k the index of the field
+		 * @return the id of the name
+		 */
+		private int addName(MappedByteBuffer buffer, int k) {
+			int length = readName(buffer, k);
+			return names_.add(name_, 0, length, VertexDictionary.hash(name_, 0, length));
+		}
+	}
+	
+	/**
+	 * The Class Chunk.
+	 *
+	 * Parses a chunk of whole lines.
+	 */
+	private static class Chunk extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private ChunkParser parser_;
+		
+		private MappedByteBuffer buffer_;
+		
+		/**
+		 * Instantiates a new chunk.
+		 *
+		 * @param parser the parser
+		 * @param buffer the mapped bytes of the chunk
+		 */
+		public Chunk(ChunkParser parser, MappedByteBuffer buffer) {
+			parser_ = parser;
+			buffer_ = buffer;
+		}
+		
+		@Override
+		protected void compute() {
+			try {
+				parser_.parseLines(buffer_, buffer_.limit(), true);
+			} catch (NumberFormatException e) {
+				parser_.failure_ = e;
+			}
+			buffer_ = null;
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package model.tool.maxflow;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * The Interface MaxFlowSolver.
+ *
+ * A maximum flow algorithm on a {@link Graph} with a fixed source and sink.
+ * Call sites use this type, so the algorithm can be exchanged, see
+ * {@link MaxFlowSolvers}.
+ */
+public interface MaxFlowSolver {
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @return the flow
+	 */
+	HashMap<Arc, Double> computeMaxFlow();
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @param timeLimit the time limit in milliseconds, negative for no limit
+	 * @return the flow
+	 */
+	HashMap<Arc, Double> computeMaxFlow(int timeLimit);
+	
+	/**
+	 * Time limit reached.
+	 *
+	 * @return true, if the last computation was stopped by the time limit
+	 */
+	boolean timeLimitReached();
+	
+	/**
+	 * Gets the flow.
+	 *
+	 * @return the flow
+	 */
+	HashMap<Arc, Double> getFlow();
+	
+	/**
+	 * Gets the max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	double getMaxFlowValue();
+	
+	/**
+	 * Gets the vertices on the source side of the minimum cut, i.e. all
+	 * vertices which cannot reach the sink in the residual graph.
+	 *
+	 * @return the cut set close to source
+	 */
+	HashSet<String> getCutSetCloseToSource();
+	
+	/**
+	 * Gets the arcs of the minimum cut.
+	 *
+	 * @return the cut
+	 */
+	Collection<Arc> getCut();
+
+}
@@ -0,0 +1,259 @@
+package model.tool.maxflow;
+
+import util.Log;
+
+/**
+ * The Class MaxFlowSolvers.
+ *
+ * Creates the {@link MaxFlowSolver} of an algorithm given by its name, so the
+ * algorithm can be chosen at run time, e.g. from the command line, or
+ * chooses the algorithm from the {@link GraphStatistics} of the input.
+ */
+public class MaxFlowSolvers {
+	
+	/** The name of the automatic choice of the algorithm. */
+	public static final String AUTO = "auto";
+	
+	/** The name of the highest label push-relabel algorithm on the graph objects. */
+	public static final String HIGHEST_LABEL = "hl";
+	
+	/** The name of the fifo push-relabel algorithm on the graph objects. */
+	public static final String FIFO = "fifo";
+	
+	/** The name of the push-relabel algorithm on a csr graph. */
+	public static final String ARRAY = "array";
+	
+	/** The name of the push-relabel algorithm with integral capacities. */
+	public static final String LONG = "long";
+	
+	/** The name of the parallel push-relabel algorithm. */
+	public static final String PARALLEL = "parallel";
+	
+	/** The name of Dinic's algorithm. */
+	public static final String DINIC = "dinic";
+	
+	/** The name of the Boykov-Kolmogorov algorithm. */
+	public static final String BOYKOV_KOLMOGOROV = "bk";
+	
+	/** The name of the pseudoflow algorithm. */
+	public static final String PSEUDOFLOW = "hpf";
+	
+	/** The name of the excess scaling push-relabel algorithm. */
+	public static final String EXCESS_SCALING = "scaling";
+	
+	/** The number of arcs from which the parallel engine pays off. */
+	private static final int PARALLEL_MIN_ARCS_ = 4000000;
+	
+	/** The number of arcs per worker of the parallel engine at least. */
+	private static final int PARALLEL_ARCS_PER_WORKER_ = 1000000;
+	
+	/** The capacity ratio from which the capacities count as widely spread. */
+	private static final double WIDE_CAPACITY_RANGE_ = 1 << 20;
+	
+	/** The integers up to this value are exact in doubles. */
+	private static final double EXACT_DOUBLE_INTEGER_ = 1L << 53;
+	
+	/**
+	 * Gets the names of all algorithms.
+	 *
+	 * @return the names
+	 */
+	public static String[] getNames() {
+		return new String[] { HIGHEST_LABEL, FIFO, ARRAY, LONG, PARALLEL, DINIC, BOYKOV_KOLMOGOROV, PSEUDOFLOW, EXCESS_SCALING, AUTO };
+	}
+	
+	/**
+	 * Creates the solver of the algorithm.
+	 *
+	 * @param name the name of the algorithm
+	 * @param graph the graph
+	 * @param s the source
+	 * @param t the sink
+	 * @return the solver, or null if the name is unknown
+	 */
+	public static MaxFlowSolver create(String name, Graph graph, Vertex s, Vertex t) {
+		if (HIGHEST_LABEL.equals(name)) {
+			return new PushRelabelAlgo(graph, s, t);
+		} else if (FIFO.equals(name)) {
+			return new PushRelabelFifoAlgo(graph, s, t);
+		} else if (ARRAY.equals(name)) {
+			return new PushRelabelArrayAlgo(graph, s, t);
+		} else if (LONG.equals(name)) {
+			return new PushRelabelLongAlgo(graph, s, t);
+		} else if (PARALLEL.equals(name)) {
+			return new PushRelabelParallelAlgo(graph, s, t);
+		} else if (DINIC.equals(name)) {
+			return new DinicAlgo(graph, s, t);
+		} else if (BOYKOV_KOLMOGOROV.equals(name)) {
+			return new BoykovKolmogorovAlgo(graph, s, t);
+		} else if (PSEUDOFLOW.equals(name)) {
+			return new PseudoflowAlgo(graph, s, t);
+		} else if (EXCESS_SCALING.equals(name)) {
+			return new ExcessScalingAlgo(graph, s, t);
+		}
+		if (AUTO.equals(name)) {
+			return auto(graph, s, t);
+		}
+		Log.e("Unknown max flow algorithm " + name + ".");
+		return null;
+	}
+	
+	/**
+	 * Creates the solver of the algorithm which suits the graph best.
+	 *
+	 * @param graph the graph
+	 * @param s the source
+	 * @param t the sink
+	 * @return the solver
+	 */
+	public static MaxFlowSolver auto(Graph graph, Vertex s, Vertex t) {
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		GraphStatistics statistics = new GraphStatistics(network,
+				network.getVertexIndex(s.getName()), network.getVertexIndex(t.getName()));
+		String name = choose(statistics);
+		Log.p("Statistics: " + statistics);
+		Log.p("Chosen max flow algorithm: " + name);
+		MaxFlowSolver solver = create(name, graph, s, t);
+		if (solver instanceof PushRelabelParallelAlgo) {
+			limitWorkers((PushRelabelParallelAlgo) solver, statistics);
+		}
+		return solver;
+	}
+	
+	/**
+	 * Checks if the algorithm runs on the graph objects only, i.e. if it
+	 * cannot be used by {@link #computeArcFlows(String, FlowNetwork, int, int, int)}.
+	 *
+	 * @param name the name of the algorithm
+	 * @return true, if the algorithm needs a graph
+	 */
+	public static boolean needsGraph(String name) {
+		return HIGHEST_LABEL.equals(name) || FIFO.equals(name);
+	}
+	
+	/**
+	 * Computes the max flow of a flow network with the algorithm. The
+	 * vertices and arcs are only referred to by their indices, no graph
+	 * objects and no names are created.
+	 *
+	 * @param name the name of the algorithm
+	 * @param network the flow network
+	 * @param s the source
+	 * @param t the sink
+	 * @param timeLimit the time limit in milliseconds, -1 for none
+	 * @return the flow on each input arc, or null if the algorithm is unknown or needs a graph
+	 */
+	public static double[] computeArcFlows(String name, FlowNetwork network, int s, int t, int timeLimit) {
+		if (ARRAY.equals(name)) {
+			return new PushRelabelArrayAlgo(network, s, t).computeArcFlows(timeLimit);
+		} else if (LONG.equals(name)) {
+			return toDoubles(new PushRelabelLongAlgo(network, s, t).computeArcFlows(timeLimit));
+		} else if (PARALLEL.equals(name)) {
+			return new PushRelabelParallelAlgo(network, s, t).computeArcFlows(timeLimit);
+		} else if (DINIC.equals(name)) {
+			return new DinicAlgo(network, s, t).computeArcFlows(timeLimit);
+		} else if (BOYKOV_KOLMOGOROV.equals(name)) {
+			return new BoykovKolmogorovAlgo(network, s, t).computeArcFlows(timeLimit);
+		} else if (PSEUDOFLOW.equals(name)) {
+			return new PseudoflowAlgo(network, s, t).computeArcFlows(timeLimit);
+		} else if (EXCESS_SCALING.equals(name)) {
+			return toDoubles(new ExcessScalingAlgo(network, s, t).computeArcFlows(timeLimit));
+		}
+		if (AUTO.equals(name)) {
+			GraphStatistics statistics = new GraphStatistics(network, s, t);
+			String chosen = choose(statistics);
+			Log.p("Statistics: " + statistics);
+			Log.p("Chosen max flow algorithm: " + chosen);
+			if (PARALLEL.equals(chosen)) {
+				PushRelabelParallelAlgo parallel = new PushRelabelParallelAlgo(network, s, t);
+				limitWorkers(parallel, statistics);
+				return parallel.computeArcFlows(timeLimit);
+			}
+			return computeArcFlows(chosen, network, s, t, timeLimit);
+		}
+		if (needsGraph(name)) {
+			Log.e("Max flow algorithm " + name + " needs a graph.");
+		} else {
+			Log.e("Unknown max flow algorithm " + name + ".");
+		}
+		return null;
+	}
+	
+	/**
+	 * Limits the number of workers of the parallel engine to the size of the graph.
+	 *
+	 * @param parallel the parallel engine
+	 * @param statistics the statistics of the graph
+	 */
+	private static void limitWorkers(PushRelabelParallelAlgo parallel, GraphStatistics statistics) {
+		int workers = Math.max(1, statistics.getNumberOfArcs() / PARALLEL_ARCS_PER_WORKER_);
+		parallel.setNumberOfWorkers(Math.min(workers, parallel.getNumberOfWorkers()));
+	}
+	
+	/**
+	 * Converts integral arc flows.
+	 *
+	 * @param flows the integral flows
+	 * @return the flows as doubles
+	 */
+	private static double[] toDoubles(long[] flows) {
+		double[] result = new double[flows.length];
+		for (int e = 0; e < flows.length; e++) {
+			result[e] = flows[e];
+		}
+		return result;
+	}
+	
+	/**
+	 * Chooses the algorithm for a graph with the given statistics. The rules
+	 * follow timings of the engines on grids, matching networks and random
+	 * sparse graphs with narrow and wide capacity ranges. The engines on the
+	 * graph objects are never the fastest, so they are not chosen.
+	 *
+	 * Grids take the Boykov-Kolmogorov algorithm: on 256x256 to 1024x1024
+	 * segmentation grids with smooth terminal capacities it took 60 to 250
+	 * ms, the pseudoflow algorithm 75 to 340 ms and the long engine 110 to
+	 * 470 ms, as the search trees are reused from one augmentation to the next.
+	 *
+	 * Integral capacities are computed exactly: wide ranges take the excess
+	 * scaling engine, and apart from the structures for which Dinic's
+	 * algorithm and the Boykov-Kolmogorov algorithm are much faster, the
+	 * others take the long engine. Those two run on doubles, which is exact
+	 * as well, since all their flows, residual capacities and excesses are
+	 * then integers of at most the total capacity, and doubles hold the
+	 * integers up to 2^53 exactly. Above that total only the long engines
+	 * are chosen.
+	 *
+	 * @param statistics the statistics of the graph
+	 * @return the name of the algorithm
+	 */
+	public static String choose(GraphStatistics statistics) {
+		boolean integral = statistics.hasIntegralCapacities();
+		boolean wide = statistics.getCapacityRange() >= WIDE_CAPACITY_RANGE_;
+		// wide integral ranges or integers beyond the double precision
+		if (integral && (wide || statistics.getTotalCapacity() >= EXACT_DOUBLE_INTEGER_)) {
+			return wide ? EXCESS_SCALING : LONG;
+		}
+		// short augmenting paths, Dinic runs in O(m sqrt(n)) here
+		if (statistics.hasUnitCapacities() || statistics.isBipartite()) {
+			return DINIC;
+		}
+		// many short augmenting paths, the search trees are reused for all of them
+		if (statistics.isGridLike()) {
+			return BOYKOV_KOLMOGOROV;
+		}
+		// exact long arithmetic for all other narrow integral ranges
+		if (integral) {
+			return LONG;
+		}
+		if (wide) {
+			return PSEUDOFLOW;
+		}
+		if (statistics.getNumberOfArcs() >= PARALLEL_MIN_ARCS_
+				&& Runtime.getRuntime().availableProcessors() > 1) {
+			return PARALLEL;
+		}
+		return ARRAY;
+	}
+
+}
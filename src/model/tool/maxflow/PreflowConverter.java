@@ -0,0 +1,351 @@
+package model.tool.maxflow;
+
+/**
+ * The Class PreflowConverter.
+ *
+ * Turns a maximum preflow on a {@link FlowNetwork} into a maximum flow of the
+ * same value. The flow is given by the residual capacities, the flow on a
+ * residual arc being its capacity minus its residual capacity. First all
+ * flow cycles are cancelled by a depth first search, which also yields a
+ * topological order of the remaining flow. Then the excess of every vertex
+ * is returned to its predecessors in reverse topological order, so it ends
+ * up at the source. Both steps take O(nm) time in the worst case and are
+ * usually much faster than discharging the excess by push and relabel.
+ * Integral preflows are given by long arrays and converted exactly.
+ *
+ * A pseudoflow, where vertices may also have a deficit, is converted the
+ * same way. Before the excess is returned, the deficits are passed on along
+ * the outgoing flow in topological order, so they end up at the sink.
+ */
+public class PreflowConverter {
+	
+	private static final int WHITE_ = 0;
+	
+	private static final int GREY_ = 1;
+	
+	private static final int BLACK_ = 2;
+	
+	private FlowNetwork network_;
+	
+	private double[] residual_;
+	
+	private double[] excess_;
+	
+	private long[] longResidual_;
+	
+	private long[] longExcess_;
+	
+	private int source_;
+	
+	private int sink_;
+	
+	/** The terminals if there are several sources or sinks, otherwise null. */
+	private boolean[] terminals_;
+	
+	/**
+	 * Instantiates a new preflow converter. The residual capacities and the
+	 * excesses are changed in place.
+	 *
+	 * @param network the csr graph
+	 * @param residual the residual capacity of each residual arc
+	 * @param excess the excess of each vertex
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public PreflowConverter(FlowNetwork network, double[] residual, double[] excess, int s, int t) {
+		network_ = network;
+		residual_ = residual;
+		excess_ = excess;
+		source_ = s;
+		sink_ = t;
+	}
+	
+	/**
+	 * Instantiates a new preflow converter for an integral preflow. The
+	 * residual capacities and the excesses are changed in place.
+	 *
+	 * @param network the csr graph
+	 * @param residual the residual capacity of each residual arc
+	 * @param excess the excess of each vertex
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public PreflowConverter(FlowNetwork network, long[] residual, long[] excess, int s, int t) {
+		network_ = network;
+		longResidual_ = residual;
+		longExcess_ = excess;
+		source_ = s;
+		sink_ = t;
+	}
+	
+	/**
+	 * Instantiates a new preflow converter for several sources and sinks. The
+	 * flow is not passed through the terminals, and the excess of every other
+	 * vertex is returned to the vertices its flow comes from.
+	 *
+	 * @param network the csr graph
+	 * @param residual the residual capacity of each residual arc
+	 * @param excess the excess of each vertex
+	 * @param terminals true for each terminal
+	 */
+	public PreflowConverter(FlowNetwork network, double[] residual, double[] excess, boolean[] terminals) {
+		network_ = network;
+		residual_ = residual;
+		excess_ = excess;
+		source_ = -1;
+		sink_ = -1;
+		terminals_ = terminals;
+	}
+	
+	/**
+	 * Converts the preflow into a flow.
+	 */
+	public void convert() {
+		int[] order = cancelCyclesAndSort();
+		for (int i = order.length - 1; i >= 0; i--) {
+			int v = order[i];
+			if (null != longExcess_) {
+				if (longExcess_[v] < 0) {
+					passLongDeficit(v);
+				}
+			} else if (excess_[v] < 0.0) {
+				passDeficit(v);
+			}
+		}
+		for (int i = 0; i < order.length; i++) {
+			int v = order[i];
+			if (null != longExcess_) {
+				if (longExcess_[v] > 0) {
+					returnLongExcess(v);
+				}
+			} else if (excess_[v] > 0.0) {
+				returnExcess(v);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the flow on the residual arc.
+	 *
+	 * @param uv the residual arc uv
+	 * @return the flow, negative if the flow goes from v to u
+	 */
+	private double getFlow(int uv) {
+		return network_.getCapacity(uv) - residual_[uv];
+	}
+	
+	/**
+	 * Gets the flow on the residual arc of an integral preflow.
+	 *
+	 * @param uv the residual arc uv
+	 * @return the flow, negative if the flow goes from v to u
+	 */
+	private long getLongFlow(int uv) {
+		long cap = network_.hasIntegralCapacities() ? network_.getLongCapacity(uv) : (long) network_.getCapacity(uv);
+		return cap - longResidual_[uv];
+	}
+	
+	/**
+	 * Checks if there is flow on the residual arc.
+	 *
+	 * @param uv the residual arc uv
+	 * @return true, if there is flow from u to v
+	 */
+	private boolean hasFlow(int uv) {
+		if (null != longResidual_) {
+			return getLongFlow(uv) > 0;
+		}
+		return getFlow(uv) > 0.0;
+	}
+	
+	/**
+	 * Checks if the vertex is a source or a sink.
+	 *
+	 * @param v the v
+	 * @return true, if v is a terminal
+	 */
+	private boolean isTerminal(int v) {
+		if (null != terminals_) {
+			return terminals_[v];
+		}
+		return v == source_ || v == sink_;
+	}
+	
+	/**
+	 * Cancels all flow cycles between the non-terminal vertices.
+	 *
+	 * @return the vertices in the order the search finished them, i.e. each
+	 * vertex comes after all vertices its flow goes to
+	 */
+	private int[] cancelCyclesAndSort() {
+		int n = network_.getNumberOfVertices();
+		int[] colors = new int[n];
+		int[] currentArcs = new int[n];
+		int[] parentArcs = new int[n];
+		int[] stack = new int[n];
+		int[] stackPositions = new int[n];
+		int[] order = new int[n];
+		int orderSize = 0;
+		for (int r = 0; r < n; r++) {
+			if (WHITE_ != colors[r] || isTerminal(r)) {
+				continue;
+			}
+			int top = 0;
+			stack[top] = r;
+			stackPositions[r] = top;
+			colors[r] = GREY_;
+			currentArcs[r] = network_.getFirstResidualArc(r);
+			while (top >= 0) {
+				int u = stack[top];
+				int uv = currentArcs[u];
+				if (uv == network_.getEndResidualArc(u)) {
+					// all successors are done
+					colors[u] = BLACK_;
+					order[orderSize++] = u;
+					top--;
+					continue;
+				}
+				int v = network_.getHead(uv);
+				if (!hasFlow(uv) || isTerminal(v) || BLACK_ == colors[v]) {
+					currentArcs[u]++;
+				} else if (WHITE_ == colors[v]) {
+					parentArcs[v] = uv;
+					stack[++top] = v;
+					stackPositions[v] = top;
+					colors[v] = GREY_;
+					currentArcs[v] = network_.getFirstResidualArc(v);
+				} else {
+					top = cancelCycle(uv, stack, stackPositions, parentArcs, colors, top);
+				}
+			}
+		}
+		int[] result = new int[orderSize];
+		System.arraycopy(order, 0, result, 0, orderSize);
+		return result;
+	}
+	
+	/**
+	 * Cancels the cycle closed by the arc uv, whose head v is on the stack.
+	 * The search continues at the first vertex of the cycle whose arc on the
+	 * cycle has no flow left, all vertices above it are searched again later.
+	 *
+	 * @param uv the residual arc uv closing the cycle
+	 * @param stack the search stack
+	 * @param stackPositions the position of each grey vertex on the stack
+	 * @param parentArcs the arc each grey vertex was reached by
+	 * @param colors the colors
+	 * @param top the top of the stack, i.e. the position of u
+	 * @return the new top of the stack
+	 */
+	private int cancelCycle(int uv, int[] stack, int[] stackPositions, int[] parentArcs, int[] colors, int top) {
+		int first = stackPositions[network_.getHead(uv)];
+		if (null != longResidual_) {
+			long delta = getLongFlow(uv);
+			for (int i = first + 1; i <= top; i++) {
+				delta = Math.min(delta, getLongFlow(parentArcs[stack[i]]));
+			}
+			for (int i = first; i <= top; i++) {
+				int a = (i < top) ? parentArcs[stack[i + 1]] : uv;
+				longResidual_[a] += delta;
+				longResidual_[network_.getReverse(a)] -= delta;
+			}
+		} else {
+			double delta = getFlow(uv);
+			for (int i = first + 1; i <= top; i++) {
+				delta = Math.min(delta, getFlow(parentArcs[stack[i]]));
+			}
+			for (int i = first; i <= top; i++) {
+				int a = (i < top) ? parentArcs[stack[i + 1]] : uv;
+				residual_[a] += delta;
+				residual_[network_.getReverse(a)] -= delta;
+			}
+		}
+		for (int i = first; i <= top; i++) {
+			int a = (i < top) ? parentArcs[stack[i + 1]] : uv;
+			if (!hasFlow(a)) {
+				for (int j = i + 1; j <= top; j++) {
+					colors[stack[j]] = WHITE_;
+				}
+				return i;
+			}
+		}
+		return top;
+	}
+	
+	/**
+	 * Returns the excess of the vertex along the arcs its flow comes from.
+	 *
+	 * @param v the v
+	 */
+	private void returnExcess(int v) {
+		int end = network_.getEndResidualArc(v);
+		for (int vu = network_.getFirstResidualArc(v); vu < end && excess_[v] > 0.0; vu++) {
+			double inflow = -getFlow(vu);
+			if (inflow > 0.0) {
+				double delta = Math.min(excess_[v], inflow);
+				residual_[vu] -= delta;
+				residual_[network_.getReverse(vu)] += delta;
+				excess_[v] -= delta;
+				excess_[network_.getHead(vu)] += delta;
+			}
+		}
+	}
+	
+	/**
+	 * Passes the deficit of the vertex on along the arcs its flow goes to.
+	 *
+	 * @param v the v
+	 */
+	private void passDeficit(int v) {
+		int end = network_.getEndResidualArc(v);
+		for (int vu = network_.getFirstResidualArc(v); vu < end && excess_[v] < 0.0; vu++) {
+			double outflow = getFlow(vu);
+			if (outflow > 0.0) {
+				double delta = Math.min(-excess_[v], outflow);
+				residual_[vu] += delta;
+				residual_[network_.getReverse(vu)] -= delta;
+				excess_[v] += delta;
+				excess_[network_.getHead(vu)] -= delta;
+			}
+		}
+	}
+	
+	/**
+	 * Passes the deficit of the vertex on along the arcs its flow goes to.
+	 *
+	 * @param v the v
+	 */
+	private void passLongDeficit(int v) {
+		int end = network_.getEndResidualArc(v);
+		for (int vu = network_.getFirstResidualArc(v); vu < end && longExcess_[v] < 0; vu++) {
+			long outflow = getLongFlow(vu);
+			if (outflow > 0) {
+				long delta = Math.min(-longExcess_[v], outflow);
+				longResidual_[vu] += delta;
+				longResidual_[network_.getReverse(vu)] -= delta;
+				longExcess_[v] += delta;
+				longExcess_[network_.getHead(vu)] -= delta;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the excess of the vertex along the arcs its flow comes from.
+	 *
+	 * @param v the v
+	 */
+	private void returnLongExcess(int v) {
+		int end = network_.getEndResidualArc(v);
+		for (int vu = network_.getFirstResidualArc(v); vu < end && longExcess_[v] > 0; vu++) {
+			long inflow = -getLongFlow(vu);
+			if (inflow > 0) {
+				long delta = Math.min(longExcess_[v], inflow);
+				longResidual_[vu] -= delta;
+				longResidual_[network_.getReverse(vu)] += delta;
+				longExcess_[v] -= delta;
+				longExcess_[network_.getHead(vu)] += delta;
+			}
+		}
+	}
+
+}
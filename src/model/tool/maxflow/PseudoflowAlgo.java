@@ -0,0 +1,625 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import util.Log;
+
+/**
+ * The Class PseudoflowAlgo.
+ *
+ * Hochbaum's pseudoflow algorithm (HPF) on a {@link FlowNetwork}, lowest label
+ * variant. All arcs leaving the source and entering the sink are saturated
+ * first, which leaves excess and deficits at the other vertices. These form
+ * a normalized forest: every tree carries all its excess or deficit at the
+ * root, trees with excess are strong and trees with deficit are weak.
+ *
+ * The strong root with the lowest label is processed. If a vertex of its
+ * tree with the same label has a residual arc to a weak vertex, whose label
+ * is then one less, the strong tree is rerooted at that vertex and merged
+ * into the weak tree, and the excess is pushed along the path to the weak
+ * root. Arcs which cannot take all excess split the path into new strong
+ * trees. Otherwise the vertices of the tree with the lowest label are
+ * relabeled. Once no vertex has the label just below the lowest strong
+ * label, the vertices at and above it are the source side of a minimum cut.
+ * The pseudoflow is turned into a maximum flow by a {@link PreflowConverter}
+ * when the flow is requested.
+ */
+public class PseudoflowAlgo implements MaxFlowSolver {
+	
+	/** The missing vertex or arc. */
+	private static final int NONE_ = -1;
+	
+	/** The label of the source and the sink, which are not in the forest. */
+	private static final int TERMINAL_LABEL_ = -2;
+	
+	/** The number of processed roots between two checks of the time limit. */
+	private static final int TIME_CHECK_INTERVAL_ = 256;
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	private int source_;
+	
+	private int sink_;
+	
+	private double[] residual_;
+	
+	private double[] excess_;
+	
+	private int[] labels_;
+	
+	/** The number of vertices with each label. */
+	private int[] labelCounts_;
+	
+	/** The strong roots by label. */
+	private VertexBuckets strongRoots_;
+	
+	/** A lower bound of the lowest label of a strong root. */
+	private int lowestStrongLabel_;
+	
+	private int[] parents_;
+	
+	/** The residual arc from each vertex to its parent, which the excess is pushed along. */
+	private int[] parentArcs_;
+	
+	private int[] firstChildren_;
+	
+	private int[] nextSiblings_;
+	
+	private int[] previousSiblings_;
+	
+	/** The next child each vertex on the search stack continues at. */
+	private int[] nextChildren_;
+	
+	private int[] currentArcs_;
+	
+	private int[] stack_;
+	
+	/** The lowest label of the source side of the minimum cut. */
+	private int cutLabel_;
+	
+	private double minCutValue_;
+	
+	private int numberOfMergers_;
+	
+	private boolean timeLimitReached_;
+	
+	/** True as long as only a pseudoflow for the min cut has been computed. */
+	private boolean pseudoflowOnly_;
+	
+	/**
+	 * Instantiates a new pseudoflow algo.
+	 *
+	 * @param graph the graph
+	 * @param s the s
+	 * @param t the t
+	 */
+	public PseudoflowAlgo(Graph graph, Vertex s, Vertex t) {
+		graph_ = graph;
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		initialize(network, network.getVertexIndex(s.getName()), network.getVertexIndex(t.getName()));
+	}
+	
+	/**
+	 * Instantiates a new pseudoflow algo.
+	 *
+	 * @param graph the flow network
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public PseudoflowAlgo(FlowNetwork graph, int s, int t) {
+		graph_ = null;
+		initialize(graph, s, t);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow() {
+		return computeMaxFlow(-1);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
+		computeArcFlows(timeLimit);
+		if (null == graph_) {
+			return null;
+		}
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the max flow on the input arcs.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow on each input arc
+	 */
+	public double[] computeArcFlows(int timeLimit) {
+		computeMinCut(timeLimit);
+		return getArcFlows();
+	}
+	
+	/**
+	 * Compute the min cut only, i.e. the first phase of the algorithm. The
+	 * max flow value and the cut are available afterwards, the flow is
+	 * completed when it is requested.
+	 *
+	 * @return the max flow value
+	 */
+	public double computeMinCut() {
+		return computeMinCut(-1);
+	}
+	
+	/**
+	 * Compute the min cut only, i.e. the first phase of the algorithm. The
+	 * max flow value and the cut are available afterwards, the flow is
+	 * completed when it is requested.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the max flow value
+	 */
+	public double computeMinCut(int timeLimit) {
+		long deadline = (timeLimit >= 0) ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		timeLimitReached_ = false;
+		int processedRoots = 0;
+		int root = getLowestStrongRoot();
+		while (NONE_ != root) {
+			processRoot(root);
+			processedRoots++;
+			if (0 == processedRoots % TIME_CHECK_INTERVAL_ && System.currentTimeMillis() > deadline) {
+				Log.w("Time limit reached.");
+				timeLimitReached_ = true;
+				clearFlow();
+				return getMaxFlowValue();
+			}
+			root = getLowestStrongRoot();
+		}
+		pseudoflowOnly_ = true;
+		minCutValue_ = computeCutCapacity();
+		Log.ps("%d mergers", numberOfMergers_);
+		return getMaxFlowValue();
+	}
+	
+	/**
+	 * Time limit reached.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean timeLimitReached() {
+		return timeLimitReached_;
+	}
+	
+	/**
+	 * Gets the number of mergers of a strong tree into a weak tree.
+	 *
+	 * @return the number of mergers
+	 */
+	public int getNumberOfMergers() {
+		return numberOfMergers_;
+	}
+	
+	/**
+	 * Gets the flow.
+	 *
+	 * @return the flow
+	 */
+	public HashMap<Arc, Double> getFlow() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getArcFlows() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.createFlowMap(graph_, network_, getArcFlows());
+	}
+	
+	/**
+	 * Gets the flow on each input arc of the csr graph.
+	 *
+	 * @return the arc flows
+	 */
+	public double[] getArcFlows() {
+		if (pseudoflowOnly_) {
+			// return the excess to the source and the deficits to the sink
+			new PreflowConverter(network_, residual_, excess_, source_, sink_).convert();
+			pseudoflowOnly_ = false;
+		}
+		int m = network_.getNumberOfArcs();
+		double[] flow = new double[m];
+		for (int e = 0; e < m; e++) {
+			int uv = network_.getResidualArc(e);
+			flow[e] = GraphUtil.getArcFlow(network_.getCapacity(uv), residual_[uv]);
+		}
+		return flow;
+	}
+	
+	/**
+	 * Gets the vertices on the source side of the minimum cut. Once the flow
+	 * is complete these are all vertices which cannot reach the sink in the
+	 * residual graph, before that the cut found by the first phase.
+	 *
+	 * @return true for each vertex on the source side
+	 */
+	public boolean[] getSourceSide() {
+		int n = network_.getNumberOfVertices();
+		boolean[] sourceSide = new boolean[n];
+		if (pseudoflowOnly_) {
+			for (int v = 0; v < n; v++) {
+				sourceSide[v] = labels_[v] >= cutLabel_;
+			}
+			sourceSide[source_] = true;
+			return sourceSide;
+		}
+		boolean[] reachesSink = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = sink_;
+		reachesSink[sink_] = true;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (!reachesSink[u] && residual_[network_.getReverse(vu)] > 0.0) {
+					reachesSink[u] = true;
+					queue[tail++] = u;
+				}
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			sourceSide[v] = !reachesSink[v];
+		}
+		return sourceSide;
+	}
+	
+	/**
+	 * Gets the cut set close to source.
+	 *
+	 * @return the cut set close to source
+	 */
+	public HashSet<String> getCutSetCloseToSource() {
+		return GraphUtil.getVertexNames(network_, getSourceSide());
+	}
+	
+	/**
+	 * Gets the cut.
+	 *
+	 * @return the cut
+	 */
+	public Collection<Arc> getCut() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getSourceSide() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.getOutgoingArcs(graph_, getCutSetCloseToSource());
+	}
+	
+	/**
+	 * Gets the max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public double getMaxFlowValue() {
+		if (pseudoflowOnly_) {
+			return minCutValue_;
+		}
+		return excess_[sink_];
+	}
+	
+	private void initialize(FlowNetwork network, int s, int t) {
+		network_ = network;
+		source_ = s;
+		sink_ = t;
+		int n = network.getNumberOfVertices();
+		int mm = network.getNumberOfResidualArcs();
+		residual_ = new double[mm];
+		excess_ = new double[n];
+		labels_ = new int[n];
+		labelCounts_ = new int[n + 2];
+		strongRoots_ = new VertexBuckets(n, n + 2);
+		parents_ = new int[n];
+		parentArcs_ = new int[n];
+		firstChildren_ = new int[n];
+		nextSiblings_ = new int[n];
+		previousSiblings_ = new int[n];
+		nextChildren_ = new int[n];
+		currentArcs_ = new int[n];
+		stack_ = new int[n];
+		numberOfMergers_ = 0;
+		clearFlow();
+	}
+	
+	/**
+	 * Saturates all arcs leaving the source and entering the sink and makes
+	 * every other vertex a tree of its own.
+	 */
+	private void clearFlow() {
+		for (int a = 0; a < residual_.length; a++) {
+			residual_[a] = network_.getCapacity(a);
+		}
+		Arrays.fill(excess_, 0.0);
+		for (int sv = network_.getFirstResidualArc(source_); sv < network_.getEndResidualArc(source_); sv++) {
+			saturate(sv);
+		}
+		for (int tu = network_.getFirstResidualArc(sink_); tu < network_.getEndResidualArc(sink_); tu++) {
+			saturate(network_.getReverse(tu));
+		}
+		
+		Arrays.fill(labelCounts_, 0);
+		strongRoots_.clear();
+		lowestStrongLabel_ = 0;
+		pseudoflowOnly_ = false;
+		minCutValue_ = 0.0;
+		for (int v = 0; v < labels_.length; v++) {
+			parents_[v] = NONE_;
+			parentArcs_[v] = NONE_;
+			firstChildren_[v] = NONE_;
+			currentArcs_[v] = network_.getFirstResidualArc(v);
+			if (v == source_ || v == sink_) {
+				labels_[v] = TERMINAL_LABEL_;
+			} else if (excess_[v] > 0.0) {
+				labels_[v] = 1;
+				labelCounts_[1]++;
+				strongRoots_.add(v, 1);
+			} else {
+				labels_[v] = 0;
+				labelCounts_[0]++;
+			}
+		}
+	}
+	
+	/**
+	 * Saturates the residual arc.
+	 *
+	 * @param uv the residual arc uv
+	 */
+	private void saturate(int uv) {
+		double delta = residual_[uv];
+		if (delta > 0.0) {
+			int u = network_.getHead(network_.getReverse(uv));
+			int v = network_.getHead(uv);
+			residual_[uv] = 0.0;
+			residual_[network_.getReverse(uv)] += delta;
+			excess_[u] -= delta;
+			excess_[v] += delta;
+		}
+	}
+	
+	/**
+	 * Gets the strong root with the lowest label and removes it from the
+	 * strong roots.
+	 *
+	 * @return the strong root, or -1 if no strong root can be merged anymore
+	 */
+	private int getLowestStrongRoot() {
+		cutLabel_ = labelCounts_.length;
+		if (strongRoots_.isEmpty()) {
+			return NONE_;
+		}
+		while (strongRoots_.isEmpty(lowestStrongLabel_)) {
+			lowestStrongLabel_++;
+		}
+		if (lowestStrongLabel_ > 0 && 0 == labelCounts_[lowestStrongLabel_ - 1]) {
+			// gap, no weak vertex can be reached from a strong vertex anymore
+			cutLabel_ = lowestStrongLabel_;
+			return NONE_;
+		}
+		return strongRoots_.pollFirst(lowestStrongLabel_);
+	}
+	
+	/**
+	 * Adds the root to the strong roots.
+	 *
+	 * @param r the root
+	 */
+	private void addStrongRoot(int r) {
+		strongRoots_.add(r, labels_[r]);
+		if (lowestStrongLabel_ > labels_[r]) {
+			lowestStrongLabel_ = labels_[r];
+		}
+	}
+	
+	/**
+	 * Processes the strong root. The vertices of its tree with its label are
+	 * searched depth first for a merger arc. A vertex is relabeled once its
+	 * children with the same label have been relabeled, so the labels never
+	 * decrease from a root to the leaves.
+	 *
+	 * @param r the strong root
+	 */
+	private void processRoot(int r) {
+		int label = labels_[r];
+		int ra = findMergerArc(r);
+		if (NONE_ != ra) {
+			merge(r, ra, r);
+			return;
+		}
+		int top = 0;
+		stack_[top] = r;
+		nextChildren_[r] = firstChildren_[r];
+		while (top >= 0) {
+			int u = stack_[top];
+			int c = nextChildren_[u];
+			while (NONE_ != c && labels_[c] != label) {
+				c = nextSiblings_[c];
+			}
+			if (NONE_ == c) {
+				relabel(u);
+				top--;
+				continue;
+			}
+			nextChildren_[u] = nextSiblings_[c];
+			int ca = findMergerArc(c);
+			if (NONE_ != ca) {
+				merge(c, ca, r);
+				return;
+			}
+			stack_[++top] = c;
+			nextChildren_[c] = firstChildren_[c];
+		}
+		addStrongRoot(r);
+	}
+	
+	/**
+	 * Finds a residual arc from the vertex to a weak vertex, i.e. to a vertex
+	 * with a label one less, starting at the current arc of the vertex.
+	 *
+	 * @param u the vertex u
+	 * @return the residual arc, or -1 if there is none
+	 */
+	private int findMergerArc(int u) {
+		int weakLabel = labels_[u] - 1;
+		int end = network_.getEndResidualArc(u);
+		for (int uv = currentArcs_[u]; uv < end; uv++) {
+			if (residual_[uv] > 0.0 && labels_[network_.getHead(uv)] == weakLabel) {
+				currentArcs_[u] = uv;
+				return uv;
+			}
+		}
+		currentArcs_[u] = end;
+		return NONE_;
+	}
+	
+	/**
+	 * Relabel.
+	 *
+	 * @param u the vertex u
+	 */
+	private void relabel(int u) {
+		labelCounts_[labels_[u]]--;
+		labels_[u]++;
+		if (labels_[u] >= labelCounts_.length) {
+			labelCounts_ = Arrays.copyOf(labelCounts_, 2 * labelCounts_.length);
+		}
+		labelCounts_[labels_[u]]++;
+		currentArcs_[u] = network_.getFirstResidualArc(u);
+	}
+	
+	/**
+	 * Merges the strong tree of the root into the weak tree of the head of the
+	 * merger arc, then pushes the excess of the root towards the weak root.
+	 *
+	 * @param u the strong vertex of the merger arc
+	 * @param uv the merger arc
+	 * @param r the strong root
+	 */
+	private void merge(int u, int uv, int r) {
+		numberOfMergers_++;
+		// reroot the strong tree at u by reversing the path from u to r
+		int newParent = network_.getHead(uv);
+		int newParentArc = uv;
+		int x = u;
+		while (NONE_ != x) {
+			int p = parents_[x];
+			int pa = parentArcs_[x];
+			if (NONE_ != p) {
+				removeChild(p, x);
+			}
+			addChild(newParent, x, newParentArc);
+			newParent = x;
+			newParentArc = (NONE_ == pa) ? NONE_ : network_.getReverse(pa);
+			x = p;
+		}
+		pushExcess(r);
+	}
+	
+	/**
+	 * Pushes the excess of the vertex along the path to its root. An arc
+	 * which cannot take all excess is saturated and cut off, so its tail
+	 * becomes a strong root.
+	 *
+	 * @param r the vertex
+	 */
+	private void pushExcess(int r) {
+		int x = r;
+		while (NONE_ != parents_[x]) {
+			double e = excess_[x];
+			if (e <= 0.0) {
+				return;
+			}
+			int p = parents_[x];
+			int a = parentArcs_[x];
+			double delta = Math.min(e, residual_[a]);
+			residual_[a] -= delta;
+			residual_[network_.getReverse(a)] += delta;
+			excess_[x] -= delta;
+			excess_[p] += delta;
+			if (e > delta) {
+				// split, x keeps the rest of the excess
+				removeChild(p, x);
+				addStrongRoot(x);
+			}
+			x = p;
+		}
+		if (excess_[x] > 0.0) {
+			addStrongRoot(x);
+		}
+	}
+	
+	/**
+	 * Adds the child to the children of the parent.
+	 *
+	 * @param p the parent
+	 * @param c the child
+	 * @param cp the residual arc from the child to the parent
+	 */
+	private void addChild(int p, int c, int cp) {
+		parents_[c] = p;
+		parentArcs_[c] = cp;
+		previousSiblings_[c] = NONE_;
+		nextSiblings_[c] = firstChildren_[p];
+		if (NONE_ != firstChildren_[p]) {
+			previousSiblings_[firstChildren_[p]] = c;
+		}
+		firstChildren_[p] = c;
+	}
+	
+	/**
+	 * Removes the child from the children of the parent, so it becomes a root.
+	 *
+	 * @param p the parent
+	 * @param c the child
+	 */
+	private void removeChild(int p, int c) {
+		int previous = previousSiblings_[c];
+		int next = nextSiblings_[c];
+		if (NONE_ == previous) {
+			firstChildren_[p] = next;
+		} else {
+			nextSiblings_[previous] = next;
+		}
+		if (NONE_ != next) {
+			previousSiblings_[next] = previous;
+		}
+		parents_[c] = NONE_;
+		parentArcs_[c] = NONE_;
+	}
+	
+	/**
+	 * Computes the capacity of the cut given by the source side.
+	 *
+	 * @return the cut capacity
+	 */
+	private double computeCutCapacity() {
+		boolean[] sourceSide = getSourceSide();
+		double capacity = 0.0;
+		for (int e = 0; e < network_.getNumberOfArcs(); e++) {
+			int uv = network_.getResidualArc(e);
+			int u = network_.getHead(network_.getReverse(uv));
+			if (sourceSide[u] && !sourceSide[network_.getHead(uv)]) {
+				capacity += network_.getCapacity(uv);
+			}
+		}
+		return capacity;
+	}
+
+}
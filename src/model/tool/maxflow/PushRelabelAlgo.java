@@ -1,18 +1,27 @@
 package model.tool.maxflow;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Vector;
 
 import util.Log;
 import util.Timer;
 
-public class PushRelabelAlgo {
+public class PushRelabelAlgo implements MaxFlowSolver {
 	
 	private static final String RES_ = "RESIDUAL_";
 	
+	/** The default of the global relabel frequency alpha. */
+	public static final double DEFAULT_GLOBAL_RELABEL_FREQUENCY = 6.0;
+	
+	/** The work of a relabel in addition to the scanned arcs. */
+	private static final int RELABEL_WORK_ = 12;
+	
+	/** The rounding leftover relative to the initial excess of the source that may be dropped. */
+	private static final double EPSILON_ = 1e-9;
+	
 	private Graph graph_;
 	
 	private Graph residualGraph_;
@@ -27,16 +36,50 @@ public class PushRelabelAlgo {
 	
 	private HashMap<Vertex, Integer> distances_;
 	
-	private HashMap<Integer, LinkedList<Vertex>> activeVertices_;
+	private VertexBuckets activeVertices_;
+	
+	private Vertex[] verticesById_;
+	
+	/** The outgoing residual arcs of each vertex, indexed by the vertex id. */
+	private Arc[][] outgoingArcs_;
+	
+	/** The position of the current arc of each vertex in its outgoing arcs. */
+	private int[] currentArcs_;
 	
-	private int largestDistance_;
+	/** The arcs scanned plus the relabel work since the last global relabel. */
+	private long workSinceUpdate_;
 	
-	private int numberOfRelabelings_;
+	private double globalRelabelFrequency_;
 	
-	private HashMap<Integer, HashSet<Vertex>> verticesCategorizedByDistances_;
+	private int numberOfGlobalRelabels_;
+	
+	/** The time spent in global relabels in nanoseconds. */
+	private long globalRelabelTime_;
+	
+	/** The vertices with a distance label below n, in buckets by label. */
+	private VertexBuckets verticesCategorizedByDistances_;
 	
 	private boolean timeLimitReached_;
 	
+	/** The largest excess that is dropped as a rounding leftover. */
+	private double excessTolerance_;
+	
+	/** Only vertices with a smaller distance label are active. */
+	private int distanceLimit_;
+	
+	/** True as long as only a preflow for the min cut has been computed. */
+	private boolean preflowOnly_;
+	
+	/** The vertices whose excess was changed by capacity updates. */
+	private Vector<Vertex> updatedVertices_;
+	
+	/** False if a capacity update opened a residual arc against the distance labels. */
+	private boolean validLabels_;
+	
+	/** False if the labels of at least n may not give the cut yet. */
+	private boolean exactLabels_;
+	
+	
 	/**
 	 * Instantiates a new push relabel algo.
 	 *
@@ -48,6 +91,18 @@ public class PushRelabelAlgo {
 		initialize(graph, s, t);
 	}
 	
+	/**
+	 * Instantiates a new push relabel algo on the graph object created from the csr graph.
+	 *
+	 * @param graph the csr graph
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public PushRelabelAlgo(CsrGraph graph, int s, int t) {
+		Graph g = graph.toGraph();
+		initialize(g, g.getVertex(graph.getVertexName(s)), g.getVertex(graph.getVertexName(t)));
+	}
+	
 	/**
 	 * Compute max flow.
 	 *
@@ -64,10 +119,56 @@ public class PushRelabelAlgo {
 	 * @return the hash map
 	 */
 	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
-		String timer = Timer.startNewTimer();
 		timeLimitReached_ = false;
 		printResidualGraph();
+		distanceLimit_ = Integer.MAX_VALUE;
+		processActiveVertices(timeLimit);
+		preflowOnly_ = false;
+		Log.ps("%d global relabels in %d ms", numberOfGlobalRelabels_, getGlobalRelabelTime());
 		
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the min cut only. Vertices which cannot reach the sink keep
+	 * their excess, so the max flow value and the cut are available
+	 * afterwards and the flow is completed when it is requested.
+	 *
+	 * @return the max flow value
+	 */
+	public double computeMinCut() {
+		return computeMinCut(-1);
+	}
+	
+	/**
+	 * Compute the min cut only. Vertices which cannot reach the sink keep
+	 * their excess, so the max flow value and the cut are available
+	 * afterwards and the flow is completed when it is requested.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the max flow value
+	 */
+	public double computeMinCut(int timeLimit) {
+		timeLimitReached_ = false;
+		printResidualGraph();
+		distanceLimit_ = residualGraph_.getNumberOfVertices();
+		preflowOnly_ = processActiveVertices(timeLimit);
+		if (preflowOnly_) {
+			// exact labels, so that the labels of at least n give the cut
+			globalRelabelingDistances();
+		}
+		Log.ps("%d global relabels in %d ms", numberOfGlobalRelabels_, getGlobalRelabelTime());
+		return getMaxFlowValue();
+	}
+	
+	/**
+	 * Discharges active vertices until none is left.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return false, if the time limit was reached
+	 */
+	private boolean processActiveVertices(int timeLimit) {
+		String timer = Timer.startNewTimer();
 		while(!noMoreActiveVertexAvailable()) {
 			Vertex v = retrieveActiveVertex();
 			discharge(v);
@@ -77,16 +178,16 @@ public class PushRelabelAlgo {
 			Log.p("");
 			if (timeLimit >= 0) {
 				if (Timer.getTime(timer) > timeLimit) {
-					preflow_ = new HashMap<String, Double>();
+					clearFlow();
 					Log.w("Time limit reached.");
 					timeLimitReached_ = true;
 					Timer.removeTimer(timer);
-					break;
+					return false;
 				}
 			}
 		}
-		
-		return getFlow();
+		Timer.removeTimer(timer);
+		return true;
 	}
 	
 	/**
@@ -98,12 +199,65 @@ public class PushRelabelAlgo {
 		return timeLimitReached_;
 	}
 	
+	/**
+	 * Sets the global relabel frequency alpha. A global relabel is started
+	 * once the arcs scanned plus a constant per relabel since the last one
+	 * exceed alpha * n + m.
+	 *
+	 * @param frequency the global relabel frequency
+	 */
+	public void setGlobalRelabelFrequency(double frequency) {
+		if (frequency < 0.0) {
+			Log.w("Negative global relabel frequency " + frequency + " is ignored.");
+			return;
+		}
+		globalRelabelFrequency_ = frequency;
+	}
+	
+	/**
+	 * Gets the global relabel frequency.
+	 *
+	 * @return the global relabel frequency
+	 */
+	public double getGlobalRelabelFrequency() {
+		return globalRelabelFrequency_;
+	}
+	
+	/**
+	 * Gets the number of global relabels.
+	 *
+	 * @return the number of global relabels
+	 */
+	public int getNumberOfGlobalRelabels() {
+		return numberOfGlobalRelabels_;
+	}
+	
+	/**
+	 * Gets the time spent in global relabels.
+	 *
+	 * @return the global relabel time in milliseconds
+	 */
+	public long getGlobalRelabelTime() {
+		return globalRelabelTime_ / 1000000;
+	}
+	
 	/**
 	 * Gets the flow.
 	 *
 	 * @return the flow
 	 */
 	public HashMap<Arc, Double> getFlow() {
+		if (preflowOnly_) {
+			// return the remaining excess to the source
+			distanceLimit_ = Integer.MAX_VALUE;
+			for (Vertex v : residualGraph_.getAllVertices()) {
+				if (vertexIsActive(v)) {
+					addToActiveVerticesList(v);
+				}
+			}
+			processActiveVertices(-1);
+			preflowOnly_ = false;
+		}
 		HashMap<Arc, Double> flow = new HashMap<Arc, Double>();
 		for (Arc arc : graph_.getAllArcs()) {
 			String a = arc.getName();
@@ -130,6 +284,11 @@ public class PushRelabelAlgo {
 			Log.w("Cannot get cut. Please call the method to compute max flow first.");
 			return null;
 		}
+		if (!exactLabels_) {
+			// only a resolve left the labels inexact
+			globalRelabelingDistances();
+			exactLabels_ = true;
+		}
 		for (Vertex v : distances_.keySet()) {
 			if (distances_.get(v) >= n) {
 				set.add(v.getName());
@@ -153,18 +312,202 @@ public class PushRelabelAlgo {
 	 * @return the max flow value
 	 */
 	public double getMaxFlowValue() {
+		if (preflowOnly_) {
+			return excess_.get(sink_);
+		}
 		double f = 0.0;
-		for (Arc a : graph_.getVertex(source_.getName()).getOutgoingArcs()) {
-			f += preflow_.get(a.getName());
+		Vertex s = graph_.getVertex(source_.getName());
+		for (Arc a : s.getOutgoingArcs()) {
+			f += getPreflow(a.getName());
+		}
+		// flow may return to the source over its ingoing arcs
+		for (Arc a : s.getIngoingArcs()) {
+			f -= getPreflow(a.getName());
 		}
 		return f;
 	}
 	
+	/**
+	 * Changes the capacity of an arc after a computation, to be followed by
+	 * {@link #resolve()}. The arc of the graph gets the new capacity as well.
+	 * If the flow on the arc exceeds the new capacity, it is reduced to the
+	 * capacity and the difference becomes excess of the tail and deficit of
+	 * the head.
+	 *
+	 * @param arcId the id of the arc in the graph
+	 * @param capacity the new capacity
+	 */
+	public void updateCapacity(int arcId, double capacity) {
+		Arc a = graph_.getArc(arcId);
+		if (null == a) {
+			Log.e("No arc with id " + arcId + " in graph " + graph_.getName() + ".");
+			return;
+		}
+		if (capacity < 0.0) {
+			Log.e("Negative capacity " + capacity + " of arc " + a.getName() + ".");
+			return;
+		}
+		Arc uv = residualGraph_.getArc(a.getName());
+		if (null == uv) {
+			// arcs without capacity are not in the residual graph yet
+			uv = addResidualArcs(a);
+		}
+		Arc vu = residualGraph_.getArc(getResidualName(a.getName()));
+		Vertex u = uv.getStartVertex();
+		Vertex v = uv.getEndVertex();
+		if (u.equals(source_)) {
+			// keep the excess of the source above the potential flow value
+			excess_.put(source_, excess_.get(source_) + Math.max(0.0, capacity - a.getCapacity()));
+		}
+		a.setCapacity(capacity);
+		double flow = preflow_.get(uv.getName());
+		uv.setCapacity(capacity - flow);
+		if (flow > capacity) {
+			double delta = flow - capacity;
+			addToPreflow(uv, -delta);
+			addToPreflow(vu, delta);
+			excess_.put(u, excess_.get(u) + delta);
+			excess_.put(v, excess_.get(v) - delta);
+		} else if (capacity > flow && distances_.get(u) > distances_.get(v) + 1) {
+			if (u.equals(source_)) {
+				// the source has excess for every arc, so the arc is saturated
+				double delta = capacity - flow;
+				addToPreflow(uv, delta);
+				addToPreflow(vu, -delta);
+				excess_.put(u, excess_.get(u) - delta);
+				excess_.put(v, excess_.get(v) + delta);
+			} else {
+				validLabels_ = false;
+			}
+		}
+		updatedVertices_.add(u);
+		updatedVertices_.add(v);
+	}
+	
+	/**
+	 * Resolve after capacity updates, continuing from the previous flow.
+	 * Deficits are passed along the flow towards the sink, which touches
+	 * only the flow paths through the updated arcs. Pushing then starts from
+	 * the vertices whose excess was changed, so the work grows with the
+	 * change and not with the graph. Only if an update opened a residual arc
+	 * from a vertex more than one label above its head, the labels are
+	 * recomputed by a global relabel and all vertices with excess are
+	 * pushed. An opened arc of the source is saturated instead. After
+	 * {@link #computeMinCut()} only the min cut is updated, otherwise the
+	 * flow.
+	 *
+	 * @return the max flow value
+	 */
+	public double resolve() {
+		return resolve(-1);
+	}
+	
+	/**
+	 * Resolve after capacity updates, see {@link #resolve()}.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the max flow value
+	 */
+	public double resolve(int timeLimit) {
+		timeLimitReached_ = false;
+		passDeficits();
+		if (validLabels_) {
+			for (Vertex v : updatedVertices_) {
+				if (vertexIsActive(v)) {
+					addToActiveVerticesList(v);
+				}
+			}
+		} else {
+			activeVertices_.clear();
+			verticesCategorizedByDistances_.clear();
+			setInitialDistances();
+			validLabels_ = true;
+			for (Vertex v : residualGraph_.getAllVertices()) {
+				if (vertexIsActive(v)) {
+					addToActiveVerticesList(v);
+				}
+			}
+		}
+		updatedVertices_.clear();
+		processActiveVertices(timeLimit);
+		// the labels of at least n give the cut after a global relabel on request
+		exactLabels_ = false;
+		Log.ps("%d global relabels in %d ms", numberOfGlobalRelabels_, getGlobalRelabelTime());
+		return getMaxFlowValue();
+	}
+	
+	/**
+	 * Adds the residual arc of the arc and its reverse arc without capacity.
+	 *
+	 * @param a the arc of the graph
+	 * @return the residual arc
+	 */
+	private Arc addResidualArcs(Arc a) {
+		Vertex u = residualGraph_.getVertex(a.getStartVertex().getName());
+		Vertex v = residualGraph_.getVertex(a.getEndVertex().getName());
+		Arc uv = new Arc(a.getName(), u, v);
+		uv.setId(a.getId());
+		uv.setCapacity(0.0);
+		residualGraph_.addArc(uv);
+		Arc vu = new Arc(getResidualName(a.getName()), v, u);
+		vu.setCapacity(0.0);
+		residualGraph_.addArc(vu);
+		preflow_.put(uv.getName(), 0.0);
+		preflow_.put(vu.getName(), 0.0);
+		outgoingArcs_[u.getId()] = u.getOutgoingArcs().toArray(new Arc[0]);
+		outgoingArcs_[v.getId()] = v.getOutgoingArcs().toArray(new Arc[0]);
+		return uv;
+	}
+	
+	/**
+	 * Passes the deficits of the updated vertices along the arcs with flow
+	 * until they reach the sink or the source, so that no vertex has a
+	 * negative excess. The vertices passed are added to the updated ones.
+	 */
+	private void passDeficits() {
+		Vector<Vertex> stack = new Vector<Vertex>(updatedVertices_);
+		while (!stack.isEmpty()) {
+			Vertex x = stack.remove(stack.size() - 1);
+			if (x.equals(source_) || x.equals(sink_)) {
+				continue;
+			}
+			Arc[] arcs = outgoingArcs_[x.getId()];
+			for (int i = 0; i < arcs.length && excess_.get(x) < 0.0; i++) {
+				Arc xy = arcs[i];
+				double flow = preflow_.get(xy.getName());
+				if (flow <= 0.0) {
+					continue;
+				}
+				double delta = Math.min(-excess_.get(x), flow);
+				Vertex y = xy.getEndVertex();
+				addToPreflow(xy, -delta);
+				addToPreflow(residualGraph_.getArc(getResidualName(xy.getName())), delta);
+				excess_.put(x, excess_.get(x) + delta);
+				excess_.put(y, excess_.get(y) - delta);
+				updatedVertices_.add(y);
+				if (distances_.get(x) > distances_.get(y) + 1) {
+					validLabels_ = false;
+				}
+				if (excess_.get(y) < 0.0) {
+					stack.add(y);
+				}
+			}
+		}
+	}
+	
 	private void initialize(Graph graph, Vertex s, Vertex t) {
 		graph_ = graph;
 		residualGraph_ = graph.createResidualGraph(getResidualName(graph.getName()));
 		source_ = residualGraph_.getVertex(s.getName());
 		sink_ = residualGraph_.getVertex(t.getName());
+		// every residual arc gets its reverse arc from the beginning,
+		// arcs without residual capacity stay in the residual graph
+		Vector<Arc> arcs = new Vector<Arc>(residualGraph_.getAllArcs());
+		for (Arc uv : arcs) {
+			Arc vu = new Arc(getResidualName(uv.getName()), uv.getEndVertex(), uv.getStartVertex());
+			vu.setCapacity(0.0);
+			residualGraph_.addArc(vu);
+		}
 		// zero preflow
 		preflow_ = new HashMap<String, Double>();
 		for (Arc a : residualGraph_.getAllArcs()) {
@@ -182,13 +525,34 @@ public class PushRelabelAlgo {
 			excess_.put(source_, excess_.get(source_) + sv.getCapacity());
 		}
 		excess_.put(source_, excess_.get(source_) + 1);
+		excessTolerance_ = EPSILON_ * excess_.get(source_);
+		// active vertices are kept in buckets indexed by the vertex id
+		int maxId = 0;
+		for (Vertex v : residualGraph_.getAllVertices()) {
+			maxId = Math.max(maxId, v.getId());
+		}
+		verticesById_ = new Vertex[maxId + 1];
+		outgoingArcs_ = new Arc[maxId + 1][];
+		for (Vertex v : residualGraph_.getAllVertices()) {
+			verticesById_[v.getId()] = v;
+			outgoingArcs_[v.getId()] = v.getOutgoingArcs().toArray(new Arc[0]);
+		}
+		currentArcs_ = new int[maxId + 1];
+		int n = residualGraph_.getNumberOfVertices();
+		activeVertices_ = new VertexBuckets(maxId + 1, 2 * n + 1);
+		distanceLimit_ = Integer.MAX_VALUE;
+		preflowOnly_ = false;
 		// set distances
-		verticesCategorizedByDistances_ = new HashMap<Integer, HashSet<Vertex>>();
+		globalRelabelFrequency_ = DEFAULT_GLOBAL_RELABEL_FREQUENCY;
+		numberOfGlobalRelabels_ = 0;
+		globalRelabelTime_ = 0;
+		workSinceUpdate_ = 0;
+		verticesCategorizedByDistances_ = new VertexBuckets(maxId + 1, residualGraph_.getNumberOfVertices());
+		updatedVertices_ = new Vector<Vertex>();
+		validLabels_ = true;
+		exactLabels_ = true;
 		setInitialDistances();
-		activeVertices_ = new HashMap<Integer, LinkedList<Vertex>>();
-		largestDistance_ = 0;
 		addToActiveVerticesList(source_);
-		numberOfRelabelings_ = 0;
 	}
 	
 	/**
@@ -208,36 +572,47 @@ public class PushRelabelAlgo {
 	}
 	
 	private void updateDistanceLabel(Vertex v, int distance) {
-		int init = distances_.containsKey(v) ? distances_.get(v) : -1;
-		if (-1 != init) {
-			verticesCategorizedByDistances_.get(init).remove(v);
-		}
 		distances_.put(v, distance);
-		if (!verticesCategorizedByDistances_.containsKey(distance)) {
-			verticesCategorizedByDistances_.put(distance, new HashSet<Vertex>());
+		if (activeVertices_.contains(v.getId())) {
+			if (distance < distanceLimit_) {
+				activeVertices_.add(v.getId(), distance);
+			} else {
+				activeVertices_.remove(v.getId());
+			}
+		}
+		if (distance < residualGraph_.getNumberOfVertices()) {
+			verticesCategorizedByDistances_.add(v.getId(), distance);
+		} else {
+			verticesCategorizedByDistances_.remove(v.getId());
 		}
-		verticesCategorizedByDistances_.get(distance).add(v);
 	}
 	
 	/**
 	 * Global relabeling distances.
 	 */
 	private void globalRelabelingDistances() {
-		LinkedList<Vertex> queue = new LinkedList<Vertex>();
-		queue.add(sink_);
-		HashSet<Vertex> observed = new HashSet<Vertex>();
+		long start = System.nanoTime();
+		int[] queue = new int[verticesById_.length];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = sink_.getId();
+		boolean[] observed = new boolean[verticesById_.length];
+		observed[sink_.getId()] = true;
 		int n = residualGraph_.getNumberOfVertices();
-		while (!queue.isEmpty()) {
-			Vertex v = queue.pop();
+		while (head < tail) {
+			Vertex v = verticesById_[queue[head++]];
 			int dv = distances_.get(v);
-			observed.add(v);
 			for (Arc uv : v.getIngoingArcs()) {
+				if (uv.getCapacity() <= 0.0) {
+					continue;
+				}
 				Vertex u = uv.getStartVertex();
 				int du = dv + 1;
 				if (du > n) {
 					du = n;
 				}
-				if (!observed.contains(u)) {
+				if (!observed[u.getId()]) {
+					observed[u.getId()] = true;
 					boolean shouldAddToQueue = true;
 					if (distances_.containsKey(u)) {
 						if (distances_.get(u) >= n) {
@@ -245,38 +620,46 @@ public class PushRelabelAlgo {
 						}
 					}
 					if (shouldAddToQueue) {
-						queue.add(u);
+						queue[tail++] = u.getId();
 						updateDistanceLabel(u, du);
 					}
 				}
 			}
 		}
+		// vertices not reached cannot reach the sink anymore
+		for (Vertex v : residualGraph_.getAllVertices()) {
+			if (!observed[v.getId()] && distances_.containsKey(v) && distances_.get(v) < n) {
+				updateDistanceLabel(v, n);
+			}
+		}
+		// labels may have been raised, so the arcs must be scanned again
+		Arrays.fill(currentArcs_, 0);
+		workSinceUpdate_ = 0;
+		numberOfGlobalRelabels_++;
+		globalRelabelTime_ += System.nanoTime() - start;
 	}
 	
 	/**
-	 * Gap relabeling distances.
+	 * Gap relabeling distances. No vertex has the given label anymore, so
+	 * the vertices with a larger label below n cannot reach the sink and
+	 * are lifted to n.
+	 *
+	 * @param emptyDistance the label without vertices
 	 */
-	private void gapRelabelingDistances() {
+	private void gapRelabelingDistances(int emptyDistance) {
 		int n = residualGraph_.getNumberOfVertices();
-		int firstEmptySetIndex = 0;
-		for (int i = 1; i < n; i++) {
-			HashSet<Vertex> currentSet = verticesCategorizedByDistances_.get(i);
-			if (null == currentSet || currentSet.isEmpty()) {
-				firstEmptySetIndex = i;
-				break;
-			}
-		}
 		Vector<Vertex> notReachables = new Vector<Vertex>();
-		for (int j = firstEmptySetIndex; j < n; j++) {
-			HashSet<Vertex> currentSet = verticesCategorizedByDistances_.get(j);
-			if (null != currentSet && !currentSet.isEmpty()) {
-				for (Vertex u : currentSet) {
-					notReachables.add(u);
-				}
+		int largestDistance = verticesCategorizedByDistances_.getHighestLabel();
+		for (int d = emptyDistance + 1; d <= largestDistance; d++) {
+			int id = verticesCategorizedByDistances_.getFirst(d);
+			while (-1 != id) {
+				notReachables.add(verticesById_[id]);
+				id = verticesCategorizedByDistances_.getNext(id);
 			}
 		}
 		for (Vertex u : notReachables) {
 			updateDistanceLabel(u, n);
+			currentArcs_[u.getId()] = 0;
 		}
 	}
 	
@@ -286,13 +669,9 @@ public class PushRelabelAlgo {
 	 * @param v the v
 	 */
 	private void addToActiveVerticesList(Vertex v) {
-		Integer dv = distances_.get(v);
-		if (!activeVertices_.containsKey(dv)) {
-			activeVertices_.put(dv, new LinkedList<Vertex>());
-		}
-		activeVertices_.get(dv).add(v);
-		if (largestDistance_ < dv) {
-			largestDistance_ = dv;
+		int dv = distances_.get(v);
+		if (activeVertices_.getLabel(v.getId()) != dv) {
+			activeVertices_.add(v.getId(), dv);
 		}
 	}
 	
@@ -302,17 +681,7 @@ public class PushRelabelAlgo {
 	 * @return the vertex
 	 */
 	private Vertex retrieveActiveVertex() {
-		if (!activeVertices_.containsKey(largestDistance_)) {
-			Log.e("Cannot retrieve active vertex from the level " + largestDistance_);
-		}
-		Vertex v = activeVertices_.get(largestDistance_).pop();
-		if (activeVertices_.get(largestDistance_).isEmpty()) {
-			activeVertices_.remove(largestDistance_);
-		}
-		while (!activeVertices_.containsKey(largestDistance_) && largestDistance_ > 0) {
-			largestDistance_--;
-		}
-		return v;
+		return verticesById_[activeVertices_.pollHighest()];
 	}
 	
 	/**
@@ -335,16 +704,20 @@ public class PushRelabelAlgo {
 			return;
 		}
 		Log.p("Discharge vertex " + v.getName());
-		Vector<Arc> list = new Vector<Arc>();
-		list.addAll(v.getOutgoingArcs());
-		if (!list.isEmpty()) {
-			do {
-				Arc vw = list.remove(0);
-				if (arcIsAdmissible(vw)) {
-					push(vw);
-				}
-			} while (0.0 <= excess_.get(v) && !list.isEmpty());
+		// resume the scan at the current arc, which is kept as long as it
+		// is admissible and moves on once it is saturated or not admissible
+		Arc[] arcs = outgoingArcs_[v.getId()];
+		int i = currentArcs_[v.getId()];
+		while (i < arcs.length && vertexIsActive(v)) {
+			if (arcIsAdmissible(arcs[i])) {
+				push(arcs[i]);
+			}
+			if (vertexIsActive(v)) {
+				i++;
+			}
 		}
+		workSinceUpdate_ += i - currentArcs_[v.getId()];
+		currentArcs_[v.getId()] = i;
 		if (vertexIsActive(v)) {
 			relabel(v);
 		}
@@ -395,19 +768,7 @@ public class PushRelabelAlgo {
 		}
 		Log.ps("Push %.2f over arc %s", delta, uv.getName());
 		addToPreflow(uv, delta);
-		Arc vu = residualGraph_.getArc(getResidualName(uv.getName()));
-		if (null == vu) {
-			vu = new Arc(getResidualName(uv.getName()), v, u);
-			vu.setCapacity(delta);
-			residualGraph_.addArc(vu);
-			if (preflow_.containsKey(vu.getName())) {
-				preflow_.put(vu.getName(), preflow_.get(vu.getName()) - delta);
-			} else {
-				preflow_.put(vu.getName(), -delta);
-			}
-		} else {
-			addToPreflow(vu, -delta);
-		}
+		addToPreflow(residualGraph_.getArc(getResidualName(uv.getName())), -delta);
 		excess_.put(u, excess_.get(u) - delta);
 		excess_.put(v, excess_.get(v) + delta);
 		if (vertexIsActive(v)) {
@@ -415,6 +776,39 @@ public class PushRelabelAlgo {
 		}
 	}
 	
+	/**
+	 * Gets the preflow on the residual arc.
+	 *
+	 * @param name the name of the residual arc
+	 * @return the preflow, zero for an arc without preflow entry
+	 */
+	private double getPreflow(String name) {
+		Double f = preflow_.get(name);
+		return (null == f) ? 0.0 : f;
+	}
+	
+	/**
+	 * Resets the preflow to zero after the time limit was reached, like the
+	 * array engines do. The residual capacities and the excesses are those
+	 * before the first push again, and no vertex is active.
+	 */
+	private void clearFlow() {
+		for (Arc a : residualGraph_.getAllArcs()) {
+			double f = getPreflow(a.getName());
+			if (f > 0.0) {
+				Vertex u = a.getStartVertex();
+				Vertex v = a.getEndVertex();
+				excess_.put(u, excess_.get(u) + f);
+				excess_.put(v, excess_.get(v) - f);
+			}
+			a.setCapacity(a.getCapacity() + f);
+			preflow_.put(a.getName(), 0.0);
+		}
+		activeVertices_.clear();
+		// the arcs of the zero flow may be open against the labels
+		validLabels_ = false;
+	}
+	
 	/**
 	 * Adds to preflow.
 	 *
@@ -424,9 +818,6 @@ public class PushRelabelAlgo {
 	private void addToPreflow(Arc uv, double delta) {
 		preflow_.put(uv.getName(), preflow_.get(uv.getName()) + delta);
 		uv.setCapacity(uv.getCapacity() - delta);
-		if (0.0 == uv.getCapacity()) {
-			residualGraph_.removeArc(uv.getName());
-		}
 	}
 	
 	/**
@@ -439,31 +830,50 @@ public class PushRelabelAlgo {
 			Log.w("Non-active " + u + ". Unable to relabel!");
 			return;
 		}
-		for (Arc uv : u.getOutgoingArcs()) {
+		Arc[] arcs = outgoingArcs_[u.getId()];
+		for (Arc uv : arcs) {
 			if (arcIsAdmissible(uv)) {
 				Log.w("Found admissible outgoing arc " + uv + ". Unable to relabel!");
 				return;
 			}
 		}
+		int initialDistance = distances_.get(u);
 		int minDistance = Integer.MAX_VALUE;
-		for (Arc uv : u.getOutgoingArcs()) {
+		for (Arc uv : arcs) {
+			if (uv.getCapacity() <= 0.0) {
+				continue;
+			}
 			Vertex v = uv.getEndVertex();
 			int dv = distances_.get(v);
 			if (minDistance > dv) {
 				minDistance = dv;
 			}
 		}
-		if (minDistance < Integer.MAX_VALUE) {
+		if (minDistance < 2 * residualGraph_.getNumberOfVertices() - 1) {
 			updateDistanceLabel(u, minDistance + 1);
 		} else {
-			updateDistanceLabel(u, residualGraph_.getNumberOfVertices());
+			// labels never reach 2n, unless u is the source or a rounding
+			// leftover is stuck without a residual path back to the source. it
+			// is dropped instead of lowering the label of u. a larger excess is
+			// kept and u is put out of the active vertices with the label 2n
+			if (u.equals(source_) || excess_.get(u) <= excessTolerance_) {
+				excess_.put(u, 0.0);
+				updateDistanceLabel(u, Math.max(distances_.get(u), residualGraph_.getNumberOfVertices()));
+			} else {
+				Log.e("Excess " + excess_.get(u) + " of " + u + " has no residual arc left.");
+				updateDistanceLabel(u, 2 * residualGraph_.getNumberOfVertices());
+			}
 		}
+		currentArcs_[u.getId()] = 0;
 		Log.ps("Relabel node %s to level %d", u.getName(), distances_.get(u));
-		numberOfRelabelings_++;
-		if (numberOfRelabelings_ >= residualGraph_.getNumberOfVertices()) {
+		if (initialDistance < residualGraph_.getNumberOfVertices()
+				&& verticesCategorizedByDistances_.isEmpty(initialDistance)) {
+			gapRelabelingDistances(initialDistance);
+		}
+		workSinceUpdate_ += arcs.length + RELABEL_WORK_;
+		int n = residualGraph_.getNumberOfVertices();
+		if (workSinceUpdate_ >= globalRelabelFrequency_ * n + graph_.getNumberOfArcs()) {
 			globalRelabelingDistances();
-			gapRelabelingDistances();
-			numberOfRelabelings_ = 0;
 		}
 	}
 	
@@ -486,6 +896,9 @@ public class PushRelabelAlgo {
 				return false;
 			}
 		}
+		if (dv >= distanceLimit_ || dv >= 2 * residualGraph_.getNumberOfVertices()) {
+			return false;
+		}
 		if (excess_.get(v) <= 0.0) {
 			return false;
 		}
@@ -499,6 +912,9 @@ public class PushRelabelAlgo {
 	 * @return true, if successful
 	 */
 	private boolean arcIsAdmissible(Arc arc) {
+		if (arc.getCapacity() <= 0.0) {
+			return false;
+		}
 		Vertex u = arc.getStartVertex();
 		Vertex v = arc.getEndVertex();
 		boolean correctDistance = (distances_.get(u) >= distances_.get(v) + 1);
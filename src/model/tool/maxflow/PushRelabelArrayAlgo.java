@@ -0,0 +1,646 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import util.Log;
+
+/**
+ * The Class PushRelabelArrayAlgo.
+ *
+ * Highest-label push-relabel on a {@link FlowNetwork}. Residual capacities are
+ * kept in a flat array indexed by residual arc, so push and relabel do not
+ * allocate, hash or modify the graph.
+ *
+ * The algo first computes a maximum preflow, which already determines the
+ * max flow value and a minimum cut. The preflow is turned into a flow by a
+ * {@link PreflowConverter} only when the flow is requested.
+ *
+ * The algo also solves problems with several sources and sinks, each with an
+ * optional supply or demand, without a super source and super sink. A capped
+ * source starts with its supply as excess and is an ordinary vertex
+ * otherwise, an uncapped source saturates its arcs and keeps the label n. A
+ * sink keeps up to its demand of the excess it receives, the rest is pushed
+ * on like the excess of any vertex. The sinks which can still take flow are
+ * the targets of the global relabels and have the label 0.
+ */
+public class PushRelabelArrayAlgo implements MaxFlowSolver {
+	
+	/** The number of discharges between two checks of the time limit. */
+	private static final int TIME_CHECK_INTERVAL_ = 1024;
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	/** The sources, uncapped first. */
+	private int[] sources_;
+	
+	private int numberOfUncappedSources_;
+	
+	private int[] sinks_;
+	
+	/** The excess each vertex keeps, i.e. the demand of a sink and 0 otherwise. */
+	private double[] demands_;
+	
+	/** The uncapped sources and sinks, which the preflow converter skips. */
+	private boolean[] terminals_;
+	
+	private double[] residual_;
+	
+	private double[] excess_;
+	
+	private DistanceLabels labels_;
+	
+	/** The distance labels of labels_. */
+	private int[] distances_;
+	
+	/** The current arcs of labels_. */
+	private int[] currentArcs_;
+	
+	private boolean timeLimitReached_;
+	
+	/** True as long as only a preflow for the min cut has been computed. */
+	private boolean preflowOnly_;
+	
+	/**
+	 * Instantiates a new push relabel array algo.
+	 *
+	 * @param graph the graph
+	 * @param s the s
+	 * @param t the t
+	 */
+	public PushRelabelArrayAlgo(Graph graph, Vertex s, Vertex t) {
+		graph_ = graph;
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		initialize(network, network.getVertexIndex(s.getName()), network.getVertexIndex(t.getName()));
+	}
+	
+	/**
+	 * Instantiates a new push relabel array algo with several sources and
+	 * sinks.
+	 *
+	 * @param graph the graph
+	 * @param sources the sources
+	 * @param supplies the supply of each source, null or infinite for no cap
+	 * @param sinks the sinks
+	 * @param demands the demand of each sink, null or infinite for no cap
+	 */
+	public PushRelabelArrayAlgo(Graph graph, Vertex[] sources, double[] supplies, Vertex[] sinks, double[] demands) {
+		graph_ = graph;
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		initialize(network, getVertexIndices(network, sources), supplies, getVertexIndices(network, sinks), demands);
+	}
+	
+	/**
+	 * Instantiates a new push relabel array algo.
+	 *
+	 * @param graph the flow network
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public PushRelabelArrayAlgo(FlowNetwork graph, int s, int t) {
+		graph_ = null;
+		initialize(graph, s, t);
+	}
+	
+	/**
+	 * Instantiates a new push relabel array algo with several sources and
+	 * sinks.
+	 *
+	 * @param graph the flow network
+	 * @param sources the indices of the sources
+	 * @param supplies the supply of each source, null or infinite for no cap
+	 * @param sinks the indices of the sinks
+	 * @param demands the demand of each sink, null or infinite for no cap
+	 */
+	public PushRelabelArrayAlgo(FlowNetwork graph, int[] sources, double[] supplies, int[] sinks, double[] demands) {
+		graph_ = null;
+		initialize(graph, sources, supplies, sinks, demands);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow() {
+		return computeMaxFlow(-1);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
+		computeArcFlows(timeLimit);
+		if (null == graph_) {
+			return null;
+		}
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the max flow on the input arcs.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow on each input arc
+	 */
+	public double[] computeArcFlows(int timeLimit) {
+		computeMinCut(timeLimit);
+		return getArcFlows();
+	}
+	
+	/**
+	 * Compute the min cut only. The max flow value and the cut are available
+	 * afterwards, the flow is completed when it is requested.
+	 *
+	 * @return the max flow value
+	 */
+	public double computeMinCut() {
+		return computeMinCut(-1);
+	}
+	
+	/**
+	 * Compute the min cut only. The max flow value and the cut are available
+	 * afterwards, the flow is completed when it is requested.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the max flow value
+	 */
+	public double computeMinCut(int timeLimit) {
+		long deadline = (timeLimit >= 0) ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		timeLimitReached_ = false;
+		// move as much excess as possible to the sink
+		preflowOnly_ = processActiveVertices(deadline);
+		Log.ps("%d global relabels in %d ms", getNumberOfGlobalRelabels(), getGlobalRelabelTime());
+		return getMaxFlowValue();
+	}
+	
+	/**
+	 * Time limit reached.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean timeLimitReached() {
+		return timeLimitReached_;
+	}
+	
+	/**
+	 * Sets the global relabel frequency alpha. A global relabel is started
+	 * once the arcs scanned plus a constant per relabel since the last one
+	 * exceed alpha * n + m.
+	 *
+	 * @param frequency the global relabel frequency
+	 */
+	public void setGlobalRelabelFrequency(double frequency) {
+		if (frequency < 0.0) {
+			Log.w("Negative global relabel frequency " + frequency + " is ignored.");
+			return;
+		}
+		labels_.setGlobalRelabelFrequency(frequency);
+	}
+	
+	/**
+	 * Gets the global relabel frequency.
+	 *
+	 * @return the global relabel frequency
+	 */
+	public double getGlobalRelabelFrequency() {
+		return labels_.getGlobalRelabelFrequency();
+	}
+	
+	/**
+	 * Gets the number of global relabels.
+	 *
+	 * @return the number of global relabels
+	 */
+	public int getNumberOfGlobalRelabels() {
+		return labels_.getNumberOfGlobalRelabels();
+	}
+	
+	/**
+	 * Gets the time spent in global relabels.
+	 *
+	 * @return the global relabel time in milliseconds
+	 */
+	public long getGlobalRelabelTime() {
+		return labels_.getGlobalRelabelTime();
+	}
+	
+	/**
+	 * Gets the flow.
+	 *
+	 * @return the flow
+	 */
+	public HashMap<Arc, Double> getFlow() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getArcFlows() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.createFlowMap(graph_, network_, getArcFlows());
+	}
+	
+	/**
+	 * Gets the flow on each input arc of the csr graph.
+	 *
+	 * @return the arc flows
+	 */
+	public double[] getArcFlows() {
+		if (preflowOnly_) {
+			// return the remaining excess to the sources, but not what the sinks keep
+			double[] kept = new double[sinks_.length];
+			for (int i = 0; i < sinks_.length; i++) {
+				kept[i] = Math.min(excess_[sinks_[i]], demands_[sinks_[i]]);
+				excess_[sinks_[i]] -= kept[i];
+			}
+			new PreflowConverter(network_, residual_, excess_, terminals_).convert();
+			for (int i = 0; i < sinks_.length; i++) {
+				excess_[sinks_[i]] += kept[i];
+			}
+			preflowOnly_ = false;
+		}
+		int m = network_.getNumberOfArcs();
+		double[] flow = new double[m];
+		for (int e = 0; e < m; e++) {
+			int uv = network_.getResidualArc(e);
+			flow[e] = GraphUtil.getArcFlow(network_.getCapacity(uv), residual_[uv]);
+		}
+		return flow;
+	}
+	
+	/**
+	 * Gets the vertices on the source side of the minimum cut, i.e. all
+	 * vertices which cannot reach a sink with open demand in the residual
+	 * graph.
+	 *
+	 * @return true for each vertex on the source side
+	 */
+	public boolean[] getSourceSide() {
+		int n = network_.getNumberOfVertices();
+		boolean[] reachesSink = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		for (int t : getOpenSinks()) {
+			queue[tail++] = t;
+			reachesSink[t] = true;
+		}
+		while (head < tail) {
+			int v = queue[head++];
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (!reachesSink[u] && residual_[network_.getReverse(vu)] > 0.0) {
+					reachesSink[u] = true;
+					queue[tail++] = u;
+				}
+			}
+		}
+		boolean[] sourceSide = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			sourceSide[v] = !reachesSink[v];
+		}
+		return sourceSide;
+	}
+	
+	/**
+	 * Gets the cut set close to source.
+	 *
+	 * @return the cut set close to source
+	 */
+	public HashSet<String> getCutSetCloseToSource() {
+		return GraphUtil.getVertexNames(network_, getSourceSide());
+	}
+	
+	/**
+	 * Gets the cut.
+	 *
+	 * @return the cut
+	 */
+	public Collection<Arc> getCut() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getSourceSide() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.getOutgoingArcs(graph_, getCutSetCloseToSource());
+	}
+	
+	/**
+	 * Gets the max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public double getMaxFlowValue() {
+		double value = 0.0;
+		for (int t : sinks_) {
+			value += Math.min(excess_[t], demands_[t]);
+		}
+		return value;
+	}
+	
+	/**
+	 * Gets the flow each sink receives.
+	 *
+	 * @return the flow into each vertex, 0 for all vertices but the sinks
+	 */
+	public double[] getSinkFlows() {
+		double[] flows = new double[network_.getNumberOfVertices()];
+		for (int t : sinks_) {
+			flows[t] = Math.min(excess_[t], demands_[t]);
+		}
+		return flows;
+	}
+	
+	private void initialize(FlowNetwork network, int s, int t) {
+		initialize(network, new int[] {s}, null, new int[] {t}, null);
+	}
+	
+	private void initialize(FlowNetwork network, int[] sources, double[] supplies, int[] sinks, double[] demands) {
+		network_ = network;
+		int n = network.getNumberOfVertices();
+		int mm = network.getNumberOfResidualArcs();
+		residual_ = new double[mm];
+		for (int a = 0; a < mm; a++) {
+			residual_[a] = network.getCapacity(a);
+		}
+		excess_ = new double[n];
+		labels_ = new DistanceLabels(network, new GlobalRelabeling(network, residual_));
+		distances_ = labels_.getDistances();
+		currentArcs_ = labels_.getCurrentArcs();
+		preflowOnly_ = false;
+		
+		initializeTerminals(sources, supplies, sinks, demands);
+		globalRelabelingDistances();
+	}
+	
+	/**
+	 * Sets up the sources and sinks. Uncapped sources saturate all their arcs
+	 * like a single source, capped sources get their supply as excess.
+	 *
+	 * @param sources the sources
+	 * @param supplies the supplies, or null
+	 * @param sinks the sinks
+	 * @param demands the demands, or null
+	 */
+	private void initializeTerminals(int[] sources, double[] supplies, int[] sinks, double[] demands) {
+		int n = network_.getNumberOfVertices();
+		if (null != supplies && supplies.length != sources.length) {
+			Log.e("Got " + sources.length + " sources, but " + supplies.length + " supplies.");
+		}
+		if (null != demands && demands.length != sinks.length) {
+			Log.e("Got " + sinks.length + " sinks, but " + demands.length + " demands.");
+		}
+		demands_ = new double[n];
+		terminals_ = new boolean[n];
+		boolean[] isSink = new boolean[n];
+		int numberOfSinks = 0;
+		for (int i = 0; i < sinks.length; i++) {
+			int t = sinks[i];
+			double demand = getCap(demands, i);
+			if (demand < 0.0) {
+				Log.e("Negative demand " + demand + " of sink " + network_.getVertexName(t) + " is ignored.");
+				continue;
+			}
+			if (!isSink[t]) {
+				isSink[t] = true;
+				numberOfSinks++;
+			}
+			demands_[t] += demand;
+			terminals_[t] = Double.isInfinite(demands_[t]);
+		}
+		sinks_ = new int[numberOfSinks];
+		numberOfSinks = 0;
+		for (int v = 0; v < n; v++) {
+			if (isSink[v]) {
+				sinks_[numberOfSinks++] = v;
+			}
+		}
+		
+		int[] uncapped = new int[sources.length];
+		int[] capped = new int[sources.length];
+		int numberOfUncapped = 0;
+		int numberOfCapped = 0;
+		for (int i = 0; i < sources.length; i++) {
+			int s = sources[i];
+			double supply = getCap(supplies, i);
+			if (isSink[s]) {
+				Log.e("Vertex " + network_.getVertexName(s) + " is a source and a sink, the source is ignored.");
+			} else if (supply < 0.0) {
+				Log.e("Negative supply " + supply + " of source " + network_.getVertexName(s) + " is ignored.");
+			} else if (Double.isInfinite(supply)) {
+				if (!terminals_[s]) {
+					terminals_[s] = true;
+					uncapped[numberOfUncapped++] = s;
+				}
+			} else {
+				excess_[s] += supply;
+				capped[numberOfCapped++] = s;
+			}
+		}
+		numberOfUncappedSources_ = numberOfUncapped;
+		sources_ = new int[numberOfUncapped + numberOfCapped];
+		System.arraycopy(uncapped, 0, sources_, 0, numberOfUncapped);
+		System.arraycopy(capped, 0, sources_, numberOfUncapped, numberOfCapped);
+		
+		// saturate all arcs leaving the uncapped sources, except those into
+		// other uncapped sources: a terminal never sends its excess back
+		for (int i = 0; i < numberOfUncapped; i++) {
+			int s = uncapped[i];
+			for (int sv = network_.getFirstResidualArc(s); sv < network_.getEndResidualArc(s); sv++) {
+				int v = network_.getHead(sv);
+				double cap = residual_[sv];
+				if (cap > 0.0 && !(terminals_[v] && !isSink[v])) {
+					residual_[sv] = 0.0;
+					residual_[network_.getReverse(sv)] += cap;
+					excess_[v] += cap;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gets the supply or demand cap.
+	 *
+	 * @param caps the caps, or null for no caps
+	 * @param i the index of the terminal
+	 * @return the cap, infinite if there is none
+	 */
+	private static double getCap(double[] caps, int i) {
+		if (null == caps || i >= caps.length) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return caps[i];
+	}
+	
+	/**
+	 * Gets the vertex indices.
+	 *
+	 * @param network the csr graph
+	 * @param vertices the vertices
+	 * @return the indices of the vertices
+	 */
+	private static int[] getVertexIndices(CsrGraph network, Vertex[] vertices) {
+		int[] indices = new int[vertices.length];
+		for (int i = 0; i < vertices.length; i++) {
+			indices[i] = network.getVertexIndex(vertices[i].getName());
+		}
+		return indices;
+	}
+	
+	/**
+	 * Gets the sinks which can still take flow.
+	 *
+	 * @return the sinks with open demand
+	 */
+	private int[] getOpenSinks() {
+		int[] open = new int[sinks_.length];
+		int size = 0;
+		for (int t : sinks_) {
+			if (excess_[t] < demands_[t]) {
+				open[size++] = t;
+			}
+		}
+		return Arrays.copyOf(open, size);
+	}
+	
+	/**
+	 * Discharges active vertices in highest label order until no active
+	 * vertex with a distance label below n is left.
+	 *
+	 * @param deadline the deadline in milliseconds
+	 * @return false, if the time limit was reached
+	 */
+	private boolean processActiveVertices(long deadline) {
+		int count = 0;
+		while (true) {
+			if (labels_.isGlobalRelabelingNeeded()) {
+				globalRelabelingDistances();
+			}
+			int v = labels_.retrieveActiveVertex();
+			if (-1 == v) {
+				return true;
+			}
+			discharge(v);
+			if (++count % TIME_CHECK_INTERVAL_ == 0 && System.currentTimeMillis() > deadline) {
+				Log.w("Time limit reached.");
+				timeLimitReached_ = true;
+				clearFlow();
+				return false;
+			}
+		}
+	}
+	
+	/**
+	 * Resets the residual capacities to a zero flow.
+	 */
+	private void clearFlow() {
+		for (int a = 0; a < residual_.length; a++) {
+			residual_[a] = network_.getCapacity(a);
+		}
+		Arrays.fill(excess_, 0.0);
+	}
+	
+	/**
+	 * Global relabeling distances. Sets the distance label of every vertex to
+	 * its distance to the sinks with open demand in the residual graph, or to
+	 * n if none of them is reachable.
+	 */
+	private void globalRelabelingDistances() {
+		labels_.globalRelabelingDistances(Arrays.copyOf(sources_, numberOfUncappedSources_), getOpenSinks());
+		for (int v = 0; v < network_.getNumberOfVertices(); v++) {
+			if (isActive(v)) {
+				labels_.addToActiveVertices(v);
+			}
+		}
+	}
+	
+	/**
+	 * Vertex is active.
+	 *
+	 * @param v the v
+	 * @return true, if successful
+	 */
+	private boolean isActive(int v) {
+		// uncapped sources have the label n, sinks keep up to their demand
+		return excess_[v] > demands_[v] && distances_[v] < network_.getNumberOfVertices();
+	}
+	
+	/**
+	 * Discharge.
+	 *
+	 * @param u the u
+	 */
+	private void discharge(int u) {
+		int end = network_.getEndResidualArc(u);
+		while (true) {
+			int du = distances_[u];
+			int uv = currentArcs_[u];
+			for (; uv < end; uv++) {
+				if (residual_[uv] > 0.0 && du == distances_[network_.getHead(uv)] + 1) {
+					push(u, uv);
+					if (excess_[u] <= demands_[u]) {
+						break;
+					}
+				}
+			}
+			labels_.addScanWork(uv - currentArcs_[u]);
+			currentArcs_[u] = uv;
+			if (uv < end) {
+				return;
+			}
+			relabel(u);
+			if (distances_[u] >= network_.getNumberOfVertices() || labels_.isGlobalRelabelingNeeded()) {
+				if (isActive(u)) {
+					labels_.addToActiveVertices(u);
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Push.
+	 *
+	 * @param u the u
+	 * @param uv the residual arc uv
+	 */
+	private void push(int u, int uv) {
+		int v = network_.getHead(uv);
+		double delta = Math.min(excess_[u] - demands_[u], residual_[uv]);
+		residual_[uv] -= delta;
+		residual_[network_.getReverse(uv)] += delta;
+		excess_[u] -= delta;
+		boolean wasActive = excess_[v] > demands_[v];
+		excess_[v] += delta;
+		if (!wasActive && isActive(v)) {
+			labels_.addToActiveVertices(v);
+		}
+	}
+	
+	/**
+	 * Relabel. The new label is found on the residual capacities, the gap
+	 * and the global relabel schedule are left to the labels.
+	 *
+	 * @param u the vertex u
+	 */
+	private void relabel(int u) {
+		int n = network_.getNumberOfVertices();
+		// vertices which cannot reach the sink anymore get the label n
+		int minDistance = n;
+		int end = network_.getEndResidualArc(u);
+		for (int uv = network_.getFirstResidualArc(u); uv < end; uv++) {
+			if (residual_[uv] > 0.0) {
+				int dv = distances_[network_.getHead(uv)] + 1;
+				if (minDistance > dv) {
+					minDistance = dv;
+				}
+			}
+		}
+		labels_.relabel(u, minDistance);
+	}
+
+}
@@ -1,18 +1,27 @@
 package model.tool.maxflow;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Vector;
 
 import util.Log;
 import util.Timer;
 
-public class PushRelabelFifoAlgo {
+public class PushRelabelFifoAlgo implements MaxFlowSolver {
 	
 	private static final String RES_ = "RESIDUAL_";
 	
+	/** The default of the global relabel frequency alpha. */
+	public static final double DEFAULT_GLOBAL_RELABEL_FREQUENCY = 6.0;
+	
+	/** The work of a relabel in addition to the scanned arcs. */
+	private static final int RELABEL_WORK_ = 12;
+	
+	/** The rounding leftover relative to the initial excess of the source that may be dropped. */
+	private static final double EPSILON_ = 1e-9;
+	
 	private Graph graph_;
 	
 	private Graph residualGraph_;
@@ -27,14 +36,40 @@ public class PushRelabelFifoAlgo {
 	
 	private HashMap<Vertex, Integer> distances_;
 	
-	private LinkedList<Vertex> activeVertices_;
+	private VertexBuckets activeVertices_;
+	
+	private Vertex[] verticesById_;
+	
+	/** The outgoing residual arcs of each vertex, indexed by the vertex id. */
+	private Arc[][] outgoingArcs_;
+	
+	/** The position of the current arc of each vertex in its outgoing arcs. */
+	private int[] currentArcs_;
+	
+	/** The arcs scanned plus the relabel work since the last global relabel. */
+	private long workSinceUpdate_;
+	
+	private double globalRelabelFrequency_;
 	
-	private int numberOfRelabelings_;
+	private int numberOfGlobalRelabels_;
 	
-	private HashMap<Integer, HashSet<Vertex>> verticesCategorizedByDistances_;
+	/** The time spent in global relabels in nanoseconds. */
+	private long globalRelabelTime_;
+	
+	/** The vertices with a distance label below n, in buckets by label. */
+	private VertexBuckets verticesCategorizedByDistances_;
 	
 	private boolean timeLimitReached_;
 	
+	/** The largest excess that is dropped as a rounding leftover. */
+	private double excessTolerance_;
+	
+	/** Only vertices with a smaller distance label are active. */
+	private int distanceLimit_;
+	
+	/** True as long as only a preflow for the min cut has been computed. */
+	private boolean preflowOnly_;
+	
 	/**
 	 * Instantiates a new push relabel algo.
 	 *
@@ -46,6 +81,18 @@ public class PushRelabelFifoAlgo {
 		initialize(graph, s, t);
 	}
 	
+	/**
+	 * Instantiates a new push relabel algo on the graph object created from the csr graph.
+	 *
+	 * @param graph the csr graph
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public PushRelabelFifoAlgo(CsrGraph graph, int s, int t) {
+		Graph g = graph.toGraph();
+		initialize(g, g.getVertex(graph.getVertexName(s)), g.getVertex(graph.getVertexName(t)));
+	}
+	
 	/**
 	 * Compute max flow.
 	 *
@@ -62,10 +109,56 @@ public class PushRelabelFifoAlgo {
 	 * @return the hash map
 	 */
 	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
-		String timer = Timer.startNewTimer();
 		timeLimitReached_ = false;
 		printResidualGraph();
+		distanceLimit_ = Integer.MAX_VALUE;
+		processActiveVertices(timeLimit);
+		preflowOnly_ = false;
+		Log.ps("%d global relabels in %d ms", numberOfGlobalRelabels_, getGlobalRelabelTime());
 		
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the min cut only. Vertices which cannot reach the sink keep
+	 * their excess, so the max flow value and the cut are available
+	 * afterwards and the flow is completed when it is requested.
+	 *
+	 * @return the max flow value
+	 */
+	public double computeMinCut() {
+		return computeMinCut(-1);
+	}
+	
+	/**
+	 * Compute the min cut only. Vertices which cannot reach the sink keep
+	 * their excess, so the max flow value and the cut are available
+	 * afterwards and the flow is completed when it is requested.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the max flow value
+	 */
+	public double computeMinCut(int timeLimit) {
+		timeLimitReached_ = false;
+		printResidualGraph();
+		distanceLimit_ = residualGraph_.getNumberOfVertices();
+		preflowOnly_ = processActiveVertices(timeLimit);
+		if (preflowOnly_) {
+			// exact labels, so that the labels of at least n give the cut
+			globalRelabelingDistances();
+		}
+		Log.ps("%d global relabels in %d ms", numberOfGlobalRelabels_, getGlobalRelabelTime());
+		return getMaxFlowValue();
+	}
+	
+	/**
+	 * Discharges active vertices until none is left.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return false, if the time limit was reached
+	 */
+	private boolean processActiveVertices(int timeLimit) {
+		String timer = Timer.startNewTimer();
 		while(!noMoreActiveVertexAvailable()) {
 			Vertex v = retrieveActiveVertex();
 			discharge(v);
@@ -75,16 +168,16 @@ public class PushRelabelFifoAlgo {
 			Log.p("");
 			if (timeLimit >= 0) {
 				if (Timer.getTime(timer) > timeLimit) {
-					preflow_ = new HashMap<String, Double>();
+					clearFlow();
 					Log.w("Time limit reached.");
 					timeLimitReached_ = true;
 					Timer.removeTimer(timer);
-					break;
+					return false;
 				}
 			}
 		}
-		
-		return getFlow();
+		Timer.removeTimer(timer);
+		return true;
 	}
 	
 	/**
@@ -96,12 +189,65 @@ public class PushRelabelFifoAlgo {
 		return timeLimitReached_;
 	}
 	
+	/**
+	 * Sets the global relabel frequency alpha. A global relabel is started
+	 * once the arcs scanned plus a constant per relabel since the last one
+	 * exceed alpha * n + m.
+	 *
+	 * @param frequency the global relabel frequency
+	 */
+	public void setGlobalRelabelFrequency(double frequency) {
+		if (frequency < 0.0) {
+			Log.w("Negative global relabel frequency " + frequency + " is ignored.");
+			return;
+		}
+		globalRelabelFrequency_ = frequency;
+	}
+	
+	/**
+	 * Gets the global relabel frequency.
+	 *
+	 * @return the global relabel frequency
+	 */
+	public double getGlobalRelabelFrequency() {
+		return globalRelabelFrequency_;
+	}
+	
+	/**
+	 * Gets the number of global relabels.
+	 *
+	 * @return the number of global relabels
+	 */
+	public int getNumberOfGlobalRelabels() {
+		return numberOfGlobalRelabels_;
+	}
+	
+	/**
+	 * Gets the time spent in global relabels.
+	 *
+	 * @return the global relabel time in milliseconds
+	 */
+	public long getGlobalRelabelTime() {
+		return globalRelabelTime_ / 1000000;
+	}
+	
 	/**
 	 * Gets the flow.
 	 *
 	 * @return the flow
 	 */
 	public HashMap<Arc, Double> getFlow() {
+		if (preflowOnly_) {
+			// return the remaining excess to the source
+			distanceLimit_ = Integer.MAX_VALUE;
+			for (Vertex v : residualGraph_.getAllVertices()) {
+				if (vertexIsActive(v)) {
+					addToActiveVerticesList(v);
+				}
+			}
+			processActiveVertices(-1);
+			preflowOnly_ = false;
+		}
 		HashMap<Arc, Double> flow = new HashMap<Arc, Double>();
 		for (Arc arc : graph_.getAllArcs()) {
 			String a = arc.getName();
@@ -151,9 +297,12 @@ public class PushRelabelFifoAlgo {
 	 * @return the max flow value
 	 */
 	public double getMaxFlowValue() {
+		if (preflowOnly_) {
+			return excess_.get(sink_);
+		}
 		double f = 0.0;
 		for (Arc a : graph_.getVertex(source_.getName()).getOutgoingArcs()) {
-			f += preflow_.get(a.getName());
+			f += getPreflow(a.getName());
 		}
 		return f;
 	}
@@ -163,6 +312,14 @@ public class PushRelabelFifoAlgo {
 		residualGraph_ = graph.createResidualGraph(getResidualName(graph.getName()));
 		source_ = residualGraph_.getVertex(s.getName());
 		sink_ = residualGraph_.getVertex(t.getName());
+		// every residual arc gets its reverse arc from the beginning,
+		// arcs without residual capacity stay in the residual graph
+		Vector<Arc> arcs = new Vector<Arc>(residualGraph_.getAllArcs());
+		for (Arc uv : arcs) {
+			Arc vu = new Arc(getResidualName(uv.getName()), uv.getEndVertex(), uv.getStartVertex());
+			vu.setCapacity(0.0);
+			residualGraph_.addArc(vu);
+		}
 		// zero preflow
 		preflow_ = new HashMap<String, Double>();
 		for (Arc a : residualGraph_.getAllArcs()) {
@@ -180,12 +337,30 @@ public class PushRelabelFifoAlgo {
 			excess_.put(source_, excess_.get(source_) + sv.getCapacity());
 		}
 		excess_.put(source_, excess_.get(source_) + 1);
+		excessTolerance_ = EPSILON_ * excess_.get(source_);
+		// active vertices are kept in buckets indexed by the vertex id
+		int maxId = 0;
+		for (Vertex v : residualGraph_.getAllVertices()) {
+			maxId = Math.max(maxId, v.getId());
+		}
+		verticesById_ = new Vertex[maxId + 1];
+		outgoingArcs_ = new Arc[maxId + 1][];
+		for (Vertex v : residualGraph_.getAllVertices()) {
+			verticesById_[v.getId()] = v;
+			outgoingArcs_[v.getId()] = v.getOutgoingArcs().toArray(new Arc[0]);
+		}
+		currentArcs_ = new int[maxId + 1];
+		activeVertices_ = new VertexBuckets(maxId + 1, 1);
+		distanceLimit_ = Integer.MAX_VALUE;
+		preflowOnly_ = false;
 		// set distances
-		verticesCategorizedByDistances_ = new HashMap<Integer, HashSet<Vertex>>();
+		globalRelabelFrequency_ = DEFAULT_GLOBAL_RELABEL_FREQUENCY;
+		numberOfGlobalRelabels_ = 0;
+		globalRelabelTime_ = 0;
+		workSinceUpdate_ = 0;
+		verticesCategorizedByDistances_ = new VertexBuckets(maxId + 1, residualGraph_.getNumberOfVertices());
 		setInitialDistances();
-		activeVertices_ = new LinkedList<Vertex>();
 		addToActiveVerticesList(source_);
-		numberOfRelabelings_ = 0;
 	}
 	
 	/**
@@ -205,36 +380,43 @@ public class PushRelabelFifoAlgo {
 	}
 	
 	private void updateDistanceLabel(Vertex v, int distance) {
-		int init = distances_.containsKey(v) ? distances_.get(v) : -1;
-		if (-1 != init) {
-			verticesCategorizedByDistances_.get(init).remove(v);
-		}
 		distances_.put(v, distance);
-		if (!verticesCategorizedByDistances_.containsKey(distance)) {
-			verticesCategorizedByDistances_.put(distance, new HashSet<Vertex>());
+		if (distance >= distanceLimit_) {
+			activeVertices_.remove(v.getId());
+		}
+		if (distance < residualGraph_.getNumberOfVertices()) {
+			verticesCategorizedByDistances_.add(v.getId(), distance);
+		} else {
+			verticesCategorizedByDistances_.remove(v.getId());
 		}
-		verticesCategorizedByDistances_.get(distance).add(v);
 	}
 	
 	/**
 	 * Global relabeling distances.
 	 */
 	private void globalRelabelingDistances() {
-		LinkedList<Vertex> queue = new LinkedList<Vertex>();
-		queue.add(sink_);
-		HashSet<Vertex> observed = new HashSet<Vertex>();
+		long start = System.nanoTime();
+		int[] queue = new int[verticesById_.length];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = sink_.getId();
+		boolean[] observed = new boolean[verticesById_.length];
+		observed[sink_.getId()] = true;
 		int n = residualGraph_.getNumberOfVertices();
-		while (!queue.isEmpty()) {
-			Vertex v = queue.pop();
+		while (head < tail) {
+			Vertex v = verticesById_[queue[head++]];
 			int dv = distances_.get(v);
-			observed.add(v);
 			for (Arc uv : v.getIngoingArcs()) {
+				if (uv.getCapacity() <= 0.0) {
+					continue;
+				}
 				Vertex u = uv.getStartVertex();
 				int du = dv + 1;
 				if (du > n) {
 					du = n;
 				}
-				if (!observed.contains(u)) {
+				if (!observed[u.getId()]) {
+					observed[u.getId()] = true;
 					boolean shouldAddToQueue = true;
 					if (distances_.containsKey(u)) {
 						if (distances_.get(u) >= n) {
@@ -242,38 +424,46 @@ public class PushRelabelFifoAlgo {
 						}
 					}
 					if (shouldAddToQueue) {
-						queue.add(u);
+						queue[tail++] = u.getId();
 						updateDistanceLabel(u, du);
 					}
 				}
 			}
 		}
+		// vertices not reached cannot reach the sink anymore
+		for (Vertex v : residualGraph_.getAllVertices()) {
+			if (!observed[v.getId()] && distances_.containsKey(v) && distances_.get(v) < n) {
+				updateDistanceLabel(v, n);
+			}
+		}
+		// labels may have been raised, so the arcs must be scanned again
+		Arrays.fill(currentArcs_, 0);
+		workSinceUpdate_ = 0;
+		numberOfGlobalRelabels_++;
+		globalRelabelTime_ += System.nanoTime() - start;
 	}
 	
 	/**
-	 * Gap relabeling distances.
+	 * Gap relabeling distances. No vertex has the given label anymore, so
+	 * the vertices with a larger label below n cannot reach the sink and
+	 * are lifted to n.
+	 *
+	 * @param emptyDistance the label without vertices
 	 */
-	private void gapRelabelingDistances() {
+	private void gapRelabelingDistances(int emptyDistance) {
 		int n = residualGraph_.getNumberOfVertices();
-		int firstEmptySetIndex = 0;
-		for (int i = 1; i < n; i++) {
-			HashSet<Vertex> currentSet = verticesCategorizedByDistances_.get(i);
-			if (null == currentSet || currentSet.isEmpty()) {
-				firstEmptySetIndex = i;
-				break;
-			}
-		}
 		Vector<Vertex> notReachables = new Vector<Vertex>();
-		for (int j = firstEmptySetIndex; j < n; j++) {
-			HashSet<Vertex> currentSet = verticesCategorizedByDistances_.get(j);
-			if (null != currentSet && !currentSet.isEmpty()) {
-				for (Vertex u : currentSet) {
-					notReachables.add(u);
-				}
+		int largestDistance = verticesCategorizedByDistances_.getHighestLabel();
+		for (int d = emptyDistance + 1; d <= largestDistance; d++) {
+			int id = verticesCategorizedByDistances_.getFirst(d);
+			while (-1 != id) {
+				notReachables.add(verticesById_[id]);
+				id = verticesCategorizedByDistances_.getNext(id);
 			}
 		}
 		for (Vertex u : notReachables) {
 			updateDistanceLabel(u, n);
+			currentArcs_[u.getId()] = 0;
 		}
 	}
 	
@@ -283,7 +473,10 @@ public class PushRelabelFifoAlgo {
 	 * @param v the v
 	 */
 	private void addToActiveVerticesList(Vertex v) {
-		activeVertices_.add(v);
+		// the queue is the single bucket 0
+		if (!activeVertices_.contains(v.getId())) {
+			activeVertices_.add(v.getId(), 0);
+		}
 	}
 	
 	/**
@@ -292,7 +485,7 @@ public class PushRelabelFifoAlgo {
 	 * @return the vertex
 	 */
 	private Vertex retrieveActiveVertex() {
-		return activeVertices_.pop();
+		return verticesById_[activeVertices_.pollFirst(0)];
 	}
 	
 	/**
@@ -315,16 +508,20 @@ public class PushRelabelFifoAlgo {
 			return;
 		}
 		Log.p("Discharge vertex " + v.getName());
-		Vector<Arc> list = new Vector<Arc>();
-		list.addAll(v.getOutgoingArcs());
-		if (!list.isEmpty()) {
-			do {
-				Arc vw = list.remove(0);
-				if (arcIsAdmissible(vw)) {
-					push(vw);
-				}
-			} while (0.0 <= excess_.get(v) && !list.isEmpty());
+		// resume the scan at the current arc, which is kept as long as it
+		// is admissible and moves on once it is saturated or not admissible
+		Arc[] arcs = outgoingArcs_[v.getId()];
+		int i = currentArcs_[v.getId()];
+		while (i < arcs.length && vertexIsActive(v)) {
+			if (arcIsAdmissible(arcs[i])) {
+				push(arcs[i]);
+			}
+			if (vertexIsActive(v)) {
+				i++;
+			}
 		}
+		workSinceUpdate_ += i - currentArcs_[v.getId()];
+		currentArcs_[v.getId()] = i;
 		if (vertexIsActive(v)) {
 			relabel(v);
 		}
@@ -375,19 +572,7 @@ public class PushRelabelFifoAlgo {
 		}
 		Log.ps("Push %.2f over arc %s", delta, uv.getName());
 		addToPreflow(uv, delta);
-		Arc vu = residualGraph_.getArc(getResidualName(uv.getName()));
-		if (null == vu) {
-			vu = new Arc(getResidualName(uv.getName()), v, u);
-			vu.setCapacity(delta);
-			residualGraph_.addArc(vu);
-			if (preflow_.containsKey(vu.getName())) {
-				preflow_.put(vu.getName(), preflow_.get(vu.getName()) - delta);
-			} else {
-				preflow_.put(vu.getName(), -delta);
-			}
-		} else {
-			addToPreflow(vu, -delta);
-		}
+		addToPreflow(residualGraph_.getArc(getResidualName(uv.getName())), -delta);
 		excess_.put(u, excess_.get(u) - delta);
 		excess_.put(v, excess_.get(v) + delta);
 		if (vertexIsActive(v)) {
@@ -395,6 +580,37 @@ public class PushRelabelFifoAlgo {
 		}
 	}
 	
+	/**
+	 * Gets the preflow on the residual arc.
+	 *
+	 * @param name the name of the residual arc
+	 * @return the preflow, zero for an arc without preflow entry
+	 */
+	private double getPreflow(String name) {
+		Double f = preflow_.get(name);
+		return (null == f) ? 0.0 : f;
+	}
+	
+	/**
+	 * Resets the preflow to zero after the time limit was reached, like the
+	 * array engines do. The residual capacities and the excesses are those
+	 * before the first push again, and no vertex is active.
+	 */
+	private void clearFlow() {
+		for (Arc a : residualGraph_.getAllArcs()) {
+			double f = getPreflow(a.getName());
+			if (f > 0.0) {
+				Vertex u = a.getStartVertex();
+				Vertex v = a.getEndVertex();
+				excess_.put(u, excess_.get(u) + f);
+				excess_.put(v, excess_.get(v) - f);
+			}
+			a.setCapacity(a.getCapacity() + f);
+			preflow_.put(a.getName(), 0.0);
+		}
+		activeVertices_.clear();
+	}
+	
 	/**
 	 * Adds to preflow.
 	 *
@@ -404,9 +620,6 @@ public class PushRelabelFifoAlgo {
 	private void addToPreflow(Arc uv, double delta) {
 		preflow_.put(uv.getName(), preflow_.get(uv.getName()) + delta);
 		uv.setCapacity(uv.getCapacity() - delta);
-		if (0.0 == uv.getCapacity()) {
-			residualGraph_.removeArc(uv.getName());
-		}
 	}
 	
 	/**
@@ -419,31 +632,50 @@ public class PushRelabelFifoAlgo {
 			Log.w("Non-active " + u + ". Unable to relabel!");
 			return;
 		}
-		for (Arc uv : u.getOutgoingArcs()) {
+		Arc[] arcs = outgoingArcs_[u.getId()];
+		for (Arc uv : arcs) {
 			if (arcIsAdmissible(uv)) {
 				Log.w("Found admissible outgoing arc " + uv + ". Unable to relabel!");
 				return;
 			}
 		}
+		int initialDistance = distances_.get(u);
 		int minDistance = Integer.MAX_VALUE;
-		for (Arc uv : u.getOutgoingArcs()) {
+		for (Arc uv : arcs) {
+			if (uv.getCapacity() <= 0.0) {
+				continue;
+			}
 			Vertex v = uv.getEndVertex();
 			int dv = distances_.get(v);
 			if (minDistance > dv) {
 				minDistance = dv;
 			}
 		}
-		if (minDistance < Integer.MAX_VALUE) {
+		if (minDistance < 2 * residualGraph_.getNumberOfVertices() - 1) {
 			updateDistanceLabel(u, minDistance + 1);
 		} else {
-			updateDistanceLabel(u, residualGraph_.getNumberOfVertices());
+			// labels never reach 2n, unless u is the source or a rounding
+			// leftover is stuck without a residual path back to the source. it
+			// is dropped instead of lowering the label of u. a larger excess is
+			// kept and u is put out of the active vertices with the label 2n
+			if (u.equals(source_) || excess_.get(u) <= excessTolerance_) {
+				excess_.put(u, 0.0);
+				updateDistanceLabel(u, Math.max(distances_.get(u), residualGraph_.getNumberOfVertices()));
+			} else {
+				Log.e("Excess " + excess_.get(u) + " of " + u + " has no residual arc left.");
+				updateDistanceLabel(u, 2 * residualGraph_.getNumberOfVertices());
+			}
 		}
+		currentArcs_[u.getId()] = 0;
 		Log.ps("Relabel node %s to level %d", u.getName(), distances_.get(u));
-		numberOfRelabelings_++;
-		if (numberOfRelabelings_ >= residualGraph_.getNumberOfVertices()) {
+		if (initialDistance < residualGraph_.getNumberOfVertices()
+				&& verticesCategorizedByDistances_.isEmpty(initialDistance)) {
+			gapRelabelingDistances(initialDistance);
+		}
+		workSinceUpdate_ += arcs.length + RELABEL_WORK_;
+		int n = residualGraph_.getNumberOfVertices();
+		if (workSinceUpdate_ >= globalRelabelFrequency_ * n + graph_.getNumberOfArcs()) {
 			globalRelabelingDistances();
-			gapRelabelingDistances();
-			numberOfRelabelings_ = 0;
 		}
 	}
 	
@@ -466,6 +698,9 @@ public class PushRelabelFifoAlgo {
 				return false;
 			}
 		}
+		if (dv >= distanceLimit_ || dv >= 2 * residualGraph_.getNumberOfVertices()) {
+			return false;
+		}
 		if (excess_.get(v) <= 0.0) {
 			return false;
 		}
@@ -479,6 +714,9 @@ public class PushRelabelFifoAlgo {
 	 * @return true, if successful
 	 */
 	private boolean arcIsAdmissible(Arc arc) {
+		if (arc.getCapacity() <= 0.0) {
+			return false;
+		}
 		Vertex u = arc.getStartVertex();
 		Vertex v = arc.getEndVertex();
 		boolean correctDistance = (distances_.get(u) >= distances_.get(v) + 1);
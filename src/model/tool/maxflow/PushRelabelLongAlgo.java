@@ -0,0 +1,468 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import util.Log;
+
+/**
+ * The Class PushRelabelLongAlgo.
+ *
+ * The {@link PushRelabelArrayAlgo} for integral capacities. Residual
+ * capacities, excesses and flows are longs, so all computations are exact
+ * and no rounding leftovers can occur. Both engines keep their labels in
+ * {@link DistanceLabels}, only the scans and pushes on the residual
+ * capacities are typed.
+ */
+public class PushRelabelLongAlgo implements MaxFlowSolver {
+	
+	/** The number of discharges between two checks of the time limit. */
+	private static final int TIME_CHECK_INTERVAL_ = 1024;
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	private int source_;
+	
+	private int sink_;
+	
+	private long[] residual_;
+	
+	private long[] excess_;
+	
+	private DistanceLabels labels_;
+	
+	/** The distance labels of labels_. */
+	private int[] distances_;
+	
+	/** The current arcs of labels_. */
+	private int[] currentArcs_;
+	
+	private boolean timeLimitReached_;
+	
+	/** True as long as only a preflow for the min cut has been computed. */
+	private boolean preflowOnly_;
+	
+	/**
+	 * Instantiates a new push relabel long algo.
+	 *
+	 * @param graph the graph
+	 * @param s the s
+	 * @param t the t
+	 */
+	public PushRelabelLongAlgo(Graph graph, Vertex s, Vertex t) {
+		graph_ = graph;
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		initialize(network, network.getVertexIndex(s.getName()), network.getVertexIndex(t.getName()));
+	}
+	
+	/**
+	 * Instantiates a new push relabel long algo.
+	 *
+	 * @param graph the flow network
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public PushRelabelLongAlgo(FlowNetwork graph, int s, int t) {
+		graph_ = null;
+		initialize(graph, s, t);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow() {
+		return computeMaxFlow(-1);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
+		computeArcFlows(timeLimit);
+		if (null == graph_) {
+			return null;
+		}
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the max flow on the input arcs.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow on each input arc
+	 */
+	public long[] computeArcFlows(int timeLimit) {
+		computeMinCut(timeLimit);
+		return getArcFlows();
+	}
+	
+	/**
+	 * Compute the min cut only. The max flow value and the cut are available
+	 * afterwards, the flow is completed when it is requested.
+	 *
+	 * @return the max flow value
+	 */
+	public double computeMinCut() {
+		return computeMinCut(-1);
+	}
+	
+	/**
+	 * Compute the min cut only. The max flow value and the cut are available
+	 * afterwards, the flow is completed when it is requested.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the max flow value
+	 */
+	public double computeMinCut(int timeLimit) {
+		long deadline = (timeLimit >= 0) ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		timeLimitReached_ = false;
+		// move as much excess as possible to the sink
+		preflowOnly_ = processActiveVertices(deadline);
+		Log.ps("%d global relabels in %d ms", getNumberOfGlobalRelabels(), getGlobalRelabelTime());
+		return getMaxFlowValue();
+	}
+	
+	/**
+	 * Time limit reached.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean timeLimitReached() {
+		return timeLimitReached_;
+	}
+	
+	/**
+	 * Sets the global relabel frequency alpha. A global relabel is started
+	 * once the arcs scanned plus a constant per relabel since the last one
+	 * exceed alpha * n + m.
+	 *
+	 * @param frequency the global relabel frequency
+	 */
+	public void setGlobalRelabelFrequency(double frequency) {
+		if (frequency < 0.0) {
+			Log.w("Negative global relabel frequency " + frequency + " is ignored.");
+			return;
+		}
+		labels_.setGlobalRelabelFrequency(frequency);
+	}
+	
+	/**
+	 * Gets the global relabel frequency.
+	 *
+	 * @return the global relabel frequency
+	 */
+	public double getGlobalRelabelFrequency() {
+		return labels_.getGlobalRelabelFrequency();
+	}
+	
+	/**
+	 * Gets the number of global relabels.
+	 *
+	 * @return the number of global relabels
+	 */
+	public int getNumberOfGlobalRelabels() {
+		return labels_.getNumberOfGlobalRelabels();
+	}
+	
+	/**
+	 * Gets the time spent in global relabels.
+	 *
+	 * @return the global relabel time in milliseconds
+	 */
+	public long getGlobalRelabelTime() {
+		return labels_.getGlobalRelabelTime();
+	}
+	
+	/**
+	 * Gets the flow.
+	 *
+	 * @return the flow
+	 */
+	public HashMap<Arc, Double> getFlow() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getArcFlows() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.createFlowMap(graph_, network_, getArcFlows());
+	}
+	
+	/**
+	 * Gets the flow on each input arc of the csr graph.
+	 *
+	 * @return the arc flows
+	 */
+	public long[] getArcFlows() {
+		if (preflowOnly_) {
+			// return the remaining excess to the source
+			new PreflowConverter(network_, residual_, excess_, source_, sink_).convert();
+			preflowOnly_ = false;
+		}
+		int m = network_.getNumberOfArcs();
+		long[] flow = new long[m];
+		for (int e = 0; e < m; e++) {
+			int uv = network_.getResidualArc(e);
+			flow[e] = GraphUtil.getArcFlow(getCapacity(uv), residual_[uv]);
+		}
+		return flow;
+	}
+	
+	/**
+	 * Gets the vertices on the source side of the minimum cut, i.e. all
+	 * vertices which cannot reach the sink in the residual graph.
+	 *
+	 * @return true for each vertex on the source side
+	 */
+	public boolean[] getSourceSide() {
+		int n = network_.getNumberOfVertices();
+		boolean[] reachesSink = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = sink_;
+		reachesSink[sink_] = true;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (!reachesSink[u] && residual_[network_.getReverse(vu)] > 0) {
+					reachesSink[u] = true;
+					queue[tail++] = u;
+				}
+			}
+		}
+		boolean[] sourceSide = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			sourceSide[v] = !reachesSink[v];
+		}
+		return sourceSide;
+	}
+	
+	/**
+	 * Gets the cut set close to source.
+	 *
+	 * @return the cut set close to source
+	 */
+	public HashSet<String> getCutSetCloseToSource() {
+		return GraphUtil.getVertexNames(network_, getSourceSide());
+	}
+	
+	/**
+	 * Gets the cut.
+	 *
+	 * @return the cut
+	 */
+	public Collection<Arc> getCut() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getSourceSide() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.getOutgoingArcs(graph_, getCutSetCloseToSource());
+	}
+	
+	/**
+	 * Gets the max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public double getMaxFlowValue() {
+		return excess_[sink_];
+	}
+	
+	/**
+	 * Gets the exact max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public long getLongMaxFlowValue() {
+		return excess_[sink_];
+	}
+	
+	private void initialize(FlowNetwork network, int s, int t) {
+		network_ = network;
+		source_ = s;
+		sink_ = t;
+		int n = network.getNumberOfVertices();
+		int mm = network.getNumberOfResidualArcs();
+		if (!network.hasIntegralCapacities()) {
+			Log.e("Capacities of " + network.getName() + " are not integral and will be rounded down.");
+		}
+		residual_ = new long[mm];
+		for (int a = 0; a < mm; a++) {
+			residual_[a] = getCapacity(a);
+		}
+		excess_ = new long[n];
+		labels_ = new DistanceLabels(network, new GlobalRelabeling(network, residual_));
+		distances_ = labels_.getDistances();
+		currentArcs_ = labels_.getCurrentArcs();
+		preflowOnly_ = false;
+		
+		// saturate all arcs leaving the source
+		for (int sv = network.getFirstResidualArc(s); sv < network.getEndResidualArc(s); sv++) {
+			long cap = residual_[sv];
+			if (cap > 0) {
+				residual_[sv] = 0;
+				residual_[network.getReverse(sv)] += cap;
+				excess_[network.getHead(sv)] += cap;
+			}
+		}
+		globalRelabelingDistances();
+	}
+	
+	/**
+	 * Discharges active vertices in highest label order until no active
+	 * vertex with a distance label below n is left.
+	 *
+	 * @param deadline the deadline in milliseconds
+	 * @return false, if the time limit was reached
+	 */
+	private boolean processActiveVertices(long deadline) {
+		int count = 0;
+		while (true) {
+			if (labels_.isGlobalRelabelingNeeded()) {
+				globalRelabelingDistances();
+			}
+			int v = labels_.retrieveActiveVertex();
+			if (-1 == v) {
+				return true;
+			}
+			discharge(v);
+			if (++count % TIME_CHECK_INTERVAL_ == 0 && System.currentTimeMillis() > deadline) {
+				Log.w("Time limit reached.");
+				timeLimitReached_ = true;
+				clearFlow();
+				return false;
+			}
+		}
+	}
+	
+	/**
+	 * Resets the residual capacities to a zero flow.
+	 */
+	private void clearFlow() {
+		for (int a = 0; a < residual_.length; a++) {
+			residual_[a] = getCapacity(a);
+		}
+		Arrays.fill(excess_, 0);
+	}
+	
+	/**
+	 * Gets the capacity of the residual arc.
+	 *
+	 * @param a the residual arc
+	 * @return the capacity
+	 */
+	private long getCapacity(int a) {
+		if (network_.hasIntegralCapacities()) {
+			return network_.getLongCapacity(a);
+		}
+		return (long) network_.getCapacity(a);
+	}
+	
+	/**
+	 * Global relabeling distances. Sets the distance label of every vertex to
+	 * its distance to the sink in the residual graph, or to n if the sink is
+	 * not reachable.
+	 */
+	private void globalRelabelingDistances() {
+		labels_.globalRelabelingDistances(new int[] {source_}, new int[] {sink_});
+		for (int v = 0; v < network_.getNumberOfVertices(); v++) {
+			if (isActive(v)) {
+				labels_.addToActiveVertices(v);
+			}
+		}
+	}
+	
+	/**
+	 * Vertex is active.
+	 *
+	 * @param v the v
+	 * @return true, if successful
+	 */
+	private boolean isActive(int v) {
+		return v != source_ && v != sink_ && excess_[v] > 0 && distances_[v] < network_.getNumberOfVertices();
+	}
+	
+	/**
+	 * Discharge.
+	 *
+	 * @param u the u
+	 */
+	private void discharge(int u) {
+		int end = network_.getEndResidualArc(u);
+		while (true) {
+			int du = distances_[u];
+			int uv = currentArcs_[u];
+			for (; uv < end; uv++) {
+				if (residual_[uv] > 0 && du == distances_[network_.getHead(uv)] + 1) {
+					push(u, uv);
+					if (0 == excess_[u]) {
+						break;
+					}
+				}
+			}
+			labels_.addScanWork(uv - currentArcs_[u]);
+			currentArcs_[u] = uv;
+			if (uv < end) {
+				return;
+			}
+			relabel(u);
+			if (distances_[u] >= network_.getNumberOfVertices() || labels_.isGlobalRelabelingNeeded()) {
+				if (isActive(u)) {
+					labels_.addToActiveVertices(u);
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Push.
+	 *
+	 * @param u the u
+	 * @param uv the residual arc uv
+	 */
+	private void push(int u, int uv) {
+		int v = network_.getHead(uv);
+		long delta = Math.min(excess_[u], residual_[uv]);
+		residual_[uv] -= delta;
+		residual_[network_.getReverse(uv)] += delta;
+		excess_[u] -= delta;
+		boolean wasActive = excess_[v] > 0;
+		excess_[v] += delta;
+		if (!wasActive && isActive(v)) {
+			labels_.addToActiveVertices(v);
+		}
+	}
+	
+	/**
+	 * Relabel. The new label is found on the residual capacities, the gap
+	 * and the global relabel schedule are left to the labels.
+	 *
+	 * @param u the vertex u
+	 */
+	private void relabel(int u) {
+		int n = network_.getNumberOfVertices();
+		// vertices which cannot reach the sink anymore get the label n
+		int minDistance = n;
+		int end = network_.getEndResidualArc(u);
+		for (int uv = network_.getFirstResidualArc(u); uv < end; uv++) {
+			if (residual_[uv] > 0) {
+				int dv = distances_[network_.getHead(uv)] + 1;
+				if (minDistance > dv) {
+					minDistance = dv;
+				}
+			}
+		}
+		labels_.relabel(u, minDistance);
+	}
+
+}
@@ -0,0 +1,718 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import util.Log;
+
+/**
+ * The Class PushRelabelParallelAlgo.
+ *
+ * Lock-free parallel push-relabel on a {@link FlowNetwork}, following the
+ * synchronous scheme of Baumstark et al. The active vertices form a working
+ * set which is processed in rounds by the workers of a {@link ForkJoinPool}.
+ * In a round every active vertex first pushes along its admissible arcs
+ * using the labels of the start of the round, then the vertices which keep
+ * excess are relabeled. Two neighbors can never push over the same pair of
+ * residual arcs in one round, so residual capacities need no
+ * synchronization. Only the excess a vertex receives is added atomically.
+ *
+ * Like {@link PushRelabelArrayAlgo}, a maximum preflow is computed first and
+ * turned into a flow by a {@link PreflowConverter} when the flow is requested.
+ */
+public class PushRelabelParallelAlgo implements MaxFlowSolver {
+	
+	/** The number of vertices processed by one task at least. */
+	private static final int GRAIN_SIZE_ = 256;
+	
+	/** The work of a relabel in addition to the scanned arcs. */
+	private static final int RELABEL_WORK_ = 12;
+	
+	private Graph graph_;
+	
+	private FlowNetwork network_;
+	
+	private int source_;
+	
+	private int sink_;
+	
+	private double[] residual_;
+	
+	private double[] excess_;
+	
+	/** The excess received in the current round, as double bits. */
+	private AtomicLongArray addedExcess_;
+	
+	private int[] distances_;
+	
+	private GlobalRelabeling relabeling_;
+	
+	/** The distance labels of the vertices relabeled in the current round. */
+	private int[] newDistances_;
+	
+	private int[] currentArcs_;
+	
+	/** The active vertices of the current round. */
+	private int[] workingSet_;
+	
+	private int workingSetSize_;
+	
+	/** The vertices which received excess in the current round. */
+	private int[] receivers_;
+	
+	private AtomicInteger numberOfReceivers_;
+	
+	/** The last round in which each vertex was added to the receivers. */
+	private AtomicIntegerArray receivedRounds_;
+	
+	/** The active vertices of the next round. */
+	private int[] nextWorkingSet_;
+	
+	private AtomicInteger nextWorkingSetSize_;
+	
+	/** The last round in which each vertex was added to the next working set. */
+	private AtomicIntegerArray addedRounds_;
+	
+	private int round_;
+	
+	private int numberOfWorkers_;
+	
+	private ForkJoinPool pool_;
+	
+	/** The arcs scanned plus the relabel work since the last global relabel. */
+	private AtomicLong workSinceUpdate_;
+	
+	private double globalRelabelFrequency_;
+	
+	private int numberOfGlobalRelabels_;
+	
+	/** The time spent in global relabels in nanoseconds. */
+	private long globalRelabelTime_;
+	
+	private boolean timeLimitReached_;
+	
+	/** True as long as only a preflow for the min cut has been computed. */
+	private boolean preflowOnly_;
+	
+	/**
+	 * The Interface LoopBody.
+	 *
+	 * The body of a parallel loop over a range of indices.
+	 */
+	private interface LoopBody {
+		
+		/**
+		 * Runs the body for the indices from (inclusive) to end (exclusive).
+		 *
+		 * @param from the first index
+		 * @param end the end index
+		 */
+		void run(int from, int end);
+	}
+	
+	/**
+	 * The Class LoopTask.
+	 *
+	 * Splits a range of indices until it is small enough to run the loop body.
+	 */
+	private static class LoopTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private LoopBody body_;
+		
+		private int from_;
+		
+		private int end_;
+		
+		/**
+		 * Instantiates a new loop task.
+		 *
+		 * @param body the loop body
+		 * @param from the first index
+		 * @param end the end index
+		 */
+		public LoopTask(LoopBody body, int from, int end) {
+			body_ = body;
+			from_ = from;
+			end_ = end;
+		}
+		
+		@Override
+		protected void compute() {
+			if (end_ - from_ <= GRAIN_SIZE_) {
+				body_.run(from_, end_);
+				return;
+			}
+			int middle = (from_ + end_) >>> 1;
+			invokeAll(new LoopTask(body_, from_, middle), new LoopTask(body_, middle, end_));
+		}
+	}
+	
+	/**
+	 * Instantiates a new push relabel parallel algo.
+	 *
+	 * @param graph the graph
+	 * @param s the s
+	 * @param t the t
+	 */
+	public PushRelabelParallelAlgo(Graph graph, Vertex s, Vertex t) {
+		graph_ = graph;
+		CsrGraph network = CsrGraph.fromGraph(graph);
+		initialize(network, network.getVertexIndex(s.getName()), network.getVertexIndex(t.getName()));
+	}
+	
+	/**
+	 * Instantiates a new push relabel parallel algo.
+	 *
+	 * @param graph the flow network
+	 * @param s the index of the source
+	 * @param t the index of the sink
+	 */
+	public PushRelabelParallelAlgo(FlowNetwork graph, int s, int t) {
+		graph_ = null;
+		initialize(graph, s, t);
+	}
+	
+	/**
+	 * Sets the number of workers. The default is the number of processors.
+	 *
+	 * @param workers the number of workers
+	 */
+	public void setNumberOfWorkers(int workers) {
+		if (workers < 1) {
+			Log.w("Number of workers " + workers + " is ignored, at least one worker is needed.");
+			return;
+		}
+		numberOfWorkers_ = workers;
+	}
+	
+	/**
+	 * Gets the number of workers.
+	 *
+	 * @return the number of workers
+	 */
+	public int getNumberOfWorkers() {
+		return numberOfWorkers_;
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow() {
+		return computeMaxFlow(-1);
+	}
+	
+	/**
+	 * Compute max flow.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow, or null if the algo was created from a csr graph
+	 */
+	public HashMap<Arc, Double> computeMaxFlow(int timeLimit) {
+		computeArcFlows(timeLimit);
+		if (null == graph_) {
+			return null;
+		}
+		return getFlow();
+	}
+	
+	/**
+	 * Compute the max flow on the input arcs.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the flow on each input arc
+	 */
+	public double[] computeArcFlows(int timeLimit) {
+		computeMinCut(timeLimit);
+		return getArcFlows();
+	}
+	
+	/**
+	 * Compute the min cut only. The max flow value and the cut are available
+	 * afterwards, the flow is completed when it is requested.
+	 *
+	 * @return the max flow value
+	 */
+	public double computeMinCut() {
+		return computeMinCut(-1);
+	}
+	
+	/**
+	 * Compute the min cut only. The max flow value and the cut are available
+	 * afterwards, the flow is completed when it is requested.
+	 *
+	 * @param timeLimit the time limit in milliseconds
+	 * @return the max flow value
+	 */
+	public double computeMinCut(int timeLimit) {
+		long deadline = (timeLimit >= 0) ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		timeLimitReached_ = false;
+		pool_ = new ForkJoinPool(numberOfWorkers_);
+		relabeling_.setPool(pool_);
+		try {
+			// move as much excess as possible to the sink
+			preflowOnly_ = processActiveVertices(deadline);
+		} finally {
+			relabeling_.setPool(null);
+			pool_.shutdown();
+			pool_ = null;
+		}
+		Log.ps("%d global relabels in %d ms", numberOfGlobalRelabels_, getGlobalRelabelTime());
+		return getMaxFlowValue();
+	}
+	
+	/**
+	 * Time limit reached.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean timeLimitReached() {
+		return timeLimitReached_;
+	}
+	
+	/**
+	 * Sets the global relabel frequency alpha. A global relabel is started
+	 * once the arcs scanned plus a constant per relabel since the last one
+	 * exceed alpha * n + m.
+	 *
+	 * @param frequency the global relabel frequency
+	 */
+	public void setGlobalRelabelFrequency(double frequency) {
+		if (frequency < 0.0) {
+			Log.w("Negative global relabel frequency " + frequency + " is ignored.");
+			return;
+		}
+		globalRelabelFrequency_ = frequency;
+	}
+	
+	/**
+	 * Gets the global relabel frequency.
+	 *
+	 * @return the global relabel frequency
+	 */
+	public double getGlobalRelabelFrequency() {
+		return globalRelabelFrequency_;
+	}
+	
+	/**
+	 * Gets the number of global relabels.
+	 *
+	 * @return the number of global relabels
+	 */
+	public int getNumberOfGlobalRelabels() {
+		return numberOfGlobalRelabels_;
+	}
+	
+	/**
+	 * Gets the time spent in global relabels.
+	 *
+	 * @return the global relabel time in milliseconds
+	 */
+	public long getGlobalRelabelTime() {
+		return globalRelabelTime_ / 1000000;
+	}
+	
+	/**
+	 * Gets the flow.
+	 *
+	 * @return the flow
+	 */
+	public HashMap<Arc, Double> getFlow() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getArcFlows() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.createFlowMap(graph_, network_, getArcFlows());
+	}
+	
+	/**
+	 * Gets the flow on each input arc of the csr graph.
+	 *
+	 * @return the arc flows
+	 */
+	public double[] getArcFlows() {
+		if (preflowOnly_) {
+			// return the remaining excess to the source
+			new PreflowConverter(network_, residual_, excess_, source_, sink_).convert();
+			preflowOnly_ = false;
+		}
+		int m = network_.getNumberOfArcs();
+		double[] flow = new double[m];
+		for (int e = 0; e < m; e++) {
+			int uv = network_.getResidualArc(e);
+			flow[e] = GraphUtil.getArcFlow(network_.getCapacity(uv), residual_[uv]);
+		}
+		return flow;
+	}
+	
+	/**
+	 * Gets the vertices on the source side of the minimum cut, i.e. all
+	 * vertices which cannot reach the sink in the residual graph.
+	 *
+	 * @return true for each vertex on the source side
+	 */
+	public boolean[] getSourceSide() {
+		int n = network_.getNumberOfVertices();
+		boolean[] reachesSink = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = sink_;
+		reachesSink[sink_] = true;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int vu = network_.getFirstResidualArc(v); vu < network_.getEndResidualArc(v); vu++) {
+				int u = network_.getHead(vu);
+				if (!reachesSink[u] && residual_[network_.getReverse(vu)] > 0.0) {
+					reachesSink[u] = true;
+					queue[tail++] = u;
+				}
+			}
+		}
+		boolean[] sourceSide = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			sourceSide[v] = !reachesSink[v];
+		}
+		return sourceSide;
+	}
+	
+	/**
+	 * Gets the cut set close to source.
+	 *
+	 * @return the cut set close to source
+	 */
+	public HashSet<String> getCutSetCloseToSource() {
+		return GraphUtil.getVertexNames(network_, getSourceSide());
+	}
+	
+	/**
+	 * Gets the cut.
+	 *
+	 * @return the cut
+	 */
+	public Collection<Arc> getCut() {
+		if (null == graph_) {
+			Log.w("No graph object specified.. please use getSourceSide() for a csr graph.");
+			return null;
+		}
+		return GraphUtil.getOutgoingArcs(graph_, getCutSetCloseToSource());
+	}
+	
+	/**
+	 * Gets the max flow value.
+	 *
+	 * @return the max flow value
+	 */
+	public double getMaxFlowValue() {
+		return excess_[sink_];
+	}
+	
+	private void initialize(FlowNetwork network, int s, int t) {
+		network_ = network;
+		source_ = s;
+		sink_ = t;
+		int n = network.getNumberOfVertices();
+		int mm = network.getNumberOfResidualArcs();
+		residual_ = new double[mm];
+		for (int a = 0; a < mm; a++) {
+			residual_[a] = network.getCapacity(a);
+		}
+		excess_ = new double[n];
+		addedExcess_ = new AtomicLongArray(n);
+		distances_ = new int[n];
+		relabeling_ = new GlobalRelabeling(network, residual_);
+		newDistances_ = new int[n];
+		currentArcs_ = new int[n];
+		workingSet_ = new int[n];
+		workingSetSize_ = 0;
+		receivers_ = new int[n];
+		numberOfReceivers_ = new AtomicInteger();
+		receivedRounds_ = new AtomicIntegerArray(n);
+		nextWorkingSet_ = new int[n];
+		nextWorkingSetSize_ = new AtomicInteger();
+		addedRounds_ = new AtomicIntegerArray(n);
+		round_ = 0;
+		numberOfWorkers_ = Runtime.getRuntime().availableProcessors();
+		workSinceUpdate_ = new AtomicLong();
+		preflowOnly_ = false;
+		globalRelabelFrequency_ = PushRelabelAlgo.DEFAULT_GLOBAL_RELABEL_FREQUENCY;
+		numberOfGlobalRelabels_ = 0;
+		globalRelabelTime_ = 0;
+		
+		// saturate all arcs leaving the source
+		for (int sv = network.getFirstResidualArc(s); sv < network.getEndResidualArc(s); sv++) {
+			double cap = residual_[sv];
+			if (cap > 0.0) {
+				residual_[sv] = 0.0;
+				residual_[network.getReverse(sv)] += cap;
+				excess_[network.getHead(sv)] += cap;
+			}
+		}
+		globalRelabelingDistances();
+	}
+	
+	/**
+	 * Processes the working set in rounds until no active vertex with a
+	 * distance label below n is left.
+	 *
+	 * @param deadline the deadline in milliseconds
+	 * @return false, if the time limit was reached
+	 */
+	private boolean processActiveVertices(long deadline) {
+		int n = network_.getNumberOfVertices();
+		while (workingSetSize_ > 0) {
+			round_++;
+			numberOfReceivers_.set(0);
+			nextWorkingSetSize_.set(0);
+			
+			// push with the labels of the start of the round
+			parallelFor(workingSetSize_, new LoopBody() {
+				public void run(int from, int end) {
+					long work = 0;
+					for (int i = from; i < end; i++) {
+						work += push(workingSet_[i]);
+					}
+					workSinceUpdate_.addAndGet(work);
+				}
+			});
+			
+			// relabel the vertices which keep excess, still with the old labels
+			parallelFor(workingSetSize_, new LoopBody() {
+				public void run(int from, int end) {
+					long work = 0;
+					for (int i = from; i < end; i++) {
+						work += relabel(workingSet_[i]);
+					}
+					workSinceUpdate_.addAndGet(work);
+				}
+			});
+			
+			// apply the new labels and the received excess
+			parallelFor(workingSetSize_, new LoopBody() {
+				public void run(int from, int end) {
+					for (int i = from; i < end; i++) {
+						int v = workingSet_[i];
+						distances_[v] = newDistances_[v];
+					}
+				}
+			});
+			parallelFor(numberOfReceivers_.get(), new LoopBody() {
+				public void run(int from, int end) {
+					for (int i = from; i < end; i++) {
+						int v = receivers_[i];
+						excess_[v] += Double.longBitsToDouble(addedExcess_.getAndSet(v, 0L));
+					}
+				}
+			});
+			excess_[sink_] += Double.longBitsToDouble(addedExcess_.getAndSet(sink_, 0L));
+			excess_[source_] += Double.longBitsToDouble(addedExcess_.getAndSet(source_, 0L));
+			
+			// the vertices which are still or became active form the next working set
+			parallelFor(workingSetSize_, new LoopBody() {
+				public void run(int from, int end) {
+					for (int i = from; i < end; i++) {
+						addToNextWorkingSet(workingSet_[i]);
+					}
+				}
+			});
+			parallelFor(numberOfReceivers_.get(), new LoopBody() {
+				public void run(int from, int end) {
+					for (int i = from; i < end; i++) {
+						addToNextWorkingSet(receivers_[i]);
+					}
+				}
+			});
+			int[] workingSet = workingSet_;
+			workingSet_ = nextWorkingSet_;
+			nextWorkingSet_ = workingSet;
+			workingSetSize_ = nextWorkingSetSize_.get();
+			
+			if (System.currentTimeMillis() > deadline) {
+				Log.w("Time limit reached.");
+				timeLimitReached_ = true;
+				clearFlow();
+				return false;
+			}
+			if (workSinceUpdate_.get() >= globalRelabelFrequency_ * n + network_.getNumberOfArcs()) {
+				globalRelabelingDistances();
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Runs the loop body for the indices 0..size-1 on the pool.
+	 *
+	 * @param size the number of indices
+	 * @param body the loop body
+	 */
+	private void parallelFor(int size, LoopBody body) {
+		if (null == pool_ || size <= GRAIN_SIZE_ || numberOfWorkers_ == 1) {
+			body.run(0, size);
+			return;
+		}
+		pool_.invoke(new LoopTask(body, 0, size));
+	}
+	
+	/**
+	 * Resets the residual capacities to a zero flow.
+	 */
+	private void clearFlow() {
+		for (int a = 0; a < residual_.length; a++) {
+			residual_[a] = network_.getCapacity(a);
+		}
+		Arrays.fill(excess_, 0.0);
+		workingSetSize_ = 0;
+	}
+	
+	/**
+	 * Global relabeling distances. Sets the distance label of every vertex to
+	 * its distance to the sink in the residual graph, or to n if the sink is
+	 * not reachable, and rebuilds the working set.
+	 */
+	private void globalRelabelingDistances() {
+		long start = System.nanoTime();
+		int n = network_.getNumberOfVertices();
+		relabeling_.computeDistances(distances_, source_, sink_);
+		
+		// labels changed, so restart all arc scans and rebuild the working set
+		nextWorkingSetSize_.set(0);
+		parallelFor(n, new LoopBody() {
+			public void run(int from, int end) {
+				for (int v = from; v < end; v++) {
+					currentArcs_[v] = network_.getFirstResidualArc(v);
+					if (isActive(v)) {
+						workingSet_[nextWorkingSetSize_.getAndIncrement()] = v;
+					}
+				}
+			}
+		});
+		workingSetSize_ = nextWorkingSetSize_.get();
+		workSinceUpdate_.set(0);
+		numberOfGlobalRelabels_++;
+		globalRelabelTime_ += System.nanoTime() - start;
+	}
+	
+	/**
+	 * Vertex is active.
+	 *
+	 * @param v the v
+	 * @return true, if successful
+	 */
+	private boolean isActive(int v) {
+		return v != source_ && v != sink_ && excess_[v] > 0.0 && distances_[v] < network_.getNumberOfVertices();
+	}
+	
+	/**
+	 * Adds the vertex to the next working set if it is active and not added yet.
+	 *
+	 * @param v the v
+	 */
+	private void addToNextWorkingSet(int v) {
+		if (!isActive(v)) {
+			return;
+		}
+		int added = addedRounds_.get(v);
+		if (added != round_ && addedRounds_.compareAndSet(v, added, round_)) {
+			nextWorkingSet_[nextWorkingSetSize_.getAndIncrement()] = v;
+		}
+	}
+	
+	/**
+	 * Pushes the excess of the vertex along its admissible arcs, starting at
+	 * its current arc. An arc uv is only admissible if d(u) = d(v) + 1, so v
+	 * never pushes over vu in the same round and the residual capacities of
+	 * uv and vu are only changed by u.
+	 *
+	 * @param u the u
+	 * @return the number of arcs scanned
+	 */
+	private long push(int u) {
+		int du = distances_[u];
+		double e = excess_[u];
+		int end = network_.getEndResidualArc(u);
+		int uv = currentArcs_[u];
+		int first = uv;
+		for (; uv < end; uv++) {
+			int v = network_.getHead(uv);
+			if (du == distances_[v] + 1 && residual_[uv] > 0.0) {
+				double delta = Math.min(e, residual_[uv]);
+				residual_[uv] -= delta;
+				residual_[network_.getReverse(uv)] += delta;
+				e -= delta;
+				addExcess(v, delta);
+				if (0.0 == e) {
+					break;
+				}
+			}
+		}
+		currentArcs_[u] = uv;
+		excess_[u] = e;
+		newDistances_[u] = du;
+		return uv - first;
+	}
+	
+	/**
+	 * Adds the excess received by the vertex in this round.
+	 *
+	 * @param v the v
+	 * @param delta the excess
+	 */
+	private void addExcess(int v, double delta) {
+		while (true) {
+			long bits = addedExcess_.get(v);
+			long sum = Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + delta);
+			if (addedExcess_.compareAndSet(v, bits, sum)) {
+				break;
+			}
+		}
+		if (v == sink_ || v == source_) {
+			return;
+		}
+		int received = receivedRounds_.get(v);
+		if (received != round_ && receivedRounds_.compareAndSet(v, received, round_)) {
+			receivers_[numberOfReceivers_.getAndIncrement()] = v;
+		}
+	}
+	
+	/**
+	 * Relabels the vertex if it kept excess after pushing. The new label is
+	 * computed from the labels of the start of the round, which keeps the
+	 * labeling valid since labels only grow.
+	 *
+	 * @param u the vertex u
+	 * @return the number of arcs scanned plus the relabel work
+	 */
+	private long relabel(int u) {
+		if (0.0 == excess_[u] || currentArcs_[u] < network_.getEndResidualArc(u)) {
+			return 0;
+		}
+		// vertices which cannot reach the sink anymore get the label n
+		int minDistance = network_.getNumberOfVertices();
+		int first = network_.getFirstResidualArc(u);
+		int end = network_.getEndResidualArc(u);
+		for (int uv = first; uv < end; uv++) {
+			if (residual_[uv] > 0.0) {
+				int dv = distances_[network_.getHead(uv)] + 1;
+				if (minDistance > dv) {
+					minDistance = dv;
+				}
+			}
+		}
+		newDistances_[u] = minDistance;
+		currentArcs_[u] = first;
+		return end - first + RELABEL_WORK_;
+	}
+
+}
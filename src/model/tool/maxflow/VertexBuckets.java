@@ -0,0 +1,272 @@
+package model.tool.maxflow;
+
+import java.util.Arrays;
+
+/**
+ * The Class VertexBuckets.
+ *
+ * Buckets of int vertices indexed by label. Every vertex is in at most one
+ * bucket. The buckets are doubly linked lists threaded through per-vertex
+ * next and previous links, so inserting, removing and looking up the
+ * highest or lowest non-empty bucket take constant (amortized) time and
+ * allocate nothing. Vertices are appended at the end of a bucket and polled
+ * from its front.
+ */
+public class VertexBuckets {
+	
+	/** The value of a missing link. */
+	private static final int NONE_ = -1;
+	
+	/** The first vertex of each bucket. */
+	private int[] first_;
+	
+	/** The last vertex of each bucket. */
+	private int[] last_;
+	
+	/** The next vertex in the same bucket. */
+	private int[] next_;
+	
+	/** The previous vertex in the same bucket. */
+	private int[] previous_;
+	
+	/** The label of each vertex, -1 if the vertex is in no bucket. */
+	private int[] labels_;
+	
+	/** An upper bound of the highest label with a non-empty bucket. */
+	private int highestLabel_;
+	
+	/** A lower bound of the lowest label with a non-empty bucket. */
+	private int lowestLabel_;
+	
+	/** The number of vertices in all buckets. */
+	private int size_;
+	
+	/**
+	 * Instantiates new vertex buckets.
+	 *
+	 * @param numberOfVertices the number of vertices, i.e. the vertices are 0..numberOfVertices-1
+	 * @param numberOfLabels the initial number of labels, grows when needed
+	 */
+	public VertexBuckets(int numberOfVertices, int numberOfLabels) {
+		first_ = new int[Math.max(numberOfLabels, 1)];
+		last_ = new int[first_.length];
+		next_ = new int[numberOfVertices];
+		previous_ = new int[numberOfVertices];
+		labels_ = new int[numberOfVertices];
+		clear();
+	}
+	
+	/**
+	 * Removes all vertices from the buckets.
+	 */
+	public void clear() {
+		Arrays.fill(first_, NONE_);
+		Arrays.fill(last_, NONE_);
+		Arrays.fill(labels_, NONE_);
+		highestLabel_ = NONE_;
+		lowestLabel_ = 0;
+		size_ = 0;
+	}
+	
+	/**
+	 * Adds the vertex at the end of the bucket of the label.
+	 * A vertex which is already in a bucket is moved.
+	 *
+	 * @param v the vertex
+	 * @param label the label
+	 */
+	public void add(int v, int label) {
+		if (NONE_ != labels_[v]) {
+			remove(v);
+		}
+		if (label >= first_.length) {
+			int size = Math.max(2 * first_.length, label + 1);
+			int oldSize = first_.length;
+			first_ = Arrays.copyOf(first_, size);
+			last_ = Arrays.copyOf(last_, size);
+			Arrays.fill(first_, oldSize, size, NONE_);
+			Arrays.fill(last_, oldSize, size, NONE_);
+		}
+		labels_[v] = label;
+		next_[v] = NONE_;
+		previous_[v] = last_[label];
+		if (NONE_ == last_[label]) {
+			first_[label] = v;
+		} else {
+			next_[last_[label]] = v;
+		}
+		last_[label] = v;
+		if (highestLabel_ < label) {
+			highestLabel_ = label;
+		}
+		if (lowestLabel_ > label) {
+			lowestLabel_ = label;
+		}
+		size_++;
+	}
+	
+	/**
+	 * Removes the vertex from its bucket.
+	 *
+	 * @param v the vertex
+	 */
+	public void remove(int v) {
+		int label = labels_[v];
+		if (NONE_ == label) {
+			return;
+		}
+		int p = previous_[v];
+		int n = next_[v];
+		if (NONE_ == p) {
+			first_[label] = n;
+		} else {
+			next_[p] = n;
+		}
+		if (NONE_ == n) {
+			last_[label] = p;
+		} else {
+			previous_[n] = p;
+		}
+		labels_[v] = NONE_;
+		size_--;
+	}
+	
+	/**
+	 * Checks if the vertex is in a bucket.
+	 *
+	 * @param v the vertex
+	 * @return true, if the vertex is in a bucket
+	 */
+	public boolean contains(int v) {
+		return NONE_ != labels_[v];
+	}
+	
+	/**
+	 * Gets the label of the bucket of the vertex.
+	 *
+	 * @param v the vertex
+	 * @return the label, or -1 if the vertex is in no bucket
+	 */
+	public int getLabel(int v) {
+		return labels_[v];
+	}
+	
+	/**
+	 * Checks if all buckets are empty.
+	 *
+	 * @return true, if all buckets are empty
+	 */
+	public boolean isEmpty() {
+		return 0 == size_;
+	}
+	
+	/**
+	 * Checks if the bucket of the label is empty.
+	 *
+	 * @param label the label
+	 * @return true, if the bucket is empty
+	 */
+	public boolean isEmpty(int label) {
+		return label >= first_.length || NONE_ == first_[label];
+	}
+	
+	/**
+	 * Gets the number of vertices in all buckets.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return size_;
+	}
+	
+	/**
+	 * Gets the first vertex of the bucket of the label.
+	 *
+	 * @param label the label
+	 * @return the first vertex, or -1 if the bucket is empty
+	 */
+	public int getFirst(int label) {
+		return (label >= first_.length) ? NONE_ : first_[label];
+	}
+	
+	/**
+	 * Gets the next vertex in the same bucket.
+	 *
+	 * @param v the vertex
+	 * @return the next vertex, or -1 if v is the last one
+	 */
+	public int getNext(int v) {
+		return next_[v];
+	}
+	
+	/**
+	 * Gets the highest label with a non-empty bucket.
+	 *
+	 * @return the highest label, or -1 if all buckets are empty
+	 */
+	public int getHighestLabel() {
+		if (0 == size_) {
+			highestLabel_ = NONE_;
+		}
+		while (highestLabel_ > NONE_ && NONE_ == first_[highestLabel_]) {
+			highestLabel_--;
+		}
+		return highestLabel_;
+	}
+	
+	/**
+	 * Gets the lowest label with a non-empty bucket.
+	 *
+	 * @return the lowest label, or -1 if all buckets are empty
+	 */
+	public int getLowestLabel() {
+		if (0 == size_) {
+			return NONE_;
+		}
+		while (NONE_ == first_[lowestLabel_]) {
+			lowestLabel_++;
+		}
+		return lowestLabel_;
+	}
+	
+	/**
+	 * Removes and returns the first vertex of the lowest non-empty bucket.
+	 *
+	 * @return the vertex, or -1 if all buckets are empty
+	 */
+	public int pollLowest() {
+		int label = getLowestLabel();
+		if (NONE_ == label) {
+			return NONE_;
+		}
+		return pollFirst(label);
+	}
+	
+	/**
+	 * Removes and returns the first vertex of the highest non-empty bucket.
+	 *
+	 * @return the vertex, or -1 if all buckets are empty
+	 */
+	public int pollHighest() {
+		int label = getHighestLabel();
+		if (NONE_ == label) {
+			return NONE_;
+		}
+		return pollFirst(label);
+	}
+	
+	/**
+	 * Removes and returns the first vertex of the bucket of the label.
+	 *
+	 * @param label the label
+	 * @return the vertex, or -1 if the bucket is empty
+	 */
+	public int pollFirst(int label) {
+		int v = getFirst(label);
+		if (NONE_ != v) {
+			remove(v);
+		}
+		return v;
+	}
+
+}
@@ -0,0 +1,256 @@
+package model.tool.maxflow;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The Class VertexDictionary.
+ *
+ * Maps vertex names to the dense ids 0..size-1 in the order they are added.
+ * The names are given as bytes, kept in one byte pool and found by a hash
+ * table on their bytes, so neither a lookup nor a new name creates a string.
+ * A dictionary is not thread-safe: {@link MappedFileParser} gives every
+ * chunk its own and looks the names of a chunk up in the dictionary of the
+ * graph when the chunk is merged.
+ */
+public class VertexDictionary {
+	
+	/** The empty slot of the table. */
+	private static final long NO_NAME_ = -1;
+	
+	/** The table in open addressing slots, the id of a name times 2^32 plus its hash. */
+	private long[] table_;
+	
+	/** The bytes of all names. */
+	private byte[] pool_;
+	
+	/** The start of each name in the pool, the name of id k ends at the start of k + 1. */
+	private int[] offsets_;
+	
+	/** The hash of each name. */
+	private int[] hashes_;
+	
+	/** The number of names. */
+	private int size_;
+	
+	/**
+	 * Instantiates a new vertex dictionary.
+	 */
+	public VertexDictionary() {
+		this(16);
+	}
+	
+	/**
+	 * Instantiates a new vertex dictionary.
+	 *
+	 * @param expectedSize the expected number of names
+	 */
+	public VertexDictionary(int expectedSize) {
+		expectedSize = Math.max(expectedSize, 16);
+		int slots = 32;
+		while (slots < 2 * expectedSize) {
+			slots <<= 1;
+		}
+		table_ = new long[slots];
+		Arrays.fill(table_, NO_NAME_);
+		pool_ = new byte[8 * expectedSize];
+		offsets_ = new int[expectedSize + 1];
+		hashes_ = new int[expectedSize];
+		size_ = 0;
+	}
+	
+	/**
+	 * Computes the hash of a name, FNV-1a on its bytes.
+	 *
+	 * @param bytes the bytes
+	 * @param from the first byte of the name
+	 * @param length the length of the name
+	 * @return the hash
+	 */
+	public static int hash(byte[] bytes, int from, int length) {
+		int hash = 0x811c9dc5;
+		for (int i = from; i < from + length; i++) {
+			hash = (hash ^ (bytes[i] & 0xff)) * 0x01000193;
+		}
+		return hash;
+	}
+	
+	/**
+	 * Spreads the bits of the hash over the slots.
+	 *
+	 * @param hash the hash
+	 * @return the mixed hash
+	 */
+	static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * Adds the name if it is new.
+	 *
+	 * @param bytes the bytes
+	 * @param from the first byte of the name
+	 * @param length the length of the name
+	 * @param hash the hash of the name, see {@link #hash(byte[], int, int)}
+	 * @return the id of the name
+	 */
+	public int add(byte[] bytes, int from, int length, int hash) {
+		int slot = findSlot(bytes, from, length, hash);
+		if (NO_NAME_ != table_[slot]) {
+			return (int) (table_[slot] >>> 32);
+		}
+		
+		int id = size_;
+		if (id == hashes_.length) {
+			hashes_ = Arrays.copyOf(hashes_, 2 * id);
+			offsets_ = Arrays.copyOf(offsets_, 2 * id + 1);
+		}
+		int offset = offsets_[id];
+		if (offset + length > pool_.length) {
+			pool_ = Arrays.copyOf(pool_, Math.max(2 * pool_.length, offset + length));
+		}
+		System.arraycopy(bytes, from, pool_, offset, length);
+		offsets_[id + 1] = offset + length;
+		hashes_[id] = hash;
+		table_[slot] = ((long) id << 32) | (hash & 0xffffffffL);
+		size_ = id + 1;
+		if (2 * size_ > table_.length) {
+			rehash();
+		}
+		return id;
+	}
+	
+	/**
+	 * Adds a name of another dictionary if it is new.
+	 *
+	 * @param other the other dictionary
+	 * @param id the id of the name in the other dictionary
+	 * @return the id of the name in this dictionary
+	 */
+	public int add(VertexDictionary other, int id) {
+		return add(other.pool_, other.offsets_[id], other.getLength(id), other.hashes_[id]);
+	}
+	
+	/**
+	 * Gets the id of a name.
+	 *
+	 * @param bytes the bytes
+	 * @param from the first byte of the name
+	 * @param length the length of the name
+	 * @param hash the hash of the name, see {@link #hash(byte[], int, int)}
+	 * @return the id, or -1 if the name is unknown
+	 */
+	public int getId(byte[] bytes, int from, int length, int hash) {
+		long entry = table_[findSlot(bytes, from, length, hash)];
+		return (NO_NAME_ == entry) ? -1 : (int) (entry >>> 32);
+	}
+	
+	/**
+	 * Gets the id of a name of another dictionary.
+	 *
+	 * @param other the other dictionary
+	 * @param id the id of the name in the other dictionary
+	 * @return the id in this dictionary, or -1 if the name is unknown
+	 */
+	public int getId(VertexDictionary other, int id) {
+		return getId(other.pool_, other.offsets_[id], other.getLength(id), other.hashes_[id]);
+	}
+	
+	/**
+	 * Gets the name of the id.
+	 *
+	 * @param id the id
+	 * @param charset the charset of the bytes
+	 * @return the name
+	 */
+	public String getName(int id, Charset charset) {
+		return new String(pool_, offsets_[id], getLength(id), charset);
+	}
+	
+	/**
+	 * Gets the number of names.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return size_;
+	}
+	
+	/**
+	 * Gets the length of the name of the id in bytes.
+	 *
+	 * @param id the id
+	 * @return the length
+	 */
+	private int getLength(int id) {
+		return offsets_[id + 1] - offsets_[id];
+	}
+	
+	/**
+	 * Finds the slot of a name, or the empty slot it is added at.
+	 *
+	 * @param bytes the bytes
+	 * @param from the first byte of the name
+	 * @param length the length of the name
+	 * @param hash the hash of the name
+	 * @return the slot
+	 */
+	private int findSlot(byte[] bytes, int from, int length, int hash) {
+		int mask = table_.length - 1;
+		int slot = mix(hash) & mask;
+		while (NO_NAME_ != table_[slot]) {
+			long entry = table_[slot];
+			if ((int) entry == hash && equalsName((int) (entry >>> 32), bytes, from, length)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	/**
+	 * Checks if the bytes equal the name of the id.
+	 *
+	 * @param id the id
+	 * @param bytes the bytes
+	 * @param from the first byte
+	 * @param length the length
+	 * @return true, if the bytes equal the name
+	 */
+	private boolean equalsName(int id, byte[] bytes, int from, int length) {
+		if (getLength(id) != length) {
+			return false;
+		}
+		int offset = offsets_[id];
+		for (int i = 0; i < length; i++) {
+			if (pool_[offset + i] != bytes[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Doubles the table.
+	 */
+	private void rehash() {
+		long[] table = new long[2 * table_.length];
+		Arrays.fill(table, NO_NAME_);
+		int mask = table.length - 1;
+		for (long entry : table_) {
+			if (NO_NAME_ != entry) {
+				int slot = mix((int) entry) & mask;
+				while (NO_NAME_ != table[slot]) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = entry;
+			}
+		}
+		table_ = table;
+	}
+
+}